@@ -19,6 +19,7 @@ package net.openhft.chronicle.engine.api;
 
 import net.openhft.chronicle.bytes.BytesStore;
 import net.openhft.chronicle.engine.api.pubsub.Replication;
+import net.openhft.chronicle.engine.map.ValueCompressor;
 import net.openhft.chronicle.wire.Marshallable;
 import net.openhft.chronicle.wire.WireIn;
 import net.openhft.chronicle.wire.WireOut;
@@ -198,7 +199,9 @@ public interface EngineReplication extends Replication {
         default void writeMarshallable(@NotNull final WireOut wire) {
             wire.write(() -> "key").bytes(key());
 
-            if (ENGINE_REPLICATION_COMPRESSION != null && value() != null)
+            // values already compressed by the store are sent as is.
+            if (ENGINE_REPLICATION_COMPRESSION != null && value() != null
+                    && !ValueCompressor.isCompressed(value()))
                 wire.write(() -> "value").compress(ENGINE_REPLICATION_COMPRESSION, value().bytesForRead());
             else
                 wire.write(() -> "value").bytes(value());
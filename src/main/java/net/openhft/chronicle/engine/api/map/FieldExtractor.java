@@ -0,0 +1,100 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+
+package net.openhft.chronicle.engine.api.map;
+
+import net.openhft.chronicle.core.util.SerializableFunction;
+import net.openhft.chronicle.wire.Marshallable;
+import net.openhft.chronicle.wire.WireIn;
+import net.openhft.chronicle.wire.WireOut;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.lang.reflect.Field;
+
+/**
+ * Extracts a field of a value by name, so an index can be declared on a field without a lambda. The
+ * field is looked up on the class of each value, including its super classes, the first time it is seen.
+ */
+public class FieldExtractor<V> implements SerializableFunction<V, Object>, Marshallable {
+    private String field;
+    @Nullable
+    private transient Class lastClass;
+    @Nullable
+    private transient Field lastField;
+
+    public FieldExtractor(@NotNull String field) {
+        this.field = field;
+    }
+
+    @NotNull
+    public String field() {
+        return field;
+    }
+
+    @Nullable
+    @Override
+    public Object apply(@Nullable V value) {
+        if (value == null)
+            return null;
+        try {
+            return fieldOf(value.getClass()).get(value);
+        } catch (IllegalAccessException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    @NotNull
+    private Field fieldOf(@NotNull Class aClass) {
+        @Nullable Field field = this.lastField;
+        if (aClass == lastClass && field != null)
+            return field;
+        for (@Nullable Class c = aClass; c != null; c = c.getSuperclass()) {
+            try {
+                field = c.getDeclaredField(this.field);
+                field.setAccessible(true);
+                lastClass = aClass;
+                lastField = field;
+                return field;
+            } catch (NoSuchFieldException ignored) {
+                // try the super class.
+            }
+        }
+        throw new IllegalArgumentException("No field " + this.field + " in " + aClass.getName());
+    }
+
+    @Override
+    public void readMarshallable(@NotNull WireIn wire) throws IllegalStateException {
+        field = wire.read(() -> "field").text();
+        lastClass = null;
+        lastField = null;
+    }
+
+    @Override
+    public void writeMarshallable(@NotNull WireOut wire) {
+        wire.write(() -> "field").text(field);
+    }
+
+    @NotNull
+    @Override
+    public String toString() {
+        return "FieldExtractor{" +
+                "field='" + field + '\'' +
+                '}';
+    }
+}
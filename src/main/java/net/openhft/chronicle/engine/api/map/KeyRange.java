@@ -0,0 +1,187 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+
+package net.openhft.chronicle.engine.api.map;
+
+import net.openhft.chronicle.core.util.SerializablePredicate;
+import net.openhft.chronicle.wire.Marshallable;
+import net.openhft.chronicle.wire.WireIn;
+import net.openhft.chronicle.wire.WireOut;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Objects;
+
+/**
+ * A range of keys in their natural order, either bound of which may be open.
+ * <p>
+ * As a predicate on MapEvents it can be added to a subscription Filter, so only the events of keys in
+ * the range are passed on, and a sorted store uses it to bootstrap the subscription from the range alone.
+ */
+public class KeyRange<K> implements SerializablePredicate<MapEvent<K, ?>>, Marshallable {
+    @Nullable
+    private K from;
+    private boolean fromInclusive;
+    @Nullable
+    private K to;
+    private boolean toInclusive;
+
+    public KeyRange(@Nullable K from, boolean fromInclusive, @Nullable K to, boolean toInclusive) {
+        this.from = from;
+        this.fromInclusive = fromInclusive;
+        this.to = to;
+        this.toInclusive = toInclusive;
+    }
+
+    /**
+     * @return the keys from <code>from</code> inclusive to <code>to</code> exclusive.
+     */
+    @NotNull
+    public static <K> KeyRange<K> of(@Nullable K from, @Nullable K to) {
+        return new KeyRange<>(from, true, to, false);
+    }
+
+    @NotNull
+    public static <K> KeyRange<K> all() {
+        return new KeyRange<>(null, true, null, false);
+    }
+
+    /**
+     * @return the String keys which start with the prefix.
+     */
+    @NotNull
+    public static KeyRange<String> prefix(@NotNull String prefix) {
+        return new KeyRange<>(prefix, true, successor(prefix), false);
+    }
+
+    /**
+     * @return the range of just the one key.
+     */
+    @NotNull
+    public static <K> KeyRange<K> only(@NotNull K key) {
+        return new KeyRange<>(key, true, key, true);
+    }
+
+    /**
+     * @return the least String greater than every String starting with the prefix, or null if there
+     * is none.
+     */
+    @Nullable
+    public static String successor(@NotNull String prefix) {
+        for (int i = prefix.length() - 1; i >= 0; i--) {
+            char ch = prefix.charAt(i);
+            if (ch != Character.MAX_VALUE)
+                return prefix.substring(0, i) + (char) (ch + 1);
+        }
+        return null;
+    }
+
+    @Nullable
+    public K from() {
+        return from;
+    }
+
+    public boolean fromInclusive() {
+        return fromInclusive;
+    }
+
+    @Nullable
+    public K to() {
+        return to;
+    }
+
+    public boolean toInclusive() {
+        return toInclusive;
+    }
+
+    /**
+     * @return the only key in this range, or null if it may hold more than one.
+     */
+    @Nullable
+    public K singleKey() {
+        return from != null && fromInclusive && toInclusive && from.equals(to) ? from : null;
+    }
+
+    /**
+     * @return the prefix of the String keys this range holds, or null if it isn't such a range.
+     */
+    @Nullable
+    public String prefix() {
+        if (!(from instanceof String) || !fromInclusive || toInclusive)
+            return null;
+        @NotNull String prefix = (String) from;
+        return Objects.equals(to, successor(prefix)) ? prefix : null;
+    }
+
+    public boolean contains(@NotNull K key) {
+        if (from != null) {
+            int cmp = ((Comparable) key).compareTo(from);
+            if (cmp < 0 || (cmp == 0 && !fromInclusive))
+                return false;
+        }
+        if (to != null) {
+            int cmp = ((Comparable) key).compareTo(to);
+            if (cmp > 0 || (cmp == 0 && !toInclusive))
+                return false;
+        }
+        return true;
+    }
+
+    @Override
+    public boolean test(@NotNull MapEvent<K, ?> event) {
+        return contains(event.getKey());
+    }
+
+    @Override
+    public void readMarshallable(@NotNull WireIn wire) throws IllegalStateException {
+        from = (K) wire.read(() -> "from").object(Object.class);
+        fromInclusive = wire.read(() -> "fromInclusive").bool();
+        to = (K) wire.read(() -> "to").object(Object.class);
+        toInclusive = wire.read(() -> "toInclusive").bool();
+    }
+
+    @Override
+    public void writeMarshallable(@NotNull WireOut wire) {
+        wire.write(() -> "from").object(from)
+                .write(() -> "fromInclusive").bool(fromInclusive)
+                .write(() -> "to").object(to)
+                .write(() -> "toInclusive").bool(toInclusive);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof KeyRange)) return false;
+        @NotNull KeyRange<?> that = (KeyRange<?>) o;
+        return fromInclusive == that.fromInclusive &&
+                toInclusive == that.toInclusive &&
+                Objects.equals(from, that.from) &&
+                Objects.equals(to, that.to);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(from, fromInclusive, to, toInclusive);
+    }
+
+    @NotNull
+    @Override
+    public String toString() {
+        return (fromInclusive ? "[" : "(") + from + ", " + to + (toInclusive ? "]" : ")");
+    }
+}
@@ -28,9 +28,11 @@ import net.openhft.lang.model.constraints.Nullable;
 import org.jetbrains.annotations.NotNull;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.function.BiConsumer;
 import java.util.function.Consumer;
 
 /**
@@ -66,6 +68,72 @@ public interface KeyValueStore<K, V> extends Assetted<KeyValueStore<K, V>>, Clos
     @org.jetbrains.annotations.Nullable
     V getAndRemove(K key);
 
+    /**
+     * put many entries. A store may apply them together, and notify its subscribers with a single
+     * batch of events.
+     *
+     * @param entries to put
+     */
+    default void putAll(@NotNull Map<? extends K, ? extends V> entries) {
+        putAll(entries, null);
+    }
+
+    /**
+     * put many entries.
+     *
+     * @param entries  to put
+     * @param previous if not null, is passed each key and the value it replaced, or null if it was added.
+     */
+    default void putAll(@NotNull Map<? extends K, ? extends V> entries,
+                        @org.jetbrains.annotations.Nullable BiConsumer<? super K, ? super V> previous) {
+        for (@NotNull Map.Entry<? extends K, ? extends V> entry : entries.entrySet()) {
+            K key = entry.getKey();
+            if (previous == null)
+                put(key, entry.getValue());
+            else
+                previous.accept(key, getAndPut(key, entry.getValue()));
+        }
+    }
+
+    /**
+     * look up many keys.
+     *
+     * @param keys  to look up
+     * @param found is passed each key which has a value, and its value.
+     */
+    default void getAll(@NotNull Collection<? extends K> keys, @NotNull BiConsumer<? super K, ? super V> found) {
+        for (K key : keys) {
+            @org.jetbrains.annotations.Nullable V value = get(key);
+            if (value != null)
+                found.accept(key, value);
+        }
+    }
+
+    /**
+     * remove many keys.
+     *
+     * @param keys    to remove
+     * @param removed if not null, is passed each key removed and the value it had.
+     * @return the number of keys removed.
+     */
+    default int removeAll(@NotNull Collection<? extends K> keys,
+                          @org.jetbrains.annotations.Nullable BiConsumer<? super K, ? super V> removed) {
+        int count = 0;
+        for (K key : keys) {
+            if (removed == null) {
+                if (remove(key))
+                    count++;
+            } else {
+                @org.jetbrains.annotations.Nullable V oldValue = getAndRemove(key);
+                if (oldValue != null) {
+                    removed.accept(key, oldValue);
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
     @org.jetbrains.annotations.Nullable
     @Nullable
     default V get(K key) {
@@ -98,6 +166,30 @@ public interface KeyValueStore<K, V> extends Assetted<KeyValueStore<K, V>>, Clos
 
     void entriesFor(int segment, SubscriptionConsumer<MapEvent<K, V>> kvConsumer) throws InvalidSubscriberException;
 
+    /**
+     * Open a view of every entry as at one point in time. Writers are not blocked while it is open, and a
+     * write made after it was opened is not seen by it.
+     * <p>
+     * By default this is only as consistent as {@link #entriesFor(int, SubscriptionConsumer)}, i.e. an
+     * entry written during the scan may or may not be seen; stores which can do better override it.
+     *
+     * @return a snapshot which must be closed once it has been read.
+     */
+    @NotNull
+    default EntriesSnapshot<K, V> snapshot() {
+        return kvConsumer -> {
+            for (int i = 0, seg = segments(); i < seg; i++)
+                entriesFor(i, kvConsumer);
+        };
+    }
+
+    /**
+     * Wait until the events of every write already made have been passed to subscribers. Only stores which
+     * publish their events asynchronously need to override this.
+     */
+    default void flushEvents() {
+    }
+
     default Iterator<Map.Entry<K, V>> entrySetIterator() {
         // todo optimise
         @NotNull List<Map.Entry<K, V>> entries = new ArrayList<>();
@@ -182,6 +274,33 @@ public interface KeyValueStore<K, V> extends Assetted<KeyValueStore<K, V>>, Clos
 
     boolean containsValue(V value);
 
+    /**
+     * The entries of a store as at the point the snapshot was opened.
+     */
+    @FunctionalInterface
+    interface EntriesSnapshot<K, V> extends AutoCloseable {
+        /**
+         * Pass each entry of the snapshot, once, as an insert.
+         */
+        void entriesFor(@NotNull SubscriptionConsumer<MapEvent<K, V>> kvConsumer) throws InvalidSubscriberException;
+
+        /**
+         * Pass the next entries of the snapshot, so it can be read a slice at a time. A snapshot which
+         * can't stop part way through passes all of them.
+         *
+         * @param max the most entries to pass.
+         * @return whether there are entries left to pass.
+         */
+        default boolean nextEntries(int max, @NotNull SubscriptionConsumer<MapEvent<K, V>> kvConsumer) throws InvalidSubscriberException {
+            entriesFor(kvConsumer);
+            return false;
+        }
+
+        @Override
+        default void close() {
+        }
+    }
+
     interface Entry<K, V> {
         @org.jetbrains.annotations.Nullable
         K key();
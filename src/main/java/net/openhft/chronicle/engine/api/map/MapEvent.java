@@ -46,6 +46,20 @@ public interface MapEvent<K, V> extends Map.Entry<K, V>, ChangeEvent {
     @NotNull
     <K2, V2> MapEvent<K2, V2> translate(BiFunction<K, K2, K2> keyFunction, BiFunction<V, V2, V2> valueFunction);
 
+    /**
+     * Translate the key now, but the values only when they are first read, caching the result.
+     * Until then, writing this event copies the stored form if the valueReader supports it.
+     *
+     * @param keyFunction to translate the key
+     * @param valueReader to decode the values
+     * @return the translated event
+     */
+    @NotNull
+    default <K2, V2> MapEvent<K2, V2> translateLazily(@NotNull Function<K, K2> keyFunction,
+                                                      @NotNull ValueReader<V, V2> valueReader) {
+        return translate(keyFunction, valueReader);
+    }
+
     @Override
     @NotNull
     default V setValue(V value) {
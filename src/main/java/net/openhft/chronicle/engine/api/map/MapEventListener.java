@@ -31,4 +31,11 @@ public interface MapEventListener<K, V> {
     default void remove(String assetName, K key, V value) {
         update(assetName, key, value, null);
     }
+
+    /**
+     * An entry removed by a bounded map to make room for others.
+     */
+    default void evict(String assetName, K key, V value) {
+        remove(assetName, key, value);
+    }
 }
\ No newline at end of file
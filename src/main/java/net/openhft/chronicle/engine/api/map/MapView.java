@@ -17,6 +17,7 @@
 
 package net.openhft.chronicle.engine.api.map;
 
+import net.openhft.chronicle.core.util.SerializableFunction;
 import net.openhft.chronicle.engine.api.KeyedVisitable;
 import net.openhft.chronicle.engine.api.Updatable;
 import net.openhft.chronicle.engine.api.pubsub.Reference;
@@ -31,8 +32,15 @@ import net.openhft.chronicle.engine.query.Filter;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
 
 /**
@@ -111,6 +119,34 @@ public interface MapView<K, V> extends ConcurrentMap<K, V>,
      */
     Reference<V> referenceFor(K key);
 
+    /**
+     * Subscribe to the entries of a range of keys, bootstrapped with the entries in the range and then
+     * passed the events of keys in the range only.
+     */
+    default void registerRangeSubscriber(@NotNull KeyRange<K> range,
+                                         @NotNull Subscriber<MapEvent<K, V>> subscriber) {
+        @NotNull Filter<MapEvent<K, V>> filter = new Filter<>();
+        filter.addFilter(range);
+        registerSubscriber(subscriber, filter, EnumSet.of(Operation.BOOTSTRAP));
+    }
+
+    /**
+     * By default every entry is read and those in the range kept, so the keys must be Comparable.
+     *
+     * @param range of keys, in their natural order
+     * @return a copy of the entries in the range, which takes a scan of the whole map unless the map
+     * is held in a sorted store.
+     */
+    @NotNull
+    default SortedMap<K, V> subMap(@NotNull KeyRange<K> range) {
+        @NotNull SortedMap<K, V> result = new TreeMap<>();
+        for (@NotNull Map.Entry<K, V> entry : entrySet()) {
+            if (range.contains(entry.getKey()))
+                result.put(entry.getKey(), entry.getValue());
+        }
+        return result;
+    }
+
     /**
      * @return the type of the keys
      */
@@ -147,6 +183,77 @@ public interface MapView<K, V> extends ConcurrentMap<K, V>,
     @Nullable
     V getAndPut(K key, V value);
 
+    /**
+     * A remote map sends the request without waiting for the reply, so many can be in flight at once.  The
+     * future returned by a local map is already complete.  A request in flight when the connection is lost
+     * is not sent again; its future completes exceptionally, and the request may or may not have been applied.
+     *
+     * @param key to look up
+     * @return the value or null if absent.
+     */
+    @NotNull
+    default CompletableFuture<V> getAsync(K key) {
+        return CompletableFuture.supplyAsync(() -> get(key), Runnable::run);
+    }
+
+    /**
+     * @param key   to set
+     * @param value to set
+     * @return the old value or null if absent.
+     * @see #getAsync(Object)
+     */
+    @NotNull
+    default CompletableFuture<V> putAsync(K key, V value) {
+        return CompletableFuture.supplyAsync(() -> getAndPut(key, value), Runnable::run);
+    }
+
+    /**
+     * @param key to remove
+     * @return the old value or null if absent.
+     * @see #getAsync(Object)
+     */
+    @NotNull
+    default CompletableFuture<V> removeAsync(K key) {
+        return CompletableFuture.supplyAsync(() -> getAndRemove(key), Runnable::run);
+    }
+
+    /**
+     * @see #getAsync(Object)
+     */
+    @NotNull
+    default CompletableFuture<V> putIfAbsentAsync(K key, V value) {
+        return CompletableFuture.supplyAsync(() -> putIfAbsent(key, value), Runnable::run);
+    }
+
+    /**
+     * @see #getAsync(Object)
+     */
+    @NotNull
+    default CompletableFuture<Boolean> containsKeyAsync(K key) {
+        return CompletableFuture.supplyAsync(() -> containsKey(key), Runnable::run);
+    }
+
+    /**
+     * @see #getAsync(Object)
+     */
+    @NotNull
+    default CompletableFuture<Long> longSizeAsync() {
+        return CompletableFuture.supplyAsync(this::longSize, Runnable::run);
+    }
+
+    /**
+     * Put an entry which is removed once its time to live has passed, unless it is put again first.
+     *
+     * @param key   to set
+     * @param value to set
+     * @param ttl   time to live, or 0 for the entry to never expire.
+     * @param unit  of the time to live
+     * @throws UnsupportedOperationException if this map can't expire entries.
+     */
+    default void put(K key, V value, long ttl, @NotNull TimeUnit unit) {
+        throw new UnsupportedOperationException(getClass().getSimpleName() + " does not support a time to live");
+    }
+
     /**
      * Explicitly get the old value before removing.
      *
@@ -155,4 +262,54 @@ public interface MapView<K, V> extends ConcurrentMap<K, V>,
      */
     @Nullable
     V getAndRemove(K key);
+
+    /**
+     * Declare a secondary index on the values of this map. The index is built from the entries
+     * already in the map and is then kept up to date as entries are put or removed.
+     *
+     * @param name      of the index, used to look it up
+     * @param extractor of the indexed property of each value, which may return null for values not
+     *                  to be indexed.
+     * @return true if added, false if there is already an index of this name.
+     * @throws UnsupportedOperationException if this map can't be indexed.
+     */
+    default boolean addIndex(@NotNull String name, @NotNull SerializableFunction<V, ?> extractor) {
+        throw new UnsupportedOperationException(getClass().getSimpleName() + " does not support secondary indexes");
+    }
+
+    /**
+     * Declare a secondary index on a field of the values, named after the field.
+     */
+    default boolean addIndex(@NotNull String field) {
+        return addIndex(field, new FieldExtractor<>(field));
+    }
+
+    /**
+     * @param index name of an index added with addIndex
+     * @param value of the indexed property
+     * @return the keys of the entries whose indexed property equals the value.
+     * @throws IllegalArgumentException      if there is no such index.
+     * @throws UnsupportedOperationException if this map can't be indexed.
+     */
+    @NotNull
+    default Set<K> keysWhere(@NotNull String index, @NotNull Object value) {
+        throw new UnsupportedOperationException(getClass().getSimpleName() + " does not support secondary indexes");
+    }
+
+    /**
+     * @param index name of an index added with addIndex
+     * @param value of the indexed property
+     * @return the entries whose indexed property equals the value.
+     * @throws IllegalArgumentException if there is no such index.
+     */
+    @NotNull
+    default Map<K, V> entriesWhere(@NotNull String index, @NotNull Object value) {
+        @NotNull Map<K, V> entries = new LinkedHashMap<>();
+        for (K key : keysWhere(index, value)) {
+            @Nullable V v = get(key);
+            if (v != null)
+                entries.put(key, v);
+        }
+        return entries;
+    }
 }
@@ -0,0 +1,109 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+
+package net.openhft.chronicle.engine.api.map;
+
+import net.openhft.chronicle.engine.api.pubsub.InvalidSubscriberException;
+import net.openhft.chronicle.engine.api.pubsub.SubscriptionConsumer;
+import net.openhft.chronicle.engine.map.AbstractKeyValueStore;
+import net.openhft.chronicle.engine.map.InsertedEvent;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * A KeyValueStore which keeps its keys in their natural order, so a range of keys can be visited
+ * without a scan of the whole store or a sort.
+ */
+public interface NavigableKeyValueStore<K, V> extends KeyValueStore<K, V> {
+
+    /**
+     * @return the nearest store under this one, through stores which only wrap it, which is navigable.
+     */
+    @Nullable
+    static <K, V> NavigableKeyValueStore<K, V> find(@Nullable KeyValueStore<K, V> kvStore) {
+        while (kvStore != null) {
+            if (kvStore instanceof NavigableKeyValueStore)
+                return (NavigableKeyValueStore<K, V>) kvStore;
+            // a translating store would change the key type.
+            if (!(kvStore instanceof AbstractKeyValueStore))
+                return null;
+            kvStore = kvStore.underlying();
+        }
+        return null;
+    }
+
+    /**
+     * @param range      of keys to visit
+     * @param descending to visit the keys from last to first
+     * @return the entries of the range, in key order.
+     */
+    @NotNull
+    Iterator<Map.Entry<K, V>> entrySetIterator(@NotNull KeyRange<K> range, boolean descending);
+
+    /**
+     * Open a view of the entries of a range as at one point in time, as {@link #snapshot()} does for
+     * the whole store.
+     * <p>
+     * By default the entries are read from the live store a slice at a time as they are asked for, so
+     * a write made after it was opened may or may not be seen; stores which can do better override it.
+     *
+     * @param range of keys to read
+     * @return the entries of the range in key order, which must be closed once it has been read.
+     */
+    @NotNull
+    default KeyValueStore.EntriesSnapshot<K, V> entriesSnapshot(@NotNull KeyRange<K> range) {
+        @NotNull String assetName = asset().fullName();
+        return new KeyValueStore.EntriesSnapshot<K, V>() {
+            @Nullable
+            private Iterator<Map.Entry<K, V>> entries;
+
+            @Override
+            public void entriesFor(@NotNull SubscriptionConsumer<MapEvent<K, V>> kvConsumer) throws InvalidSubscriberException {
+                while (nextEntries(Integer.MAX_VALUE, kvConsumer)) {
+                    // all of them.
+                }
+            }
+
+            @Override
+            public boolean nextEntries(int max, @NotNull SubscriptionConsumer<MapEvent<K, V>> kvConsumer) throws InvalidSubscriberException {
+                if (entries == null)
+                    entries = entrySetIterator(range, false);
+                for (int i = 0; i < max && entries.hasNext(); i++) {
+                    @NotNull Map.Entry<K, V> entry = entries.next();
+                    kvConsumer.accept(InsertedEvent.of(assetName, entry.getKey(), entry.getValue(), false));
+                }
+                return entries.hasNext();
+            }
+        };
+    }
+
+    /**
+     * Pass the entries of the range in key order, as if they had just been inserted.
+     */
+    default void entriesFor(@NotNull KeyRange<K> range,
+                            @NotNull SubscriptionConsumer<MapEvent<K, V>> kvConsumer) throws InvalidSubscriberException {
+        @NotNull String assetName = asset().fullName();
+        for (@NotNull Iterator<Map.Entry<K, V>> it = entrySetIterator(range, false); it.hasNext(); ) {
+            @NotNull Map.Entry<K, V> entry = it.next();
+            kvConsumer.accept(InsertedEvent.of(assetName, entry.getKey(), entry.getValue(), false));
+        }
+    }
+}
@@ -19,9 +19,24 @@ package net.openhft.chronicle.engine.api.map;
 
 import net.openhft.chronicle.engine.map.ObjectKeyValueStore;
 import net.openhft.chronicle.wire.Marshallable;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Iterator;
+import java.util.Map;
 
 /*
  * Created by Peter Lawrey on 25/05/15.
  */
 public interface StringMarshallableKeyValueStore<V extends Marshallable> extends ObjectKeyValueStore<String, V> {
+
+    /**
+     * Stream the entries of this store, decoding each value only when it is read.
+     *
+     * @param using if not null, every value is decoded into this instance so entries must not be
+     *              retained after moving to the next one.
+     * @return an iterator which does not copy the store.
+     */
+    @NotNull
+    Iterator<Map.Entry<String, V>> entrySetIterator(@Nullable V using);
 }
@@ -17,6 +17,9 @@
 
 package net.openhft.chronicle.engine.api.map;
 
+import net.openhft.chronicle.wire.ValueOut;
+import org.jetbrains.annotations.NotNull;
+
 import java.util.function.Function;
 
 /**
@@ -24,4 +27,15 @@ import java.util.function.Function;
  */
 @FunctionalInterface
 public interface ValueReader<U, V> extends Function<U, V> {
+
+    /**
+     * Write the stored form of a value without decoding it first.
+     *
+     * @param encoded the stored form of the value
+     * @param out     to write the value to
+     * @return true if written, false if the stored form can't be copied to this wire as is.
+     */
+    default boolean writeEncoded(@NotNull U encoded, @NotNull ValueOut out) {
+        return false;
+    }
 }
@@ -0,0 +1,39 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package net.openhft.chronicle.engine.api.pubsub;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.List;
+
+/**
+ * A Subscriber which would rather receive the events of a bulk operation such as putAll together.
+ */
+public interface BatchSubscriber<E> extends Subscriber<E> {
+
+    /**
+     * Called when there is a batch of events.
+     *
+     * @param events in the order they occurred.
+     * @throws InvalidSubscriberException to throw when this subscriber is no longer valid.
+     */
+    default void onMessages(@NotNull List<E> events) throws InvalidSubscriberException {
+        for (E e : events)
+            onMessage(e);
+    }
+}
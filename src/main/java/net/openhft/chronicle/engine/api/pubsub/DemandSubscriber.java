@@ -0,0 +1,42 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+
+package net.openhft.chronicle.engine.api.pubsub;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.function.LongConsumer;
+
+/**
+ * A Subscriber which can only take so many events at a time.  A remote subscription asks the server to
+ * send it no more events than it has asked for, rather than buffering them without bound.
+ */
+public interface DemandSubscriber<E> extends Subscriber<E> {
+
+    /**
+     * Called each time the subscription is made, including after a reconnect.
+     *
+     * @return the number of events it can take now.
+     */
+    long demand();
+
+    /**
+     * @param requester to call with the number of events more it can take, once it has taken some.
+     */
+    void onRequester(@NotNull LongConsumer requester);
+}
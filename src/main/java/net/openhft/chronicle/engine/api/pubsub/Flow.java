@@ -0,0 +1,78 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+
+package net.openhft.chronicle.engine.api.pubsub;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * The interfaces of demand-driven delivery, as java.util.concurrent.Flow has them from Java 9, for the
+ * Java 8 this library is built for.  Adapting these to the JDK's, or to Reactive Streams, is one method
+ * call each.
+ */
+public final class Flow {
+    private static final int DEFAULT_BUFFER_SIZE = 256;
+
+    private Flow() {
+    }
+
+    /**
+     * @return the number of items a publisher buffers for each subscriber, unless told otherwise.
+     */
+    public static int defaultBufferSize() {
+        return DEFAULT_BUFFER_SIZE;
+    }
+
+    /**
+     * A source of items, which a Subscriber receives only as many of as it has requested.
+     */
+    @FunctionalInterface
+    public interface Publisher<T> {
+        /**
+         * Calls onSubscribe on the subscriber, before any other method.
+         *
+         * @param subscriber to pass the items to.
+         */
+        void subscribe(@NotNull Subscriber<? super T> subscriber);
+    }
+
+    public interface Subscriber<T> {
+        void onSubscribe(@NotNull Subscription subscription);
+
+        void onNext(@NotNull T item);
+
+        void onError(@NotNull Throwable throwable);
+
+        void onComplete();
+    }
+
+    public interface Subscription {
+        /**
+         * @param n the number of items more the subscriber can take, which must be positive.
+         */
+        void request(long n);
+
+        /**
+         * The subscriber is sent no more items, although some already on their way may still arrive.
+         */
+        void cancel();
+    }
+
+    public interface Processor<T, R> extends Subscriber<T>, Publisher<R> {
+    }
+}
@@ -0,0 +1,31 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package net.openhft.chronicle.engine.api.pubsub;
+
+/**
+ * A Subscriber which can only be passed so many events at a time, such as the subscriber on the server of
+ * a remote client which asked for flow control.  A bootstrap sent a chunk at a time waits for it to have
+ * room, rather than reading the whole snapshot into its buffer.
+ */
+public interface PacedSubscriber<E> extends Subscriber<E> {
+
+    /**
+     * @return the number of events it can be passed now.
+     */
+    long available();
+}
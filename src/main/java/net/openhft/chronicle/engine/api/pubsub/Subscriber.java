@@ -35,6 +35,13 @@ public interface Subscriber<E> extends ISubscriber, Consumer<E> {
      */
     void onMessage(E e) throws InvalidSubscriberException;
 
+    /**
+     * Called once a bootstrap has passed every entry there was when it subscribed, before any later
+     * event.
+     */
+    default void onEndOfBootstrap() {
+    }
+
     @Override
     default void accept(E e) {
         try {
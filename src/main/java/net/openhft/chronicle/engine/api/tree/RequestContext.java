@@ -37,11 +37,13 @@ import net.openhft.chronicle.engine.map.AuthenticatedKeyValueStore;
 import net.openhft.chronicle.engine.map.ObjectKeyValueStore;
 import net.openhft.chronicle.engine.map.ObjectSubscription;
 import net.openhft.chronicle.engine.map.RawKVSSubscription;
+import net.openhft.chronicle.engine.map.ShardStats;
 import net.openhft.chronicle.engine.query.Filter;
 import net.openhft.chronicle.engine.query.Operation.OperationType;
 import net.openhft.chronicle.engine.server.internal.EngineNetworkStatsListener;
 import net.openhft.chronicle.engine.server.internal.EngineWireNetworkContext;
 import net.openhft.chronicle.engine.server.internal.MapReplicationHandler;
+import net.openhft.chronicle.engine.server.internal.PublisherStats;
 import net.openhft.chronicle.engine.tree.QueueView;
 import net.openhft.chronicle.engine.tree.TopologicalEvent;
 import net.openhft.chronicle.engine.tree.TopologySubscription;
@@ -92,6 +94,8 @@ public class RequestContext implements Cloneable {
         addAlias(OperationType.class, "QueryOperationType");
         addAlias(UberHandler.Factory.class, "UberHandlerFactory");
         addAlias(VanillaWireOutPublisherFactory.class, "VanillaWireOutPublisherFactory");
+        addAlias(PublisherStats.class, "PublisherStats");
+        addAlias(ShardStats.class, "ShardStats");
         addAlias(HostIdConnectionStrategy.class, "HostIdConnectionStrategy");
         addAlias(HeartbeatHandler.Factory.class, "HeartbeatHandlerFactory");
         addAlias(ClusterContext.class, "ClusterContext");
@@ -136,7 +140,17 @@ public class RequestContext implements Cloneable {
     private boolean sealed = false;
     private String cluster = "cluster";
     private int throttlePeriodMs = 0;
+    private long defaultTtlMs = 0;
+    private int updateThreads = 0;
+    private int bootstrapChunkSize = 0;
     private boolean dontPersist;
+    private boolean batchEvents;
+    private boolean deltaUpdates;
+    private boolean resumable;
+    private boolean flowControl;
+    // where a resumable subscriber got to before it reconnected, passed in the body of the request.
+    private long resumeEpoch;
+    private long resumeFrom = -1;
     private long token;
     private RequestContext() {
     }
@@ -275,9 +289,16 @@ public class RequestContext implements Cloneable {
         parser.register(() -> "elementType", (s, v) -> v.typeLiteral(this, (o, x) -> o.type2 = x));
         parser.register(() -> "endSubscriptionAfterBootstrap", (s, v) -> v.bool(this, (o, x) -> o.endSubscriptionAfterBootstrap = x));
         parser.register(() -> "throttlePeriodMs", (s, v) -> v.int32(this, (o, x) -> o.throttlePeriodMs = x));
+        parser.register(() -> "defaultTtlMs", (s, v) -> v.int64(this, (o, x) -> o.defaultTtlMs = x));
+        parser.register(() -> "updateThreads", (s, v) -> v.int32(this, (o, x) -> o.updateThreads = x));
+        parser.register(() -> "bootstrapChunkSize", (s, v) -> v.int32(this, (o, x) -> o.bootstrapChunkSize = x));
         parser.register(() -> "entries", (s, v) -> v.int64(this, (o, x) -> o.entries = x));
         parser.register(() -> "averageValueSize", (s, v) -> v.int64(this, (o, x) -> o.averageValueSize = x));
         parser.register(() -> "dontPersist", (s, v) -> v.bool(this, (o, x) -> o.dontPersist = x));
+        parser.register(() -> "batchEvents", (s, v) -> v.bool(this, (o, x) -> o.batchEvents = x));
+        parser.register(() -> "deltaUpdates", (s, v) -> v.bool(this, (o, x) -> o.deltaUpdates = x));
+        parser.register(() -> "resumable", (s, v) -> v.bool(this, (o, x) -> o.resumable = x));
+        parser.register(() -> "flowControl", (s, v) -> v.bool(this, (o, x) -> o.flowControl = x));
         parser.register(() -> "token", (s, v) -> v.int64(this, (o, x) -> o.token =
                 x));
         return parser;
@@ -530,7 +551,14 @@ public class RequestContext implements Cloneable {
                 ", recurse=" + recurse +
                 ", endSubscriptionAfterBootstrap=" + endSubscriptionAfterBootstrap +
                 ", throttlePeriodMs=" + throttlePeriodMs +
+                ", defaultTtlMs=" + defaultTtlMs +
+                ", updateThreads=" + updateThreads +
+                ", bootstrapChunkSize=" + bootstrapChunkSize +
                 ", dontPersist=" + dontPersist +
+                ", batchEvents=" + batchEvents +
+                ", deltaUpdates=" + deltaUpdates +
+                ", resumable=" + resumable +
+                ", flowControl=" + flowControl +
                 '}';
     }
 
@@ -601,6 +629,34 @@ public class RequestContext implements Cloneable {
             sb.append(sep).append("dontPersist").append(dontPersist);
             sep = "&";
         }
+        if (defaultTtlMs > 0) {
+            sb.append(sep).append("defaultTtlMs=").append(defaultTtlMs);
+            sep = "&";
+        }
+        if (updateThreads > 0) {
+            sb.append(sep).append("updateThreads=").append(updateThreads);
+            sep = "&";
+        }
+        if (bootstrapChunkSize > 0) {
+            sb.append(sep).append("bootstrapChunkSize=").append(bootstrapChunkSize);
+            sep = "&";
+        }
+        if (batchEvents) {
+            sb.append(sep).append("batchEvents=").append(batchEvents);
+            sep = "&";
+        }
+        if (deltaUpdates) {
+            sb.append(sep).append("deltaUpdates=").append(deltaUpdates);
+            sep = "&";
+        }
+        if (resumable) {
+            sb.append(sep).append("resumable=").append(resumable);
+            sep = "&";
+        }
+        if (flowControl) {
+            sb.append(sep).append("flowControl=").append(flowControl);
+            sep = "&";
+        }
         return sb.toString();
     }
 
@@ -614,6 +670,49 @@ public class RequestContext implements Cloneable {
         return this;
     }
 
+    /**
+     * @return the time to live of entries put without one, or 0 if they don't expire.
+     */
+    public long defaultTtlMs() {
+        return defaultTtlMs;
+    }
+
+    @NotNull
+    public RequestContext defaultTtlMs(long defaultTtlMs) {
+        checkSealed();
+        this.defaultTtlMs = defaultTtlMs;
+        return this;
+    }
+
+    /**
+     * @return the number of threads asyncUpdateKey and syncUpdateKey run on, or 0 to run them in place.
+     */
+    public int updateThreads() {
+        return updateThreads;
+    }
+
+    @NotNull
+    public RequestContext updateThreads(int updateThreads) {
+        checkSealed();
+        this.updateThreads = updateThreads;
+        return this;
+    }
+
+    /**
+     * @return the most entries of a bootstrap to pass per pass of the event loop, or 0 to pass them all
+     * before the subscribe returns.
+     */
+    public int bootstrapChunkSize() {
+        return bootstrapChunkSize;
+    }
+
+    @NotNull
+    public RequestContext bootstrapChunkSize(int bootstrapChunkSize) {
+        checkSealed();
+        this.bootstrapChunkSize = bootstrapChunkSize;
+        return this;
+    }
+
     @NotNull
     public <E> RequestContext elementType(Class<E> eClass) {
         this.type2 = eClass;
@@ -636,6 +735,88 @@ public class RequestContext implements Cloneable {
         return this;
     }
 
+    /**
+     * @return whether the client of a remote subscription can read several events in one document.
+     */
+    public boolean batchEvents() {
+        return batchEvents;
+    }
+
+    @NotNull
+    public RequestContext batchEvents(boolean batchEvents) {
+        checkSealed();
+        this.batchEvents = batchEvents;
+        return this;
+    }
+
+    /**
+     * @return whether the client of a remote subscription keeps the last value of each key, so an update of
+     * a Marshallable value can be sent as the fields which changed.
+     */
+    public boolean deltaUpdates() {
+        return deltaUpdates;
+    }
+
+    @NotNull
+    public RequestContext deltaUpdates(boolean deltaUpdates) {
+        checkSealed();
+        this.deltaUpdates = deltaUpdates;
+        return this;
+    }
+
+    /**
+     * @return whether the subscriber is passed the position of each event in the map's history, so it can
+     * subscribe again from the last position it saw. Off unless asked for, as the map then holds its last
+     * events until engine.resumeRetentionMs after the last such subscriber leaves.
+     */
+    public boolean resumable() {
+        return resumable;
+    }
+
+    @NotNull
+    public RequestContext resumable(boolean resumable) {
+        checkSealed();
+        this.resumable = resumable;
+        return this;
+    }
+
+    /**
+     * @return whether a remote subscriber is only sent as many events as it has requested.
+     */
+    public boolean flowControl() {
+        return flowControl;
+    }
+
+    @NotNull
+    public RequestContext flowControl(boolean flowControl) {
+        checkSealed();
+        this.flowControl = flowControl;
+        return this;
+    }
+
+    public long resumeEpoch() {
+        return resumeEpoch;
+    }
+
+    /**
+     * @return the position up to which a resumable subscriber has seen every event, or -1 to bootstrap.
+     */
+    public long resumeFrom() {
+        return resumeFrom;
+    }
+
+    /**
+     * @param resumeEpoch of the history the subscriber saw events from
+     * @param resumeFrom  the position up to which it saw every event
+     */
+    @NotNull
+    public RequestContext resumeFrom(long resumeEpoch, long resumeFrom) {
+        checkSealed();
+        this.resumeEpoch = resumeEpoch;
+        this.resumeFrom = resumeFrom;
+        return this;
+    }
+
     public long token() {
         return token;
     }
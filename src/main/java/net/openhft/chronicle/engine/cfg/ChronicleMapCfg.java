@@ -21,7 +21,14 @@ import net.openhft.chronicle.engine.api.tree.Asset;
 import net.openhft.chronicle.engine.api.tree.AssetTree;
 import net.openhft.chronicle.engine.api.tree.RequestContext;
 import net.openhft.chronicle.engine.map.ChronicleMapKeyValueStore;
+import net.openhft.chronicle.engine.map.EntryExpiry;
 import net.openhft.chronicle.engine.map.ObjectKeyValueStore;
+import net.openhft.chronicle.engine.map.ValueCompression;
+import net.openhft.chronicle.engine.map.ValueCompressions;
+import net.openhft.chronicle.engine.map.ValueCompressor;
+import net.openhft.chronicle.engine.map.VanillaEngineReplication.MergeValues;
+import net.openhft.chronicle.engine.map.crdt.Crdt;
+import net.openhft.chronicle.engine.map.crdt.CrdtMerger;
 import net.openhft.chronicle.engine.tree.VanillaAsset;
 import net.openhft.chronicle.wire.WireIn;
 import org.jetbrains.annotations.NotNull;
@@ -39,16 +46,33 @@ public class ChronicleMapCfg implements Installable {
     private Class keyType, valueType;
     private boolean putReturnsNull, removeReturnsNull;
     private String compression;
+    private int compressionThreshold = ValueCompressor.DEFAULT_THRESHOLD;
     private String diskPath;
     private long entries = -1;
     private double averageSize = -1;
+    private long defaultTtlMs;
+    private String merge;
 
     @Nullable
     @Override
     public Void install(@NotNull String path, @NotNull AssetTree assetTree) throws IOException {
         @NotNull Asset asset = assetTree.acquireAsset(path);
         ((VanillaAsset) asset).enableTranslatingValuesToBytesStore();
+        // values are compressed as they are translated to bytes, and only decompressed when read.
+        @Nullable ValueCompression valueCompression = ValueCompressions.forName(compression);
+        if (valueCompression != null)
+            asset.addView(ValueCompressor.class, new ValueCompressor(valueCompression, compressionThreshold));
+        if (defaultTtlMs > 0)
+            asset.addView(EntryExpiry.class, new EntryExpiry<>(asset, defaultTtlMs));
         @NotNull RequestContext rc = RequestContext.requestContext(path);
+        // replicated values are merged rather than the latest kept, for maps of Crdts.
+        if ("crdt".equalsIgnoreCase(merge)) {
+            if (valueType == null || !Crdt.class.isAssignableFrom(valueType))
+                throw new IllegalArgumentException("merge: crdt requires a Crdt valueType, was " + valueType);
+            asset.addView(MergeValues.class, new CrdtMerger(rc.wireType(), valueType));
+        } else if (merge != null) {
+            throw new IllegalArgumentException("Unknown merge: " + merge);
+        }
         rc.basePath(diskPath)
                 .putReturnsNull(putReturnsNull)
                 .removeReturnsNull(removeReturnsNull);
@@ -71,7 +95,10 @@ public class ChronicleMapCfg implements Installable {
                 .read(() -> "putReturnsNull").bool(this, (o, e) -> o.putReturnsNull = e)
                 .read(() -> "removeReturnsNull").bool(this, (o, e) -> o.removeReturnsNull = e)
                 .read(() -> "entries").int64(this, (o, e) -> o.entries = e)
-                .read(() -> "averageSize").float64(this, (o, e) -> o.averageSize = e);
+                .read(() -> "averageSize").float64(this, (o, e) -> o.averageSize = e)
+                .read(() -> "compressionThreshold").int32(this, (o, e) -> o.compressionThreshold = e)
+                .read(() -> "defaultTtlMs").int64(this, (o, e) -> o.defaultTtlMs = e)
+                .read(() -> "merge").text(this, (o, c) -> o.merge = c);
     }
 
     @NotNull
@@ -83,6 +110,9 @@ public class ChronicleMapCfg implements Installable {
                 ", putReturnsNull=" + putReturnsNull +
                 ", removeReturnsNull=" + removeReturnsNull +
                 ", compression='" + compression + '\'' +
+                ", compressionThreshold=" + compressionThreshold +
+                ", defaultTtlMs=" + defaultTtlMs +
+                ", merge='" + merge + '\'' +
                 '}';
     }
 }
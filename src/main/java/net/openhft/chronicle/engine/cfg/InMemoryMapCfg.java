@@ -19,7 +19,17 @@ package net.openhft.chronicle.engine.cfg;
 
 import net.openhft.chronicle.core.util.ObjectUtils;
 import net.openhft.chronicle.engine.api.map.MapView;
+import net.openhft.chronicle.engine.api.tree.Asset;
 import net.openhft.chronicle.engine.api.tree.AssetTree;
+import net.openhft.chronicle.engine.api.tree.RequestContext;
+import net.openhft.chronicle.engine.map.AuthenticatedKeyValueStore;
+import net.openhft.chronicle.engine.map.BoundedKeyValueStore;
+import net.openhft.chronicle.engine.map.EvictionPolicy;
+import net.openhft.chronicle.engine.map.MapJournal;
+import net.openhft.chronicle.engine.map.ObjectKeyValueStore;
+import net.openhft.chronicle.engine.map.ShardedKeyValueStore;
+import net.openhft.chronicle.engine.map.SortedKeyValueStore;
+import net.openhft.chronicle.engine.map.VanillaKeyValueStore;
 import net.openhft.chronicle.wire.Wire;
 import net.openhft.chronicle.wire.WireIn;
 import org.jetbrains.annotations.NotNull;
@@ -27,6 +37,7 @@ import org.jetbrains.annotations.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.File;
 import java.io.IOException;
 
 /*
@@ -38,11 +49,45 @@ public class InMemoryMapCfg implements Installable {
     private boolean putReturnsNull, removeReturnsNull;
     private String compression;
     private String importFile;
+    private long defaultTtlMs;
+    private int updateThreads;
+    private long maxEntries, maxBytes;
+    private String eviction;
+    private String persistPath;
+    private boolean sorted;
+    private int shards;
+    private long snapshotIntervalMs = 60_000;
 
     @Nullable
     @Override
     public Void install(@NotNull String path, @NotNull AssetTree assetTree) throws IOException {
+        checkStoreOptions(path);
         @NotNull String uri = path + "?putReturnsNull=" + putReturnsNull + "&removeReturnsNull=" + removeReturnsNull;
+        if (defaultTtlMs > 0)
+            uri += "&defaultTtlMs=" + defaultTtlMs;
+        if (updateThreads > 0)
+            uri += "&updateThreads=" + updateThreads;
+        if (maxEntries > 0 || maxBytes > 0) {
+            @NotNull Asset asset = assetTree.acquireAsset(path);
+            @NotNull EvictionPolicy policy = eviction == null ? EvictionPolicy.LRU : EvictionPolicy.valueOf(eviction.toUpperCase());
+            asset.addView(AuthenticatedKeyValueStore.class, new BoundedKeyValueStore<>(asset, maxEntries, maxBytes, policy));
+
+        } else if (sorted) {
+            @NotNull Asset asset = assetTree.acquireAsset(path);
+            asset.addView(AuthenticatedKeyValueStore.class, new SortedKeyValueStore<>(asset, valueType));
+
+        } else if (shards > 0) {
+            @NotNull Asset asset = assetTree.acquireAsset(path);
+            @NotNull RequestContext rc = RequestContext.requestContext(path).keyType(keyType).valueType(valueType);
+            @NotNull ShardedKeyValueStore store = new ShardedKeyValueStore<>(rc, asset, shards);
+            asset.addView(ObjectKeyValueStore.class, store);
+            store.publishStats(assetTree.root());
+
+        } else if (persistPath != null) {
+            @NotNull Asset asset = assetTree.acquireAsset(path);
+            @NotNull MapJournal journal = new MapJournal<>(path, new File(persistPath), keyType, valueType, snapshotIntervalMs);
+            asset.addView(AuthenticatedKeyValueStore.class, new VanillaKeyValueStore<>(asset, journal));
+        }
         @NotNull MapView mapView = assetTree.acquireMap(uri, keyType, valueType);
         if (importFile != null) {
             @NotNull Wire wire = Wire.fromFile(importFile);
@@ -57,13 +102,43 @@ public class InMemoryMapCfg implements Installable {
         return null;
     }
 
+    /**
+     * maxEntries or maxBytes, sorted, shards and persistPath each choose a different store, so only one
+     * of them can be set.
+     *
+     * @throws IllegalArgumentException naming two options which can't be used together.
+     */
+    private void checkStoreOptions(@NotNull String path) {
+        @Nullable String bound = maxEntries > 0 ? "maxEntries" : maxBytes > 0 ? "maxBytes" : null;
+        if (eviction != null && bound == null)
+            throw new IllegalArgumentException(path + ": eviction needs maxEntries or maxBytes to be set");
+        @Nullable String chosen = null;
+        for (@Nullable String option : new String[]{bound, sorted ? "sorted" : null, shards > 0 ? "shards" : null,
+                persistPath != null ? "persistPath" : null}) {
+            if (option == null)
+                continue;
+            if (chosen != null)
+                throw new IllegalArgumentException(path + ": " + chosen + " and " + option + " can't be used together");
+            chosen = option;
+        }
+    }
+
     @Override
     public void readMarshallable(@NotNull WireIn wire) throws IllegalStateException {
         wire.read(() -> "keyType").typeLiteral(this, (o, c) -> o.keyType = c)
                 .read(() -> "valueType").typeLiteral(this, (o, c) -> o.valueType = c)
                 .read(() -> "compression").text(this, (o, c) -> o.compression = c)
                 .read(() -> "putReturnsNull").bool(this, (o, e) -> o.putReturnsNull = e)
-                .read(() -> "removeReturnsNull").bool(this, (o, e) -> o.removeReturnsNull = e);
+                .read(() -> "removeReturnsNull").bool(this, (o, e) -> o.removeReturnsNull = e)
+                .read(() -> "defaultTtlMs").int64(this, (o, e) -> o.defaultTtlMs = e)
+                .read(() -> "updateThreads").int32(this, (o, e) -> o.updateThreads = e)
+                .read(() -> "maxEntries").int64(this, (o, e) -> o.maxEntries = e)
+                .read(() -> "maxBytes").int64(this, (o, e) -> o.maxBytes = e)
+                .read(() -> "eviction").text(this, (o, e) -> o.eviction = e)
+                .read(() -> "sorted").bool(this, (o, e) -> o.sorted = e)
+                .read(() -> "shards").int32(this, (o, e) -> o.shards = e)
+                .read(() -> "persistPath").text(this, (o, e) -> o.persistPath = e)
+                .read(() -> "snapshotIntervalMs").int64(this, (o, e) -> o.snapshotIntervalMs = e);
         while (!wire.isEmpty())
             wire.read(() -> "import").text(this, (o, s) -> o.importFile = s);
     }
@@ -78,6 +153,15 @@ public class InMemoryMapCfg implements Installable {
                 ", removeReturnsNull=" + removeReturnsNull +
                 ", compression='" + compression + '\'' +
                 ", importFile='" + importFile + '\'' +
+                ", defaultTtlMs=" + defaultTtlMs +
+                ", updateThreads=" + updateThreads +
+                ", maxEntries=" + maxEntries +
+                ", maxBytes=" + maxBytes +
+                ", eviction='" + eviction + '\'' +
+                ", sorted=" + sorted +
+                ", shards=" + shards +
+                ", persistPath='" + persistPath + '\'' +
+                ", snapshotIntervalMs=" + snapshotIntervalMs +
                 '}';
     }
 }
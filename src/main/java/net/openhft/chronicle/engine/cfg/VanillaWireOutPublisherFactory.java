@@ -17,6 +17,9 @@
 
 package net.openhft.chronicle.engine.cfg;
 
+import net.openhft.chronicle.engine.api.tree.AssetTree;
+import net.openhft.chronicle.engine.server.internal.BoundedWireOutPublisher;
+import net.openhft.chronicle.engine.server.internal.BoundedWireOutPublisher.Policy;
 import net.openhft.chronicle.network.MarshallableFunction;
 import net.openhft.chronicle.network.connection.VanillaWireOutPublisher;
 import net.openhft.chronicle.network.connection.WireOutPublisher;
@@ -25,27 +28,79 @@ import net.openhft.chronicle.wire.WireIn;
 import net.openhft.chronicle.wire.WireOut;
 import net.openhft.chronicle.wire.WireType;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 /**
+ * Creates the publisher of each connection's outbound events. With a slow consumer policy, each
+ * connection holds at most maxPendingEvents the client hasn't read yet, see {@link BoundedWireOutPublisher}.
+ * <p>
+ * Installed in a tree, it is used for the client connections of the server.
+ *
  * @author Rob Austin.
  */
 public class VanillaWireOutPublisherFactory implements MarshallableFunction<WireType,
-        WireOutPublisher>, Demarshallable {
+        WireOutPublisher>, Demarshallable, Installable {
+    static final int DEFAULT_MAX_PENDING_EVENTS = 100_000;
+
+    @Nullable
+    private Policy policy;
+    private int maxPendingEvents = DEFAULT_MAX_PENDING_EVENTS;
 
-    private VanillaWireOutPublisherFactory(WireIn wireIn) {
+    private VanillaWireOutPublisherFactory(@NotNull WireIn wireIn) {
+        readMarshallable(wireIn);
     }
 
     public VanillaWireOutPublisherFactory() {
     }
 
+    @Nullable
+    public Policy policy() {
+        return policy;
+    }
+
+    @NotNull
+    public VanillaWireOutPublisherFactory policy(@Nullable Policy policy) {
+        this.policy = policy;
+        return this;
+    }
+
+    public int maxPendingEvents() {
+        return maxPendingEvents;
+    }
+
+    @NotNull
+    public VanillaWireOutPublisherFactory maxPendingEvents(int maxPendingEvents) {
+        this.maxPendingEvents = maxPendingEvents;
+        return this;
+    }
+
     @NotNull
     @Override
     public WireOutPublisher apply(@NotNull WireType wireType) {
-        return new VanillaWireOutPublisher(wireType);
+        return policy == null
+                ? new VanillaWireOutPublisher(wireType)
+                : new BoundedWireOutPublisher(wireType, policy, maxPendingEvents);
     }
 
+    @NotNull
     @Override
-    public void writeMarshallable(@NotNull WireOut wire) {
+    public VanillaWireOutPublisherFactory install(@NotNull String path, @NotNull AssetTree assetTree) {
+        assetTree.root().addView(VanillaWireOutPublisherFactory.class, this);
+        return this;
+    }
 
+    @Override
+    public void readMarshallable(@NotNull WireIn wire) throws IllegalStateException {
+        wire.read(() -> "policy").asEnum(Policy.class, p -> policy = p);
+        wire.read(() -> "maxPendingEvents").int32(this, (o, i) -> {
+            if (i > 0)
+                o.maxPendingEvents = i;
+        });
+    }
+
+    @Override
+    public void writeMarshallable(@NotNull WireOut wire) {
+        wire.write(() -> "policy").asEnum(policy);
+        wire.write(() -> "maxPendingEvents").int32(maxPendingEvents);
     }
 }
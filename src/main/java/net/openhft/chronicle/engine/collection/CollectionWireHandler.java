@@ -23,6 +23,7 @@ package net.openhft.chronicle.engine.collection;
 
 import net.openhft.chronicle.bytes.Bytes;
 import net.openhft.chronicle.core.Jvm;
+import net.openhft.chronicle.engine.server.internal.EventNameTable;
 import net.openhft.chronicle.network.connection.CoreFields;
 import net.openhft.chronicle.wire.*;
 import org.jetbrains.annotations.NotNull;
@@ -42,6 +43,7 @@ public class CollectionWireHandler<U, C extends Collection<U>> {
 
     private static final int SIZE_OF_SIZE = 4;
     private static final Logger LOG = LoggerFactory.getLogger(CollectionWireHandler.class);
+    private static final EventNameTable<EventId> EVENT_IDS = EventNameTable.of(EventId.class);
     private Function<ValueIn, U> fromWire;
     private BiConsumer<ValueOut, U> toWire;
 
@@ -53,98 +55,26 @@ public class CollectionWireHandler<U, C extends Collection<U>> {
     private long tid;
     private Supplier<C> factory;
 
+    @Nullable
+    private ValueIn valueIn;
+    @Nullable
+    private EventId eventId;
+    private final StringBuilder eventName = new StringBuilder();
+    // the handlers are fields, rather than lambdas created for each request, so a request creates no garbage.
+    private final WriteMarshallable writeTid = w -> w.writeEventName(CoreFields.tid).int64(this.tid);
+    private final WriteMarshallable writeReply = this::writeReply;
+
     private final ReadMarshallable dataConsumer = new ReadMarshallable() {
         @Override
         public void readMarshallable(WireIn wire) throws IllegalStateException {
 
             try {
-                final StringBuilder eventName = Wires.acquireStringBuilder();
-                @NotNull @SuppressWarnings("ConstantConditions") final ValueIn valueIn = inWire.readEventName(eventName);
-
-                outWire.writeDocument(true, w -> w.writeEventName(CoreFields.tid).int64
-                        (CollectionWireHandler.this.tid));
-
-                outWire.writeDocument(false, out -> {
-
-                    // note :  remove on the key-set returns a boolean and on the map returns the
-                    // old value
-                    if (EventId.remove.contentEquals(eventName)) {
-                        outWire.write(CoreFields.reply).bool(underlyingCollection.remove(fromWire.apply(valueIn)));
-                        return;
-                    }
-
-                    // note :  remove on the key-set returns a boolean and on the map returns the
-                    // old value
-                    if (EventId.iterator.contentEquals(eventName)) {
-                        @NotNull final ValueOut valueOut = out.writeEventName(CoreFields.reply);
-                        valueOut.sequence(v -> underlyingCollection.forEach(e -> toWire.accept(v, e)));
-                        return;
-                    }
-
-                    if (EventId.numberOfSegments.contentEquals(eventName)) {
-                        outWire.write(CoreFields.reply).int32(1);
-                        return;
-                    }
-
-                    if (EventId.isEmpty.contentEquals(eventName)) {
-                        outWire.write(CoreFields.reply).bool(underlyingCollection.isEmpty());
-                        return;
-                    }
-
-                    if (EventId.size.contentEquals(eventName)) {
-                        outWire.write(CoreFields.reply).int32(underlyingCollection.size());
-                        return;
-                    }
-
-                    if (EventId.clear.contentEquals(eventName)) {
-                        underlyingCollection.clear();
-                        return;
-                    }
-
-                    if (EventId.contains.contentEquals(eventName)) {
-                        outWire.write(CoreFields.reply).bool(
-                                underlyingCollection.contains(fromWire.apply(valueIn)));
-                        return;
-                    }
-
-                    if (EventId.add.contentEquals(eventName)) {
-                        outWire.write(CoreFields.reply).bool(
-                                underlyingCollection.add(fromWire.apply(valueIn)));
-                        return;
-                    }
-
-                    if (EventId.remove.contentEquals(eventName)) {
-                        outWire.write(CoreFields.reply).bool(
-                                underlyingCollection.remove(fromWire.apply(valueIn)));
-                        return;
-                    }
-
-                    if (EventId.containsAll.contentEquals(eventName)) {
-                        outWire.write(CoreFields.reply).bool(
-                                underlyingCollection.remove(collectionFromWire()));
-                        return;
-                    }
-
-                    if (EventId.addAll.contentEquals(eventName)) {
-                        outWire.write(CoreFields.reply).bool(
-                                underlyingCollection.addAll(collectionFromWire()));
-                        return;
-                    }
+                eventName.setLength(0);
+                valueIn = inWire.readEventName(eventName);
+                eventId = EVENT_IDS.lookup(eventName);
 
-                    if (EventId.removeAll.contentEquals(eventName)) {
-                        outWire.write(CoreFields.reply).bool(
-                                underlyingCollection.removeAll(collectionFromWire()));
-                        return;
-                    }
-
-                    if (EventId.retainAll.contentEquals(eventName)) {
-                        outWire.write(CoreFields.reply).bool(
-                                underlyingCollection.retainAll(collectionFromWire()));
-                        return;
-                    }
-
-                    throw new IllegalStateException("unsupported event=" + eventName);
-                });
+                outWire.writeDocument(true, writeTid);
+                outWire.writeDocument(false, writeReply);
 
             } catch (Exception e) {
                 Jvm.warn().on(getClass(), e);
@@ -169,6 +99,75 @@ public class CollectionWireHandler<U, C extends Collection<U>> {
         }
     };
 
+    @SuppressWarnings("ConstantConditions")
+    private void writeReply(@NotNull WireOut out) {
+        if (eventId == null)
+            throw new IllegalStateException("unsupported event=" + eventName);
+
+        switch (eventId) {
+            // note :  remove on the key-set returns a boolean and on the map returns the
+            // old value
+            case remove:
+                outWire.write(CoreFields.reply).bool(underlyingCollection.remove(fromWire.apply(valueIn)));
+                return;
+
+            case iterator: {
+                @NotNull final ValueOut valueOut = out.writeEventName(CoreFields.reply);
+                valueOut.sequence(v -> underlyingCollection.forEach(e -> toWire.accept(v, e)));
+                return;
+            }
+
+            case numberOfSegments:
+                outWire.write(CoreFields.reply).int32(1);
+                return;
+
+            case isEmpty:
+                outWire.write(CoreFields.reply).bool(underlyingCollection.isEmpty());
+                return;
+
+            case size:
+                outWire.write(CoreFields.reply).int32(underlyingCollection.size());
+                return;
+
+            case clear:
+                underlyingCollection.clear();
+                return;
+
+            case contains:
+                outWire.write(CoreFields.reply).bool(
+                        underlyingCollection.contains(fromWire.apply(valueIn)));
+                return;
+
+            case add:
+                outWire.write(CoreFields.reply).bool(
+                        underlyingCollection.add(fromWire.apply(valueIn)));
+                return;
+
+            case containsAll:
+                outWire.write(CoreFields.reply).bool(
+                        underlyingCollection.remove(collectionFromWire()));
+                return;
+
+            case addAll:
+                outWire.write(CoreFields.reply).bool(
+                        underlyingCollection.addAll(collectionFromWire()));
+                return;
+
+            case removeAll:
+                outWire.write(CoreFields.reply).bool(
+                        underlyingCollection.removeAll(collectionFromWire()));
+                return;
+
+            case retainAll:
+                outWire.write(CoreFields.reply).bool(
+                        underlyingCollection.retainAll(collectionFromWire()));
+                return;
+
+            default:
+                throw new IllegalStateException("unsupported event=" + eventName);
+        }
+    }
+
     private C collectionFromWire() {
         C c = factory.get();
         @NotNull @SuppressWarnings("ConstantConditions") final ValueIn valueIn = ((Wire) outWire).getValueIn();
@@ -27,8 +27,10 @@ import net.openhft.chronicle.engine.api.tree.RequestContext;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.util.Collection;
 import java.util.Iterator;
 import java.util.Map;
+import java.util.function.BiConsumer;
 
 /*
  * Created by Peter Lawrey on 22/05/15.
@@ -94,6 +96,17 @@ public class AbstractKeyValueStore<K, V> implements KeyValueStore<K, V> {
         kvStore.entriesFor(segment, kvConsumer);
     }
 
+    @NotNull
+    @Override
+    public EntriesSnapshot<K, V> snapshot() {
+        return kvStore.snapshot();
+    }
+
+    @Override
+    public void flushEvents() {
+        kvStore.flushEvents();
+    }
+
     @Override
     public Asset asset() {
         return kvStore.asset();
@@ -125,6 +138,21 @@ public class AbstractKeyValueStore<K, V> implements KeyValueStore<K, V> {
         return kvStore.remove(key);
     }
 
+    @Override
+    public void putAll(@NotNull Map<? extends K, ? extends V> entries, @Nullable BiConsumer<? super K, ? super V> previous) {
+        kvStore.putAll(entries, previous);
+    }
+
+    @Override
+    public void getAll(@NotNull Collection<? extends K> keys, @NotNull BiConsumer<? super K, ? super V> found) {
+        kvStore.getAll(keys, found);
+    }
+
+    @Override
+    public int removeAll(@NotNull Collection<? extends K> keys, @Nullable BiConsumer<? super K, ? super V> removed) {
+        return kvStore.removeAll(keys, removed);
+    }
+
     @Nullable
     @Override
     public V get(K key) {
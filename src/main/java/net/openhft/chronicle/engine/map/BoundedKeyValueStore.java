@@ -0,0 +1,548 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package net.openhft.chronicle.engine.map;
+
+import net.openhft.chronicle.bytes.Bytes;
+import net.openhft.chronicle.bytes.BytesStore;
+import net.openhft.chronicle.engine.api.EngineReplication.ReplicationEntry;
+import net.openhft.chronicle.engine.api.map.KeyValueStore;
+import net.openhft.chronicle.engine.api.map.MapEvent;
+import net.openhft.chronicle.engine.api.pubsub.InvalidSubscriberException;
+import net.openhft.chronicle.engine.api.pubsub.SubscriptionConsumer;
+import net.openhft.chronicle.engine.api.tree.Asset;
+import net.openhft.chronicle.wire.WireType;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.nio.ByteBuffer;
+import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * An in memory store with a maximum number of entries and/or bytes, which evicts entries to stay within
+ * them.
+ * <p>
+ * The store is split into segments, each with its own lock and share of the limits. Evicted entries are
+ * published as EvictedEvents after the segment lock is released, so subscribers can tell them from
+ * removals. BytesStore, CharSequence and byte[] keys and values count their length towards maxBytes,
+ * anything else the length of its binary wire form, which is only worked out if maxBytes is set.
+ */
+public class BoundedKeyValueStore<K, V> implements AuthenticatedKeyValueStore<K, V> {
+    private static final int MAX_SEGMENTS = 16;
+    private static final int MIN_ENTRIES_PER_SEGMENT = 64;
+    private static final int MIN_BYTES_PER_SEGMENT = 64 << 10;
+    private static final int SAMPLE_SIZE = 5;
+
+    @NotNull
+    private final Asset asset;
+    @NotNull
+    private final EvictionPolicy policy;
+    private final long maxEntries;
+    private final long maxBytes;
+    @NotNull
+    private final Segment<K, V>[] segments;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private long lastRateEvictions;
+    private long lastRateTime = System.nanoTime();
+
+    /**
+     * @param asset      of the map
+     * @param maxEntries the most entries to hold, or 0 for no limit
+     * @param maxBytes   the most bytes of keys and values to hold, or 0 for no limit
+     * @param policy     of which entries to evict
+     */
+    public BoundedKeyValueStore(@NotNull Asset asset, long maxEntries, long maxBytes, @NotNull EvictionPolicy policy) {
+        if (maxEntries <= 0 && maxBytes <= 0)
+            throw new IllegalArgumentException("Either maxEntries or maxBytes must be set");
+        this.asset = asset;
+        this.policy = policy;
+        this.maxEntries = maxEntries;
+        this.maxBytes = maxBytes;
+
+        int count = 1;
+        // only split the limits where each segment still gets a reasonable share.
+        while (count < MAX_SEGMENTS
+                && (maxEntries <= 0 || maxEntries / (count * 2) >= MIN_ENTRIES_PER_SEGMENT)
+                && (maxBytes <= 0 || maxBytes / (count * 2) >= MIN_BYTES_PER_SEGMENT))
+            count *= 2;
+        //noinspection unchecked
+        segments = new Segment[count];
+        long segmentEntries = maxEntries <= 0 ? Long.MAX_VALUE : (maxEntries + count - 1) / count;
+        long segmentBytes = maxBytes <= 0 ? Long.MAX_VALUE : (maxBytes + count - 1) / count;
+        for (int i = 0; i < count; i++)
+            segments[i] = new Segment<>(policy, segmentEntries, segmentBytes);
+    }
+
+    static long sizeOf(@Nullable Object o) {
+        if (o == null)
+            return 0;
+        if (o instanceof BytesStore)
+            return ((BytesStore) o).readRemaining();
+        if (o instanceof CharSequence)
+            return ((CharSequence) o).length();
+        if (o instanceof byte[])
+            return ((byte[]) o).length;
+        @NotNull Bytes<ByteBuffer> bytes = Buffers.BUFFERS.get().valueBuffer;
+        bytes.clear();
+        WireType.BINARY.apply(bytes).getValueOut().object(o);
+        return bytes.readRemaining();
+    }
+
+    @NotNull
+    public EvictionPolicy policy() {
+        return policy;
+    }
+
+    public long maxEntries() {
+        return maxEntries;
+    }
+
+    public long maxBytes() {
+        return maxBytes;
+    }
+
+    public long hits() {
+        return hits.sum();
+    }
+
+    public long misses() {
+        return misses.sum();
+    }
+
+    public long evictions() {
+        return evictions.sum();
+    }
+
+    /**
+     * @return the proportion of reads which found a value, or NaN if there have been none.
+     */
+    public double hitRatio() {
+        long hits = hits();
+        long total = hits + misses();
+        return total == 0 ? Double.NaN : (double) hits / total;
+    }
+
+    /**
+     * @return evictions per second since the previous call, for periodic monitoring.
+     */
+    public synchronized double evictionRate() {
+        long now = System.nanoTime();
+        long evictions = evictions();
+        double rate = (evictions - lastRateEvictions) * 1e9 / Math.max(1, now - lastRateTime);
+        lastRateEvictions = evictions;
+        lastRateTime = now;
+        return rate;
+    }
+
+    @NotNull
+    private Segment<K, V> segment(K key) {
+        return segments[segmentFor(key)];
+    }
+
+    @Override
+    public int segments() {
+        return segments.length;
+    }
+
+    @Override
+    public int segmentFor(K key) {
+        int h = key.hashCode();
+        h ^= h >>> 16;
+        return h & (segments.length - 1);
+    }
+
+    @Override
+    public boolean put(K key, V value) {
+        return getAndPut(key, value) != null;
+    }
+
+    @Nullable
+    @Override
+    public V getAndPut(K key, V value) {
+        @NotNull Segment<K, V> segment = segment(key);
+        @Nullable ObjectSubscription<K, V> subscriptions = asset.getView(ObjectSubscription.class);
+        @NotNull WriteGate writeGate = subscriptions == null ? WriteGate.NONE : subscriptions.writeGate();
+        // the evictions are writes too, so they and their events aren't split by a subscriber being added.
+        try (@NotNull WriteGate.Pass pass = writeGate.enter()) {
+            @Nullable List<Node<K, V>> evicted;
+            @Nullable V oldValue;
+            synchronized (segment) {
+                oldValue = segment.put(key, value);
+                evicted = segment.evict(key);
+            }
+            publishEvictions(subscriptions, evicted);
+            return oldValue;
+        }
+    }
+
+    private void publishEvictions(@Nullable ObjectSubscription<K, V> subscriptions, @Nullable List<Node<K, V>> evicted) {
+        if (evicted == null)
+            return;
+        evictions.add(evicted.size());
+        if (subscriptions == null || !subscriptions.hasSubscribers())
+            return;
+        @NotNull String name = asset.fullName();
+        @NotNull List<MapEvent<K, V>> events = new ArrayList<>(evicted.size());
+        for (@NotNull Node<K, V> node : evicted)
+            events.add(EvictedEvent.of(name, node.key, node.value));
+        subscriptions.notifyEvents(events);
+    }
+
+    @Override
+    public boolean remove(K key) {
+        return getAndRemove(key) != null;
+    }
+
+    @Nullable
+    @Override
+    public V getAndRemove(K key) {
+        @NotNull Segment<K, V> segment = segment(key);
+        synchronized (segment) {
+            @Nullable Node<K, V> node = segment.remove(key);
+            return node == null ? null : node.value;
+        }
+    }
+
+    @Nullable
+    @Override
+    public V getUsing(K key, Object value) {
+        @NotNull Segment<K, V> segment = segment(key);
+        @Nullable V ret;
+        synchronized (segment) {
+            ret = segment.get(key);
+        }
+        (ret == null ? misses : hits).increment();
+        return ret;
+    }
+
+    @Override
+    public boolean containsKey(K key) {
+        @NotNull Segment<K, V> segment = segment(key);
+        synchronized (segment) {
+            return segment.map.containsKey(key);
+        }
+    }
+
+    @Override
+    public long longSize() {
+        long size = 0;
+        for (@NotNull Segment<K, V> segment : segments) {
+            synchronized (segment) {
+                size += segment.map.size();
+            }
+        }
+        return size;
+    }
+
+    /**
+     * @return the bytes of keys and values held, as counted towards maxBytes, or 0 if it isn't set.
+     */
+    public long bytesUsed() {
+        long bytes = 0;
+        for (@NotNull Segment<K, V> segment : segments) {
+            synchronized (segment) {
+                bytes += segment.bytes;
+            }
+        }
+        return bytes;
+    }
+
+    @Override
+    public void keysFor(int segment, @NotNull SubscriptionConsumer<K> kConsumer) throws InvalidSubscriberException {
+        @NotNull List<K> keys;
+        @NotNull Segment<K, V> seg = segments[segment];
+        synchronized (seg) {
+            keys = new ArrayList<>(seg.map.keySet());
+        }
+        for (K key : keys)
+            kConsumer.accept(key);
+    }
+
+    @Override
+    public void entriesFor(int segment, @NotNull SubscriptionConsumer<MapEvent<K, V>> kvConsumer) throws InvalidSubscriberException {
+        @NotNull List<Node<K, V>> nodes;
+        @NotNull Segment<K, V> seg = segments[segment];
+        synchronized (seg) {
+            nodes = new ArrayList<>(seg.map.values());
+        }
+        @NotNull String name = asset.fullName();
+        for (@NotNull Node<K, V> node : nodes)
+            kvConsumer.accept(InsertedEvent.of(name, node.key, node.value, false));
+    }
+
+    /**
+     * A copy of the entries taken with every segment locked, so no write or eviction is seen half done.
+     */
+    @NotNull
+    @Override
+    public EntriesSnapshot<K, V> snapshot() {
+        @NotNull List<K> keys = new ArrayList<>();
+        @NotNull List<V> values = new ArrayList<>();
+        copy(0, keys, values);
+        @NotNull String name = asset.fullName();
+        return new EntriesSnapshot<K, V>() {
+            private int next = 0;
+
+            @Override
+            public void entriesFor(@NotNull SubscriptionConsumer<MapEvent<K, V>> kvConsumer) throws InvalidSubscriberException {
+                while (nextEntries(Integer.MAX_VALUE, kvConsumer)) {
+                    // all of them.
+                }
+            }
+
+            @Override
+            public boolean nextEntries(int max, @NotNull SubscriptionConsumer<MapEvent<K, V>> kvConsumer) throws InvalidSubscriberException {
+                int end = (int) Math.min(keys.size(), (long) next + max);
+                for (; next < end; next++)
+                    kvConsumer.accept(InsertedEvent.of(name, keys.get(next), values.get(next), false));
+                return next < keys.size();
+            }
+        };
+    }
+
+    private void copy(int segment, @NotNull List<K> keys, @NotNull List<V> values) {
+        if (segment == segments.length)
+            return;
+        // always locked in order, and writers only lock one segment, so this can't deadlock.
+        synchronized (segments[segment]) {
+            for (@NotNull Node<K, V> node : segments[segment].map.values()) {
+                keys.add(node.key);
+                values.add(node.value);
+            }
+            copy(segment + 1, keys, values);
+        }
+    }
+
+    @Override
+    public void clear() {
+        for (@NotNull Segment<K, V> segment : segments) {
+            synchronized (segment) {
+                segment.clear();
+            }
+        }
+    }
+
+    @Override
+    public boolean containsValue(final V value) {
+        for (@NotNull Segment<K, V> segment : segments) {
+            synchronized (segment) {
+                for (@NotNull Node<K, V> node : segment.map.values())
+                    if (node.value.equals(value))
+                        return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public Asset asset() {
+        return asset;
+    }
+
+    @Nullable
+    @Override
+    public KeyValueStore underlying() {
+        return null;
+    }
+
+    @Override
+    public void close() {
+    }
+
+    @NotNull
+    @Override
+    public KVSSubscription<K, V> subscription(boolean createIfAbsent) {
+        throw new UnsupportedOperationException("todo");
+    }
+
+    @Override
+    public void accept(final ReplicationEntry replicationEntry) {
+        throw new UnsupportedOperationException("todo");
+    }
+
+    @NotNull
+    @Override
+    public String toString() {
+        return "BoundedKeyValueStore{" +
+                "policy=" + policy +
+                ", maxEntries=" + maxEntries +
+                ", maxBytes=" + maxBytes +
+                ", size=" + longSize() +
+                ", hitRatio=" + hitRatio() +
+                ", evictions=" + evictions() +
+                '}';
+    }
+
+    static final class Node<K, V> {
+        final K key;
+        V value;
+        long size;
+        int frequency;
+        // position in Segment.sample for LFU
+        int index;
+
+        Node(K key, V value, long size) {
+            this.key = key;
+            this.value = value;
+            this.size = size;
+        }
+    }
+
+    /**
+     * Guarded by its own monitor.
+     */
+    static final class Segment<K, V> {
+        @NotNull
+        final Map<K, Node<K, V>> map;
+        // the nodes in an array so they can be sampled at random, LFU only.
+        @Nullable
+        final ArrayList<Node<K, V>> sample;
+        final long maxEntries;
+        final long maxBytes;
+        long bytes;
+        long accesses;
+
+        Segment(@NotNull EvictionPolicy policy, long maxEntries, long maxBytes) {
+            this.maxEntries = maxEntries;
+            this.maxBytes = maxBytes;
+            boolean lru = policy == EvictionPolicy.LRU;
+            map = lru ? new LinkedHashMap<>(16, 0.75f, true) : new HashMap<>();
+            sample = lru ? null : new ArrayList<>();
+        }
+
+        @Nullable
+        V get(K key) {
+            @Nullable Node<K, V> node = map.get(key);
+            if (node == null)
+                return null;
+            touch(node);
+            return node.value;
+        }
+
+        @Nullable
+        V put(K key, V value) {
+            @Nullable Node<K, V> node = map.get(key);
+            if (node == null) {
+                node = new Node<>(key, value, sizeOf(key, value));
+                map.put(key, node);
+                if (sample != null) {
+                    node.index = sample.size();
+                    sample.add(node);
+                }
+                bytes += node.size;
+                touch(node);
+                return null;
+            }
+            V oldValue = node.value;
+            node.value = value;
+            bytes -= node.size;
+            node.size = sizeOf(key, value);
+            bytes += node.size;
+            touch(node);
+            return oldValue;
+        }
+
+        private long sizeOf(K key, V value) {
+            // only worth working out if there is a limit.
+            return maxBytes == Long.MAX_VALUE ? 0 : BoundedKeyValueStore.sizeOf(key) + BoundedKeyValueStore.sizeOf(value);
+        }
+
+        private void touch(@NotNull Node<K, V> node) {
+            if (sample == null)
+                return;
+            if (node.frequency < Integer.MAX_VALUE)
+                node.frequency++;
+            // age the frequencies so entries which were popular long ago can be evicted.
+            if (++accesses > 10L * Math.max(MIN_ENTRIES_PER_SEGMENT, map.size())) {
+                accesses = 0;
+                for (@NotNull Node<K, V> n : sample)
+                    n.frequency >>>= 1;
+            }
+        }
+
+        @Nullable
+        Node<K, V> remove(K key) {
+            @Nullable Node<K, V> node = map.remove(key);
+            if (node == null)
+                return null;
+            bytes -= node.size;
+            if (sample != null) {
+                Node<K, V> last = sample.remove(sample.size() - 1);
+                if (last != node) {
+                    last.index = node.index;
+                    sample.set(node.index, last);
+                }
+            }
+            return node;
+        }
+
+        /**
+         * @param keep the key just written, which is not evicted.
+         * @return the nodes evicted, or null if none were.
+         */
+        @Nullable
+        List<Node<K, V>> evict(K keep) {
+            @Nullable List<Node<K, V>> evicted = null;
+            while ((map.size() > maxEntries || bytes > maxBytes) && map.size() > 1) {
+                @Nullable Node<K, V> victim = sample == null ? eldest(keep) : sampled(keep);
+                if (victim == null)
+                    break;
+                remove(victim.key);
+                if (evicted == null)
+                    evicted = new ArrayList<>();
+                evicted.add(victim);
+            }
+            return evicted;
+        }
+
+        @Nullable
+        private Node<K, V> eldest(K keep) {
+            for (@NotNull Node<K, V> node : map.values())
+                if (!node.key.equals(keep))
+                    return node;
+            return null;
+        }
+
+        @Nullable
+        private Node<K, V> sampled(K keep) {
+            assert sample != null;
+            @NotNull ThreadLocalRandom random = ThreadLocalRandom.current();
+            @Nullable Node<K, V> victim = null;
+            for (int i = 0; i < SAMPLE_SIZE; i++) {
+                Node<K, V> node = sample.get(random.nextInt(sample.size()));
+                if (node.key.equals(keep))
+                    continue;
+                if (victim == null || node.frequency < victim.frequency)
+                    victim = node;
+            }
+            // only sampled the key being kept
+            return victim == null ? eldest(keep) : victim;
+        }
+
+        void clear() {
+            map.clear();
+            if (sample != null)
+                sample.clear();
+            bytes = 0;
+            accesses = 0;
+        }
+    }
+}
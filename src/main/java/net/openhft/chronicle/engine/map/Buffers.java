@@ -29,9 +29,13 @@ public class Buffers {
     static final ThreadLocal<Buffers> BUFFERS = ThreadLocal.withInitial(Buffers::new);
     final Bytes<ByteBuffer> keyBuffer = Bytes.elasticHeapByteBuffer(64);
     final Bytes<ByteBuffer> valueBuffer = Bytes.elasticByteBuffer();
+    final Bytes<ByteBuffer> compressBuffer = Bytes.elasticByteBuffer();
+    final Bytes<ByteBuffer> decompressBuffer = Bytes.elasticByteBuffer();
 
     private Buffers() {
         // TODO Fix?
         assert BytesUtil.unregister(valueBuffer);
+        assert BytesUtil.unregister(compressBuffer);
+        assert BytesUtil.unregister(decompressBuffer);
     }
 }
@@ -17,14 +17,15 @@
 
 package net.openhft.chronicle.engine.map;
 
+import net.openhft.chronicle.bytes.BytesStore;
 import net.openhft.chronicle.core.Jvm;
 import net.openhft.chronicle.core.io.Closeable;
 import net.openhft.chronicle.core.io.IORuntimeException;
 import net.openhft.chronicle.core.threads.EventLoop;
-import net.openhft.chronicle.core.util.ThrowingConsumer;
 import net.openhft.chronicle.engine.api.EngineReplication;
 import net.openhft.chronicle.engine.api.EngineReplication.ReplicationEntry;
 import net.openhft.chronicle.engine.api.map.KeyValueStore;
+import net.openhft.chronicle.engine.api.map.KeyValueStore.EntriesSnapshot;
 import net.openhft.chronicle.engine.api.map.MapEvent;
 import net.openhft.chronicle.engine.api.pubsub.InvalidSubscriberException;
 import net.openhft.chronicle.engine.api.pubsub.SubscriptionConsumer;
@@ -34,6 +35,7 @@ import net.openhft.chronicle.engine.api.tree.RequestContext;
 import net.openhft.chronicle.engine.fs.Clusters;
 import net.openhft.chronicle.engine.fs.EngineCluster;
 import net.openhft.chronicle.engine.fs.EngineHostDetails;
+import net.openhft.chronicle.engine.map.VanillaEngineReplication.MergeValues;
 import net.openhft.chronicle.engine.server.internal.MapReplicationHandler;
 import net.openhft.chronicle.engine.tree.HostIdentifier;
 import net.openhft.chronicle.hash.replication.EngineReplicationLangBytesConsumer;
@@ -52,12 +54,16 @@ import org.slf4j.LoggerFactory;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BiConsumer;
 import java.util.function.Supplier;
 
 import static net.openhft.chronicle.core.io.Closeable.closeQuietly;
@@ -88,8 +94,16 @@ public class ChronicleMapKeyValueStore<K, V> implements ObjectKeyValueStore<K, V
     @Nullable
     private final EventLoop eventLoop;
     private final AtomicBoolean isClosed = new AtomicBoolean();
+    // the events of a bulk operation in progress on this thread, published together when it completes.
+    private final ThreadLocal<List<MapEvent<K, V>>> batchedEvents = new ThreadLocal<>();
+    private final SnapshotLog<K, V> snapshots = new SnapshotLog<>();
     @Nullable
     private final SessionProvider sessionProvider;
+    // merges a replicated value with the local one it replaced, or null for last write wins.
+    @Nullable
+    private final MergeValues mergeValues;
+    // the local values replaced by the replicated entry being applied on this thread, to merge back in.
+    private final ThreadLocal<List<Object[]>> replacedByReplication = ThreadLocal.withInitial(ArrayList::new);
     private Class keyType;
     private Class valueType;
     @Nullable
@@ -108,6 +122,7 @@ public class ChronicleMapKeyValueStore<K, V> implements ObjectKeyValueStore<K, V
         this.eventLoop = asset.findOrCreateView(EventLoop.class);
         assert eventLoop != null;
         sessionProvider = asset.findView(SessionProvider.class);
+        mergeValues = asset.findView(MergeValues.class);
         eventLoop.start();
 
         replicationSessionDetails = asset.root().findView(SessionDetails.class);
@@ -136,7 +151,7 @@ public class ChronicleMapKeyValueStore<K, V> implements ObjectKeyValueStore<K, V
         this.engineReplicator = engineReplicator1;
 
         @Nullable Boolean nullOldValueOnUpdateEvent = context.nullOldValueOnUpdateEvent();
-        if (nullOldValueOnUpdateEvent != null && nullOldValueOnUpdateEvent) {
+        if (nullOldValueOnUpdateEvent != null && nullOldValueOnUpdateEvent && mergeValues == null) {
             builder.bytesEventListener(new NullOldValuePublishingOperations());
         } else {
             builder.eventListener(new PublishingOperations());
@@ -231,7 +246,9 @@ public class ChronicleMapKeyValueStore<K, V> implements ObjectKeyValueStore<K, V
 
     @Override
     public boolean put(K key, V value) {
-        try {
+        try (@NotNull WriteGate.Pass pass = subscriptions.writeGate().enter()) {
+            if (snapshots.isActive())
+                return loggedPut(key, value) != null;
             return chronicleMap.update(key, value) != UpdateResult.INSERT;
 
         } catch (RuntimeException e) {
@@ -244,25 +261,112 @@ public class ChronicleMapKeyValueStore<K, V> implements ObjectKeyValueStore<K, V
     @Nullable
     @Override
     public V getAndPut(K key, V value) {
-        if (!isClosed.get())
-            return chronicleMap.put(key, value);
-        else
+        if (isClosed.get())
             return null;
+        try (@NotNull WriteGate.Pass pass = subscriptions.writeGate().enter()) {
+            return snapshots.isActive()
+                    ? loggedPut(key, value)
+                    : chronicleMap.put(key, value);
+        }
     }
 
     @Override
     public boolean remove(K key) {
-        return chronicleMap.remove(key) != null;
+        try (@NotNull WriteGate.Pass pass = subscriptions.writeGate().enter()) {
+            return snapshots.isActive()
+                    ? loggedRemove(key) != null
+                    : chronicleMap.remove(key) != null;
+        }
     }
 
     @Nullable
     @Override
     public V getAndRemove(K key) {
+        if (isClosed.get())
+            return null;
+        try (@NotNull WriteGate.Pass pass = subscriptions.writeGate().enter()) {
+            return snapshots.isActive()
+                    ? loggedRemove(key)
+                    : chronicleMap.remove(key);
+        }
+    }
+
+    // a ChronicleMap has no compute(), so while a snapshot is open the old value is read, saved and
+    // replaced under a lock for the key.
+    @Nullable
+    private V loggedPut(K key, V value) {
+        synchronized (snapshots.lockFor(key)) {
+            @Nullable V oldValue = chronicleMap.get(key);
+            snapshots.beforeWrite(key, oldValue);
+            chronicleMap.put(key, value);
+            return oldValue;
+        }
+    }
+
+    @Nullable
+    private V loggedRemove(K key) {
+        synchronized (snapshots.lockFor(key)) {
+            @Nullable V oldValue = chronicleMap.get(key);
+            if (oldValue == null)
+                return null;
+            snapshots.beforeWrite(key, oldValue);
+            chronicleMap.remove(key);
+            return oldValue;
+        }
+    }
+
+    @Override
+    public void putAll(@NotNull Map<? extends K, ? extends V> entries, @Nullable BiConsumer<? super K, ? super V> previous) {
+        if (isClosed.get())
+            return;
+        try (@NotNull WriteGate.Pass pass = subscriptions.writeGate().enter()) {
+            @NotNull List<MapEvent<K, V>> events = startBatch();
+            try {
+                if (previous == null && !snapshots.isActive())
+                    chronicleMap.putAll(entries);
+                else
+                    ObjectKeyValueStore.super.putAll(entries, previous);
+
+            } finally {
+                endBatch(events);
+            }
+        }
+    }
+
+    @Override
+    public int removeAll(@NotNull Collection<? extends K> keys, @Nullable BiConsumer<? super K, ? super V> removed) {
+        if (isClosed.get())
+            return 0;
+        try (@NotNull WriteGate.Pass pass = subscriptions.writeGate().enter()) {
+            @NotNull List<MapEvent<K, V>> events = startBatch();
+            try {
+                return ObjectKeyValueStore.super.removeAll(keys, removed);
 
-        if (!isClosed.get())
-            return chronicleMap.remove(key);
+            } finally {
+                endBatch(events);
+            }
+        }
+    }
+
+    @NotNull
+    private List<MapEvent<K, V>> startBatch() {
+        @NotNull List<MapEvent<K, V>> events = new ArrayList<>();
+        batchedEvents.set(events);
+        return events;
+    }
+
+    private void endBatch(@NotNull List<MapEvent<K, V>> events) {
+        batchedEvents.remove();
+        if (!events.isEmpty())
+            subscriptions.notifyEvents(events);
+    }
+
+    private void notifyEvent(@NotNull MapEvent<K, V> event) {
+        @Nullable List<MapEvent<K, V>> events = batchedEvents.get();
+        if (events == null)
+            subscriptions.notifyEvent(event);
         else
-            return null;
+            events.add(event);
     }
 
     @Override
@@ -288,9 +392,21 @@ public class ChronicleMapKeyValueStore<K, V> implements ObjectKeyValueStore<K, V
     public void entriesFor(int segment,
                            @NotNull SubscriptionConsumer<MapEvent<K, V>> kvConsumer) throws InvalidSubscriberException {
         //Ignore the segments and return entriesFor the whole map
-        chronicleMap.entrySet().stream()
-                .map(e -> InsertedEvent.of(assetFullName, e.getKey(), e.getValue(), false))
-                .forEach(ThrowingConsumer.asConsumer(kvConsumer::accept));
+        try (@NotNull EntriesSnapshot<K, V> snapshot = snapshot()) {
+            snapshot.entriesFor(kvConsumer);
+        }
+    }
+
+    /**
+     * Entries replicated from another host while the snapshot is open are not saved in it, as they are
+     * written by the replicator, so may be seen. It is opened while no writer is inside the write gate,
+     * as a write which found no snapshot open doesn't save the old value.
+     */
+    @NotNull
+    @Override
+    public EntriesSnapshot<K, V> snapshot() {
+        return subscriptions.writeGate().exclusive(() ->
+                snapshots.open(() -> chronicleMap.entrySet().iterator(), assetFullName));
     }
 
     @NotNull
@@ -307,7 +423,14 @@ public class ChronicleMapKeyValueStore<K, V> implements ObjectKeyValueStore<K, V
 
     @Override
     public void clear() {
-        chronicleMap.clear();
+        try (@NotNull WriteGate.Pass pass = subscriptions.writeGate().enter()) {
+            if (!snapshots.isActive()) {
+                chronicleMap.clear();
+                return;
+            }
+            for (@NotNull Iterator<K> it = chronicleMap.keySet().iterator(); it.hasNext(); )
+                loggedRemove(it.next());
+        }
     }
 
     @Override
@@ -338,12 +461,40 @@ public class ChronicleMapKeyValueStore<K, V> implements ObjectKeyValueStore<K, V
 
     @Override
     public void accept(@NotNull final ReplicationEntry replicationEntry) {
-        if (!isClosed.get() && engineReplicator != null)
-            engineReplicator.applyReplication(replicationEntry);
-        else
+        if (!isClosed.get() && engineReplicator != null) {
+            try (@NotNull WriteGate.Pass pass = subscriptions.writeGate().enter()) {
+                engineReplicator.applyReplication(replicationEntry);
+                if (mergeValues != null)
+                    mergeReplaced();
+            }
+        } else
             Jvm.warn().on(getClass(), "message skipped as closed replicationEntry=" + replicationEntry);
     }
 
+    /**
+     * ChronicleMap applies a replicated entry by last write wins, so the local value it replaced is merged
+     * back into the key. The merged value is only written if the key has not changed since it was read,
+     * otherwise the merge is repeated, so a local write made meanwhile is merged with rather than
+     * overwritten. A remote value older than the local one is not applied, and reaches this host once
+     * the remote host has merged in the local value and replicated the result.
+     */
+    private void mergeReplaced() {
+        @NotNull List<Object[]> replaced = replacedByReplication.get();
+        if (replaced.isEmpty())
+            return;
+        assert mergeValues != null;
+        try {
+            for (@NotNull Object[] keyValue : replaced) {
+                @NotNull K key = (K) keyValue[0];
+                mergeValues.mergeInto((BytesStore) keyValue[1],
+                        () -> (BytesStore) chronicleMap.get(key),
+                        (expected, merged) -> chronicleMap.replace(key, (V) expected, (V) merged));
+            }
+        } finally {
+            replaced.clear();
+        }
+    }
+
     @Nullable
     @Override
     public EngineReplication get() {
@@ -363,12 +514,12 @@ public class ChronicleMapKeyValueStore<K, V> implements ObjectKeyValueStore<K, V
     private class PublishingOperations extends MapEventListener<K, V> {
         @Override
         public boolean isActive() {
-            return subscriptions.hasSubscribers();
+            return mergeValues != null || subscriptions.hasSubscribers();
         }
 
         @Override
         public boolean usesValue() {
-            return subscriptions.hasValueSubscribers();
+            return mergeValues != null || subscriptions.hasValueSubscribers();
         }
 
         @Override
@@ -389,16 +540,16 @@ public class ChronicleMapKeyValueStore<K, V> implements ObjectKeyValueStore<K, V
         }
 
         public void onRemove0(@NotNull K key, V value, boolean replicationEven) {
-            subscriptions.notifyEvent(RemovedEvent.of(assetFullName, key, value, replicationEven));
+            notifyEvent(RemovedEvent.of(assetFullName, key, value, replicationEven));
         }
 
         private void onPut0(@NotNull K key, V newValue, @Nullable V replacedValue,
                             boolean replicationEvent, boolean added, boolean hasValueChanged) {
             if (added) {
-                subscriptions.notifyEvent(InsertedEvent.of(assetFullName, key, newValue, replicationEvent));
+                notifyEvent(InsertedEvent.of(assetFullName, key, newValue, replicationEvent));
             } else {
                 if (hasValueChanged)
-                    subscriptions.notifyEvent(UpdatedEvent.of(assetFullName, key, replacedValue,
+                    notifyEvent(UpdatedEvent.of(assetFullName, key, replacedValue,
                             newValue, replicationEvent, hasValueChanged));
             }
         }
@@ -431,6 +582,9 @@ public class ChronicleMapKeyValueStore<K, V> implements ObjectKeyValueStore<K, V
                 sessionProvider.set(replicationSessionDetails);
             }
 
+            if (replicationEvent && mergeValues != null && replacedValue instanceof BytesStore)
+                replacedByReplication.get().add(new Object[]{key, ((BytesStore) replacedValue).copy()});
+
             onPut0(key, newValue, replacedValue, replicationEvent, added, hasValueChanged);
         }
     }
@@ -448,9 +602,9 @@ public class ChronicleMapKeyValueStore<K, V> implements ObjectKeyValueStore<K, V
             segment.writeUnlock();
             try {
                 if (added) {
-                    subscriptions.notifyEvent(InsertedEvent.of(assetFullName, key, value, replicationEvent));
+                    notifyEvent(InsertedEvent.of(assetFullName, key, value, replicationEvent));
                 } else {
-                    subscriptions.notifyEvent(UpdatedEvent.of(assetFullName, key, null, value,
+                    notifyEvent(UpdatedEvent.of(assetFullName, key, null, value,
                             replicationEvent, hasValueChanged));
                 }
             } finally {
@@ -468,7 +622,7 @@ public class ChronicleMapKeyValueStore<K, V> implements ObjectKeyValueStore<K, V
 
             segment.writeUnlock();
             try {
-                subscriptions.notifyEvent(RemovedEvent.of(assetFullName, key, value, replicationEvent));
+                notifyEvent(RemovedEvent.of(assetFullName, key, value, replicationEvent));
             } finally {
                 segment.writeLock();
             }
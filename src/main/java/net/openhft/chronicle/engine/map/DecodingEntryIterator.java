@@ -0,0 +1,124 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package net.openhft.chronicle.engine.map;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.BiFunction;
+
+/*
+ * Streams the entries of an underlying store, decoding each value only when it is first read.
+ * If a using instance is supplied every entry decodes into it, so entries must not be retained.
+ */
+class DecodingEntryIterator<K, U, V> implements Iterator<Map.Entry<K, V>> {
+    @NotNull
+    private final Iterator<Map.Entry<K, U>> iterator;
+    @NotNull
+    private final BiFunction<U, V, V> decoder;
+    @Nullable
+    private final V using;
+
+    DecodingEntryIterator(@NotNull Iterator<Map.Entry<K, U>> iterator,
+                          @NotNull BiFunction<U, V, V> decoder,
+                          @Nullable V using) {
+        this.iterator = iterator;
+        this.decoder = decoder;
+        this.using = using;
+    }
+
+    @Override
+    public boolean hasNext() {
+        return iterator.hasNext();
+    }
+
+    @NotNull
+    @Override
+    public Map.Entry<K, V> next() {
+        Map.Entry<K, U> entry = iterator.next();
+        return new DecodingEntry<>(entry.getKey(), entry.getValue(), decoder, using);
+    }
+
+    @Override
+    public void remove() {
+        iterator.remove();
+    }
+
+    static final class DecodingEntry<K, U, V> implements Map.Entry<K, V> {
+        private final K key;
+        @NotNull
+        private final BiFunction<U, V, V> decoder;
+        @Nullable
+        private final V using;
+        @Nullable
+        private U encoded;
+        @Nullable
+        private V value;
+        private boolean decoded;
+
+        DecodingEntry(K key, @Nullable U encoded, @NotNull BiFunction<U, V, V> decoder, @Nullable V using) {
+            this.key = key;
+            this.encoded = encoded;
+            this.decoder = decoder;
+            this.using = using;
+        }
+
+        @Override
+        public K getKey() {
+            return key;
+        }
+
+        @Nullable
+        @Override
+        public V getValue() {
+            if (!decoded) {
+                value = encoded == null ? null : decoder.apply(encoded, using);
+                encoded = null;
+                decoded = true;
+            }
+            return value;
+        }
+
+        @Override
+        public V setValue(V value) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Map.Entry))
+                return false;
+            @NotNull Map.Entry e = (Map.Entry) o;
+            return Objects.equals(key, e.getKey()) && Objects.equals(getValue(), e.getValue());
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hashCode(key) ^ Objects.hashCode(getValue());
+        }
+
+        @NotNull
+        @Override
+        public String toString() {
+            return key + "=" + getValue();
+        }
+    }
+}
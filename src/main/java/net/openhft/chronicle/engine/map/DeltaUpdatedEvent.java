@@ -0,0 +1,99 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package net.openhft.chronicle.engine.map;
+
+import net.openhft.chronicle.engine.api.map.MapEvent;
+import net.openhft.chronicle.wire.AbstractMarshallable;
+import net.openhft.chronicle.wire.WireIn;
+import net.openhft.chronicle.wire.WireOut;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * An UpdatedEvent as sent to a remote subscriber which holds the previous value of the key, with only the
+ * fields of the value which changed. The subscriber turns it back into an UpdatedEvent with {@link
+ * #applyTo(Object)}.
+ */
+public class DeltaUpdatedEvent<K, V> extends AbstractMarshallable {
+    private String assetName;
+    @Nullable
+    private K key;
+    @Nullable
+    private FieldDelta delta;
+    private boolean isReplicationEvent;
+    private boolean hasValueChanged;
+
+    private DeltaUpdatedEvent(String assetName, @NotNull K key, @NotNull FieldDelta delta,
+                              boolean isReplicationEvent, boolean hasValueChanged) {
+        this.assetName = assetName;
+        this.key = key;
+        this.delta = delta;
+        this.isReplicationEvent = isReplicationEvent;
+        this.hasValueChanged = hasValueChanged;
+    }
+
+    /**
+     * @param event to send
+     * @return the event as a delta, or null if it has to be sent whole.
+     */
+    @Nullable
+    public static <K, V> DeltaUpdatedEvent<K, V> of(@NotNull MapEvent<K, V> event) {
+        if (!(event instanceof UpdatedEvent))
+            return null;
+        @NotNull final UpdatedEvent<K, V> updated = (UpdatedEvent<K, V>) event;
+        @Nullable final FieldDelta delta = updated.delta();
+        if (delta == null)
+            return null;
+        return new DeltaUpdatedEvent<>(updated.assetName(), updated.getKey(), delta,
+                updated.isReplicationEvent(), updated.hasValueChanged());
+    }
+
+    @Nullable
+    public K getKey() {
+        return key;
+    }
+
+    /**
+     * @param previous value of the key, as held by the subscriber
+     * @return the update of the previous value.
+     */
+    @NotNull
+    public UpdatedEvent<K, V> applyTo(@NotNull V previous) {
+        assert delta != null;
+        return UpdatedEvent.of(assetName, key, previous, delta.apply(previous), isReplicationEvent,
+                hasValueChanged);
+    }
+
+    @Override
+    public void readMarshallable(@NotNull WireIn wire) throws IllegalStateException {
+        wire.read(MapEvent.MapEventFields.assetName).text(this, (o, s) -> assetName = s);
+        wire.read(MapEvent.MapEventFields.key).object(Object.class, this, (o, x) -> o.key = (K) x);
+        wire.read(() -> "delta").object(FieldDelta.class, this, (o, x) -> o.delta = x);
+        wire.read(MapEvent.MapEventFields.isReplicationEvent).bool(this, (o, x) -> o.isReplicationEvent = x);
+        wire.read(MapEvent.MapEventFields.hasValueChanged).bool(this, (o, x) -> o.hasValueChanged = x);
+    }
+
+    @Override
+    public void writeMarshallable(@NotNull WireOut wire) {
+        wire.write(MapEvent.MapEventFields.assetName).text(assetName);
+        wire.write(MapEvent.MapEventFields.key).object(key);
+        wire.write(() -> "delta").marshallable(delta);
+        wire.write(MapEvent.MapEventFields.isReplicationEvent).object(isReplicationEvent);
+        wire.write(MapEvent.MapEventFields.hasValueChanged).object(hasValueChanged);
+    }
+}
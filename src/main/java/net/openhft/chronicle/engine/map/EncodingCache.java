@@ -0,0 +1,63 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package net.openhft.chronicle.engine.map;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.function.BiFunction;
+
+/**
+ * An event which keeps what it is encoded as for remote subscribers, so all the subscribers it is passed to
+ * share one encoding, while any other event, even an equal one, is encoded afresh.
+ */
+public interface EncodingCache {
+    /**
+     * @param encoder of the event
+     * @param encode  makes the encoding from this event and the encoder, the first time it is asked for.
+     * @return the encoding of this event by the encoder.
+     */
+    @NotNull
+    <E> E encoding(@NotNull Object encoder, @NotNull BiFunction<Object, Object, E> encode);
+
+    /**
+     * The encodings of an event, by encoder. An event has few, so they are held as pairs in an array.
+     */
+    final class Encodings {
+        @Nullable
+        private Object[] pairs;
+
+        @NotNull
+        <E> E get(@NotNull Object event, @NotNull Object encoder, @NotNull BiFunction<Object, Object, E> encode) {
+            @Nullable Object[] pairs = this.pairs;
+            int length = pairs == null ? 0 : pairs.length;
+            for (int i = 0; i < length; i += 2) {
+                if (pairs[i] == encoder)
+                    return (E) pairs[i + 1];
+            }
+            @NotNull E encoding = encode.apply(event, encoder);
+            @NotNull Object[] added = new Object[length + 2];
+            if (pairs != null)
+                System.arraycopy(pairs, 0, added, 0, length);
+            added[length] = encoder;
+            added[length + 1] = encoding;
+            this.pairs = added;
+            return encoding;
+        }
+    }
+}
@@ -0,0 +1,164 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package net.openhft.chronicle.engine.map;
+
+import net.openhft.chronicle.core.io.Closeable;
+import net.openhft.chronicle.core.threads.EventHandler;
+import net.openhft.chronicle.core.threads.EventLoop;
+import net.openhft.chronicle.core.threads.HandlerPriority;
+import net.openhft.chronicle.core.threads.InvalidEventHandlerException;
+import net.openhft.chronicle.engine.api.map.MapView;
+import net.openhft.chronicle.engine.api.tree.Asset;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Removes entries of a map once their time to live has passed.
+ * <p>
+ * The deadline of each key is held in a concurrent map so it can be set from any thread. The keys are
+ * then filed in a timer wheel by the asset's event loop, which removes them via the asset's MapView, so
+ * subscribers see a normal RemovedEvent and the removal is replicated like any other. A key which has
+ * been put again or removed since its deadline was filed is ignored when the wheel reaches it, and an
+ * entry is only removed if it still has the value it had when it expired.
+ */
+public class EntryExpiry<K> implements EventHandler, Closeable {
+    static final long TICK_MILLIS = 10;
+
+    private final ConcurrentMap<K, Long> deadlines = new ConcurrentHashMap<>();
+    private final Queue<K> toSchedule = new ConcurrentLinkedQueue<>();
+    @NotNull
+    private final TimerWheel<K> wheel = new TimerWheel<>(TICK_MILLIS, System.currentTimeMillis());
+    @NotNull
+    private final Asset asset;
+    private final long defaultTtlMillis;
+    private volatile boolean closed;
+
+    /**
+     * @param asset            of the map
+     * @param defaultTtlMillis for entries put without a time to live, or 0 for no expiry.
+     */
+    public EntryExpiry(@NotNull Asset asset, long defaultTtlMillis) {
+        this.asset = asset;
+        this.defaultTtlMillis = defaultTtlMillis;
+        @Nullable EventLoop eventLoop = asset.findOrCreateView(EventLoop.class);
+        assert eventLoop != null;
+        eventLoop.addHandler(this);
+        eventLoop.start();
+    }
+
+    public long defaultTtlMillis() {
+        return defaultTtlMillis;
+    }
+
+    /**
+     * Called after a key has been put with the default time to live.
+     */
+    public void onPut(@NotNull K key) {
+        expireAfter(key, defaultTtlMillis);
+    }
+
+    /**
+     * @param key       which has been put
+     * @param ttlMillis time to live from now, or 0 to never expire.
+     */
+    public void expireAfter(@NotNull K key, long ttlMillis) {
+        if (ttlMillis <= 0) {
+            deadlines.remove(key);
+            return;
+        }
+        deadlines.put(key, System.currentTimeMillis() + ttlMillis);
+        toSchedule.add(key);
+    }
+
+    public void onRemove(@NotNull K key) {
+        deadlines.remove(key);
+    }
+
+    public void onClear() {
+        deadlines.clear();
+    }
+
+    /**
+     * @return the time the key will expire or 0 if it won't.
+     */
+    public long deadline(@NotNull K key) {
+        @Nullable Long deadline = deadlines.get(key);
+        return deadline == null ? 0 : deadline;
+    }
+
+    /**
+     * @return the number of keys waiting to expire.
+     */
+    public int pending() {
+        return deadlines.size();
+    }
+
+    @Override
+    public boolean action() throws InvalidEventHandlerException {
+        if (closed)
+            throw new InvalidEventHandlerException();
+
+        boolean busy = false;
+        for (K key; (key = toSchedule.poll()) != null; ) {
+            @Nullable Long deadline = deadlines.get(key);
+            if (deadline != null)
+                wheel.schedule(key, deadline);
+            busy = true;
+        }
+        return wheel.advance(System.currentTimeMillis(), this::expire) > 0 || busy;
+    }
+
+    private void expire(@NotNull K key) {
+        @Nullable Long deadline = deadlines.get(key);
+        // the key was removed, or put again with a later deadline which is scheduled separately.
+        if (deadline == null || deadline > System.currentTimeMillis())
+            return;
+        @Nullable MapView<K, Object> mapView = asset.getView(MapView.class);
+        // read before the deadline is taken, so a put after it, which sets a new deadline, changes the value.
+        @Nullable Object value = mapView == null ? null : mapView.get(key);
+        if (!deadlines.remove(key, deadline))
+            return;
+        if (value != null)
+            mapView.remove(key, value);
+    }
+
+    @NotNull
+    @Override
+    public HandlerPriority priority() {
+        return HandlerPriority.TIMER;
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+    }
+
+    @NotNull
+    @Override
+    public String toString() {
+        return "EntryExpiry{" +
+                "defaultTtlMillis=" + defaultTtlMillis +
+                ", pending=" + pending() +
+                '}';
+    }
+}
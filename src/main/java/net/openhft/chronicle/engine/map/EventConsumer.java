@@ -20,6 +20,9 @@ package net.openhft.chronicle.engine.map;
 import net.openhft.chronicle.engine.api.map.MapEvent;
 import net.openhft.chronicle.engine.api.pubsub.ISubscriber;
 import net.openhft.chronicle.engine.api.pubsub.InvalidSubscriberException;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.List;
 
 /*
  * Created by peter.lawrey on 03/06/2015.
@@ -27,4 +30,15 @@ import net.openhft.chronicle.engine.api.pubsub.InvalidSubscriberException;
 @FunctionalInterface
 public interface EventConsumer<K, V> extends ISubscriber {
     void notifyEvent(MapEvent<K, V> changeEvent) throws InvalidSubscriberException;
+
+    /**
+     * Notify the events of a bulk operation together, in order.
+     *
+     * @param changeEvents the events of a bulk operation
+     * @throws InvalidSubscriberException if this consumer is no longer valid.
+     */
+    default void notifyEvents(@NotNull List<MapEvent<K, V>> changeEvents) throws InvalidSubscriberException {
+        for (MapEvent<K, V> changeEvent : changeEvents)
+            notifyEvent(changeEvent);
+    }
 }
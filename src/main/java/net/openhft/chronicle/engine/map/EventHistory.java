@@ -0,0 +1,77 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package net.openhft.chronicle.engine.map;
+
+import net.openhft.chronicle.engine.api.map.MapEvent;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The last events of a map, numbered in the order they were made, so a subscriber which lost its connection
+ * can be sent the events it missed rather than the whole map.
+ * <p>
+ * Events are numbered as they are notified, by writers of different keys at once, so a subscriber can be
+ * passed them out of order. It is only sure to have seen every event up to the lowest number it is missing.
+ */
+final class EventHistory<K, V> {
+    private static final AtomicLong EPOCHS = new AtomicLong(System.currentTimeMillis() << 20);
+
+    private final long epoch = EPOCHS.incrementAndGet();
+    @NotNull
+    private final SequencedEvent<K, V>[] events;
+    private long sequence;
+
+    EventHistory(int capacity) {
+        this.events = new SequencedEvent[capacity];
+    }
+
+    @NotNull
+    synchronized SequencedEvent<K, V> add(@NotNull MapEvent<K, V> event) {
+        @NotNull SequencedEvent<K, V> sequenced = new SequencedEvent<>(epoch, ++sequence, event);
+        events[(int) (sequence % events.length)] = sequenced;
+        return sequenced;
+    }
+
+    /**
+     * @return the position of the last event, for the bootstrap of a new subscriber.
+     */
+    @NotNull
+    synchronized SequencedEvent<K, V> position() {
+        return new SequencedEvent<>(epoch, sequence, null);
+    }
+
+    /**
+     * @param epoch of the history the subscriber was sent events from
+     * @param from  the position up to which the subscriber has every event
+     * @return the events after that position, or null if they are no longer all held, or the position is
+     * not of this history.
+     */
+    @Nullable
+    synchronized List<SequencedEvent<K, V>> since(long epoch, long from) {
+        if (epoch != this.epoch || from < 0 || from > sequence || sequence - from > events.length)
+            return null;
+        @NotNull List<SequencedEvent<K, V>> missed = new ArrayList<>((int) (sequence - from));
+        for (long s = from + 1; s <= sequence; s++)
+            missed.add(events[(int) (s % events.length)]);
+        return missed;
+    }
+}
@@ -0,0 +1,155 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package net.openhft.chronicle.engine.map;
+
+import net.openhft.chronicle.engine.api.map.MapEvent;
+import net.openhft.chronicle.engine.api.map.MapEventListener;
+import net.openhft.chronicle.engine.api.map.ValueReader;
+import net.openhft.chronicle.wire.AbstractMarshallable;
+import net.openhft.chronicle.wire.WireIn;
+import net.openhft.chronicle.wire.WireOut;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Objects;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * An entry removed by a bounded store to make room, rather than deleted by a user.
+ */
+public class EvictedEvent<K, V> extends AbstractMarshallable implements MapEvent<K, V>, EncodingCache {
+    private String assetName;
+    @Nullable
+    private K key;
+    @Nullable
+    private V oldValue;
+    @Nullable
+    private transient LazyValue<?, V> lazyOldValue;
+    @Nullable
+    private transient Encodings encodings;
+
+    private EvictedEvent(String assetName, @NotNull K key, @Nullable V oldValue) {
+        this.assetName = assetName;
+        this.key = key;
+        this.oldValue = oldValue;
+    }
+
+    private EvictedEvent(String assetName, @NotNull K key, @Nullable LazyValue<?, V> lazyOldValue) {
+        this(assetName, key, (V) null);
+        this.lazyOldValue = lazyOldValue;
+    }
+
+    @NotNull
+    public static <K, V> EvictedEvent<K, V> of(String assetName, @NotNull K key, V value) {
+        return new EvictedEvent<>(assetName, key, value);
+    }
+
+    @Override
+    public String assetName() {
+        return assetName;
+    }
+
+    @NotNull
+    @Override
+    public <K2, V2> MapEvent<K2, V2> translate(@NotNull Function<K, K2> keyFunction, @NotNull Function<V, V2> valueFunction) {
+        return new EvictedEvent<>(assetName, keyFunction.apply(key), valueFunction.apply(oldValue()));
+    }
+
+    @NotNull
+    @Override
+    public <K2, V2> MapEvent<K2, V2> translate(@NotNull BiFunction<K, K2, K2> keyFunction, @NotNull BiFunction<V, V2, V2> valueFunction) {
+        return new EvictedEvent<>(assetName, keyFunction.apply(key, null), valueFunction.apply(oldValue(), null));
+    }
+
+    @NotNull
+    @Override
+    public <K2, V2> MapEvent<K2, V2> translateLazily(@NotNull Function<K, K2> keyFunction, @NotNull ValueReader<V, V2> valueReader) {
+        return new EvictedEvent<K2, V2>(assetName, keyFunction.apply(key), LazyValue.of(oldValue(), valueReader));
+    }
+
+    @Override
+    @Nullable
+    public K getKey() {
+        return key;
+    }
+
+    @Nullable
+    @Override
+    public V oldValue() {
+        return LazyValue.get(lazyOldValue, oldValue);
+    }
+
+    @Override
+    @Nullable
+    public V getValue() {
+        return null;
+    }
+
+    @Override
+    public void apply(@NotNull MapEventListener<K, V> listener) {
+        listener.evict(assetName, key, oldValue());
+    }
+
+    @NotNull
+    @Override
+    public synchronized <E> E encoding(@NotNull Object encoder, @NotNull BiFunction<Object, Object, E> encode) {
+        if (encodings == null)
+            encodings = new Encodings();
+        return encodings.get(this, encoder, encode);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o)
+            return true;
+        if (!(o instanceof EvictedEvent))
+            return false;
+        @NotNull EvictedEvent that = (EvictedEvent) o;
+        return Objects.equals(assetName, that.assetName)
+                && Objects.equals(key, that.key)
+                && Objects.equals(oldValue(), that.oldValue());
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(assetName, key, oldValue());
+    }
+
+    @NotNull
+    @Override
+    public String toString() {
+        return lazyOldValue == null ? super.toString() : of(assetName, key, oldValue()).toString();
+    }
+
+    @Override
+    public void readMarshallable(@NotNull WireIn wire) throws IllegalStateException {
+        encodings = null;
+        lazyOldValue = null;
+        wire.read(MapEventFields.assetName).text(this, (o, s) -> assetName = s);
+        wire.read(MapEventFields.key).object(Object.class, this, (o, x) -> o.key = (K) x);
+        wire.read(MapEventFields.oldValue).object(Object.class, this, (o, x) -> o.oldValue = (V) x);
+    }
+
+    @Override
+    public void writeMarshallable(@NotNull WireOut wire) {
+        wire.write(MapEventFields.assetName).text(assetName);
+        wire.write(MapEventFields.key).object(key);
+        LazyValue.write(wire.write(MapEventFields.oldValue), lazyOldValue, oldValue);
+    }
+}
@@ -0,0 +1,183 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package net.openhft.chronicle.engine.map;
+
+import net.openhft.chronicle.bytes.Bytes;
+import net.openhft.chronicle.core.util.ObjectUtils;
+import net.openhft.chronicle.wire.*;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The fields of a Marshallable value which changed from its previous value, as they are written in
+ * binary wire.
+ * <p>
+ * Applying the delta to a copy of the previous value writes the fields of the previous value with the
+ * changed fields in their place, and reads a new instance from them, so the new value is read from
+ * exactly what it writes.
+ */
+public final class FieldDelta extends AbstractMarshallable {
+    private static final ThreadLocal<Wire> WIRE = ThreadLocal.withInitial(() ->
+            WireType.BINARY.apply(Bytes.elasticByteBuffer()));
+
+    private Class type;
+    private byte[] fields;
+
+    private FieldDelta(@NotNull Class type, @NotNull byte[] fields) {
+        this.type = type;
+        this.fields = fields;
+    }
+
+    /**
+     * @param previous value of the key
+     * @param value    the value it was replaced with
+     * @return the fields which changed, or null if the values are not Marshallables of the same class
+     * which write the same fields in the same order, or most of the fields changed.
+     */
+    @Nullable
+    public static FieldDelta diff(@Nullable Object previous, @Nullable Object value) {
+        if (!(previous instanceof Marshallable) || value == null || previous.getClass() != value.getClass())
+            return null;
+
+        @Nullable final Map<String, byte[]> before = fieldsOf((Marshallable) previous);
+        @Nullable final Map<String, byte[]> after = fieldsOf((Marshallable) value);
+        if (before == null || after == null
+                || !new ArrayList<>(before.keySet()).equals(new ArrayList<>(after.keySet())))
+            return null;
+
+        @NotNull final Wire wire = wire();
+        long size = 0;
+        for (@NotNull Map.Entry<String, byte[]> field : after.entrySet()) {
+            size += field.getKey().length() + field.getValue().length;
+            if (!Arrays.equals(before.get(field.getKey()), field.getValue()))
+                writeField(wire, field.getKey(), field.getValue());
+        }
+
+        // if most fields changed, the whole value is sent instead.
+        if (wire.bytes().readRemaining() * 2 > size)
+            return null;
+        return new FieldDelta(value.getClass(), wire.bytes().toByteArray());
+    }
+
+    @Nullable
+    private static Map<String, byte[]> fieldsOf(@NotNull Marshallable value) {
+        @NotNull final Wire wire = wire();
+        value.writeMarshallable(wire);
+        return readFields(wire);
+    }
+
+    @Nullable
+    private static Map<String, byte[]> readFields(@NotNull Wire wire) {
+        @NotNull final Bytes<?> bytes = wire.bytes();
+        @NotNull final Map<String, byte[]> fields = new LinkedHashMap<>();
+        @NotNull final StringBuilder name = new StringBuilder();
+        while (bytes.readRemaining() > 0) {
+            @NotNull final ValueIn valueIn = wire.readEventName(name);
+            final long start = bytes.readPosition();
+            valueIn.skipValue();
+            @NotNull final byte[] value = new byte[Math.toIntExact(bytes.readPosition() - start)];
+            bytes.readPosition(start);
+            bytes.read(value);
+
+            // a field can only be replaced if it is written once, by name.
+            if (name.length() == 0 || fields.put(name.toString(), value) != null)
+                return null;
+        }
+        return fields;
+    }
+
+    private static void writeField(@NotNull Wire wire, @NotNull String name, @NotNull byte[] value) {
+        wire.write(() -> name);
+        wire.bytes().write(value);
+    }
+
+    @NotNull
+    private static Wire wire() {
+        @NotNull final Wire wire = WIRE.get();
+        wire.bytes().clear();
+        return wire;
+    }
+
+    @NotNull
+    public Class type() {
+        return type;
+    }
+
+    /**
+     * @return whether no fields changed.
+     */
+    public boolean isEmpty() {
+        return fields.length == 0;
+    }
+
+    /**
+     * @return the size of the changed fields in bytes.
+     */
+    public int length() {
+        return fields.length;
+    }
+
+    /**
+     * @param previous value this is a delta of, which is not modified
+     * @return a new instance of the previous value with the changed fields.
+     * @throws IllegalArgumentException if this delta is not of the class of the previous value, or has a
+     *                                  field the previous value doesn't write.
+     */
+    @NotNull
+    public <V> V apply(@NotNull V previous) throws IllegalArgumentException {
+        if (previous.getClass() != type)
+            throw new IllegalArgumentException("A delta of " + type.getName() + " cannot be applied to "
+                    + previous.getClass().getName());
+
+        @Nullable final Map<String, byte[]> merged = fieldsOf((Marshallable) previous);
+        if (merged == null)
+            throw new IllegalArgumentException("The fields of " + type.getName() + " cannot be patched");
+
+        @NotNull final Wire wire = wire();
+        wire.bytes().write(fields);
+        @Nullable final Map<String, byte[]> changed = readFields(wire);
+        assert changed != null;
+        for (@NotNull Map.Entry<String, byte[]> field : changed.entrySet()) {
+            if (merged.replace(field.getKey(), field.getValue()) == null)
+                throw new IllegalArgumentException("No field " + field.getKey() + " in " + type.getName());
+        }
+
+        wire.bytes().clear();
+        merged.forEach((name, value) -> writeField(wire, name, value));
+        @NotNull final V value = (V) ObjectUtils.newInstance(type);
+        ((Marshallable) value).readMarshallable(wire);
+        return value;
+    }
+
+    @Override
+    public void readMarshallable(@NotNull WireIn wire) throws IllegalStateException {
+        type = wire.read(() -> "type").typeLiteral();
+        fields = wire.read(() -> "fields").bytes();
+    }
+
+    @Override
+    public void writeMarshallable(@NotNull WireOut wire) {
+        wire.write(() -> "type").typeLiteral(type);
+        wire.write(() -> "fields").bytes(fields);
+    }
+}
@@ -19,19 +19,21 @@ package net.openhft.chronicle.engine.map;
 
 import net.openhft.chronicle.engine.api.map.MapEvent;
 import net.openhft.chronicle.engine.api.map.MapEventListener;
+import net.openhft.chronicle.engine.api.map.ValueReader;
 import net.openhft.chronicle.wire.AbstractMarshallable;
 import net.openhft.chronicle.wire.WireIn;
 import net.openhft.chronicle.wire.WireOut;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.util.Objects;
 import java.util.function.BiFunction;
 import java.util.function.Function;
 
 /*
  * Created by Peter Lawrey on 22/05/15.
  */
-public class InsertedEvent<K, V> extends AbstractMarshallable implements MapEvent<K, V> {
+public class InsertedEvent<K, V> extends AbstractMarshallable implements MapEvent<K, V>, EncodingCache {
     private boolean isReplicationEvent;
     @Nullable
     private String assetName;
@@ -39,6 +41,10 @@ public class InsertedEvent<K, V> extends AbstractMarshallable implements MapEven
     private K key;
     @Nullable
     private V value;
+    @Nullable
+    private transient LazyValue<?, V> lazyValue;
+    @Nullable
+    private transient Encodings encodings;
 
     private InsertedEvent(String assetName, @NotNull K key, @Nullable V value, boolean isReplicationEvent) {
         this.assetName = assetName;
@@ -47,6 +53,11 @@ public class InsertedEvent<K, V> extends AbstractMarshallable implements MapEven
         this.isReplicationEvent = isReplicationEvent;
     }
 
+    private InsertedEvent(String assetName, @NotNull K key, @Nullable LazyValue<?, V> lazyValue, boolean isReplicationEvent) {
+        this(assetName, key, (V) null, isReplicationEvent);
+        this.lazyValue = lazyValue;
+    }
+
     @NotNull
     public static <K, V> InsertedEvent<K, V> of(String assetName, @NotNull K key, V value, boolean isReplicationEvent) {
         return new InsertedEvent<>(assetName, key, value, isReplicationEvent);
@@ -61,13 +72,19 @@ public class InsertedEvent<K, V> extends AbstractMarshallable implements MapEven
     @NotNull
     @Override
     public <K2, V2> MapEvent<K2, V2> translate(@NotNull Function<K, K2> keyFunction, @NotNull Function<V, V2> valueFunction) {
-        return new InsertedEvent<>(assetName, keyFunction.apply(key), valueFunction.apply(value), isReplicationEvent);
+        return new InsertedEvent<>(assetName, keyFunction.apply(key), valueFunction.apply(getValue()), isReplicationEvent);
     }
 
     @NotNull
     @Override
     public <K2, V2> MapEvent<K2, V2> translate(@NotNull BiFunction<K, K2, K2> keyFunction, @NotNull BiFunction<V, V2, V2> valueFunction) {
-        return new InsertedEvent<>(assetName, keyFunction.apply(key, null), valueFunction.apply(value, null), isReplicationEvent);
+        return new InsertedEvent<>(assetName, keyFunction.apply(key, null), valueFunction.apply(getValue(), null), isReplicationEvent);
+    }
+
+    @NotNull
+    @Override
+    public <K2, V2> MapEvent<K2, V2> translateLazily(@NotNull Function<K, K2> keyFunction, @NotNull ValueReader<V, V2> valueReader) {
+        return new InsertedEvent<K2, V2>(assetName, keyFunction.apply(key), LazyValue.of(getValue(), valueReader), isReplicationEvent);
     }
 
     @Override
@@ -85,12 +102,12 @@ public class InsertedEvent<K, V> extends AbstractMarshallable implements MapEven
     @Override
     @Nullable
     public V getValue() {
-        return value;
+        return LazyValue.get(lazyValue, value);
     }
 
     @Override
     public void apply(@NotNull MapEventListener<K, V> listener) {
-        listener.insert(assetName, key, value);
+        listener.insert(assetName, key, getValue());
     }
 
     @NotNull
@@ -99,8 +116,43 @@ public class InsertedEvent<K, V> extends AbstractMarshallable implements MapEven
         throw new UnsupportedOperationException();
     }
 
+    @NotNull
+    @Override
+    public synchronized <E> E encoding(@NotNull Object encoder, @NotNull BiFunction<Object, Object, E> encode) {
+        if (encodings == null)
+            encodings = new Encodings();
+        return encodings.get(this, encoder, encode);
+    }
+
+    // a value read lazily is transient, so it is read to compare, hash or print the event.
+    @Override
+    public boolean equals(Object o) {
+        if (this == o)
+            return true;
+        if (!(o instanceof InsertedEvent))
+            return false;
+        @NotNull InsertedEvent that = (InsertedEvent) o;
+        return isReplicationEvent == that.isReplicationEvent
+                && Objects.equals(assetName, that.assetName)
+                && Objects.equals(key, that.key)
+                && Objects.equals(getValue(), that.getValue());
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(assetName, key, getValue(), isReplicationEvent);
+    }
+
+    @NotNull
+    @Override
+    public String toString() {
+        return lazyValue == null ? super.toString() : of(assetName, key, getValue(), isReplicationEvent).toString();
+    }
+
     @Override
     public void readMarshallable(@NotNull WireIn wire) throws IllegalStateException {
+        encodings = null;
+        lazyValue = null;
         assetName = wire.read(MapEventFields.assetName).text();
         key = wire.read(MapEventFields.key).object((Class<K>) Object.class);
         value = wire.read(MapEventFields.value).object((Class<V>) Object.class);
@@ -111,7 +163,7 @@ public class InsertedEvent<K, V> extends AbstractMarshallable implements MapEven
     public void writeMarshallable(@NotNull WireOut wire) {
         wire.write(MapEventFields.assetName).text(assetName);
         wire.write(MapEventFields.key).object(key);
-        wire.write(MapEventFields.value).object(value);
+        LazyValue.write(wire.write(MapEventFields.value), lazyValue, value);
         wire.write(MapEventFields.isReplicationEvent).bool(isReplicationEvent);
     }
 }
@@ -27,6 +27,8 @@ import net.openhft.chronicle.engine.api.tree.RequestContext;
 import net.openhft.chronicle.engine.query.Filter;
 import org.jetbrains.annotations.NotNull;
 
+import java.util.List;
+
 /*
  * Created by Peter Lawrey on 29/05/15.
  */
@@ -66,9 +68,24 @@ public interface KVSSubscription<K, V> extends SubscriptionCollection<MapEvent<K
     @Override
     void notifyEvent(MapEvent<K, V> changeEvent);
 
+    @Override
+    default void notifyEvents(@NotNull List<MapEvent<K, V>> changeEvents) {
+        for (MapEvent<K, V> changeEvent : changeEvents)
+            notifyEvent(changeEvent);
+    }
+
     boolean hasSubscribers();
 
     default boolean hasValueSubscribers() {
         return hasSubscribers();
     }
+
+    /**
+     * Writers to the store hold a pass through this gate from the write until its events have been
+     * notified, so a subscriber can be added at a point with no write half done.
+     */
+    @NotNull
+    default WriteGate writeGate() {
+        return WriteGate.NONE;
+    }
 }
@@ -0,0 +1,206 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+
+package net.openhft.chronicle.engine.map;
+
+import net.openhft.chronicle.core.Jvm;
+import net.openhft.chronicle.engine.api.map.KeyRange;
+import net.openhft.chronicle.engine.api.map.MapEvent;
+import net.openhft.chronicle.engine.api.pubsub.BatchSubscriber;
+import net.openhft.chronicle.engine.api.pubsub.InvalidSubscriberException;
+import net.openhft.chronicle.engine.api.pubsub.Subscriber;
+import net.openhft.chronicle.engine.api.pubsub.SubscriptionConsumer;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.function.Consumer;
+
+/**
+ * The subscribers to the events of a single key, or of the String keys with a prefix, indexed by that
+ * key or prefix so an event is only offered to the subscribers interested in it.
+ * <p>
+ * Single keys are held in a hash index and prefixes in a trie, so finding the subscribers to an event
+ * costs a lookup and a walk of the key's characters however many subscribers there are.
+ * <p>
+ * The nodes of the trie are added and pruned under a lock, and read without one.
+ */
+class KeyIndexedSubscribers<K, V> {
+    private final Map<K, Set<Subscriber<MapEvent<K, V>>>> byKey = new ConcurrentHashMap<>();
+    private final Node<K, V> root = new Node<>(null, '\0');
+    // the key or trie node each subscriber was added to.
+    private final Map<Subscriber<MapEvent<K, V>>, Object> routes = new ConcurrentHashMap<>();
+
+    /**
+     * @return whether the subscribers to this range can be indexed.
+     */
+    static boolean indexes(@Nullable KeyRange<?> range) {
+        return range != null && (range.singleKey() != null || range.prefix() != null);
+    }
+
+    void add(@NotNull KeyRange<K> range, @NotNull Subscriber<MapEvent<K, V>> subscriber) {
+        @Nullable K key = range.singleKey();
+        if (key != null) {
+            byKey.compute(key, (k, subs) -> {
+                if (subs == null)
+                    subs = new CopyOnWriteArraySet<>();
+                subs.add(subscriber);
+                return subs;
+            });
+            routes.put(subscriber, key);
+            return;
+        }
+        @Nullable String prefix = range.prefix();
+        if (prefix == null)
+            throw new IllegalArgumentException("Cannot index the subscribers to " + range);
+        synchronized (root) {
+            @NotNull Node<K, V> node = root;
+            for (int i = 0; i < prefix.length(); i++) {
+                @NotNull Node<K, V> parent = node;
+                node = node.children.computeIfAbsent(prefix.charAt(i), c -> new Node<>(parent, c));
+            }
+            node.subscribers.add(subscriber);
+            routes.put(subscriber, node);
+        }
+    }
+
+    boolean remove(@NotNull Subscriber<MapEvent<K, V>> subscriber) {
+        @Nullable Object route = routes.remove(subscriber);
+        if (route == null)
+            return false;
+        if (route instanceof Node) {
+            synchronized (root) {
+                @NotNull Node<K, V> node = (Node<K, V>) route;
+                node.subscribers.remove(subscriber);
+                // drop the nodes left with nothing to route to.
+                while (node.parent != null && node.subscribers.isEmpty() && node.children.isEmpty()) {
+                    node.parent.children.remove(node.c, node);
+                    node = node.parent;
+                }
+            }
+        } else {
+            byKey.computeIfPresent((K) route, (k, subs) -> {
+                subs.remove(subscriber);
+                return subs.isEmpty() ? null : subs;
+            });
+        }
+        return true;
+    }
+
+    boolean isEmpty() {
+        return routes.isEmpty();
+    }
+
+    int size() {
+        return routes.size();
+    }
+
+    /**
+     * @return whether the trie of prefixes has no nodes but its root.
+     */
+    boolean trieIsEmpty() {
+        return root.children.isEmpty();
+    }
+
+    void notifyEvent(@NotNull MapEvent<K, V> changeEvent) {
+        forEachSubscriber(changeEvent.getKey(), s -> notify(s, ss -> ss.onMessage(changeEvent)));
+    }
+
+    /**
+     * Passes each subscriber all its events of the batch at once, in the order they happened.
+     */
+    void notifyEvents(@NotNull List<MapEvent<K, V>> changeEvents) {
+        @NotNull Map<Subscriber<MapEvent<K, V>>, List<MapEvent<K, V>>> eventsBySubscriber = new LinkedHashMap<>();
+        for (@NotNull MapEvent<K, V> changeEvent : changeEvents)
+            forEachSubscriber(changeEvent.getKey(),
+                    s -> eventsBySubscriber.computeIfAbsent(s, $ -> new ArrayList<>()).add(changeEvent));
+
+        eventsBySubscriber.forEach((s, events) -> notify(s, ss -> {
+            if (ss instanceof BatchSubscriber) {
+                ((BatchSubscriber<MapEvent<K, V>>) ss).onMessages(events);
+            } else {
+                for (@NotNull MapEvent<K, V> changeEvent : events)
+                    ss.onMessage(changeEvent);
+            }
+        }));
+    }
+
+    /**
+     * Ends and removes every subscriber.
+     */
+    void close() {
+        for (@NotNull Subscriber<MapEvent<K, V>> subscriber : new ArrayList<>(routes.keySet())) {
+            remove(subscriber);
+            try {
+                subscriber.onEndOfSubscription();
+            } catch (Exception e) {
+                Jvm.warn().on(getClass(), "Failed to send endOfSubscription", e);
+            }
+        }
+    }
+
+    private void forEachSubscriber(@NotNull K key, @NotNull Consumer<Subscriber<MapEvent<K, V>>> action) {
+        @Nullable Set<Subscriber<MapEvent<K, V>>> subs = byKey.get(key);
+        if (subs != null)
+            subs.forEach(action);
+
+        if (!(key instanceof CharSequence))
+            return;
+        @NotNull CharSequence cs = (CharSequence) key;
+        @Nullable Node<K, V> node = root;
+        for (int i = 0; node != null; i++) {
+            if (!node.subscribers.isEmpty())
+                node.subscribers.forEach(action);
+            if (i >= cs.length())
+                break;
+            node = node.children.get(cs.charAt(i));
+        }
+    }
+
+    private void notify(@NotNull Subscriber<MapEvent<K, V>> subscriber,
+                        @NotNull SubscriptionConsumer<Subscriber<MapEvent<K, V>>> doNotify) {
+        try {
+            doNotify.accept(subscriber);
+
+        } catch (InvalidSubscriberException ise) {
+            remove(subscriber);
+            try {
+                subscriber.onEndOfSubscription();
+
+            } catch (RuntimeException e) {
+                Jvm.debug().on(getClass(), e);
+            }
+        }
+    }
+
+    static class Node<K, V> {
+        final Map<Character, Node<K, V>> children = new ConcurrentHashMap<>();
+        final Set<Subscriber<MapEvent<K, V>>> subscribers = new CopyOnWriteArraySet<>();
+        @Nullable
+        final Node<K, V> parent;
+        // the character of the key which leads here from the parent.
+        final char c;
+
+        Node(@Nullable Node<K, V> parent, char c) {
+            this.parent = parent;
+            this.c = c;
+        }
+    }
+}
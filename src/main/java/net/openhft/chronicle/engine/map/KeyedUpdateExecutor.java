@@ -0,0 +1,252 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+
+package net.openhft.chronicle.engine.map;
+
+import net.openhft.chronicle.core.Jvm;
+import net.openhft.chronicle.core.io.Closeable;
+import net.openhft.chronicle.engine.api.map.MapView;
+import net.openhft.chronicle.threads.NamedThreadFactory;
+import net.openhft.chronicle.wire.Marshallable;
+import net.openhft.chronicle.wire.Wires;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.function.BiFunction;
+
+/**
+ * Runs the asyncUpdateKey and syncUpdateKey functions of a map on a pool of worker threads rather than on
+ * the caller's thread.
+ * <p>
+ * Each key is given to one worker by its hash so the updates of a key are applied in the order they were
+ * submitted, while different keys are updated in parallel. A worker takes every update queued when it
+ * wakes and applies all those for the same key to one value, which is written back as a compute would,
+ * so a burst of updates to a hot key costs a single store write and a single event, and a write made by
+ * anything else meanwhile is not lost.
+ * <p>
+ * A syncUpdate called from an update runs in place on the calling worker rather than wait for another.
+ */
+public class KeyedUpdateExecutor<K, V> implements Closeable {
+    private static final Logger LOG = LoggerFactory.getLogger(KeyedUpdateExecutor.class);
+    static final int MAX_BATCH = 1024;
+
+    @NotNull
+    private final MapView<K, V> map;
+    @NotNull
+    private final Worker[] workers;
+    @NotNull
+    private final ExecutorService service;
+    private volatile boolean closed;
+
+    /**
+     * @param map     to read and write the updated values through.
+     * @param name    used to name the worker threads.
+     * @param threads the number of workers.
+     */
+    public KeyedUpdateExecutor(@NotNull MapView<K, V> map, String name, int threads) {
+        if (threads < 1)
+            throw new IllegalArgumentException("threads: " + threads);
+        this.map = map;
+        this.workers = new KeyedUpdateExecutor.Worker[threads];
+        this.service = Executors.newFixedThreadPool(threads, new NamedThreadFactory("updater-" + name, true));
+        for (int i = 0; i < threads; i++) {
+            workers[i] = new Worker();
+            service.submit(workers[i]);
+        }
+    }
+
+    public <T> void asyncUpdate(@NotNull K key, @NotNull BiFunction<V, T, V> updateFunction, T argument) {
+        submit(new Update(key, (BiFunction) updateFunction, argument, null, null, null));
+    }
+
+    @Nullable
+    public <T, RT, R> R syncUpdate(@NotNull K key, @NotNull BiFunction<V, T, V> updateFunction, @Nullable T argument,
+                                   @NotNull BiFunction<V, RT, R> returnFunction, @Nullable RT returnArgument) {
+        if (onWorkerThread()) {
+            // called from an update, waiting for a worker could deadlock with another worker waiting for
+            // this one, so the update is applied in place, ahead of any queued for the same key.
+            @NotNull Object[] updated = {null};
+            map.compute(key, (k, v) -> (V) (updated[0] = updateFunction.apply(v, argument)));
+            return returnFunction.apply((V) updated[0], returnArgument);
+        }
+        @NotNull CompletableFuture<Object> result = new CompletableFuture<>();
+        submit(new Update(key, (BiFunction) updateFunction, argument, (BiFunction) returnFunction, returnArgument, result));
+        try {
+            return (R) result.get();
+
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+
+        } catch (ExecutionException e) {
+            throw Jvm.rethrow(e.getCause());
+        }
+    }
+
+    private void submit(@NotNull Update update) {
+        if (closed)
+            throw new IllegalStateException("Closed");
+        workerFor(update.key).queue.add(update);
+    }
+
+    @NotNull
+    private Worker workerFor(@NotNull Object key) {
+        int h = key.hashCode();
+        return workers[Math.floorMod(h ^ (h >>> 16), workers.length)];
+    }
+
+    private boolean onWorkerThread() {
+        @NotNull Thread current = Thread.currentThread();
+        for (@NotNull Worker worker : workers)
+            if (worker.thread == current)
+                return true;
+        return false;
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        service.shutdownNow();
+    }
+
+    @Override
+    public void notifyClosing() {
+        closed = true;
+    }
+
+    static final class Update {
+        final Object key;
+        final BiFunction<Object, Object, Object> updateFunction;
+        final Object argument;
+        @Nullable
+        final BiFunction<Object, Object, Object> returnFunction;
+        final Object returnArgument;
+        @Nullable
+        final CompletableFuture<Object> result;
+        Object returned;
+        Throwable thrown;
+
+        Update(Object key, BiFunction<Object, Object, Object> updateFunction, Object argument,
+               @Nullable BiFunction<Object, Object, Object> returnFunction, Object returnArgument,
+               @Nullable CompletableFuture<Object> result) {
+            this.key = key;
+            this.updateFunction = updateFunction;
+            this.argument = argument;
+            this.returnFunction = returnFunction;
+            this.returnArgument = returnArgument;
+            this.result = result;
+        }
+
+        void complete() {
+            if (result == null)
+                return;
+            if (thrown == null)
+                result.complete(returned);
+            else
+                result.completeExceptionally(thrown);
+        }
+    }
+
+    final class Worker implements Runnable {
+        final BlockingQueue<Update> queue = new LinkedBlockingQueue<>();
+        private final List<Update> batch = new ArrayList<>();
+        private final Map<Object, List<Update>> byKey = new LinkedHashMap<>();
+        volatile Thread thread;
+
+        @Override
+        public void run() {
+            thread = Thread.currentThread();
+            try {
+                while (!closed) {
+                    batch.add(queue.take());
+                    queue.drainTo(batch, MAX_BATCH - 1);
+                    for (Update update : batch)
+                        byKey.computeIfAbsent(update.key, k -> new ArrayList<>(2)).add(update);
+                    for (Map.Entry<Object, List<Update>> entry : byKey.entrySet())
+                        apply((K) entry.getKey(), entry.getValue());
+                    batch.clear();
+                    byKey.clear();
+                }
+            } catch (InterruptedException e) {
+                // closed
+            } finally {
+                @NotNull IllegalStateException closedException = new IllegalStateException("Closed");
+                queue.drainTo(batch);
+                for (Update update : batch) {
+                    if (update.result != null)
+                        update.result.completeExceptionally(closedException);
+                }
+            }
+        }
+
+        private void apply(K key, @NotNull List<Update> updates) {
+            try {
+                // written back only if the key is unchanged since it was read, as a compute would, otherwise
+                // the batch is applied again to the new value. The result is always written, as an update
+                // set would be, so it is journalled and published even if it looks unchanged.
+                while (true) {
+                    @Nullable V original = map.get(key);
+                    // a function may change the value it is passed in place, which mustn't change the value
+                    // held by the store, or the one compared with it.
+                    @Nullable Object value = original instanceof Marshallable
+                            ? Wires.deepCopy((Marshallable) original)
+                            : original;
+                    for (Update update : updates) {
+                        update.returned = null;
+                        update.thrown = null;
+                        try {
+                            @Nullable Object next = update.updateFunction.apply(value, update.argument);
+                            if (update.returnFunction != null)
+                                update.returned = update.returnFunction.apply(next, update.returnArgument);
+                            value = next;
+                        } catch (Throwable t) {
+                            update.thrown = t;
+                        }
+                    }
+                    if (replace(key, original, (V) value))
+                        break;
+                }
+            } catch (Throwable t) {
+                LOG.warn("Failed to write " + key, t);
+                for (Update update : updates)
+                    update.thrown = t;
+            }
+            // results are only visible once the value they saw has been written.
+            for (Update update : updates) {
+                if (update.thrown != null && update.result == null)
+                    LOG.warn("Failed to update " + key, update.thrown);
+                update.complete();
+            }
+        }
+
+        private boolean replace(K key, @Nullable V original, @Nullable V value) {
+            if (original == null)
+                return value == null || map.putIfAbsent(key, value) == null;
+            if (value == null)
+                return map.remove(key, original);
+            return map.replace(key, original, value);
+        }
+    }
+}
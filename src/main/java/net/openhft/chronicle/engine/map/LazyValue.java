@@ -0,0 +1,84 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package net.openhft.chronicle.engine.map;
+
+import net.openhft.chronicle.bytes.BytesStore;
+import net.openhft.chronicle.engine.api.map.ValueReader;
+import net.openhft.chronicle.wire.ValueOut;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/*
+ * A value held in its stored form until it is first read, the decoded value is then cached.
+ */
+final class LazyValue<U, V> {
+    @NotNull
+    private final ValueReader<U, V> valueReader;
+    @Nullable
+    private U encoded;
+    @Nullable
+    private V value;
+    private boolean decoded;
+
+    private LazyValue(@NotNull U encoded, @NotNull ValueReader<U, V> valueReader) {
+        this.encoded = encoded;
+        this.valueReader = valueReader;
+    }
+
+    @Nullable
+    static <U, V> LazyValue<U, V> of(@Nullable U encoded, @NotNull ValueReader<U, V> valueReader) {
+        if (encoded == null)
+            return null;
+        // the stored form may be a reused buffer, so take a copy which outlives the event.
+        if (encoded instanceof BytesStore)
+            encoded = (U) BytesStore.wrap(((BytesStore) encoded).toByteArray());
+        return new LazyValue<>(encoded, valueReader);
+    }
+
+    @Nullable
+    static <V> V get(@Nullable LazyValue<?, V> lazyValue, @Nullable V value) {
+        return lazyValue == null ? value : lazyValue.get();
+    }
+
+    static <V> void write(@NotNull ValueOut out, @Nullable LazyValue<?, V> lazyValue, @Nullable V value) {
+        if (lazyValue == null)
+            out.object(value);
+        else if (!lazyValue.writeEncoded(out))
+            out.object(lazyValue.get());
+    }
+
+    @Nullable
+    synchronized V get() {
+        if (!decoded) {
+            value = valueReader.apply(encoded);
+            encoded = null;
+            decoded = true;
+        }
+        return value;
+    }
+
+    synchronized boolean writeEncoded(@NotNull ValueOut out) {
+        return !decoded && valueReader.writeEncoded(encoded, out);
+    }
+
+    @NotNull
+    @Override
+    public String toString() {
+        return String.valueOf(get());
+    }
+}
@@ -0,0 +1,364 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+
+package net.openhft.chronicle.engine.map;
+
+import net.openhft.chronicle.core.io.Closeable;
+import net.openhft.chronicle.queue.ChronicleQueue;
+import net.openhft.chronicle.queue.ExcerptAppender;
+import net.openhft.chronicle.queue.ExcerptTailer;
+import net.openhft.chronicle.threads.NamedThreadFactory;
+import net.openhft.chronicle.wire.ValueIn;
+import net.openhft.chronicle.wire.Wires;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+import static net.openhft.chronicle.queue.impl.single.SingleChronicleQueueBuilder.binary;
+
+/**
+ * Persists an in memory map as a snapshot plus a journal of the mutations made since.
+ * <p>
+ * Each put or remove is appended to a Chronicle Queue, the journal of the current generation.
+ * A snapshot starts a new generation, so mutations from then on go to a new journal, and then writes
+ * out the map while writers carry on. The snapshot may or may not see any mutation made while it is
+ * written, but those mutations are all in the new journal, so replaying it over the snapshot gives
+ * the same map. Once the snapshot is complete the older journals and snapshots are deleted.
+ * <p>
+ * On restart the parts of the latest snapshot are loaded in parallel while the journals which follow
+ * it are reduced to the last mutation of each key, which is then applied over the snapshot.
+ * <p>
+ * Mutations of a key must be journalled in the order they are applied to the map, which the caller
+ * ensures by journalling inside <code>ConcurrentHashMap.compute</code> for that key, and the whole
+ * compute must run inside {@link #journalled(Supplier)} so it is never split across generations.
+ */
+public class MapJournal<K, V> implements Closeable {
+    private static final Logger LOG = LoggerFactory.getLogger(MapJournal.class);
+    private static final String JOURNAL = "journal-";
+    private static final String SNAPSHOT = "snapshot-";
+    private static final String TMP = ".tmp";
+    private static final int SNAPSHOT_PARTS = Math.max(1, Runtime.getRuntime().availableProcessors());
+
+    @NotNull
+    private final String name;
+    @NotNull
+    private final File dir;
+    @NotNull
+    private final Class<K> keyType;
+    @NotNull
+    private final Class<V> valueType;
+    private final long snapshotIntervalMs;
+    // held for read while mutating and journalling and for write while the generation is switched.
+    private final StampedLock generationLock = new StampedLock();
+    private long generation;
+    @Nullable
+    private volatile ChronicleQueue journal;
+    @Nullable
+    private ConcurrentMap<K, V> map;
+    @Nullable
+    private ScheduledExecutorService snapshotter;
+    private volatile long recoveryMillis;
+    private volatile boolean closed;
+
+    /**
+     * @param name               of the map, for logging
+     * @param dir                to hold the journals and snapshots of this map only
+     * @param snapshotIntervalMs between background snapshots, or 0 to only snapshot when asked
+     */
+    public MapJournal(@NotNull String name, @NotNull File dir, @NotNull Class<K> keyType,
+                      @NotNull Class<V> valueType, long snapshotIntervalMs) {
+        this.name = name;
+        this.dir = dir;
+        this.keyType = keyType;
+        this.valueType = valueType;
+        this.snapshotIntervalMs = snapshotIntervalMs;
+    }
+
+    /**
+     * Loads the latest snapshot and the journals after it into the map, then opens a journal for new
+     * mutations and starts taking snapshots of the map in the background.
+     *
+     * @param map to recover into and to snapshot from then on.
+     */
+    public void open(@NotNull ConcurrentMap<K, V> map) throws IOException {
+        this.map = map;
+        Files.createDirectories(dir.toPath());
+        long start = System.nanoTime();
+        long snapshot = deleteIncompleteSnapshots();
+
+        // journals older than the snapshot are left only if it crashed before deleting them.
+        @NotNull List<File> journals = new ArrayList<>();
+        for (long gen : generations(JOURNAL))
+            if (gen >= snapshot)
+                journals.add(new File(dir, JOURNAL + gen));
+
+        @NotNull CompletableFuture<Map<K, Object>> tail = CompletableFuture.supplyAsync(() -> reduce(journals));
+        long snapshotEntries = snapshot < 0 ? 0 : loadSnapshot(new File(dir, SNAPSHOT + snapshot), map);
+        long snapshotMillis = (System.nanoTime() - start) / 1_000_000;
+
+        @NotNull Map<K, Object> mutations = tail.join();
+        for (@NotNull Map.Entry<K, Object> entry : mutations.entrySet()) {
+            if (entry.getValue() == Tombstone.INSTANCE)
+                map.remove(entry.getKey());
+            else
+                map.put(entry.getKey(), valueType.cast(entry.getValue()));
+        }
+        recoveryMillis = (System.nanoTime() - start) / 1_000_000;
+        LOG.info("Recovered " + name + ", size: " + map.size() + " in " + recoveryMillis + " ms, snapshot: "
+                + snapshotEntries + " entries in " + snapshotMillis + " ms, journal: " + mutations.size()
+                + " keys from " + journals.size() + " journal(s)");
+
+        generation = Math.max(snapshot, Arrays.stream(generations(JOURNAL)).max().orElse(0));
+        journal = binary(new File(dir, JOURNAL + generation)).build();
+
+        if (snapshotIntervalMs > 0) {
+            snapshotter = Executors.newSingleThreadScheduledExecutor(
+                    new NamedThreadFactory("snapshot-" + name, true));
+            snapshotter.scheduleWithFixedDelay(() -> {
+                try {
+                    snapshot();
+                } catch (Exception e) {
+                    LOG.warn("Failed to snapshot " + name, e);
+                }
+            }, snapshotIntervalMs, snapshotIntervalMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * @return how long the last call to open took to recover the map.
+     */
+    public long recoveryMillis() {
+        return recoveryMillis;
+    }
+
+    /**
+     * Applies a mutation to the map and journals it as one step. A snapshot which starts meanwhile
+     * waits for the mutation to complete before it switches generation, so the mutation is either in
+     * the journal of the new generation or is published to the map before the snapshot reads it.
+     *
+     * @param mutation which applies the change to the map, calling put or remove for it
+     * @return the result of the mutation
+     */
+    public <R> R journalled(@NotNull Supplier<R> mutation) {
+        long stamp = generationLock.readLock();
+        try {
+            return mutation.get();
+        } finally {
+            generationLock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Journals a put, which must be called from inside {@link #journalled(Supplier)}.
+     */
+    public void put(@NotNull K key, @NotNull V value) {
+        appender().writeDocument(w -> {
+            w.write(() -> "put").object(keyType, key);
+            w.write(() -> "value").object(valueType, value);
+        });
+    }
+
+    /**
+     * Journals a remove, which must be called from inside {@link #journalled(Supplier)}.
+     */
+    public void remove(@NotNull K key) {
+        appender().writeDocument(w -> w.write(() -> "remove").object(keyType, key));
+    }
+
+    @NotNull
+    private ExcerptAppender appender() {
+        @Nullable ChronicleQueue journal = this.journal;
+        if (journal == null)
+            throw new IllegalStateException("Journal of " + name + " is not open");
+        return journal.acquireAppender();
+    }
+
+    /**
+     * Writes a snapshot of the map and drops the journals it makes redundant. Writers are only held
+     * up while the journal is switched to the next generation, not while the map is written out.
+     */
+    public synchronized void snapshot() throws IOException {
+        @Nullable ConcurrentMap<K, V> map = this.map;
+        if (map == null)
+            throw new IllegalStateException("Journal of " + name + " is not open");
+        if (closed)
+            return;
+        long start = System.nanoTime();
+        @Nullable ChronicleQueue previous = journal;
+        long gen;
+        long stamp = generationLock.writeLock();
+        try {
+            gen = ++generation;
+            journal = binary(new File(dir, JOURNAL + gen)).build();
+        } finally {
+            generationLock.unlockWrite(stamp);
+        }
+        if (previous != null)
+            previous.close();
+
+        @NotNull File tmp = new File(dir, SNAPSHOT + gen + TMP);
+        @NotNull ChronicleQueue[] parts = new ChronicleQueue[SNAPSHOT_PARTS];
+        long entries = 0;
+        try {
+            for (int i = 0; i < parts.length; i++)
+                parts[i] = binary(new File(tmp, "part-" + i)).build();
+            @NotNull ExcerptAppender[] appenders = new ExcerptAppender[parts.length];
+            for (int i = 0; i < parts.length; i++)
+                appenders[i] = parts[i].acquireAppender();
+            for (@NotNull Map.Entry<K, V> entry : map.entrySet()) {
+                K key = entry.getKey();
+                V value = entry.getValue();
+                appenders[(key.hashCode() & Integer.MAX_VALUE) % parts.length].writeDocument(w -> {
+                    w.write(() -> "put").object(keyType, key);
+                    w.write(() -> "value").object(valueType, value);
+                });
+                entries++;
+            }
+        } finally {
+            for (@Nullable ChronicleQueue part : parts)
+                if (part != null)
+                    part.close();
+        }
+        Files.move(tmp.toPath(), new File(dir, SNAPSHOT + gen).toPath());
+
+        for (long old : generations(JOURNAL))
+            if (old < gen)
+                deleteDir(new File(dir, JOURNAL + old));
+        for (long old : generations(SNAPSHOT))
+            if (old < gen)
+                deleteDir(new File(dir, SNAPSHOT + old));
+        if (LOG.isDebugEnabled())
+            LOG.debug("Snapshot " + gen + " of " + name + ", " + entries + " entries in "
+                    + (System.nanoTime() - start) / 1_000_000 + " ms");
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        if (snapshotter != null)
+            snapshotter.shutdown();
+        synchronized (this) {
+            long stamp = generationLock.writeLock();
+            try {
+                @Nullable ChronicleQueue journal = this.journal;
+                this.journal = null;
+                if (journal != null)
+                    journal.close();
+            } finally {
+                generationLock.unlockWrite(stamp);
+            }
+        }
+    }
+
+    private long loadSnapshot(@NotNull File snapshot, @NotNull ConcurrentMap<K, V> map) {
+        @Nullable File[] parts = snapshot.listFiles(File::isDirectory);
+        if (parts == null)
+            return 0;
+        return Stream.of(parts).parallel().mapToLong(part -> {
+            long count = 0;
+            try (ChronicleQueue queue = binary(part).build()) {
+                @NotNull ExcerptTailer tailer = queue.createTailer();
+                while (tailer.readDocument(w -> {
+                    K key = w.read(() -> "put").object(keyType);
+                    V value = w.read(() -> "value").object(valueType);
+                    map.put(key, value);
+                }))
+                    count++;
+            }
+            return count;
+        }).sum();
+    }
+
+    /**
+     * @return the last value, or a Tombstone, of each key mutated in these journals, in order.
+     */
+    @NotNull
+    private Map<K, Object> reduce(@NotNull List<File> journals) {
+        @NotNull Map<K, Object> mutations = new HashMap<>();
+        for (@NotNull File file : journals) {
+            try (ChronicleQueue queue = binary(file).build()) {
+                @NotNull ExcerptTailer tailer = queue.createTailer();
+                while (tailer.readDocument(w -> {
+                    @NotNull StringBuilder event = Wires.acquireStringBuilder();
+                    @NotNull ValueIn in = w.readEventName(event);
+                    K key = in.object(keyType);
+                    if ("put".contentEquals(event))
+                        mutations.put(key, w.read(() -> "value").object(valueType));
+                    else
+                        mutations.put(key, Tombstone.INSTANCE);
+                })) {
+                    // replay every document.
+                }
+            }
+        }
+        return mutations;
+    }
+
+    /**
+     * @return the generation of the latest complete snapshot, or -1 if there is none.
+     */
+    private long deleteIncompleteSnapshots() throws IOException {
+        @Nullable File[] tmps = dir.listFiles(f -> f.getName().startsWith(SNAPSHOT) && f.getName().endsWith(TMP));
+        if (tmps != null)
+            for (@NotNull File tmp : tmps)
+                deleteDir(tmp);
+        return Arrays.stream(generations(SNAPSHOT)).max().orElse(-1);
+    }
+
+    @NotNull
+    private long[] generations(@NotNull String prefix) {
+        @Nullable String[] names = dir.list();
+        if (names == null)
+            return new long[0];
+        return Stream.of(names)
+                .filter(n -> n.startsWith(prefix) && !n.endsWith(TMP))
+                .mapToLong(n -> Long.parseLong(n.substring(prefix.length())))
+                .sorted()
+                .toArray();
+    }
+
+    static void deleteDir(@NotNull File dir) throws IOException {
+        if (!dir.exists())
+            return;
+        try (Stream<Path> paths = Files.walk(dir.toPath())) {
+            paths.sorted(Comparator.reverseOrder()).forEach(p -> {
+                try {
+                    Files.delete(p);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        }
+    }
+
+    enum Tombstone {
+        INSTANCE
+    }
+}
@@ -18,10 +18,16 @@
 package net.openhft.chronicle.engine.map;
 
 import net.openhft.chronicle.core.Jvm;
+import net.openhft.chronicle.core.threads.EventHandler;
+import net.openhft.chronicle.core.threads.EventLoop;
+import net.openhft.chronicle.core.threads.InvalidEventHandlerException;
+import net.openhft.chronicle.engine.api.map.KeyRange;
 import net.openhft.chronicle.engine.api.map.KeyValueStore;
+import net.openhft.chronicle.engine.api.map.KeyValueStore.EntriesSnapshot;
 import net.openhft.chronicle.engine.api.map.KeyValueStore.Entry;
 import net.openhft.chronicle.engine.api.map.MapEvent;
 import net.openhft.chronicle.engine.api.map.MapView;
+import net.openhft.chronicle.engine.api.map.NavigableKeyValueStore;
 import net.openhft.chronicle.engine.api.pubsub.*;
 import net.openhft.chronicle.engine.api.tree.Asset;
 import net.openhft.chronicle.engine.api.tree.RequestContext;
@@ -29,6 +35,7 @@ import net.openhft.chronicle.engine.cfg.SubscriptionStat;
 import net.openhft.chronicle.engine.pubsub.MapSimpleSubscription;
 import net.openhft.chronicle.engine.pubsub.SimpleSubscription;
 import net.openhft.chronicle.engine.query.Filter;
+import net.openhft.chronicle.engine.query.Operation;
 import net.openhft.chronicle.network.api.session.SessionDetails;
 import net.openhft.chronicle.network.api.session.SessionProvider;
 import org.jetbrains.annotations.NotNull;
@@ -37,10 +44,15 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.time.LocalTime;
+import java.util.ArrayList;
 import java.util.IdentityHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 import static java.lang.Boolean.TRUE;
 import static net.openhft.chronicle.engine.api.pubsub.SubscriptionConsumer.notifyEachSubscriber;
@@ -52,19 +64,38 @@ public class MapKVSSubscription<K, V> implements ObjectSubscription<K, V>,
         RawKVSSubscription<K, V> {
 
     private static final Logger LOG = LoggerFactory.getLogger(MapKVSSubscription.class);
+    // the most events held for resumable subscribers which reconnect.
+    private static final int RESUME_HISTORY = Integer.getInteger("engine.resumeHistory", 10_000);
+    // how long the events are held once no resumable subscriber is left, for one to reconnect.
+    private static final long RESUME_RETENTION_MS = Long.getLong("engine.resumeRetentionMs", 60_000);
+    // the most events held for a subscriber while its bootstrap is sent, before it is dropped.
+    private static final int BOOTSTRAP_PENDING = Integer.getInteger("engine.bootstrapPending", 1 << 16);
     private final Set<TopicSubscriber<K, V>> topicSubscribers = new CopyOnWriteArraySet<>();
     private final Set<Subscriber<MapEvent<K, V>>> subscribers = new CopyOnWriteArraySet<>();
     private final Set<Subscriber<K>> keySubscribers = new CopyOnWriteArraySet<>();
+    // subscribers to a single key or a prefix, which are only offered the events of those keys.
+    private final KeyIndexedSubscribers<K, V> keyIndexedSubscribers = new KeyIndexedSubscribers<>();
     private final Set<EventConsumer<K, V>> downstream = new CopyOnWriteArraySet<>();
+    // subscribers passed SequencedEvents, which can resume from the last one they saw.
+    private final Set<Subscriber<Object>> resumableSubscribers = new CopyOnWriteArraySet<>();
     @Nullable
     private final SessionProvider sessionProvider;
 
     @Nullable
     private final Asset asset;
     private final Map<Subscriber, Subscriber> subscriptionDelegate = new IdentityHashMap<>();
+    @NotNull
+    private WriteGate writeGate = new WriteGate();
     private KeyValueStore<K, V> kvStore;
     @Nullable
     private Map<String, SubscriptionStat> subscriptionMonitoringMap = null;
+    private volatile boolean closed;
+    // kept while there are resumable subscribers, and for a while after, so a subscriber which disconnects
+    // can be sent what it missed.
+    @Nullable
+    private volatile EventHistory<K, V> history;
+    // when the history was first written with no resumable subscriber, or 0.
+    private long unsubscribedSince;
 
     public MapKVSSubscription(@NotNull RequestContext requestContext, @NotNull Asset asset) {
         this(requestContext.viewType(), asset);
@@ -80,8 +111,11 @@ public class MapKVSSubscription<K, V> implements ObjectSubscription<K, V>,
 
     @Override
     public void close() {
+        closed = true;
         notifyEndOfSubscription(topicSubscribers);
         notifyEndOfSubscription(subscribers);
+        notifyEndOfSubscription(resumableSubscribers);
+        keyIndexedSubscribers.close();
         notifyEndOfSubscription(keySubscribers);
         notifyEndOfSubscription(downstream);
     }
@@ -112,6 +146,25 @@ public class MapKVSSubscription<K, V> implements ObjectSubscription<K, V>,
     @Override
     public void setKvStore(KeyValueStore<K, V> kvStore) {
         this.kvStore = kvStore;
+        if (kvStore == null)
+            return;
+        // a store which republishes the events of the store it wraps is written through that store's gate.
+        for (@Nullable Object store = kvStore.underlying(); store instanceof KeyValueStore;
+             store = ((KeyValueStore) store).underlying()) {
+            if (store instanceof ObjectKeyValueStore) {
+                @Nullable KVSSubscription subscription = ((ObjectKeyValueStore) store).subscription(false);
+                if (subscription != null && subscription != this) {
+                    writeGate = subscription.writeGate();
+                    break;
+                }
+            }
+        }
+    }
+
+    @NotNull
+    @Override
+    public WriteGate writeGate() {
+        return writeGate;
     }
 
     @Override
@@ -120,6 +173,46 @@ public class MapKVSSubscription<K, V> implements ObjectSubscription<K, V>,
             notifyEvent0(changeEvent);
     }
 
+    @Override
+    public void notifyEvents(@NotNull List<MapEvent<K, V>> changeEvents) {
+        if (changeEvents.isEmpty() || !hasSubscribers())
+            return;
+
+        // each subscriber is passed the whole batch before the next one.
+        if (!topicSubscribers.isEmpty()) {
+            notifyEachSubscriber(topicSubscribers, ts -> {
+                for (@NotNull MapEvent<K, V> changeEvent : changeEvents)
+                    ts.onMessage(changeEvent.getKey(), changeEvent.getValue());
+            });
+        }
+        if (!subscribers.isEmpty()) {
+            notifyEachSubscriber(subscribers, s -> {
+                if (s instanceof BatchSubscriber) {
+                    ((BatchSubscriber<MapEvent<K, V>>) s).onMessages(changeEvents);
+                } else {
+                    for (@NotNull MapEvent<K, V> changeEvent : changeEvents)
+                        s.onMessage(changeEvent);
+                }
+            });
+        }
+        if (!keyIndexedSubscribers.isEmpty()) {
+            keyIndexedSubscribers.notifyEvents(changeEvents);
+        }
+        for (@NotNull MapEvent<K, V> changeEvent : changeEvents)
+            notifyResumable(changeEvent);
+        if (!keySubscribers.isEmpty()) {
+            notifyEachSubscriber(keySubscribers, s -> {
+                for (@NotNull MapEvent<K, V> changeEvent : changeEvents)
+                    s.onMessage(changeEvent.getKey());
+            });
+        }
+        if (!downstream.isEmpty()) {
+            notifyEachSubscriber(downstream, d -> d.notifyEvents(changeEvents));
+        }
+        for (@NotNull MapEvent<K, V> changeEvent : changeEvents)
+            notifyEventToChild(changeEvent);
+    }
+
     @Override
     public int keySubscriberCount() {
         return keySubscribers.size();
@@ -127,7 +220,7 @@ public class MapKVSSubscription<K, V> implements ObjectSubscription<K, V>,
 
     @Override
     public int entrySubscriberCount() {
-        return subscribers.size();
+        return subscribers.size() + keyIndexedSubscribers.size() + resumableSubscribers.size();
     }
 
     @Override
@@ -142,8 +235,8 @@ public class MapKVSSubscription<K, V> implements ObjectSubscription<K, V>,
 
     @Override
     public boolean hasValueSubscribers() {
-        return !topicSubscribers.isEmpty() || !subscribers.isEmpty()
-                || !downstream.isEmpty() || asset.hasChildren();
+        return !topicSubscribers.isEmpty() || !subscribers.isEmpty() || !keyIndexedSubscribers.isEmpty()
+                || history != null || !downstream.isEmpty() || asset.hasChildren();
     }
 
     private void notifyEvent0(@NotNull MapEvent<K, V> changeEvent) {
@@ -161,6 +254,10 @@ public class MapKVSSubscription<K, V> implements ObjectSubscription<K, V>,
         if (!subscribers.isEmpty()) {
             notifyEachSubscriber(subscribers, s -> s.onMessage(changeEvent));
         }
+        if (!keyIndexedSubscribers.isEmpty()) {
+            keyIndexedSubscribers.notifyEvent(changeEvent);
+        }
+        notifyResumable(changeEvent);
         if (!keySubscribers.isEmpty()) {
             notifyEachSubscriber(keySubscribers, s -> s.onMessage(key));
         }
@@ -169,6 +266,45 @@ public class MapKVSSubscription<K, V> implements ObjectSubscription<K, V>,
         }
     }
 
+    private void notifyResumable(@NotNull MapEvent<K, V> changeEvent) {
+        @Nullable EventHistory<K, V> history = this.history;
+        if (history == null || (resumableSubscribers.isEmpty() && released()))
+            return;
+        // numbered even while no one is subscribed, for a subscriber which comes back.
+        @NotNull SequencedEvent<K, V> sequenced = history.add(changeEvent);
+        if (!resumableSubscribers.isEmpty())
+            notifyEachSubscriber(resumableSubscribers, s -> s.onMessage(sequenced));
+    }
+
+    /**
+     * Drop the history once it has been written for the retention period without a resumable subscriber,
+     * so the map no longer holds its last events or has its events created for nobody.
+     *
+     * @return true if it was dropped.
+     */
+    private synchronized boolean released() {
+        if (!resumableSubscribers.isEmpty())
+            return false;
+        long now = System.currentTimeMillis();
+        if (unsubscribedSince == 0) {
+            unsubscribedSince = now;
+            return false;
+        }
+        if (now - unsubscribedSince < RESUME_RETENTION_MS)
+            return false;
+        history = null;
+        unsubscribedSince = 0;
+        return true;
+    }
+
+    @NotNull
+    private synchronized EventHistory<K, V> history() {
+        unsubscribedSince = 0;
+        if (history == null)
+            history = new EventHistory<>(RESUME_HISTORY);
+        return history;
+    }
+
     private void notifyEventToChild(@NotNull MapEvent<K, V> changeEvent) {
         K key = changeEvent.getKey();
         if (asset == null || !asset.hasChildren()) {
@@ -189,7 +325,8 @@ public class MapKVSSubscription<K, V> implements ObjectSubscription<K, V>,
     @Override
     public boolean needsPrevious() {
         // todo optimise this to reduce false positives.
-        return !subscribers.isEmpty() || !downstream.isEmpty();
+        return !subscribers.isEmpty() || !keyIndexedSubscribers.isEmpty() || !resumableSubscribers.isEmpty()
+                || !downstream.isEmpty();
     }
 
     @Override
@@ -217,29 +354,40 @@ public class MapKVSSubscription<K, V> implements ObjectSubscription<K, V>,
         return sub;
     }
 
+    /**
+     * @return the range of keys the filter starts with, so a sorted store can bootstrap just that range.
+     */
+    @Nullable
+    private static <K> KeyRange<K> keyRange(@NotNull Filter<?> filter) {
+        if (filter.pipelineSize() == 0)
+            return null;
+        @NotNull Operation first = filter.getPipeline(0);
+        return first.op() == Operation.OperationType.FILTER && first.wrapped() instanceof KeyRange
+                ? first.wrapped()
+                : null;
+    }
+
     private void registerSubscriber0(@NotNull RequestContext rc,
                                      @NotNull Subscriber<MapEvent<K, V>> subscriber,
                                      @NotNull Filter<MapEvent<K, V>> filter) {
+        if (rc.resumable() && filter.isEmpty() && kvStore != null && rc.bootstrap() != Boolean.FALSE
+                && !TRUE.equals(rc.endSubscriptionAfterBootstrap())) {
+            registerResumable(rc, (Subscriber) subscriber);
+            return;
+        }
         addToStats("subscription");
         @NotNull final Subscriber<MapEvent<K, V>> sub = subscriber(subscriber, filter);
-        this.subscribers.add(sub);
-        @Nullable Boolean bootstrap = rc.bootstrap();
-        if (bootstrap != Boolean.FALSE && kvStore != null) {
-            try {
-                for (int i = 0; i < kvStore.segments(); i++)
-                    kvStore.entriesFor(i, sub::onMessage);
-
-                if (TRUE.equals(rc.endSubscriptionAfterBootstrap())) {
-
-                    sub.onEndOfSubscription();
-                    LOG.info("onEndOfSubscription");
-                    this.subscribers.remove(sub);
-                }
-
-            } catch (InvalidSubscriberException e) {
-                this.subscribers.remove(sub);
-            }
-        }
+        @Nullable KeyRange<K> range = keyRange(filter);
+        @Nullable NavigableKeyValueStore<K, V> navigable = range == null || kvStore == null ? null : NavigableKeyValueStore.find(kvStore);
+        @NotNull Consumer<Subscriber<MapEvent<K, V>>> add = KeyIndexedSubscribers.indexes(range)
+                ? s -> keyIndexedSubscribers.add(range, s)
+                : subscribers::add;
+        @NotNull Consumer<Subscriber<MapEvent<K, V>>> remove = KeyIndexedSubscribers.indexes(range)
+                ? keyIndexedSubscribers::remove
+                : subscribers::remove;
+        bootstrap(rc, subscriber, sub, add, remove, () -> navigable != null
+                ? navigable.entriesSnapshot(range)
+                : kvStore.snapshot(), sub::onMessage);
     }
 
     @Override
@@ -247,21 +395,198 @@ public class MapKVSSubscription<K, V> implements ObjectSubscription<K, V>,
                                       @NotNull Subscriber<K> subscriber,
                                       @NotNull Filter<K> filter) {
         addToStats("keySubscription");
-        @Nullable final Boolean bootstrap = rc.bootstrap();
         @NotNull final Subscriber<K> sub = subscriber(subscriber, filter);
-        keySubscribers.add(sub);
-        if (bootstrap != Boolean.FALSE && kvStore != null) {
-            try {
-                for (int i = 0; i < kvStore.segments(); i++)
-                    kvStore.keysFor(i, sub::onMessage);
-                if (TRUE.equals(rc.endSubscriptionAfterBootstrap())) {
-                    sub.onEndOfSubscription();
-                    keySubscribers.remove(sub);
+        bootstrap(rc, subscriber, sub, keySubscribers::add, keySubscribers::remove, () -> kvStore.snapshot(), e -> sub.onMessage(e.getKey()));
+    }
+
+    /**
+     * Add a subscriber and send it the entries of the store, such that each write is either in what
+     * it was sent, or is an event after it, but not both.
+     * <p>
+     * The subscriber is added and the snapshot opened while no write is in progress. Events which arrive
+     * while the snapshot is read are held back until it has been sent.
+     * <p>
+     * With a bootstrapChunkSize, the snapshot is sent a chunk at a time on the event loop, and the
+     * subscribe returns without waiting for it.
+     */
+    private <T> void bootstrap(@NotNull RequestContext rc,
+                               @NotNull Subscriber<T> subscriber,
+                               @NotNull Subscriber<T> sub,
+                               @NotNull Consumer<Subscriber<T>> add,
+                               @NotNull Consumer<Subscriber<T>> remove,
+                               @NotNull Supplier<EntriesSnapshot<K, V>> snapshotter,
+                               @NotNull SubscriptionConsumer<MapEvent<K, V>> bootstrapConsumer) {
+        if (rc.bootstrap() == Boolean.FALSE || kvStore == null) {
+            add.accept(sub);
+            return;
+        }
+        if (TRUE.equals(rc.endSubscriptionAfterBootstrap())) {
+            try (@NotNull EntriesSnapshot<K, V> snapshot = snapshotter.get()) {
+                snapshot.entriesFor(bootstrapConsumer);
+                sub.onEndOfSubscription();
+                LOG.info("onEndOfSubscription");
+
+            } catch (InvalidSubscriberException ignored) {
+                // it has gone away.
+            }
+            return;
+        }
+
+        @NotNull BootstrapSubscriber<T> pending = new BootstrapSubscriber<>(sub);
+        subscriptionDelegate.put(subscriber, pending);
+        @NotNull EntriesSnapshot<K, V> snapshot;
+        try {
+            snapshot = writeGate.exclusive(() -> {
+                // events of writes before the snapshot mustn't reach the new subscriber as well.
+                kvStore.flushEvents();
+                add.accept(pending);
+                return snapshotter.get();
+            });
+        } catch (IllegalStateException e) {
+            // the writers never let it in, so it was never added.
+            subscriptionDelegate.remove(subscriber);
+            throw e;
+        }
+        sendBootstrap(rc, sub, paced(subscriber), pending, remove, snapshot, bootstrapConsumer);
+    }
+
+    /**
+     * Add a subscriber which is passed SequencedEvents. If it has seen every event up to a position still
+     * held, it is sent the events after it, otherwise the position of a bootstrap and then the entries.
+     */
+    private void registerResumable(@NotNull RequestContext rc, @NotNull Subscriber<Object> subscriber) {
+        addToStats("subscription");
+        @NotNull EventHistory<K, V> history = history();
+        @NotNull BootstrapSubscriber<Object> pending = new BootstrapSubscriber<>(subscriber);
+        subscriptionDelegate.put(subscriber, pending);
+        @NotNull Object[] resumeFrom = new Object[1];
+        @Nullable EntriesSnapshot<K, V> snapshot;
+        try {
+            snapshot = writeGate.exclusive(() -> {
+                kvStore.flushEvents();
+                resumableSubscribers.add(pending);
+                @Nullable List<SequencedEvent<K, V>> missed = history.since(rc.resumeEpoch(), rc.resumeFrom());
+                if (missed != null) {
+                    resumeFrom[0] = missed;
+                    return null;
                 }
-            } catch (InvalidSubscriberException e) {
-                keySubscribers.remove(sub);
+                resumeFrom[0] = history.position();
+                return kvStore.snapshot();
+            });
+        } catch (IllegalStateException e) {
+            subscriptionDelegate.remove(subscriber);
+            throw e;
+        }
+
+        try {
+            if (snapshot == null) {
+                for (@NotNull SequencedEvent<K, V> event : (List<SequencedEvent<K, V>>) resumeFrom[0])
+                    subscriber.onMessage(event);
+                pending.goLive();
+                return;
             }
+            subscriber.onMessage(resumeFrom[0]);
+
+        } catch (InvalidSubscriberException e) {
+            resumableSubscribers.remove(pending);
+            if (snapshot != null)
+                snapshot.close();
+            return;
         }
+        sendBootstrap(rc, subscriber, paced(subscriber), pending, resumableSubscribers::remove, snapshot,
+                subscriber::onMessage);
+    }
+
+    @Nullable
+    private static PacedSubscriber paced(@NotNull Subscriber subscriber) {
+        return subscriber instanceof PacedSubscriber ? (PacedSubscriber) subscriber : null;
+    }
+
+    private <T> void sendBootstrap(@NotNull RequestContext rc,
+                                   @NotNull Subscriber<T> sub,
+                                   @Nullable PacedSubscriber paced,
+                                   @NotNull BootstrapSubscriber<T> pending,
+                                   @NotNull Consumer<Subscriber<T>> remove,
+                                   @NotNull EntriesSnapshot<K, V> snapshot,
+                                   @NotNull SubscriptionConsumer<MapEvent<K, V>> bootstrapConsumer) {
+        if (rc.bootstrapChunkSize() > 0 && asset != null) {
+            bootstrapInChunks(sub, paced, pending, remove, snapshot, bootstrapConsumer, rc.bootstrapChunkSize());
+            return;
+        }
+        try {
+            snapshot.entriesFor(bootstrapConsumer);
+            pending.goLive();
+            sub.onEndOfBootstrap();
+
+        } catch (InvalidSubscriberException e) {
+            remove.accept(pending);
+
+        } finally {
+            snapshot.close();
+        }
+    }
+
+    /**
+     * Sends up to chunkSize entries of the snapshot each time the event loop runs, so a large bootstrap
+     * neither holds up the loop, nor floods the subscriber's connection ahead of other subscribers.
+     * <p>
+     * A PacedSubscriber is sent no more entries than it has room for, and none while it has no room, so
+     * the events after the snapshot are held back until it has taken the bootstrap.
+     * <p>
+     * The bootstrap stops, and the snapshot is closed, as soon as the subscriber is unregistered or has
+     * fallen too far behind.
+     */
+    private <T> void bootstrapInChunks(@NotNull Subscriber<T> sub,
+                                       @Nullable PacedSubscriber paced,
+                                       @NotNull BootstrapSubscriber<T> pending,
+                                       @NotNull Consumer<Subscriber<T>> remove,
+                                       @NotNull EntriesSnapshot<K, V> snapshot,
+                                       @NotNull SubscriptionConsumer<MapEvent<K, V>> bootstrapConsumer,
+                                       int chunkSize) {
+        @Nullable EventLoop eventLoop = asset.findOrCreateView(EventLoop.class);
+        assert eventLoop != null;
+        if (!eventLoop.isAlive() && !eventLoop.isClosed())
+            eventLoop.start();
+
+        eventLoop.addHandler(true, new EventHandler() {
+            @Override
+            public boolean action() throws InvalidEventHandlerException {
+                if (pending.isEnded()) {
+                    remove.accept(pending);
+                    snapshot.close();
+                    throw new InvalidEventHandlerException();
+                }
+                try {
+                    int entries = chunkSize;
+                    if (paced != null && !closed) {
+                        entries = (int) Math.min(chunkSize, paced.available());
+                        if (entries <= 0)
+                            return false;
+                    }
+                    if (!closed && snapshot.nextEntries(entries, bootstrapConsumer))
+                        return true;
+                    if (!closed) {
+                        pending.goLive();
+                        sub.onEndOfBootstrap();
+                    }
+
+                } catch (InvalidSubscriberException e) {
+                    remove.accept(pending);
+
+                } catch (RuntimeException e) {
+                    Jvm.warn().on(getClass(), "Failed to bootstrap " + sub, e);
+                    remove.accept(pending);
+                }
+                snapshot.close();
+                throw new InvalidEventHandlerException();
+            }
+
+            @NotNull
+            @Override
+            public String toString() {
+                return "bootstrap of " + sub + " to " + asset.fullName();
+            }
+        });
     }
 
     @Override
@@ -270,9 +595,8 @@ public class MapKVSSubscription<K, V> implements ObjectSubscription<K, V>,
         @Nullable Boolean bootstrap = rc.bootstrap();
         topicSubscribers.add((TopicSubscriber<K, V>) subscriber);
         if (bootstrap != Boolean.FALSE && kvStore != null) {
-            try {
-                for (int i = 0; i < kvStore.segments(); i++)
-                    kvStore.entriesFor(i, e -> subscriber.onMessage(e.getKey(), e.getValue()));
+            try (@NotNull EntriesSnapshot<K, V> snapshot = kvStore.snapshot()) {
+                snapshot.entriesFor(e -> subscriber.onMessage(e.getKey(), e.getValue()));
 
             } catch (InvalidSubscriberException dontAdd) {
                 topicSubscribers.remove(subscriber);
@@ -294,7 +618,8 @@ public class MapKVSSubscription<K, V> implements ObjectSubscription<K, V>,
     public void unregisterSubscriber(@NotNull Subscriber subscriber) {
         final Subscriber delegate = subscriptionDelegate.remove(subscriber);
         @NotNull final Subscriber s = delegate != null ? delegate : subscriber;
-        boolean subscription = subscribers.remove(s);
+        boolean subscription = subscribers.remove(s) | keyIndexedSubscribers.remove(s)
+                | resumableSubscribers.remove(s);
         boolean keySubscription = keySubscribers.remove(s);
         if (subscription) removeFromStats("subscription");
         if (keySubscription) removeFromStats("keySubscription");
@@ -310,6 +635,72 @@ public class MapKVSSubscription<K, V> implements ObjectSubscription<K, V>,
         subscriber.onEndOfSubscription();
     }
 
+    /**
+     * Holds back the events for a subscriber until its bootstrap has been sent.  If more than
+     * engine.bootstrapPending are held, the subscriber is dropped and sent the end of its subscription.
+     */
+    static class BootstrapSubscriber<E> implements Subscriber<E> {
+        @NotNull
+        private final Subscriber<E> subscriber;
+        @Nullable
+        private List<E> pending = new ArrayList<>();
+        private volatile boolean live = false;
+        private final AtomicBoolean ended = new AtomicBoolean();
+
+        BootstrapSubscriber(@NotNull Subscriber<E> subscriber) {
+            this.subscriber = subscriber;
+        }
+
+        @Override
+        public void onMessage(E e) throws InvalidSubscriberException {
+            if (!live) {
+                synchronized (this) {
+                    if (!live) {
+                        if (ended.get())
+                            throw new InvalidSubscriberException();
+                        if (pending.size() >= BOOTSTRAP_PENDING) {
+                            LOG.warn("Dropping " + subscriber + " which is " + pending.size() + " events behind its bootstrap");
+                            pending.clear();
+                            onEndOfSubscription();
+                            throw new InvalidSubscriberException();
+                        }
+                        pending.add(e);
+                        return;
+                    }
+                }
+            }
+            subscriber.onMessage(e);
+        }
+
+        synchronized void goLive() throws InvalidSubscriberException {
+            try {
+                for (E e : pending)
+                    subscriber.onMessage(e);
+            } finally {
+                pending = null;
+                live = true;
+            }
+        }
+
+        /**
+         * @return whether it has been unregistered, or dropped, so its bootstrap can stop.
+         */
+        boolean isEnded() {
+            return ended.get();
+        }
+
+        @Override
+        public void onEndOfBootstrap() {
+            subscriber.onEndOfBootstrap();
+        }
+
+        @Override
+        public void onEndOfSubscription() {
+            if (ended.compareAndSet(false, true))
+                subscriber.onEndOfSubscription();
+        }
+    }
+
     //Needs some refactoring - need a definitive way of knowing when this map should become available
     //3 combinations, not lookedUP, exists or does not exist
     @Nullable
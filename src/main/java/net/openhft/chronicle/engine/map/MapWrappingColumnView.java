@@ -6,7 +6,10 @@ import net.openhft.chronicle.engine.api.column.ClosableIterator;
 import net.openhft.chronicle.engine.api.column.Column;
 import net.openhft.chronicle.engine.api.column.MapColumnView;
 import net.openhft.chronicle.engine.api.column.Row;
+import net.openhft.chronicle.engine.api.map.KeyRange;
+import net.openhft.chronicle.engine.api.map.KeyValueStore;
 import net.openhft.chronicle.engine.api.map.MapView;
+import net.openhft.chronicle.engine.api.map.NavigableKeyValueStore;
 import net.openhft.chronicle.engine.api.tree.Asset;
 import net.openhft.chronicle.engine.api.tree.RequestContext;
 import net.openhft.chronicle.wire.FieldInfo;
@@ -15,8 +18,10 @@ import net.openhft.chronicle.wire.Wires;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.lang.reflect.Modifier;
 import java.util.*;
 import java.util.function.Predicate;
+import java.util.stream.StreamSupport;
 
 import static net.openhft.chronicle.core.util.ObjectUtils.convertTo;
 
@@ -96,11 +101,7 @@ public class MapWrappingColumnView<K, V> implements MapColumnView {
                     continue;
                 }
 
-                if (c1.getClass() == c2.getClass() && c1 instanceof Comparable && !(c1 instanceof CharSequence)) {
-                    result = ((Comparable) c1).compareTo(c2);
-                } else {
-                    result = String.CASE_INSENSITIVE_ORDER.compare(c1.toString(), c2.toString());
-                }
+                result = compare(c1, c2);
 
                 if (result != 0)
                     return order.isAscending ? -result : result;
@@ -110,14 +111,54 @@ public class MapWrappingColumnView<K, V> implements MapColumnView {
         };
     }
 
+    /**
+     * The order of two values of a column, the natural order for values of the same type, otherwise
+     * the case insensitive order of their text.
+     */
+    private static int compare(@NotNull Object c1, @NotNull Object c2) {
+        if (c1.getClass() == c2.getClass() && c1 instanceof Comparable && !(c1 instanceof CharSequence))
+            return ((Comparable) c1).compareTo(c2);
+        return String.CASE_INSENSITIVE_ORDER.compare(c1.toString(), c2.toString());
+    }
+
+    /**
+     * @return the sorted store of the map if the rows are ordered by key alone and compare() orders the
+     * keys as the store does, i.e. by their natural order, so the rows can be read in the store's order
+     * without sorting them. Text keys are sorted, as compare() ignores their case and the store doesn't.
+     */
+    @Nullable
+    private NavigableKeyValueStore<K, V> keyOrderedStore(@NotNull List<MarshableOrderBy> marshableOrderBy) {
+        if (marshableOrderBy.size() != 1 || !"key".equals(marshableOrderBy.get(0).column))
+            return null;
+        final Class keyType = mapView.keyType();
+        if (!Comparable.class.isAssignableFrom(keyType) || CharSequence.class.isAssignableFrom(keyType)
+                || !Modifier.isFinal(keyType.getModifiers()))
+            return null;
+        final Object underlying = mapView.underlying();
+        return underlying instanceof KeyValueStore
+                ? NavigableKeyValueStore.find((KeyValueStore<K, V>) underlying)
+                : null;
+    }
+
     @NotNull
     @Override
     public ClosableIterator<Row> iterator(@NotNull final SortedFilter sortedFilter) {
 
-        final Iterator<Map.Entry<K, V>> core = mapView.entrySet().stream()
-                .filter(filter(sortedFilter.marshableFilters))
-                .sorted(sort(sortedFilter.marshableOrderBy))
-                .iterator();
+        final Iterator<Map.Entry<K, V>> core;
+        @Nullable final NavigableKeyValueStore<K, V> navigable = keyOrderedStore(sortedFilter.marshableOrderBy);
+        if (navigable == null) {
+            core = mapView.entrySet().stream()
+                    .filter(filter(sortedFilter.marshableFilters))
+                    .sorted(sort(sortedFilter.marshableOrderBy))
+                    .iterator();
+        } else {
+            // the store is already in key order, reversed as sort() does for ascending.
+            final boolean descending = sortedFilter.marshableOrderBy.get(0).isAscending;
+            final Iterator<Map.Entry<K, V>> entries = navigable.entrySetIterator(KeyRange.all(), descending);
+            core = StreamSupport.stream(Spliterators.spliteratorUnknownSize(entries, Spliterator.ORDERED), false)
+                    .filter(filter(sortedFilter.marshableFilters))
+                    .iterator();
+        }
 
         @NotNull final ClosableIterator<Row> result = new ClosableIterator<Row>() {
 
@@ -19,25 +19,31 @@ package net.openhft.chronicle.engine.map;
 
 import net.openhft.chronicle.engine.api.map.MapEvent;
 import net.openhft.chronicle.engine.api.map.MapEventListener;
+import net.openhft.chronicle.engine.api.map.ValueReader;
 import net.openhft.chronicle.wire.AbstractMarshallable;
 import net.openhft.chronicle.wire.WireIn;
 import net.openhft.chronicle.wire.WireOut;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.util.Objects;
 import java.util.function.BiFunction;
 import java.util.function.Function;
 
 /*
  * Created by Peter Lawrey on 22/05/15.
  */
-public class RemovedEvent<K, V> extends AbstractMarshallable implements MapEvent<K, V> {
+public class RemovedEvent<K, V> extends AbstractMarshallable implements MapEvent<K, V>, EncodingCache {
     private String assetName;
     @Nullable
     private K key;
     @Nullable
     private V oldValue;
     private boolean isReplicationEvent;
+    @Nullable
+    private transient LazyValue<?, V> lazyOldValue;
+    @Nullable
+    private transient Encodings encodings;
 
     private RemovedEvent(String assetName, @NotNull K key, @Nullable V oldValue, boolean isReplicationEvent) {
         this.assetName = assetName;
@@ -46,6 +52,11 @@ public class RemovedEvent<K, V> extends AbstractMarshallable implements MapEvent
         this.isReplicationEvent = isReplicationEvent;
     }
 
+    private RemovedEvent(String assetName, @NotNull K key, @Nullable LazyValue<?, V> lazyOldValue, boolean isReplicationEvent) {
+        this(assetName, key, (V) null, isReplicationEvent);
+        this.lazyOldValue = lazyOldValue;
+    }
+
     @NotNull
     public static <K, V> RemovedEvent<K, V> of(String assetName, @NotNull K key, V value, boolean isReplicationEvent) {
         return new RemovedEvent<>(assetName, key, value, isReplicationEvent);
@@ -59,13 +70,19 @@ public class RemovedEvent<K, V> extends AbstractMarshallable implements MapEvent
     @NotNull
     @Override
     public <K2, V2> MapEvent<K2, V2> translate(@NotNull Function<K, K2> keyFunction, @NotNull Function<V, V2> valueFunction) {
-        return new RemovedEvent<>(assetName, keyFunction.apply(key), valueFunction.apply(oldValue), isReplicationEvent);
+        return new RemovedEvent<>(assetName, keyFunction.apply(key), valueFunction.apply(oldValue()), isReplicationEvent);
     }
 
     @NotNull
     @Override
     public <K2, V2> MapEvent<K2, V2> translate(@NotNull BiFunction<K, K2, K2> keyFunction, @NotNull BiFunction<V, V2, V2> valueFunction) {
-        return new RemovedEvent<>(assetName, keyFunction.apply(key, null), valueFunction.apply(oldValue, null), isReplicationEvent);
+        return new RemovedEvent<>(assetName, keyFunction.apply(key, null), valueFunction.apply(oldValue(), null), isReplicationEvent);
+    }
+
+    @NotNull
+    @Override
+    public <K2, V2> MapEvent<K2, V2> translateLazily(@NotNull Function<K, K2> keyFunction, @NotNull ValueReader<V, V2> valueReader) {
+        return new RemovedEvent<K2, V2>(assetName, keyFunction.apply(key), LazyValue.of(oldValue(), valueReader), isReplicationEvent);
     }
 
     @Override
@@ -77,7 +94,7 @@ public class RemovedEvent<K, V> extends AbstractMarshallable implements MapEvent
     @Nullable
     @Override
     public V oldValue() {
-        return oldValue;
+        return LazyValue.get(lazyOldValue, oldValue);
     }
 
     @Override
@@ -88,11 +105,45 @@ public class RemovedEvent<K, V> extends AbstractMarshallable implements MapEvent
 
     @Override
     public void apply(@NotNull MapEventListener<K, V> listener) {
-        listener.remove(assetName, key, oldValue);
+        listener.remove(assetName, key, oldValue());
+    }
+
+    @NotNull
+    @Override
+    public synchronized <E> E encoding(@NotNull Object encoder, @NotNull BiFunction<Object, Object, E> encode) {
+        if (encodings == null)
+            encodings = new Encodings();
+        return encodings.get(this, encoder, encode);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o)
+            return true;
+        if (!(o instanceof RemovedEvent))
+            return false;
+        @NotNull RemovedEvent that = (RemovedEvent) o;
+        return isReplicationEvent == that.isReplicationEvent
+                && Objects.equals(assetName, that.assetName)
+                && Objects.equals(key, that.key)
+                && Objects.equals(oldValue(), that.oldValue());
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(assetName, key, oldValue(), isReplicationEvent);
+    }
+
+    @NotNull
+    @Override
+    public String toString() {
+        return lazyOldValue == null ? super.toString() : of(assetName, key, oldValue(), isReplicationEvent).toString();
     }
 
     @Override
     public void readMarshallable(@NotNull WireIn wire) throws IllegalStateException {
+        encodings = null;
+        lazyOldValue = null;
         wire.read(MapEventFields.assetName).text(this, (o, s) -> assetName = s);
         wire.read(MapEventFields.key).object(Object.class, this, (o, x) -> o.key = (K) x);
         wire.read(MapEventFields.oldValue).object(Object.class, this, (o, x) -> o.oldValue = (V) x);
@@ -103,7 +154,7 @@ public class RemovedEvent<K, V> extends AbstractMarshallable implements MapEvent
     public void writeMarshallable(@NotNull WireOut wire) {
         wire.write(MapEventFields.assetName).text(assetName);
         wire.write(MapEventFields.key).object(key);
-        wire.write(MapEventFields.oldValue).object(oldValue);
+        LazyValue.write(wire.write(MapEventFields.oldValue), lazyOldValue, oldValue);
         wire.write(MapEventFields.isReplicationEvent).object(isReplicationEvent);
     }
 }
@@ -0,0 +1,138 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+
+package net.openhft.chronicle.engine.map;
+
+import net.openhft.chronicle.core.util.SerializableFunction;
+import net.openhft.chronicle.engine.api.map.MapEvent;
+import net.openhft.chronicle.engine.api.map.MapEventListener;
+import net.openhft.chronicle.engine.api.map.MapView;
+import net.openhft.chronicle.engine.api.pubsub.Subscriber;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * The secondary indexes of a map asset, shared by all its MapViews.
+ * <p>
+ * Each index subscribes to the map with a bootstrap, so it is built from the entries already there,
+ * and then moves keys between the sets of its property values as the MapEvents arrive. It keeps the
+ * property each key was indexed under, as the old value of an event, e.g. a replicated one, may be
+ * null. A lookup
+ * copies the set of keys for one property value, so its cost depends on the number of matches rather
+ * than the size of the map.
+ */
+public class SecondaryIndexes<K, V> {
+    private final ConcurrentMap<String, Index<K, V>> indexes = new ConcurrentHashMap<>();
+    @NotNull
+    private final MapView<K, V> map;
+
+    public SecondaryIndexes(@NotNull MapView<K, V> map) {
+        this.map = map;
+    }
+
+    public boolean addIndex(@NotNull String name, @NotNull SerializableFunction<V, ?> extractor) {
+        @NotNull Index<K, V> index = new Index<>(extractor);
+        if (indexes.putIfAbsent(name, index) != null)
+            return false;
+        map.registerSubscriber(index);
+        return true;
+    }
+
+    @NotNull
+    public Set<K> keysWhere(@NotNull String name, @NotNull Object value) {
+        @Nullable Index<K, V> index = indexes.get(name);
+        if (index == null)
+            throw new IllegalArgumentException("No index " + name + " on " + map.asset().fullName());
+        return index.keysWhere(value);
+    }
+
+    /**
+     * Called after the map has been cleared.
+     */
+    public void onClear() {
+        for (@NotNull Index<K, V> index : indexes.values())
+            index.clear();
+    }
+
+    @NotNull
+    public Set<String> names() {
+        return Collections.unmodifiableSet(indexes.keySet());
+    }
+
+    static final class Index<K, V> implements Subscriber<MapEvent<K, V>>, MapEventListener<K, V> {
+        private final ConcurrentMap<Object, Set<K>> keysByValue = new ConcurrentHashMap<>();
+        private final ConcurrentMap<K, Object> propertyByKey = new ConcurrentHashMap<>();
+        @NotNull
+        private final SerializableFunction<V, ?> extractor;
+
+        Index(@NotNull SerializableFunction<V, ?> extractor) {
+            this.extractor = extractor;
+        }
+
+        @Nullable
+        private static Object normalise(@Nullable Object property) {
+            // a CharSequence such as a StringBuilder doesn't compare by content.
+            return property instanceof CharSequence && !(property instanceof String)
+                    ? property.toString()
+                    : property;
+        }
+
+        @Override
+        public void onMessage(@NotNull MapEvent<K, V> event) {
+            event.apply(this);
+        }
+
+        @Override
+        public void update(String assetName, K key, @Nullable V oldValue, @Nullable V newValue) {
+            @Nullable Object newProperty = newValue == null ? null : normalise(extractor.apply(newValue));
+            // moved under the key's entry, so two updates of a key don't both move it from the same set.
+            propertyByKey.compute(key, (k, oldProperty) -> {
+                if (Objects.equals(oldProperty, newProperty))
+                    return oldProperty;
+                if (oldProperty != null)
+                    keysByValue.computeIfPresent(oldProperty, (p, keys) -> {
+                        keys.remove(key);
+                        return keys.isEmpty() ? null : keys;
+                    });
+                if (newProperty != null)
+                    keysByValue.compute(newProperty, (p, keys) -> {
+                        if (keys == null)
+                            keys = ConcurrentHashMap.newKeySet();
+                        keys.add(key);
+                        return keys;
+                    });
+                return newProperty;
+            });
+        }
+
+        void clear() {
+            propertyByKey.clear();
+            keysByValue.clear();
+        }
+
+        @NotNull
+        Set<K> keysWhere(@NotNull Object value) {
+            @Nullable Set<K> keys = keysByValue.get(normalise(value));
+            return keys == null ? Collections.emptySet() : new HashSet<>(keys);
+        }
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package net.openhft.chronicle.engine.map;
+
+import net.openhft.chronicle.engine.api.map.MapEvent;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * An event of a map with its position in the map's history, as passed to a resumable subscriber, which can
+ * subscribe again from the last position it saw and be sent only the events it missed.
+ * <p>
+ * A position without an event marks a bootstrap, the entries which follow are the map as of that position.
+ */
+public final class SequencedEvent<K, V> {
+    private final long epoch;
+    private final long sequence;
+    @Nullable
+    private final MapEvent<K, V> event;
+
+    SequencedEvent(long epoch, long sequence, @Nullable MapEvent<K, V> event) {
+        this.epoch = epoch;
+        this.sequence = sequence;
+        this.event = event;
+    }
+
+    /**
+     * @return the identity of the history, which is different each time a map is created.
+     */
+    public long epoch() {
+        return epoch;
+    }
+
+    public long sequence() {
+        return sequence;
+    }
+
+    /**
+     * @return the event, or null if this marks the start of a bootstrap.
+     */
+    @Nullable
+    public MapEvent<K, V> event() {
+        return event;
+    }
+
+    @NotNull
+    @Override
+    public String toString() {
+        return "SequencedEvent{" +
+                "epoch=" + epoch +
+                ", sequence=" + sequence +
+                ", event=" + event +
+                '}';
+    }
+}
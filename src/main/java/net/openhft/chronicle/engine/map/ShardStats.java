@@ -0,0 +1,85 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package net.openhft.chronicle.engine.map;
+
+import net.openhft.chronicle.engine.map.ShardedKeyValueStore.Overflow;
+import net.openhft.chronicle.wire.AbstractMarshallable;
+
+/**
+ * The event queue of one shard of a map, as published under {@link ShardedKeyValueStore#STATS_URI}.
+ */
+public class ShardStats extends AbstractMarshallable {
+    private Overflow overflow;
+    private int capacity;
+    private int pending;
+    private int maxDepth;
+    private long published;
+    private long dropped;
+    private long blocked;
+
+    public ShardStats() {
+    }
+
+    ShardStats(Overflow overflow, int capacity, int pending, int maxDepth, long published, long dropped,
+               long blocked) {
+        this.overflow = overflow;
+        this.capacity = capacity;
+        this.pending = pending;
+        this.maxDepth = maxDepth;
+        this.published = published;
+        this.dropped = dropped;
+        this.blocked = blocked;
+    }
+
+    public Overflow overflow() {
+        return overflow;
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    /**
+     * @return the events queued for the shard's thread now.
+     */
+    public int pending() {
+        return pending;
+    }
+
+    /**
+     * @return the most events queued at once.
+     */
+    public int maxDepth() {
+        return maxDepth;
+    }
+
+    public long published() {
+        return published;
+    }
+
+    public long dropped() {
+        return dropped;
+    }
+
+    /**
+     * @return how many times a writer waited for the queue to have room.
+     */
+    public long blocked() {
+        return blocked;
+    }
+}
@@ -0,0 +1,605 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+
+package net.openhft.chronicle.engine.map;
+
+import net.openhft.chronicle.core.threads.EventHandler;
+import net.openhft.chronicle.core.threads.EventLoop;
+import net.openhft.chronicle.core.threads.HandlerPriority;
+import net.openhft.chronicle.core.threads.InvalidEventHandlerException;
+import net.openhft.chronicle.engine.api.EngineReplication.ReplicationEntry;
+import net.openhft.chronicle.engine.api.map.KeyValueStore;
+import net.openhft.chronicle.engine.api.map.MapEvent;
+import net.openhft.chronicle.engine.api.map.MapView;
+import net.openhft.chronicle.engine.api.pubsub.InvalidSubscriberException;
+import net.openhft.chronicle.engine.api.pubsub.SubscriptionConsumer;
+import net.openhft.chronicle.engine.api.tree.Asset;
+import net.openhft.chronicle.engine.api.tree.RequestContext;
+import net.openhft.chronicle.threads.NamedThreadFactory;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import static net.openhft.chronicle.engine.api.pubsub.SubscriptionConsumer.notifyEachEvent;
+import static net.openhft.chronicle.engine.api.tree.RequestContext.requestContext;
+
+/**
+ * An in memory store split into shards by key, each with its own map and its own thread which publishes
+ * the events of its keys to subscribers.
+ * <p>
+ * A write is made to its shard on the caller's thread, so writers of different shards don't contend, and
+ * its event is queued to the shard's thread while the key is still locked, so the events of a key are
+ * published in the order it was written. The fan out of events to subscribers is so spread over one
+ * thread per shard instead of being done by every writer in turn.
+ * <p>
+ * Each shard queues at most engine.shardQueueCapacity events, and a writer which finds its shard's queue
+ * full applies an {@link Overflow} policy, engine.shardOverflow, rather than queue without bound.
+ * <p>
+ * Segments are shards, so keysFor and entriesFor visit one shard each.
+ */
+public class ShardedKeyValueStore<K, V> implements ObjectKeyValueStore<K, V> {
+    public static final String STATS_URI = "/proc/shards";
+    private static final Logger LOG = LoggerFactory.getLogger(ShardedKeyValueStore.class);
+    private static final int QUEUE_CAPACITY = Integer.getInteger("engine.shardQueueCapacity", 1 << 16);
+    private static final Overflow OVERFLOW = Overflow.valueOf(System.getProperty("engine.shardOverflow", "BLOCK"));
+    // the longest close waits for the shards to publish the events still queued.
+    private static final long CLOSE_TIMEOUT_MS = Long.getLong("engine.shardCloseTimeoutMs", 1_000);
+
+    @NotNull
+    private final Asset asset;
+    @NotNull
+    private final String assetFullName;
+    private final Class<K> keyType;
+    private final Class<V> valueType;
+    @NotNull
+    private final Shard<K, V>[] shards;
+    private final int queueCapacity;
+    @NotNull
+    private final Overflow overflow;
+    @NotNull
+    private final ObjectSubscription<K, V> subscriptions;
+
+    /**
+     * @param context of the map, for its key and value types.
+     * @param asset   of the map
+     * @param shards  the number of shards, and threads publishing events.
+     */
+    public ShardedKeyValueStore(@NotNull RequestContext context, @NotNull Asset asset, int shards) {
+        this(context, asset, shards, QUEUE_CAPACITY, OVERFLOW);
+    }
+
+    /**
+     * @param queueCapacity the most events queued for each shard's thread.
+     * @param overflow      what a writer does when its shard's queue is full.
+     */
+    public ShardedKeyValueStore(@NotNull RequestContext context, @NotNull Asset asset, int shards,
+                                int queueCapacity, @NotNull Overflow overflow) {
+        if (shards < 1)
+            throw new IllegalArgumentException("shards: " + shards);
+        if (queueCapacity < 1)
+            throw new IllegalArgumentException("queueCapacity: " + queueCapacity);
+        this.queueCapacity = queueCapacity;
+        this.overflow = overflow;
+        this.asset = asset;
+        this.assetFullName = asset.fullName();
+        this.keyType = context.keyType();
+        this.valueType = context.valueType();
+        //noinspection unchecked
+        this.shards = new Shard[shards];
+        for (int i = 0; i < shards; i++)
+            this.shards[i] = new Shard<>(new NamedThreadFactory("shard-" + i + assetFullName, true));
+        this.subscriptions = asset.acquireView(ObjectSubscription.class, context);
+        subscriptions.setKvStore(this);
+    }
+
+    public int shards() {
+        return shards.length;
+    }
+
+    public long entries(int shard) {
+        return shards[shard].map.size();
+    }
+
+    public long reads(int shard) {
+        return shards[shard].reads.sum();
+    }
+
+    public long writes(int shard) {
+        return shards[shard].writes.sum();
+    }
+
+    /**
+     * @return the number of events the shard has passed to subscribers.
+     */
+    public long published(int shard) {
+        return shards[shard].published.sum();
+    }
+
+    /**
+     * @return the number of events the shard has still to pass to subscribers.
+     */
+    public int pendingEvents(int shard) {
+        return shards[shard].pending.get();
+    }
+
+    /**
+     * @return the number of events the shard has dropped as its queue was full.
+     */
+    public long droppedEvents(int shard) {
+        return shards[shard].dropped.sum();
+    }
+
+    @NotNull
+    public ShardStats stats(int shard) {
+        @NotNull Shard<K, V> s = shards[shard];
+        return new ShardStats(overflow, queueCapacity, s.pending.get(), s.maxDepth.get(), s.published.sum(),
+                s.dropped.sum(), s.blocked.sum());
+    }
+
+    /**
+     * Puts the stats of each shard in {@link #STATS_URI} once a second until the store is closed.
+     */
+    public void publishStats(@NotNull Asset root) {
+        @NotNull MapView<String, ShardStats> statsMap = root.acquireView(requestContext(STATS_URI)
+                .view("map").type(String.class).type2(ShardStats.class));
+        @Nullable EventLoop eventLoop = root.findOrCreateView(EventLoop.class);
+        assert eventLoop != null;
+        eventLoop.addHandler(new EventHandler() {
+            private long nextUpdate;
+
+            @Override
+            public boolean action() throws InvalidEventHandlerException {
+                if (shards[0].loop.isShutdown()) {
+                    for (int i = 0; i < shards.length; i++)
+                        statsMap.remove(assetFullName + "/shard-" + i);
+                    throw new InvalidEventHandlerException();
+                }
+                long now = System.currentTimeMillis();
+                if (now < nextUpdate)
+                    return false;
+                nextUpdate = now + 1_000;
+                for (int i = 0; i < shards.length; i++)
+                    statsMap.put(assetFullName + "/shard-" + i, stats(i));
+                return false;
+            }
+
+            @NotNull
+            @Override
+            public HandlerPriority priority() {
+                return HandlerPriority.MONITOR;
+            }
+        });
+    }
+
+    @Override
+    public int segments() {
+        return shards.length;
+    }
+
+    @Override
+    public int segmentFor(@NotNull K key) {
+        int h = key.hashCode();
+        return Math.floorMod(h ^ (h >>> 16), shards.length);
+    }
+
+    @NotNull
+    private Shard<K, V> shardFor(@NotNull K key) {
+        return shards[segmentFor(key)];
+    }
+
+    private boolean onShardThread() {
+        @NotNull Thread thread = Thread.currentThread();
+        for (@NotNull Shard<K, V> shard : shards) {
+            if (shard.thread == thread)
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * A subscriber writing from a shard's thread doesn't wait for a bootstrap in progress, as it is
+     * waiting for that thread to publish its events.
+     */
+    @NotNull
+    private WriteGate writeGate() {
+        return onShardThread() ? WriteGate.NONE : subscriptions.writeGate();
+    }
+
+    /**
+     * @param value to put, or null to remove the key.
+     * @return the previous value, or null if there wasn't one.
+     */
+    @Nullable
+    private V write(@NotNull K key, @Nullable V value) {
+        @NotNull Shard<K, V> shard = shardFor(key);
+        @NotNull Object[] oldValue = {null};
+        if (overflow == Overflow.BLOCK)
+            awaitRoom(shard);
+        try (@NotNull WriteGate.Pass pass = writeGate().enter()) {
+            if (value == null) {
+                shard.map.computeIfPresent(key, (k, v) -> {
+                    shard.snapshots.beforeWrite(k, v);
+                    oldValue[0] = v;
+                    if (subscriptions.hasSubscribers())
+                        publish(shard, RemovedEvent.of(assetFullName, k, v, false));
+                    return null;
+                });
+            } else {
+                shard.map.compute(key, (k, v) -> {
+                    shard.snapshots.beforeWrite(k, v);
+                    oldValue[0] = v;
+                    if (subscriptions.hasSubscribers())
+                        publish(shard, v == null
+                                ? InsertedEvent.of(assetFullName, k, value, false)
+                                : UpdatedEvent.of(assetFullName, k, v, value, false, !value.equals(v)));
+                    return value;
+                });
+            }
+        }
+        shard.writes.increment();
+        return (V) oldValue[0];
+    }
+
+    private void publish(@NotNull Shard<K, V> shard, @NotNull MapEvent<K, V> event) {
+        if (overflow == Overflow.DROP_OLDEST && shard.pending.get() >= queueCapacity)
+            dropOldest(shard);
+        int depth = shard.pending.incrementAndGet();
+        if (depth > shard.maxDepth.get())
+            shard.maxDepth.accumulateAndGet(depth, Math::max);
+        try {
+            shard.loop.execute(new EventTask<>(this, shard, event));
+        } catch (RejectedExecutionException e) {
+            // closed.
+            shard.pending.decrementAndGet();
+        }
+    }
+
+    private void taken(@NotNull Shard<K, V> shard) {
+        if (shard.pending.decrementAndGet() == queueCapacity - 1) {
+            synchronized (shard) {
+                shard.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Wait for the shard's thread to publish enough events, before the write rather than while the key is
+     * locked and the write gate entered, so the queue can go over its capacity by the writers let in at once.
+     */
+    private void awaitRoom(@NotNull Shard<K, V> shard) {
+        // a shard's thread can't wait for itself, or for another shard which may be waiting for it.
+        if (shard.pending.get() < queueCapacity || onShardThread())
+            return;
+        shard.blocked.increment();
+        synchronized (shard) {
+            while (shard.pending.get() >= queueCapacity && !shard.loop.isShutdown()) {
+                try {
+                    shard.wait(10);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    private void dropOldest(@NotNull Shard<K, V> shard) {
+        // only an event is dropped, not a flush waiting for the events before it.
+        for (@NotNull Runnable task : shard.queue) {
+            if (task instanceof EventTask && shard.queue.remove(task)) {
+                shard.pending.decrementAndGet();
+                shard.dropped.increment();
+                return;
+            }
+        }
+    }
+
+    @Override
+    public void flushEvents() {
+        for (@NotNull Shard<K, V> shard : shards) {
+            if (shard.pending.get() == 0 || shard.thread == Thread.currentThread())
+                continue;
+            try {
+                shard.loop.submit(() -> {
+                }).get();
+
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+
+            } catch (ExecutionException | RejectedExecutionException e) {
+                // closed.
+            }
+        }
+    }
+
+    @Override
+    public boolean put(@NotNull K key, @NotNull V value) {
+        return write(key, value) != null;
+    }
+
+    @Nullable
+    @Override
+    public V getAndPut(@NotNull K key, @NotNull V value) {
+        return write(key, value);
+    }
+
+    @Override
+    public boolean remove(@NotNull K key) {
+        return write(key, null) != null;
+    }
+
+    @Nullable
+    @Override
+    public V getAndRemove(@NotNull K key) {
+        return write(key, null);
+    }
+
+    @Nullable
+    @Override
+    public V getUsing(@NotNull K key, Object value) {
+        @NotNull Shard<K, V> shard = shardFor(key);
+        shard.reads.increment();
+        return shard.map.get(key);
+    }
+
+    @Override
+    public long longSize() {
+        long size = 0;
+        for (@NotNull Shard<K, V> shard : shards)
+            size += shard.map.size();
+        return size;
+    }
+
+    @Override
+    public void keysFor(int segment, @NotNull SubscriptionConsumer<K> kConsumer) throws InvalidSubscriberException {
+        notifyEachEvent(shards[segment].map.keySet(), kConsumer);
+    }
+
+    @Override
+    public void entriesFor(int segment, @NotNull SubscriptionConsumer<MapEvent<K, V>> kvConsumer) throws InvalidSubscriberException {
+        try (@NotNull EntriesSnapshot<K, V> snapshot = shards[segment].snapshot(assetFullName)) {
+            snapshot.entriesFor(kvConsumer);
+        }
+    }
+
+    /**
+     * The shards' snapshots are opened while no writer is inside the write gate, so together they are a
+     * single point in time, apart from writes made by subscribers on the shards' threads.
+     */
+    @NotNull
+    @Override
+    public EntriesSnapshot<K, V> snapshot() {
+        @NotNull List<EntriesSnapshot<K, V>> snapshots = writeGate().exclusive(() -> {
+            @NotNull List<EntriesSnapshot<K, V>> opened = new ArrayList<>(shards.length);
+            for (@NotNull Shard<K, V> shard : shards)
+                opened.add(shard.snapshot(assetFullName));
+            return opened;
+        });
+        return new EntriesSnapshot<K, V>() {
+            private int next = 0;
+
+            @Override
+            public void entriesFor(@NotNull SubscriptionConsumer<MapEvent<K, V>> kvConsumer) throws InvalidSubscriberException {
+                for (@NotNull EntriesSnapshot<K, V> snapshot : snapshots)
+                    snapshot.entriesFor(kvConsumer);
+            }
+
+            @Override
+            public boolean nextEntries(int max, @NotNull SubscriptionConsumer<MapEvent<K, V>> kvConsumer) throws InvalidSubscriberException {
+                // a slice of one shard at a time.
+                if (next < snapshots.size() && !snapshots.get(next).nextEntries(max, kvConsumer))
+                    next++;
+                return next < snapshots.size();
+            }
+
+            @Override
+            public void close() {
+                snapshots.forEach(EntriesSnapshot::close);
+            }
+        };
+    }
+
+    @NotNull
+    @Override
+    public Iterator<Map.Entry<K, V>> entrySetIterator() {
+        return Arrays.stream(shards).flatMap(s -> s.map.entrySet().stream()).iterator();
+    }
+
+    @NotNull
+    @Override
+    public Iterator<K> keySetIterator() {
+        return Arrays.stream(shards).flatMap(s -> s.map.keySet().stream()).iterator();
+    }
+
+    @Override
+    public void clear() {
+        for (@NotNull Shard<K, V> shard : shards) {
+            for (K key : shard.map.keySet())
+                write(key, null);
+        }
+    }
+
+    @Override
+    public boolean containsValue(V value) {
+        for (@NotNull Shard<K, V> shard : shards) {
+            if (shard.map.containsValue(value))
+                return true;
+        }
+        return false;
+    }
+
+    @NotNull
+    @Override
+    public Asset asset() {
+        return asset;
+    }
+
+    @Nullable
+    @Override
+    public KeyValueStore<K, V> underlying() {
+        return null;
+    }
+
+    @NotNull
+    @Override
+    public KVSSubscription<K, V> subscription(boolean createIfAbsent) {
+        return subscriptions;
+    }
+
+    @Override
+    public Class<K> keyType() {
+        return keyType;
+    }
+
+    @Override
+    public Class<V> valueType() {
+        return valueType;
+    }
+
+    @Override
+    public void accept(ReplicationEntry replicationEntry) {
+        throw new UnsupportedOperationException("todo");
+    }
+
+    /**
+     * Publishes the events still queued, waiting up to engine.shardCloseTimeoutMs, and drops any left.
+     */
+    @Override
+    public void close() {
+        for (@NotNull Shard<K, V> shard : shards)
+            shard.loop.shutdown();
+        long end = System.currentTimeMillis() + CLOSE_TIMEOUT_MS;
+        int dropped = 0;
+        for (@NotNull Shard<K, V> shard : shards) {
+            try {
+                // a shard's thread closing the store can't wait for itself.
+                if (shard.thread != Thread.currentThread())
+                    shard.loop.awaitTermination(Math.max(0, end - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            for (@NotNull Runnable task : shard.loop.shutdownNow()) {
+                if (task instanceof EventTask) {
+                    shard.dropped.increment();
+                    dropped++;
+                }
+            }
+        }
+        if (dropped > 0)
+            LOG.warn("Closed " + assetFullName + " with " + dropped + " events not published");
+    }
+
+    @NotNull
+    @Override
+    public String toString() {
+        @NotNull StringBuilder sb = new StringBuilder("ShardedKeyValueStore{").append(assetFullName);
+        for (int i = 0; i < shards.length; i++) {
+            sb.append(", shard").append(i)
+                    .append("={entries=").append(entries(i))
+                    .append(", reads=").append(reads(i))
+                    .append(", writes=").append(writes(i))
+                    .append(", published=").append(published(i))
+                    .append(", pending=").append(pendingEvents(i))
+                    .append(", dropped=").append(droppedEvents(i)).append('}');
+        }
+        return sb.append('}').toString();
+    }
+
+    static final class EventTask<K, V> implements Runnable {
+        @NotNull
+        private final ShardedKeyValueStore<K, V> store;
+        @NotNull
+        private final Shard<K, V> shard;
+        @NotNull
+        private final MapEvent<K, V> event;
+
+        EventTask(@NotNull ShardedKeyValueStore<K, V> store, @NotNull Shard<K, V> shard, @NotNull MapEvent<K, V> event) {
+            this.store = store;
+            this.shard = shard;
+            this.event = event;
+        }
+
+        @Override
+        public void run() {
+            try {
+                store.subscriptions.notifyEvent(event);
+                shard.published.increment();
+
+            } catch (RuntimeException e) {
+                LOG.warn("Failed to publish " + event, e);
+
+            } finally {
+                store.taken(shard);
+            }
+        }
+    }
+
+    /**
+     * What a writer does once its shard has engine.shardQueueCapacity events queued.
+     */
+    public enum Overflow {
+        /**
+         * Wait for the shard's thread to publish enough events. A writer on a shard's thread doesn't wait,
+         * and queues its event over the capacity.
+         */
+        BLOCK,
+        /**
+         * Drop the oldest event queued, so subscribers may miss events.
+         */
+        DROP_OLDEST
+    }
+
+    static final class Shard<K, V> {
+        final ConcurrentMap<K, V> map = new ConcurrentHashMap<>();
+        final SnapshotLog<K, V> snapshots = new SnapshotLog<>();
+        final LongAdder reads = new LongAdder();
+        final LongAdder writes = new LongAdder();
+        final LongAdder published = new LongAdder();
+        final LongAdder dropped = new LongAdder();
+        final LongAdder blocked = new LongAdder();
+        final AtomicInteger pending = new AtomicInteger();
+        final AtomicInteger maxDepth = new AtomicInteger();
+        // bounded by the pending count, as a shard's own thread may queue over the capacity.
+        final BlockingQueue<Runnable> queue = new LinkedBlockingQueue<>();
+        @NotNull
+        final ThreadPoolExecutor loop;
+        volatile Thread thread;
+
+        Shard(@NotNull ThreadFactory threadFactory) {
+            loop = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, queue, r -> {
+                @NotNull Thread t = threadFactory.newThread(r);
+                thread = t;
+                return t;
+            });
+            loop.prestartCoreThread();
+        }
+
+        @NotNull
+        EntriesSnapshot<K, V> snapshot(String assetFullName) {
+            return snapshots.open(() -> map.entrySet().iterator(), assetFullName);
+        }
+    }
+}
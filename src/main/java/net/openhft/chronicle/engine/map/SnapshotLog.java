@@ -0,0 +1,187 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+
+package net.openhft.chronicle.engine.map;
+
+import net.openhft.chronicle.engine.api.map.KeyValueStore.EntriesSnapshot;
+import net.openhft.chronicle.engine.api.map.MapEvent;
+import net.openhft.chronicle.engine.api.pubsub.InvalidSubscriberException;
+import net.openhft.chronicle.engine.api.pubsub.SubscriptionConsumer;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Point in time snapshots of a concurrent map which don't stop writers, or copy the map.
+ * <p>
+ * While a snapshot is open, each writer saves the value it is about to replace, unless the snapshot
+ * already has one for that key, i.e. an undo log. A scan of the live map then reads the value saved
+ * for a key if there is one, and the live value if not, marking the key as read so no later value is
+ * saved for it. Lastly the saved values of keys which were removed during the scan are read.
+ * <p>
+ * A writer must save the old value before the new one can be seen, and must read the old value and
+ * write the new one as one step, e.g. in a compute() or under {@link #lockFor(Object)}.
+ * <p>
+ * An open snapshot holds a reference to every key it has read, and to the old value of every key
+ * written while it was open, but copies no values. With no snapshot open, a write costs one volatile read.
+ */
+public class SnapshotLog<K, V> {
+    // saved for a key which was absent when the snapshot was opened.
+    private static final Object ABSENT = new Object();
+    // saved once a key has been read by the scan.
+    private static final Object SEEN = new Object();
+
+    private final List<Snapshot> active = new CopyOnWriteArrayList<>();
+    private final Object[] locks = new Object[64];
+
+    public SnapshotLog() {
+        for (int i = 0; i < locks.length; i++)
+            locks[i] = new Object();
+    }
+
+    public boolean isActive() {
+        return !active.isEmpty();
+    }
+
+    /**
+     * @return a lock to hold while reading the old value, saving it and writing the new one, for maps
+     * which have no atomic compute.
+     */
+    @NotNull
+    public Object lockFor(Object key) {
+        int h = key.hashCode();
+        return locks[(h ^ (h >>> 16)) & (locks.length - 1)];
+    }
+
+    /**
+     * Save the value about to be replaced or removed in each open snapshot.
+     *
+     * @param key      being written
+     * @param oldValue the value it has now, or null if absent.
+     */
+    public void beforeWrite(K key, @Nullable V oldValue) {
+        if (active.isEmpty())
+            return;
+        @NotNull Object saved = oldValue == null ? ABSENT : oldValue;
+        for (@NotNull Snapshot snapshot : active)
+            snapshot.undo.putIfAbsent(key, saved);
+    }
+
+    /**
+     * @param live      iterates the map as it is now, and may be weakly consistent.
+     * @param assetName to give the events passed to the reader.
+     */
+    @NotNull
+    public EntriesSnapshot<K, V> open(@NotNull Supplier<Iterator<Map.Entry<K, V>>> live, String assetName) {
+        return open(live, assetName, k -> true);
+    }
+
+    /**
+     * @param live      iterates the keys in scope as they are now, and may be weakly consistent.
+     * @param assetName to give the events passed to the reader.
+     * @param inScope   whether a key is one the live iterator would visit, e.g. is in a range of keys, so
+     *                  a key out of scope which was removed during the scan is not passed.
+     */
+    @NotNull
+    public EntriesSnapshot<K, V> open(@NotNull Supplier<Iterator<Map.Entry<K, V>>> live, String assetName,
+                                      @NotNull Predicate<? super K> inScope) {
+        @NotNull Snapshot snapshot = new Snapshot(live, assetName, inScope);
+        active.add(snapshot);
+        return snapshot;
+    }
+
+    class Snapshot implements EntriesSnapshot<K, V> {
+        final ConcurrentMap<K, Object> undo = new ConcurrentHashMap<>();
+        @NotNull
+        private final Supplier<Iterator<Map.Entry<K, V>>> live;
+        private final String assetName;
+        @NotNull
+        private final Predicate<? super K> inScope;
+        @Nullable
+        private Iterator<Map.Entry<K, V>> scan;
+        @Nullable
+        private Iterator<Map.Entry<K, Object>> removed;
+
+        Snapshot(@NotNull Supplier<Iterator<Map.Entry<K, V>>> live, String assetName,
+                 @NotNull Predicate<? super K> inScope) {
+            this.live = live;
+            this.assetName = assetName;
+            this.inScope = inScope;
+        }
+
+        @Override
+        public void entriesFor(@NotNull SubscriptionConsumer<MapEvent<K, V>> kvConsumer) throws InvalidSubscriberException {
+            while (nextEntries(Integer.MAX_VALUE, kvConsumer)) {
+                // read the lot.
+            }
+        }
+
+        @Override
+        public boolean nextEntries(int max, @NotNull SubscriptionConsumer<MapEvent<K, V>> kvConsumer) throws InvalidSubscriberException {
+            if (scan == null)
+                scan = live.get();
+            int count = 0;
+            while (count < max && scan.hasNext()) {
+                @NotNull Map.Entry<K, V> entry = scan.next();
+                K key = entry.getKey();
+                @Nullable Object saved = undo.putIfAbsent(key, SEEN);
+                if (saved == null) {
+                    kvConsumer.accept(InsertedEvent.of(assetName, key, entry.getValue(), false));
+                    count++;
+
+                } else if (saved != SEEN) {
+                    undo.put(key, SEEN);
+                    if (saved != ABSENT) {
+                        kvConsumer.accept(InsertedEvent.of(assetName, key, (V) saved, false));
+                        count++;
+                    }
+                }
+            }
+            if (scan.hasNext())
+                return true;
+
+            // keys removed before the scan reached them.
+            if (removed == null)
+                removed = undo.entrySet().iterator();
+            while (count < max && removed.hasNext()) {
+                @NotNull Map.Entry<K, Object> entry = removed.next();
+                Object saved = entry.getValue();
+                if (saved != SEEN && saved != ABSENT && inScope.test(entry.getKey())
+                        && undo.replace(entry.getKey(), saved, SEEN)) {
+                    kvConsumer.accept(InsertedEvent.of(assetName, entry.getKey(), (V) saved, false));
+                    count++;
+                }
+            }
+            return removed.hasNext();
+        }
+
+        @Override
+        public void close() {
+            active.remove(this);
+            undo.clear();
+        }
+    }
+}
@@ -0,0 +1,331 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+
+package net.openhft.chronicle.engine.map;
+
+import net.openhft.chronicle.bytes.Bytes;
+import net.openhft.chronicle.bytes.BytesStore;
+import net.openhft.chronicle.engine.api.EngineReplication.ReplicationEntry;
+import net.openhft.chronicle.engine.api.map.KeyRange;
+import net.openhft.chronicle.engine.api.map.KeyValueStore;
+import net.openhft.chronicle.engine.api.map.KeyValueStore.EntriesSnapshot;
+import net.openhft.chronicle.engine.api.map.MapEvent;
+import net.openhft.chronicle.engine.api.map.NavigableKeyValueStore;
+import net.openhft.chronicle.engine.api.pubsub.InvalidSubscriberException;
+import net.openhft.chronicle.engine.api.pubsub.SubscriptionConsumer;
+import net.openhft.chronicle.engine.api.tree.Asset;
+import net.openhft.chronicle.engine.api.tree.RequestContext;
+import net.openhft.chronicle.wire.WireType;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.nio.ByteBuffer;
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * An in memory store which keeps its keys in their natural order, so ranges and prefixes of keys can be
+ * visited, or subscribed to, without a full scan and a sort.
+ * <p>
+ * The keys are held in a concurrent skip list and each value is held in binary wire form in its own
+ * direct memory, off the heap, which is freed with its ByteBuffer once no reader can still see it.
+ * Values are decoded on every read, so a value read is a copy and changing it doesn't change the store.
+ * <p>
+ * Snapshots, of the whole store or of a range of keys, are kept with a {@link SnapshotLog} as
+ * {@link VanillaKeyValueStore} does, and hold the encoded values replaced while they are read.
+ */
+public class SortedKeyValueStore<K, V> implements AuthenticatedKeyValueStore<K, V>, NavigableKeyValueStore<K, V> {
+    private final ConcurrentSkipListMap<K, BytesStore> map = new ConcurrentSkipListMap<>();
+    private final AtomicLong offHeapBytes = new AtomicLong();
+    private final SnapshotLog<K, BytesStore> snapshots = new SnapshotLog<>();
+    @NotNull
+    private final Asset asset;
+    @NotNull
+    private final Class<V> valueType;
+
+    public SortedKeyValueStore(@NotNull RequestContext context, @NotNull Asset asset) {
+        this(asset, context.valueType());
+    }
+
+    public SortedKeyValueStore(@NotNull Asset asset, @NotNull Class<V> valueType) {
+        this.asset = asset;
+        this.valueType = valueType;
+    }
+
+    @NotNull
+    private BytesStore encode(@NotNull V value) {
+        @NotNull Bytes<ByteBuffer> bytes = Buffers.BUFFERS.get().valueBuffer;
+        bytes.clear();
+        WireType.BINARY.apply(bytes).getValueOut().object(valueType, value);
+        // copied straight from the thread's buffer, as each value must have memory of its own.
+        @Nullable ByteBuffer written = bytes.underlyingObject();
+        written.position((int) bytes.readPosition());
+        written.limit((int) bytes.readLimit());
+        ByteBuffer buffer = ByteBuffer.allocateDirect(written.remaining());
+        buffer.put(written);
+        offHeapBytes.addAndGet(buffer.capacity());
+        return BytesStore.wrap(buffer);
+    }
+
+    @Nullable
+    private V decode(@Nullable BytesStore encoded, @Nullable Object using) {
+        if (encoded == null)
+            return null;
+        return WireType.BINARY.apply(encoded.bytesForRead()).getValueIn()
+                .object(valueType.isInstance(using) ? (V) using : null, valueType);
+    }
+
+    private void freed(@Nullable BytesStore encoded) {
+        if (encoded != null)
+            offHeapBytes.addAndGet(-encoded.capacity());
+    }
+
+    /**
+     * @return the bytes of direct memory holding the values.
+     */
+    public long offHeapBytes() {
+        return offHeapBytes.get();
+    }
+
+    @Nullable
+    private BytesStore loggedPut(K key, @NotNull BytesStore value) {
+        if (!snapshots.isActive())
+            return map.put(key, value);
+        // a skip list's compute may call its function more than once, so the old value is saved under a lock.
+        synchronized (snapshots.lockFor(key)) {
+            snapshots.beforeWrite(key, map.get(key));
+            return map.put(key, value);
+        }
+    }
+
+    @Nullable
+    private BytesStore loggedRemove(K key) {
+        if (!snapshots.isActive())
+            return map.remove(key);
+        synchronized (snapshots.lockFor(key)) {
+            @Nullable BytesStore old = map.get(key);
+            if (old == null)
+                return null;
+            snapshots.beforeWrite(key, old);
+            return map.remove(key);
+        }
+    }
+
+    @Override
+    public boolean put(K key, V value) {
+        @Nullable BytesStore old = loggedPut(key, encode(value));
+        freed(old);
+        return old != null;
+    }
+
+    @Nullable
+    @Override
+    public V getAndPut(K key, V value) {
+        @Nullable BytesStore old = loggedPut(key, encode(value));
+        freed(old);
+        return decode(old, null);
+    }
+
+    @Override
+    public boolean remove(K key) {
+        @Nullable BytesStore old = loggedRemove(key);
+        freed(old);
+        return old != null;
+    }
+
+    @Nullable
+    @Override
+    public V getAndRemove(K key) {
+        @Nullable BytesStore old = loggedRemove(key);
+        freed(old);
+        return decode(old, null);
+    }
+
+    @Nullable
+    @Override
+    public V getUsing(K key, Object value) {
+        return decode(map.get(key), value);
+    }
+
+    @Override
+    public boolean containsKey(K key) {
+        return map.containsKey(key);
+    }
+
+    @Override
+    public long longSize() {
+        return map.size();
+    }
+
+    @Override
+    public void keysFor(int segment, @NotNull SubscriptionConsumer<K> kConsumer) throws InvalidSubscriberException {
+        SubscriptionConsumer.notifyEachEvent(map.keySet(), kConsumer);
+    }
+
+    @Override
+    public void entriesFor(int segment, @NotNull SubscriptionConsumer<MapEvent<K, V>> kvConsumer) throws InvalidSubscriberException {
+        try (@NotNull EntriesSnapshot<K, V> snapshot = snapshot()) {
+            snapshot.entriesFor(kvConsumer);
+        }
+    }
+
+    @NotNull
+    @Override
+    public EntriesSnapshot<K, V> snapshot() {
+        return entriesSnapshot(KeyRange.all());
+    }
+
+    /**
+     * Opened while no writer is inside the subscription's write gate, as a write which found no snapshot
+     * open puts without saving the old value. The entries are in key order, except those removed while
+     * the snapshot is read, which come last.
+     */
+    @NotNull
+    @Override
+    public EntriesSnapshot<K, V> entriesSnapshot(@NotNull KeyRange<K> range) {
+        @Nullable ObjectSubscription<K, V> subscription = asset.getView(ObjectSubscription.class);
+        @NotNull WriteGate writeGate = subscription == null ? WriteGate.NONE : subscription.writeGate();
+        @NotNull String assetName = asset.fullName();
+        @NotNull EntriesSnapshot<K, BytesStore> encoded = writeGate.exclusive(() ->
+                snapshots.open(() -> subMap(range).entrySet().iterator(), assetName, range::contains));
+        return new EntriesSnapshot<K, V>() {
+            @Override
+            public void entriesFor(@NotNull SubscriptionConsumer<MapEvent<K, V>> kvConsumer) throws InvalidSubscriberException {
+                encoded.entriesFor(decoding(assetName, kvConsumer));
+            }
+
+            @Override
+            public boolean nextEntries(int max, @NotNull SubscriptionConsumer<MapEvent<K, V>> kvConsumer) throws InvalidSubscriberException {
+                return encoded.nextEntries(max, decoding(assetName, kvConsumer));
+            }
+
+            @Override
+            public void close() {
+                encoded.close();
+            }
+        };
+    }
+
+    @NotNull
+    private SubscriptionConsumer<MapEvent<K, BytesStore>> decoding(@NotNull String assetName,
+                                                                   @NotNull SubscriptionConsumer<MapEvent<K, V>> kvConsumer) {
+        return e -> kvConsumer.accept(InsertedEvent.of(assetName, e.getKey(), decode(e.getValue(), null), false));
+    }
+
+    @NotNull
+    @Override
+    public Iterator<Map.Entry<K, V>> entrySetIterator() {
+        return entrySetIterator(KeyRange.all(), false);
+    }
+
+    @NotNull
+    @Override
+    public Iterator<Map.Entry<K, V>> entrySetIterator(@NotNull KeyRange<K> range, boolean descending) {
+        @NotNull NavigableMap<K, BytesStore> subMap = subMap(range);
+        @NotNull Iterator<Map.Entry<K, BytesStore>> entries = (descending ? subMap.descendingMap() : subMap)
+                .entrySet().iterator();
+        return new Iterator<Map.Entry<K, V>>() {
+            @Override
+            public boolean hasNext() {
+                return entries.hasNext();
+            }
+
+            @NotNull
+            @Override
+            public Map.Entry<K, V> next() {
+                @NotNull Map.Entry<K, BytesStore> entry = entries.next();
+                return new SimpleImmutableEntry<>(entry.getKey(), decode(entry.getValue(), null));
+            }
+        };
+    }
+
+    @NotNull
+    private ConcurrentNavigableMap<K, BytesStore> subMap(@NotNull KeyRange<K> range) {
+        @Nullable K from = range.from();
+        @Nullable K to = range.to();
+        if (from == null)
+            return to == null ? map : map.headMap(to, range.toInclusive());
+        return to == null
+                ? map.tailMap(from, range.fromInclusive())
+                : map.subMap(from, range.fromInclusive(), to, range.toInclusive());
+    }
+
+    @NotNull
+    @Override
+    public Iterator<K> keySetIterator() {
+        return map.keySet().iterator();
+    }
+
+    @Override
+    public void clear() {
+        for (@NotNull Iterator<K> it = map.keySet().iterator(); it.hasNext(); )
+            remove(it.next());
+    }
+
+    @Override
+    public boolean containsValue(final V value) {
+        for (@NotNull BytesStore encoded : map.values())
+            if (value.equals(decode(encoded, null)))
+                return true;
+        return false;
+    }
+
+    @NotNull
+    @Override
+    public Asset asset() {
+        return asset;
+    }
+
+    @Nullable
+    @Override
+    public KeyValueStore underlying() {
+        return null;
+    }
+
+    @Override
+    public void close() {
+        map.clear();
+        offHeapBytes.set(0);
+    }
+
+    @NotNull
+    @Override
+    public KVSSubscription<K, V> subscription(boolean createIfAbsent) {
+        throw new UnsupportedOperationException("todo");
+    }
+
+    @Override
+    public void accept(final ReplicationEntry replicationEntry) {
+        throw new UnsupportedOperationException("todo");
+    }
+
+    @NotNull
+    @Override
+    public String toString() {
+        return "SortedKeyValueStore{" +
+                "asset=" + asset.fullName() +
+                ", size=" + map.size() +
+                ", offHeapBytes=" + offHeapBytes +
+                '}';
+    }
+}
@@ -0,0 +1,155 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package net.openhft.chronicle.engine.map;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * A hierarchical timer wheel. Each level has 64 slots, each slot of a level covering all the slots of
+ * the level below, so timers are filed by how far away they are and cascade down a level as their time
+ * approaches. Scheduling is O(1) and advancing costs in proportion to the timers which fall due.
+ * <p>
+ * Not thread safe, it is driven by one thread.
+ */
+final class TimerWheel<T> {
+    private static final int SLOT_BITS = 6;
+    private static final int SLOTS = 1 << SLOT_BITS;
+    private static final int MASK = SLOTS - 1;
+    private static final int LEVELS = 4;
+
+    private final long tickMillis;
+    private final List<Timer<T>>[][] wheel;
+    // timers beyond the range of the top level, filed again each time it wraps.
+    private List<Timer<T>> overflow = new ArrayList<>();
+    private long currentTick;
+    private int size;
+    private int dueSoon;
+
+    TimerWheel(long tickMillis, long nowMillis) {
+        assert tickMillis > 0;
+        this.tickMillis = tickMillis;
+        this.currentTick = nowMillis / tickMillis;
+        //noinspection unchecked
+        wheel = new List[LEVELS][SLOTS];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @param item           to pass back once due
+     * @param deadlineMillis the time it is due, rounded up to the next tick.
+     */
+    public void schedule(@NotNull T item, long deadlineMillis) {
+        long tick = (deadlineMillis + tickMillis - 1) / tickMillis;
+        file(new Timer<>(item, Math.max(tick, currentTick + 1)));
+        size++;
+    }
+
+    /**
+     * Move time forward, passing each item which has fallen due to expired.
+     *
+     * @return the number of items which fell due.
+     */
+    public int advance(long nowMillis, @NotNull Consumer<T> expired) {
+        long targetTick = nowMillis / tickMillis;
+        if (size == 0) {
+            currentTick = Math.max(currentTick, targetTick);
+            return 0;
+        }
+        int count = 0;
+        while (currentTick < targetTick) {
+            if (dueSoon == 0) {
+                // nothing is in the bottom level, so skip to the next cascade.
+                long lastBeforeCascade = currentTick | MASK;
+                if (lastBeforeCascade >= targetTick) {
+                    currentTick = targetTick;
+                    break;
+                }
+                currentTick = lastBeforeCascade;
+            }
+            currentTick++;
+            if ((currentTick & MASK) == 0)
+                cascade(1);
+            int index = (int) (currentTick & MASK);
+            List<Timer<T>> due = wheel[0][index];
+            if (due == null || due.isEmpty())
+                continue;
+            wheel[0][index] = null;
+            size -= due.size();
+            dueSoon -= due.size();
+            count += due.size();
+            for (@NotNull Timer<T> timer : due)
+                expired.accept(timer.item);
+            if (size == 0) {
+                currentTick = targetTick;
+                break;
+            }
+        }
+        return count;
+    }
+
+    private void cascade(int level) {
+        if (level == LEVELS) {
+            List<Timer<T>> timers = overflow;
+            overflow = new ArrayList<>();
+            timers.forEach(this::file);
+            return;
+        }
+        int index = (int) ((currentTick >>> (SLOT_BITS * level)) & MASK);
+        if (index == 0)
+            cascade(level + 1);
+        List<Timer<T>> timers = wheel[level][index];
+        if (timers == null)
+            return;
+        wheel[level][index] = null;
+        timers.forEach(this::file);
+    }
+
+    private void file(@NotNull Timer<T> timer) {
+        long delta = timer.tick - currentTick;
+        for (int level = 0; level < LEVELS; level++) {
+            if (delta < 1L << (SLOT_BITS * (level + 1))) {
+                int index = (int) ((timer.tick >>> (SLOT_BITS * level)) & MASK);
+                List<Timer<T>> timers = wheel[level][index];
+                if (timers == null)
+                    wheel[level][index] = timers = new ArrayList<>();
+                timers.add(timer);
+                if (level == 0)
+                    dueSoon++;
+                return;
+            }
+        }
+        overflow.add(timer);
+    }
+
+    static final class Timer<T> {
+        final T item;
+        final long tick;
+
+        Timer(T item, long tick) {
+            this.item = item;
+            this.tick = tick;
+        }
+    }
+}
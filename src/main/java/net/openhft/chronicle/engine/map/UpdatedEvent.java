@@ -19,19 +19,21 @@ package net.openhft.chronicle.engine.map;
 
 import net.openhft.chronicle.engine.api.map.MapEvent;
 import net.openhft.chronicle.engine.api.map.MapEventListener;
+import net.openhft.chronicle.engine.api.map.ValueReader;
 import net.openhft.chronicle.wire.AbstractMarshallable;
 import net.openhft.chronicle.wire.WireIn;
 import net.openhft.chronicle.wire.WireOut;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.util.Objects;
 import java.util.function.BiFunction;
 import java.util.function.Function;
 
 /*
  * Created by Peter Lawrey on 22/05/15.
  */
-public class UpdatedEvent<K, V> extends AbstractMarshallable implements MapEvent<K, V> {
+public class UpdatedEvent<K, V> extends AbstractMarshallable implements MapEvent<K, V>, EncodingCache {
     private String assetName;
     @Nullable
     private K key;
@@ -41,6 +43,13 @@ public class UpdatedEvent<K, V> extends AbstractMarshallable implements MapEvent
     private V value;
     private boolean isReplicationEvent;
     private boolean hasValueChanged;
+    @Nullable
+    private transient LazyValue<?, V> lazyOldValue, lazyValue;
+    @Nullable
+    private transient Encodings encodings;
+    @Nullable
+    private transient FieldDelta delta;
+    private transient boolean deltaComputed;
 
     private UpdatedEvent(String assetName,
                          @NotNull K key, @Nullable V oldValue, @Nullable V value,
@@ -55,6 +64,15 @@ public class UpdatedEvent<K, V> extends AbstractMarshallable implements MapEvent
 
     }
 
+    private UpdatedEvent(String assetName,
+                         @NotNull K key, @Nullable LazyValue<?, V> lazyOldValue, @Nullable LazyValue<?, V> lazyValue,
+                         boolean isReplicationEvent,
+                         boolean hasValueChanged) {
+        this(assetName, key, (V) null, (V) null, isReplicationEvent, hasValueChanged);
+        this.lazyOldValue = lazyOldValue;
+        this.lazyValue = lazyValue;
+    }
+
     @NotNull
     public static <K, V> UpdatedEvent<K, V> of(String assetName, @NotNull K key, V oldValue, V value,
                                                boolean isReplicationEvent, boolean hasValueChanged) {
@@ -69,13 +87,20 @@ public class UpdatedEvent<K, V> extends AbstractMarshallable implements MapEvent
     @NotNull
     @Override
     public <K2, V2> MapEvent<K2, V2> translate(@NotNull Function<K, K2> keyFunction, @NotNull Function<V, V2> valueFunction) {
-        return new UpdatedEvent<>(assetName, keyFunction.apply(key), valueFunction.apply(oldValue), valueFunction.apply(value), isReplicationEvent, hasValueChanged);
+        return new UpdatedEvent<>(assetName, keyFunction.apply(key), valueFunction.apply(oldValue()), valueFunction.apply(getValue()), isReplicationEvent, hasValueChanged);
     }
 
     @NotNull
     @Override
     public <K2, V2> MapEvent<K2, V2> translate(@NotNull BiFunction<K, K2, K2> keyFunction, @NotNull BiFunction<V, V2, V2> valueFunction) {
-        return new UpdatedEvent<>(assetName, keyFunction.apply(key, null), valueFunction.apply(oldValue, null), valueFunction.apply(value, null), isReplicationEvent, hasValueChanged);
+        return new UpdatedEvent<>(assetName, keyFunction.apply(key, null), valueFunction.apply(oldValue(), null), valueFunction.apply(getValue(), null), isReplicationEvent, hasValueChanged);
+    }
+
+    @NotNull
+    @Override
+    public <K2, V2> MapEvent<K2, V2> translateLazily(@NotNull Function<K, K2> keyFunction, @NotNull ValueReader<V, V2> valueReader) {
+        return new UpdatedEvent<K2, V2>(assetName, keyFunction.apply(key), LazyValue.of(oldValue(), valueReader),
+                LazyValue.of(getValue(), valueReader), isReplicationEvent, hasValueChanged);
     }
 
     @Override
@@ -87,22 +112,82 @@ public class UpdatedEvent<K, V> extends AbstractMarshallable implements MapEvent
     @Nullable
     @Override
     public V oldValue() {
-        return oldValue;
+        return LazyValue.get(lazyOldValue, oldValue);
     }
 
     @Override
     @Nullable
     public V getValue() {
-        return value;
+        return LazyValue.get(lazyValue, value);
+    }
+
+    @Override
+    public boolean isReplicationEvent() {
+        return isReplicationEvent;
+    }
+
+    public boolean hasValueChanged() {
+        return hasValueChanged;
+    }
+
+    /**
+     * @return the fields of the value which changed from the old value, computed once for all the
+     * subscribers of this event, or null if the value cannot be sent as a delta.
+     */
+    @Nullable
+    public synchronized FieldDelta delta() {
+        if (!deltaComputed) {
+            delta = FieldDelta.diff(oldValue(), getValue());
+            deltaComputed = true;
+        }
+        return delta;
     }
 
     @Override
     public void apply(@NotNull MapEventListener<K, V> listener) {
-        listener.update(assetName, key, oldValue, value);
+        listener.update(assetName, key, oldValue(), getValue());
+    }
+
+    @NotNull
+    @Override
+    public synchronized <E> E encoding(@NotNull Object encoder, @NotNull BiFunction<Object, Object, E> encode) {
+        if (encodings == null)
+            encodings = new Encodings();
+        return encodings.get(this, encoder, encode);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o)
+            return true;
+        if (!(o instanceof UpdatedEvent))
+            return false;
+        @NotNull UpdatedEvent that = (UpdatedEvent) o;
+        return isReplicationEvent == that.isReplicationEvent
+                && hasValueChanged == that.hasValueChanged
+                && Objects.equals(assetName, that.assetName)
+                && Objects.equals(key, that.key)
+                && Objects.equals(oldValue(), that.oldValue())
+                && Objects.equals(getValue(), that.getValue());
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(assetName, key, oldValue(), getValue(), isReplicationEvent, hasValueChanged);
+    }
+
+    @NotNull
+    @Override
+    public String toString() {
+        return lazyOldValue == null && lazyValue == null ? super.toString() : of(assetName, key, oldValue(), getValue(), isReplicationEvent, hasValueChanged).toString();
     }
 
     @Override
     public void readMarshallable(@NotNull WireIn wire) throws IllegalStateException {
+        encodings = null;
+        lazyOldValue = lazyValue = null;
+        delta = null;
+        deltaComputed = false;
         wire.read(MapEventFields.assetName).text(this, (o, s) -> assetName = s);
         wire.read(MapEventFields.key).object(Object.class, this, (o, x) -> o.key = (K) x);
         wire.read(MapEventFields.oldValue).object(Object.class, this, (o, x) -> o.oldValue = (V) x);
@@ -115,8 +200,8 @@ public class UpdatedEvent<K, V> extends AbstractMarshallable implements MapEvent
     public void writeMarshallable(@NotNull WireOut wire) {
         wire.write(MapEventFields.assetName).text(assetName);
         wire.write(MapEventFields.key).object(key);
-        wire.write(MapEventFields.oldValue).object(oldValue);
-        wire.write(MapEventFields.value).object(value);
+        LazyValue.write(wire.write(MapEventFields.oldValue), lazyOldValue, oldValue);
+        LazyValue.write(wire.write(MapEventFields.value), lazyValue, value);
         wire.write(MapEventFields.isReplicationEvent).object(isReplicationEvent);
         wire.write(MapEventFields.hasValueChanged).object(hasValueChanged);
     }
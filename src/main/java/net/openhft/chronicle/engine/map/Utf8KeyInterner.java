@@ -0,0 +1,104 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+
+package net.openhft.chronicle.engine.map;
+
+import net.openhft.chronicle.bytes.BytesStore;
+import net.openhft.chronicle.core.Maths;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Turns the UTF-8 bytes of a key into a String, returning the same String as last time for a key it
+ * has seen, so reading a key which is already in a map creates no garbage. The bytes are hashed and
+ * compared as they are, without decoding them first.
+ * <p>
+ * This is a cache rather than a pool; a key which collides with another replaces it. Keys longer than
+ * {@link #MAX_LENGTH} bytes are decoded each time. It is safe to share between threads.
+ */
+public class Utf8KeyInterner {
+    public static final int MAX_LENGTH = 128;
+
+    @NotNull
+    private final Utf8ToString[] interner;
+    private final int mask;
+
+    public Utf8KeyInterner(int capacity) {
+        int n = Maths.nextPower2(capacity, 128);
+        interner = new Utf8ToString[n];
+        mask = n - 1;
+    }
+
+    static int hash(@NotNull BytesStore utf8, long offset, int length) {
+        long h = length;
+        for (int i = 0; i < length; i++)
+            h = h * 0x9E3779B97F4A7C15L + utf8.readByte(offset + i);
+        h ^= h >>> 29;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    /**
+     * @param utf8 holding the key between its read position and read limit.
+     * @return the key as a String.
+     */
+    @NotNull
+    public String intern(@NotNull BytesStore utf8) {
+        long offset = utf8.readPosition();
+        long remaining = utf8.readRemaining();
+        if (remaining > MAX_LENGTH)
+            return new String(copy(utf8, offset, (int) remaining), StandardCharsets.UTF_8);
+        int length = (int) remaining;
+        int h = hash(utf8, offset, length) & mask;
+        @Nullable Utf8ToString s = interner[h];
+        if (s != null && s.equalsBytes(utf8, offset, length))
+            return s.string;
+        @NotNull byte[] bytes = copy(utf8, offset, length);
+        @NotNull String string = new String(bytes, StandardCharsets.UTF_8);
+        interner[h] = new Utf8ToString(bytes, string);
+        return string;
+    }
+
+    @NotNull
+    private static byte[] copy(@NotNull BytesStore utf8, long offset, int length) {
+        @NotNull byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++)
+            bytes[i] = utf8.readByte(offset + i);
+        return bytes;
+    }
+
+    static class Utf8ToString {
+        final byte[] utf8;
+        final String string;
+
+        Utf8ToString(byte[] utf8, String string) {
+            this.utf8 = utf8;
+            this.string = string;
+        }
+
+        boolean equalsBytes(@NotNull BytesStore bytes, long offset, int length) {
+            if (utf8.length != length)
+                return false;
+            for (int i = 0; i < length; i++)
+                if (utf8[i] != bytes.readByte(offset + i))
+                    return false;
+            return true;
+        }
+    }
+}
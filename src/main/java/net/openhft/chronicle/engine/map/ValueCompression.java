@@ -0,0 +1,37 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package net.openhft.chronicle.engine.map;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * A codec used to compress the stored form of values.
+ * <p>
+ * The id is written with every compressed value, so it must be unique and must not change once
+ * data has been stored.
+ */
+public interface ValueCompression {
+
+    byte id();
+
+    @NotNull
+    byte[] compress(@NotNull byte[] uncompressed);
+
+    @NotNull
+    byte[] decompress(@NotNull byte[] compressed, int offset, int length, int uncompressedLength);
+}
@@ -0,0 +1,268 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package net.openhft.chronicle.engine.map;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * The built in value codecs.
+ */
+public enum ValueCompressions implements ValueCompression {
+    /**
+     * Stored as is, used when compressing doesn't make a value smaller.
+     */
+    NONE(0) {
+        @NotNull
+        @Override
+        public byte[] compress(@NotNull byte[] uncompressed) {
+            return uncompressed;
+        }
+
+        @NotNull
+        @Override
+        public byte[] decompress(@NotNull byte[] compressed, int offset, int length, int uncompressedLength) {
+            return Arrays.copyOfRange(compressed, offset, offset + length);
+        }
+    },
+    /**
+     * The JDK Deflater, slower but smaller.
+     */
+    DEFLATE(1) {
+        @NotNull
+        @Override
+        public byte[] compress(@NotNull byte[] uncompressed) {
+            Deflater deflater = DEFLATERS.get();
+            deflater.reset();
+            deflater.setInput(uncompressed);
+            deflater.finish();
+            byte[] out = new byte[uncompressed.length / 2 + 64];
+            int pos = 0;
+            while (!deflater.finished()) {
+                if (pos == out.length)
+                    out = Arrays.copyOf(out, out.length * 2);
+                pos += deflater.deflate(out, pos, out.length - pos);
+            }
+            return Arrays.copyOf(out, pos);
+        }
+
+        @NotNull
+        @Override
+        public byte[] decompress(@NotNull byte[] compressed, int offset, int length, int uncompressedLength) {
+            Inflater inflater = INFLATERS.get();
+            inflater.reset();
+            inflater.setInput(compressed, offset, length);
+            byte[] out = new byte[uncompressedLength];
+            int pos = 0;
+            try {
+                while (pos < uncompressedLength) {
+                    int n = inflater.inflate(out, pos, uncompressedLength - pos);
+                    if (n == 0 && (inflater.finished() || inflater.needsInput()))
+                        break;
+                    pos += n;
+                }
+            } catch (DataFormatException e) {
+                throw new IllegalStateException(e);
+            }
+            if (pos != uncompressedLength)
+                throw new IllegalStateException("Expected " + uncompressedLength + " bytes but inflated " + pos);
+            return out;
+        }
+    },
+    /**
+     * A byte oriented LZ77 codec using the LZ4 block layout, fast with a moderate ratio.
+     */
+    LZ(2) {
+        @NotNull
+        @Override
+        public byte[] compress(@NotNull byte[] uncompressed) {
+            return lzCompress(uncompressed);
+        }
+
+        @NotNull
+        @Override
+        public byte[] decompress(@NotNull byte[] compressed, int offset, int length, int uncompressedLength) {
+            return lzDecompress(compressed, offset, length, uncompressedLength);
+        }
+    };
+
+    private static final int LZ_HASH_BITS = 12;
+    private static final int LZ_MIN_MATCH = 4;
+    private static final int LZ_MAX_OFFSET = 65535;
+    // as per LZ4, the last match must start 12 bytes before the end and the last 5 bytes are literals
+    private static final int LZ_MATCH_LIMIT = 12;
+    private static final int LZ_LAST_LITERALS = 5;
+    private static final ThreadLocal<Deflater> DEFLATERS = ThreadLocal.withInitial(() -> new Deflater(Deflater.BEST_SPEED));
+    private static final ThreadLocal<Inflater> INFLATERS = ThreadLocal.withInitial(Inflater::new);
+    private static final ThreadLocal<int[]> LZ_TABLES = ThreadLocal.withInitial(() -> new int[1 << LZ_HASH_BITS]);
+
+    private final byte id;
+
+    ValueCompressions(int id) {
+        this.id = (byte) id;
+    }
+
+    /**
+     * @param name as used in the cfg, deflate or lz, or none. Names of other formats, e.g. gzip or lz4, are
+     *             rejected, as neither codec writes them.
+     * @return the codec or null for none.
+     * @throws IllegalArgumentException if the name is not one of these.
+     */
+    @Nullable
+    public static ValueCompression forName(@Nullable String name) {
+        if (name == null)
+            return null;
+        switch (name.trim().toLowerCase()) {
+            case "":
+            case "none":
+            case "false":
+                return null;
+            case "deflate":
+                return DEFLATE;
+            case "lz":
+                return LZ;
+            default:
+                throw new IllegalArgumentException("Unknown compression " + name + ", expected deflate, lz or none");
+        }
+    }
+
+    @Nullable
+    public static ValueCompression forId(byte id) {
+        for (ValueCompressions compression : values())
+            if (compression.id == id)
+                return compression;
+        return null;
+    }
+
+    @NotNull
+    static byte[] lzCompress(@NotNull byte[] src) {
+        int length = src.length;
+        byte[] dst = new byte[length + length / 255 + 16];
+        int[] table = LZ_TABLES.get();
+        Arrays.fill(table, 0);
+        int anchor = 0, sp = 0, dp = 0;
+        int limit = length - LZ_MATCH_LIMIT;
+        while (sp < limit) {
+            int seq = readInt(src, sp);
+            int hash = (seq * -1640531535) >>> (32 - LZ_HASH_BITS);
+            // positions are stored + 1 so zero means empty
+            int ref = table[hash] - 1;
+            table[hash] = sp + 1;
+            if (ref < 0 || sp - ref > LZ_MAX_OFFSET || readInt(src, ref) != seq) {
+                sp++;
+                continue;
+            }
+            int matchLength = LZ_MIN_MATCH;
+            int maxMatch = length - LZ_LAST_LITERALS - sp;
+            while (matchLength < maxMatch && src[ref + matchLength] == src[sp + matchLength])
+                matchLength++;
+
+            int literals = sp - anchor;
+            int matchExtra = matchLength - LZ_MIN_MATCH;
+            dst[dp++] = (byte) ((Math.min(literals, 15) << 4) | Math.min(matchExtra, 15));
+            dp = writeLength(dst, dp, literals);
+            System.arraycopy(src, anchor, dst, dp, literals);
+            dp += literals;
+            int offset = sp - ref;
+            dst[dp++] = (byte) offset;
+            dst[dp++] = (byte) (offset >>> 8);
+            dp = writeLength(dst, dp, matchExtra);
+
+            sp += matchLength;
+            anchor = sp;
+        }
+        int literals = length - anchor;
+        dst[dp++] = (byte) (Math.min(literals, 15) << 4);
+        dp = writeLength(dst, dp, literals);
+        System.arraycopy(src, anchor, dst, dp, literals);
+        dp += literals;
+        return Arrays.copyOf(dst, dp);
+    }
+
+    @NotNull
+    static byte[] lzDecompress(@NotNull byte[] src, int offset, int length, int uncompressedLength) {
+        byte[] dst = new byte[uncompressedLength];
+        int sp = offset, end = offset + length, dp = 0;
+        try {
+            while (true) {
+                int token = src[sp++] & 0xFF;
+                int literals = token >>> 4;
+                if (literals == 15) {
+                    int b;
+                    do {
+                        b = src[sp++] & 0xFF;
+                        literals += b;
+                    } while (b == 255);
+                }
+                System.arraycopy(src, sp, dst, dp, literals);
+                sp += literals;
+                dp += literals;
+                if (sp >= end)
+                    break;
+
+                int matchOffset = (src[sp++] & 0xFF) | ((src[sp++] & 0xFF) << 8);
+                int matchLength = token & 15;
+                if (matchLength == 15) {
+                    int b;
+                    do {
+                        b = src[sp++] & 0xFF;
+                        matchLength += b;
+                    } while (b == 255);
+                }
+                matchLength += LZ_MIN_MATCH;
+                int ref = dp - matchOffset;
+                if (ref < 0)
+                    throw new IllegalStateException("Corrupt LZ block, offset " + matchOffset + " at " + dp);
+                // the match can overlap the bytes being written, so copy one at a time.
+                for (int i = 0; i < matchLength; i++)
+                    dst[dp++] = dst[ref + i];
+            }
+        } catch (IndexOutOfBoundsException e) {
+            throw new IllegalStateException("Corrupt LZ block", e);
+        }
+        if (dp != uncompressedLength)
+            throw new IllegalStateException("Expected " + uncompressedLength + " bytes but decompressed " + dp);
+        return dst;
+    }
+
+    private static int writeLength(byte[] dst, int dp, int length) {
+        if (length < 15)
+            return dp;
+        length -= 15;
+        while (length >= 255) {
+            dst[dp++] = (byte) 255;
+            length -= 255;
+        }
+        dst[dp++] = (byte) length;
+        return dp;
+    }
+
+    private static int readInt(byte[] src, int pos) {
+        return (src[pos] & 0xFF) | (src[pos + 1] & 0xFF) << 8 | (src[pos + 2] & 0xFF) << 16 | src[pos + 3] << 24;
+    }
+
+    @Override
+    public byte id() {
+        return id;
+    }
+}
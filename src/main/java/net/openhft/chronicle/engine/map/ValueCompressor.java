@@ -0,0 +1,128 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package net.openhft.chronicle.engine.map;
+
+import net.openhft.chronicle.bytes.Bytes;
+import net.openhft.chronicle.bytes.BytesStore;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Compresses the stored form of values larger than a threshold.
+ * <p>
+ * A compressed value is stored as a zero byte, the codec id, the stop bit encoded uncompressed length
+ * and then the compressed bytes. Values which are not compressed are stored as is, unless they start
+ * with a zero byte, in which case they are stored with the NONE codec so they can't be mistaken.
+ * As the format describes itself, compressed bytes can be replicated or copied without being
+ * decompressed, and any host can decompress them.
+ */
+public class ValueCompressor {
+    public static final int DEFAULT_THRESHOLD = 1024;
+    private static final byte COMPRESSED = 0;
+
+    @NotNull
+    private final ValueCompression compression;
+    private final int threshold;
+
+    public ValueCompressor(@NotNull ValueCompression compression, int threshold) {
+        this.compression = compression;
+        this.threshold = threshold > 0 ? threshold : DEFAULT_THRESHOLD;
+    }
+
+    public static boolean isCompressed(@Nullable BytesStore stored) {
+        return stored != null
+                && stored.readRemaining() >= 2
+                && stored.readByte(stored.readPosition()) == COMPRESSED;
+    }
+
+    /**
+     * @param stored a value which may or may not be compressed
+     * @param buffer to decompress into
+     * @return the stored value if not compressed, otherwise the buffer.
+     */
+    @Nullable
+    public static BytesStore decompress(@Nullable BytesStore stored, @NotNull Bytes buffer) {
+        if (!isCompressed(stored))
+            return stored;
+
+        Bytes in = stored.bytesForRead();
+        try {
+            in.readSkip(1);
+            byte id = in.readByte();
+            int length = Math.toIntExact(in.readStopBit());
+            ValueCompression compression = ValueCompressions.forId(id);
+            if (compression == null)
+                throw new IllegalStateException("Unknown compression id " + id);
+            byte[] compressed = new byte[(int) in.readRemaining()];
+            in.read(compressed);
+            buffer.clear();
+            buffer.write(compression.decompress(compressed, 0, compressed.length, length));
+            return buffer;
+
+        } finally {
+            in.release();
+        }
+    }
+
+    @NotNull
+    public ValueCompression compression() {
+        return compression;
+    }
+
+    public int threshold() {
+        return threshold;
+    }
+
+    /**
+     * @param value  to store
+     * @param buffer to compress into
+     * @return the value if it is below the threshold or doesn't compress, otherwise the buffer.
+     */
+    @NotNull
+    public BytesStore compress(@NotNull BytesStore value, @NotNull Bytes buffer) {
+        long length = value.readRemaining();
+        boolean mistakable = length >= 2 && value.readByte(value.readPosition()) == COMPRESSED;
+        if (length < threshold && !mistakable)
+            return value;
+
+        byte[] uncompressed = value.toByteArray();
+        byte[] compressed = length < threshold ? uncompressed : compression.compress(uncompressed);
+        ValueCompression used = compression;
+        if (compressed == uncompressed || compressed.length >= uncompressed.length) {
+            if (!mistakable)
+                return value;
+            compressed = uncompressed;
+            used = ValueCompressions.NONE;
+        }
+        buffer.clear();
+        buffer.writeByte(COMPRESSED);
+        buffer.writeByte(used.id());
+        buffer.writeStopBit(uncompressed.length);
+        buffer.write(compressed);
+        return buffer;
+    }
+
+    @NotNull
+    @Override
+    public String toString() {
+        return "ValueCompressor{" +
+                "compression=" + compression +
+                ", threshold=" + threshold +
+                '}';
+    }
+}
@@ -39,9 +39,11 @@ import java.io.Closeable;
 import java.io.IOException;
 import java.util.Iterator;
 import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.BiPredicate;
 import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.function.IntFunction;
+import java.util.function.Supplier;
 
 import static net.openhft.chronicle.engine.map.VanillaEngineReplication.ReplicationData.*;
 
@@ -66,6 +68,10 @@ public class VanillaEngineReplication<K, V, MV, Store extends SubscriptionKeyVal
     private final ChangeApplier<Store> changeApplier;
     private final GetValue<Store> getValue;
     private final SegmentForKey<Store> segmentForKey;
+    @Nullable
+    private final MergeValues mergeValues;
+    @Nullable
+    private final ReplaceValue<Store> replaceValue;
     private final AtomicReferenceArray<VanillaModificationIterator>
             modificationIterators = new AtomicReferenceArray<>(127 + RESERVED_MOD_ITER);
     private final DirectBitSet modificationIteratorsRequiringSettingBootstrapTimestamp =
@@ -83,6 +89,29 @@ public class VanillaEngineReplication<K, V, MV, Store extends SubscriptionKeyVal
             @NotNull Store store, ChangeApplier<Store> changeApplier, GetValue<Store> getValue,
             SegmentForKey<Store> segmentForKey,
             @NotNull Function<K, BytesStore> keyToBytesStore) {
+        this(obtainKeyReplicationDataBySegment, modIterState, identifier, store, changeApplier,
+                getValue, segmentForKey, keyToBytesStore, null, null);
+    }
+
+    /**
+     * @param mergeValues  to merge a remote value with the local one instead of keeping the latest,
+     *                     or null for last write wins.
+     * @param replaceValue to write a merged value only if the local one has not changed since it was
+     *                     read, required with mergeValues.
+     */
+    public VanillaEngineReplication(
+            @NotNull IntFunction<KeyValueStore<BytesStore, ReplicationData>>
+                    obtainKeyReplicationDataBySegment,
+            @NotNull KeyValueStore<IntValue, RemoteNodeReplicationState>
+                    modIterState,
+            byte identifier,
+            @NotNull Store store, ChangeApplier<Store> changeApplier, GetValue<Store> getValue,
+            SegmentForKey<Store> segmentForKey,
+            @NotNull Function<K, BytesStore> keyToBytesStore,
+            @Nullable MergeValues mergeValues,
+            @Nullable ReplaceValue<Store> replaceValue) {
+        if (mergeValues != null && replaceValue == null)
+            throw new IllegalArgumentException("Merging values requires a ReplaceValue");
 
         int segments = store.segments();
         this.keyReplicationData = new KeyValueStore[segments];
@@ -98,6 +127,8 @@ public class VanillaEngineReplication<K, V, MV, Store extends SubscriptionKeyVal
         this.changeApplier = changeApplier;
         this.getValue = getValue;
         this.segmentForKey = segmentForKey;
+        this.mergeValues = mergeValues;
+        this.replaceValue = replaceValue;
 
         eventListener = new MapEventListener<K, MV>() {
 
@@ -246,6 +277,9 @@ public class VanillaEngineReplication<K, V, MV, Store extends SubscriptionKeyVal
 
     @Override
     public void applyReplication(@NotNull ReplicationEntry replicatedEntry) {
+        if (mergeValues != null && applyMerged(replicatedEntry))
+            return;
+
         Instances i = threadLocalInstances.get();
         @Nullable BytesStore key = replicatedEntry.key();
         while (true) {
@@ -274,6 +308,28 @@ public class VanillaEngineReplication<K, V, MV, Store extends SubscriptionKeyVal
         }
     }
 
+    /**
+     * Merges a remote value into the local one. A merge which changes the local value is recorded as a
+     * local change so it is sent on to every host, including the one it came from, and the hosts stop
+     * exchanging it once a merge no longer changes anything. The merged value is only written if the
+     * local one is unchanged, otherwise the merge is repeated, so a local write is never overwritten.
+     *
+     * @return false if the entry should be resolved by last write wins instead.
+     */
+    private boolean applyMerged(@NotNull ReplicationEntry replicatedEntry) {
+        @Nullable BytesStore key = replicatedEntry.key();
+        @Nullable BytesStore remote = replicatedEntry.value();
+        if (key == null || remote == null || replicatedEntry.isDeleted())
+            return false;
+        assert mergeValues != null && replaceValue != null;
+        return mergeValues.mergeInto(remote, () -> getValue.getValue(store, key), (expected, merged) -> {
+            if (!replaceValue.replaceValue(store, key, expected, merged))
+                return false;
+            onPut(key, System.currentTimeMillis());
+            return true;
+        });
+    }
+
     @Override
     public ModificationIterator acquireModificationIterator(byte id) {
         int remoteIdentifier = idToInt(id);
@@ -390,6 +446,47 @@ public class VanillaEngineReplication<K, V, MV, Store extends SubscriptionKeyVal
         int segmentForKey(Store store, BytesStore key);
     }
 
+    @FunctionalInterface
+    public interface ReplaceValue<Store> {
+        /**
+         * @return true if the value of the key was {@code expected} and has been replaced, atomically with
+         * local writes of it.
+         */
+        boolean replaceValue(Store store, BytesStore key, @NotNull BytesStore expected, @NotNull BytesStore newValue);
+    }
+
+    @FunctionalInterface
+    public interface MergeValues {
+        /**
+         * @return the merged value, {@code local} if merging changes nothing, or null if these values
+         * can't be merged.
+         */
+        @Nullable
+        BytesStore merge(@NotNull BytesStore local, @NotNull BytesStore remote);
+
+        /**
+         * Merges a remote value into the local one by compare and set, so a local write made meanwhile
+         * is merged with again rather than overwritten.
+         *
+         * @param local          reads the current local value, or null if there is none
+         * @param replaceIfEqual replaces the local value if it is still the one read, copying the new one
+         * @return false if there is no local value or it can't be merged, so last write wins instead.
+         */
+        default boolean mergeInto(@NotNull BytesStore remote, @NotNull Supplier<BytesStore> local,
+                                  @NotNull BiPredicate<BytesStore, BytesStore> replaceIfEqual) {
+            while (true) {
+                @Nullable BytesStore current = local.get();
+                if (current == null)
+                    return false;
+                @Nullable BytesStore merged = merge(current, remote);
+                if (merged == null)
+                    return false;
+                if (merged == current || replaceIfEqual.test(current, merged))
+                    return true;
+            }
+        }
+    }
+
     public interface ReplicationData extends Marshallable {
         static void dropChange(@NotNull ReplicationData replicationData) {
             for (int i = 0; i < DIRTY_WORD_COUNT; i++) {
@@ -19,7 +19,9 @@ package net.openhft.chronicle.engine.map;
 
 import net.openhft.chronicle.bytes.BytesUtil;
 import net.openhft.chronicle.engine.api.map.KeyValueStore;
+import net.openhft.chronicle.engine.api.map.KeyValueStore.EntriesSnapshot;
 import net.openhft.chronicle.engine.api.map.MapView;
+import net.openhft.chronicle.engine.api.pubsub.InvalidSubscriberException;
 import net.openhft.chronicle.engine.api.set.EntrySetView;
 import net.openhft.chronicle.engine.api.tree.Asset;
 import net.openhft.chronicle.engine.api.tree.AssetNotFoundException;
@@ -31,6 +33,7 @@ import java.util.AbstractCollection;
 import java.util.Iterator;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.function.Consumer;
 
 /*
  * Created by Peter Lawrey on 22/05/15.
@@ -51,6 +54,19 @@ public class VanillaEntrySetView<K, MV, V> extends AbstractCollection<Entry<K, V
         return ((KeyValueStore<K, V>) mapView.underlying()).entrySetIterator();
     }
 
+    /**
+     * Passes the entries as at one point in time, e.g. so a copy sent to a client is not torn by writes.
+     */
+    @Override
+    public void forEach(@NotNull Consumer<? super Entry<K, V>> action) {
+        try (@NotNull EntriesSnapshot<K, V> snapshot = ((KeyValueStore<K, V>) mapView.underlying()).snapshot()) {
+            snapshot.entriesFor(action::accept);
+
+        } catch (InvalidSubscriberException e) {
+            throw new AssertionError(e);
+        }
+    }
+
     @Override
     public int size() {
         return mapView.size();
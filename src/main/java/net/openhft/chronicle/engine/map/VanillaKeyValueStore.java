@@ -19,6 +19,7 @@ package net.openhft.chronicle.engine.map;
 
 import net.openhft.chronicle.engine.api.EngineReplication.ReplicationEntry;
 import net.openhft.chronicle.engine.api.map.KeyValueStore;
+import net.openhft.chronicle.engine.api.map.KeyValueStore.EntriesSnapshot;
 import net.openhft.chronicle.engine.api.map.MapEvent;
 import net.openhft.chronicle.engine.api.pubsub.InvalidSubscriberException;
 import net.openhft.chronicle.engine.api.pubsub.SubscriptionConsumer;
@@ -27,6 +28,8 @@ import net.openhft.chronicle.engine.api.tree.RequestContext;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
@@ -38,12 +41,16 @@ import java.util.concurrent.ConcurrentMap;
 public class VanillaKeyValueStore<K, V> implements AuthenticatedKeyValueStore<K, V> {
     private final ConcurrentMap<K, V> map = new ConcurrentHashMap<>();
     private final Asset asset;
+    @Nullable
+    private final MapJournal<K, V> journal;
+    private final SnapshotLog<K, V> snapshots = new SnapshotLog<>();
     //private final RawKVSSubscription<K, Object, V> subscriptions;
 
     public VanillaKeyValueStore(RequestContext context, Asset asset) {
 
         //this(asset);
         this.asset = asset;
+        this.journal = null;
         //this.subscriptions = asset.acquireView(RawKVSSubscription.class, context);
         //subscriptions.setKvStore(this);
     }
@@ -54,14 +61,72 @@ public class VanillaKeyValueStore<K, V> implements AuthenticatedKeyValueStore<K,
 
     }
 
+    /**
+     * A store which recovers its entries from the journal, and journals every mutation from then on.
+     */
+    public VanillaKeyValueStore(Asset asset, @NotNull MapJournal<K, V> journal) {
+        this.asset = asset;
+        this.journal = journal;
+        try {
+            journal.open(map);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to recover " + asset.fullName(), e);
+        }
+    }
+
+    @Nullable
+    public MapJournal<K, V> journal() {
+        return journal;
+    }
+
+    @Nullable
+    private V loggedPut(K key, V value) {
+        if (journal == null && !snapshots.isActive())
+            return map.put(key, value);
+        return journal == null ? computePut(key, value) : journal.journalled(() -> computePut(key, value));
+    }
+
+    @Nullable
+    private V computePut(K key, V value) {
+        @NotNull Object[] oldValue = {null};
+        map.compute(key, (k, v) -> {
+            snapshots.beforeWrite(k, v);
+            if (journal != null)
+                journal.put(k, value);
+            oldValue[0] = v;
+            return value;
+        });
+        return (V) oldValue[0];
+    }
+
+    @Nullable
+    private V loggedRemove(K key) {
+        if (journal == null && !snapshots.isActive())
+            return map.remove(key);
+        return journal == null ? computeRemove(key) : journal.journalled(() -> computeRemove(key));
+    }
+
+    @Nullable
+    private V computeRemove(K key) {
+        @NotNull Object[] oldValue = {null};
+        map.computeIfPresent(key, (k, v) -> {
+            snapshots.beforeWrite(k, v);
+            if (journal != null)
+                journal.remove(k);
+            oldValue[0] = v;
+            return null;
+        });
+        return (V) oldValue[0];
+    }
+
     @Override
     public boolean put(K key, V value) {
-        return map.put(key, value) != null;
+        return loggedPut(key, value) != null;
     }
 
     @Override
     public V getAndPut(K key, V value) {
-        V oldValue = map.put(key, value);
+        V oldValue = loggedPut(key, value);
 //        subscriptions.notifyEvent(oldValue == null
 //                ? InsertedEvent.of(asset.fullName(), key, value)
 //                : UpdatedEvent.of(asset.fullName(), key, oldValue, value));
@@ -70,12 +135,12 @@ public class VanillaKeyValueStore<K, V> implements AuthenticatedKeyValueStore<K,
 
     @Override
     public boolean remove(K key) {
-        return map.remove(key) != null;
+        return loggedRemove(key) != null;
     }
 
     @Override
     public V getAndRemove(K key) {
-        V oldValue = map.remove(key);
+        V oldValue = loggedRemove(key);
 //        if (oldValue != null)
 //            subscriptions.notifyEvent(RemovedEvent.of(asset.fullName(), key, oldValue));
         return oldValue;
@@ -98,7 +163,21 @@ public class VanillaKeyValueStore<K, V> implements AuthenticatedKeyValueStore<K,
 
     @Override
     public void entriesFor(int segment, @NotNull SubscriptionConsumer<MapEvent<K, V>> kvConsumer) throws InvalidSubscriberException {
-        SubscriptionConsumer.notifyEachEvent(map.entrySet(), e -> kvConsumer.accept(InsertedEvent.of(asset.fullName(), e.getKey(), e.getValue(), false)));
+        try (@NotNull EntriesSnapshot<K, V> snapshot = snapshot()) {
+            snapshot.entriesFor(kvConsumer);
+        }
+    }
+
+    /**
+     * Opened while no writer is inside the subscription's write gate, as a write which found no snapshot
+     * open puts without saving the old value.
+     */
+    @NotNull
+    @Override
+    public EntriesSnapshot<K, V> snapshot() {
+        @Nullable ObjectSubscription<K, V> subscription = asset == null ? null : asset.getView(ObjectSubscription.class);
+        @NotNull WriteGate writeGate = subscription == null ? WriteGate.NONE : subscription.writeGate();
+        return writeGate.exclusive(() -> snapshots.open(() -> map.entrySet().iterator(), asset.fullName()));
     }
 
     @NotNull
@@ -117,7 +196,7 @@ public class VanillaKeyValueStore<K, V> implements AuthenticatedKeyValueStore<K,
     public void clear() {
         try {
             for (int i = 0, segs = segments(); i < segs; i++)
-                keysFor(i, map::remove);
+                keysFor(i, this::loggedRemove);
 
         } catch (InvalidSubscriberException e) {
             throw new AssertionError(e);
@@ -142,7 +221,8 @@ public class VanillaKeyValueStore<K, V> implements AuthenticatedKeyValueStore<K,
 
     @Override
     public void close() {
-
+        if (journal != null)
+            journal.close();
     }
 
     @NotNull
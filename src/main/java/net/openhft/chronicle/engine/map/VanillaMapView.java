@@ -18,9 +18,13 @@
 package net.openhft.chronicle.engine.map;
 
 import net.openhft.chronicle.bytes.BytesUtil;
+import net.openhft.chronicle.core.util.SerializableBiFunction;
+import net.openhft.chronicle.core.util.SerializableFunction;
+import net.openhft.chronicle.engine.api.map.KeyRange;
 import net.openhft.chronicle.engine.api.map.KeyValueStore;
 import net.openhft.chronicle.engine.api.map.MapEvent;
 import net.openhft.chronicle.engine.api.map.MapView;
+import net.openhft.chronicle.engine.api.map.NavigableKeyValueStore;
 import net.openhft.chronicle.engine.api.pubsub.InvalidSubscriberException;
 import net.openhft.chronicle.engine.api.pubsub.Reference;
 import net.openhft.chronicle.engine.api.pubsub.Subscriber;
@@ -35,6 +39,7 @@ import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.util.*;
+import java.util.concurrent.TimeUnit;
 
 import static java.util.EnumSet.of;
 import static net.openhft.chronicle.engine.api.tree.RequestContext.Operation.BOOTSTRAP;
@@ -52,6 +57,10 @@ public class VanillaMapView<K, V> implements MapView<K, V> {
     @NotNull
     private final KeyValueStore<K, V> kvStore;
     private AbstractCollection<V> values;
+    @Nullable
+    private volatile EntryExpiry<K> expiry;
+    @Nullable
+    private final KeyedUpdateExecutor<K, V> updater;
 
     public VanillaMapView(@NotNull RequestContext context,
                           @NotNull Asset asset,
@@ -63,6 +72,41 @@ public class VanillaMapView<K, V> implements MapView<K, V> {
         this.kvStore = kvStore;
         this.putReturnsNull = context.putReturnsNull() != Boolean.FALSE;
         this.removeReturnsNull = context.removeReturnsNull() != Boolean.FALSE;
+        @Nullable EntryExpiry<K> expiry = asset.getView(EntryExpiry.class);
+        if (expiry == null && context.defaultTtlMs() > 0)
+            expiry = asset.addView(EntryExpiry.class, new EntryExpiry<>(asset, context.defaultTtlMs()));
+        this.expiry = expiry;
+        @Nullable KeyedUpdateExecutor<K, V> updater = asset.getView(KeyedUpdateExecutor.class);
+        if (updater == null && context.updateThreads() > 0)
+            updater = asset.addView(KeyedUpdateExecutor.class,
+                    new KeyedUpdateExecutor<>(this, asset.fullName(), context.updateThreads()));
+        this.updater = updater;
+    }
+
+    @NotNull
+    private EntryExpiry<K> acquireExpiry() {
+        @Nullable EntryExpiry<K> expiry = this.expiry;
+        if (expiry == null) {
+            synchronized (asset) {
+                expiry = asset.getView(EntryExpiry.class);
+                if (expiry == null)
+                    expiry = asset.addView(EntryExpiry.class, new EntryExpiry<>(asset, 0));
+                this.expiry = expiry;
+            }
+        }
+        return expiry;
+    }
+
+    private void onPut(K key) {
+        @Nullable EntryExpiry<K> expiry = this.expiry;
+        if (expiry != null)
+            expiry.onPut(key);
+    }
+
+    private void onRemove(K key) {
+        @Nullable EntryExpiry<K> expiry = this.expiry;
+        if (expiry != null)
+            expiry.onRemove(key);
     }
 
     @Override
@@ -203,11 +247,60 @@ public class VanillaMapView<K, V> implements MapView<K, V> {
         checkValue(value);
         if (putReturnsNull) {
             kvStore.put(key, value);
+            onPut(key);
             return null;
 
         } else {
-            return kvStore.getAndPut(key, value);
+            @Nullable V oldValue = kvStore.getAndPut(key, value);
+            onPut(key);
+            return oldValue;
+        }
+    }
+
+    @Override
+    public void put(K key, V value, long ttl, @NotNull TimeUnit unit) {
+        checkKey(key);
+        checkValue(value);
+        kvStore.put(key, value);
+        acquireExpiry().expireAfter(key, unit.toMillis(ttl));
+    }
+
+    @NotNull
+    @Override
+    public SortedMap<K, V> subMap(@NotNull KeyRange<K> range) {
+        @NotNull SortedMap<K, V> result = new TreeMap<>();
+        @Nullable NavigableKeyValueStore<K, V> navigable = NavigableKeyValueStore.find(kvStore);
+        @NotNull Iterator<Map.Entry<K, V>> entries = navigable == null
+                ? kvStore.entrySetIterator()
+                : navigable.entrySetIterator(range, false);
+        while (entries.hasNext()) {
+            @NotNull Map.Entry<K, V> entry = entries.next();
+            if (navigable != null || range.contains(entry.getKey()))
+                result.put(entry.getKey(), entry.getValue());
         }
+        return result;
+    }
+
+    @Override
+    public boolean addIndex(@NotNull String name, @NotNull SerializableFunction<V, ?> extractor) {
+        @Nullable SecondaryIndexes<K, V> indexes = asset.getView(SecondaryIndexes.class);
+        if (indexes == null) {
+            synchronized (asset) {
+                indexes = asset.getView(SecondaryIndexes.class);
+                if (indexes == null)
+                    indexes = asset.addView(SecondaryIndexes.class, new SecondaryIndexes<>(this));
+            }
+        }
+        return indexes.addIndex(name, extractor);
+    }
+
+    @NotNull
+    @Override
+    public Set<K> keysWhere(@NotNull String index, @NotNull Object value) {
+        @Nullable SecondaryIndexes<K, V> indexes = asset.getView(SecondaryIndexes.class);
+        if (indexes == null)
+            throw new IllegalArgumentException("No index " + index + " on " + asset.fullName());
+        return indexes.keysWhere(index, value);
     }
 
     @Override
@@ -215,6 +308,45 @@ public class VanillaMapView<K, V> implements MapView<K, V> {
         checkKey(key);
         checkValue(value);
         kvStore.put(key, value);
+        onPut(key);
+    }
+
+    @Override
+    public void asyncUpdateKey(K key, @NotNull SerializableFunction<V, V> updateFunction) {
+        if (updater == null) {
+            MapView.super.asyncUpdateKey(key, updateFunction);
+            return;
+        }
+        checkKey(key);
+        updater.asyncUpdate(key, (v, $) -> updateFunction.apply(v), null);
+    }
+
+    @Override
+    public <T> void asyncUpdateKey(K key, @NotNull SerializableBiFunction<V, T, V> updateFunction, T argument) {
+        if (updater == null) {
+            MapView.super.asyncUpdateKey(key, updateFunction, argument);
+            return;
+        }
+        checkKey(key);
+        updater.asyncUpdate(key, updateFunction, argument);
+    }
+
+    @Override
+    public <R> R syncUpdateKey(K key, @NotNull SerializableFunction<V, V> updateFunction,
+                               @NotNull SerializableFunction<V, R> returnFunction) {
+        if (updater == null)
+            return MapView.super.syncUpdateKey(key, updateFunction, returnFunction);
+        checkKey(key);
+        return updater.syncUpdate(key, (v, $) -> updateFunction.apply(v), null, (v, $) -> returnFunction.apply(v), null);
+    }
+
+    @Override
+    public <T, RT, R> R syncUpdateKey(K key, @NotNull SerializableBiFunction<V, T, V> updateFunction, @Nullable T updateArgument,
+                                      @NotNull SerializableBiFunction<V, RT, R> returnFunction, @Nullable RT returnArgument) {
+        if (updater == null)
+            return MapView.super.syncUpdateKey(key, updateFunction, updateArgument, returnFunction, returnArgument);
+        checkKey(key);
+        return updater.syncUpdate(key, updateFunction, updateArgument, returnFunction, returnArgument);
     }
 
     @Nullable
@@ -225,6 +357,7 @@ public class VanillaMapView<K, V> implements MapView<K, V> {
             return null;
         }
         @NotNull K key2 = (K) key;
+        onRemove(key2);
         if (removeReturnsNull) {
             kvStore.remove(key2);
             return null;
@@ -237,8 +370,12 @@ public class VanillaMapView<K, V> implements MapView<K, V> {
     @Override
     public void putAll(@net.openhft.chronicle.core.annotation.NotNull Map<? extends K, ? extends V> m) {
         for (@NotNull Entry<? extends K, ? extends V> entry : m.entrySet()) {
-            put(entry.getKey(), entry.getValue());
+            checkKey(entry.getKey());
+            checkValue(entry.getValue());
         }
+        kvStore.putAll(m);
+        if (expiry != null)
+            m.keySet().forEach(this::onPut);
     }
 
     @Override
@@ -249,12 +386,15 @@ public class VanillaMapView<K, V> implements MapView<K, V> {
     @Nullable
     @Override
     public V getAndPut(K key, V value) {
-        return kvStore.getAndPut(key, value);
+        @Nullable V oldValue = kvStore.getAndPut(key, value);
+        onPut(key);
+        return oldValue;
     }
 
     @Nullable
     @Override
     public V getAndRemove(K key) {
+        onRemove(key);
         return kvStore.getAndRemove(key);
     }
 
@@ -268,6 +408,13 @@ public class VanillaMapView<K, V> implements MapView<K, V> {
     @Override
     public void clear() {
         kvStore.clear();
+        @Nullable EntryExpiry<K> expiry = this.expiry;
+        if (expiry != null)
+            expiry.onClear();
+        // a clear doesn't publish a RemovedEvent per entry.
+        @Nullable SecondaryIndexes<K, V> indexes = asset.getView(SecondaryIndexes.class);
+        if (indexes != null)
+            indexes.onClear();
     }
 
     @Nullable
@@ -275,14 +422,20 @@ public class VanillaMapView<K, V> implements MapView<K, V> {
     public V putIfAbsent(@net.openhft.chronicle.core.annotation.NotNull K key, V value) {
         checkKey(key);
         checkValue(value);
-        return kvStore.putIfAbsent(key, value);
+        @Nullable V oldValue = kvStore.putIfAbsent(key, value);
+        if (oldValue == null)
+            onPut(key);
+        return oldValue;
     }
 
     @Override
     public boolean remove(@net.openhft.chronicle.core.annotation.NotNull Object key, Object value) {
         checkKey(key);
         checkValue(value);
-        return kvStore.isKeyType(key) && kvStore.removeIfEqual((K) key, (V) value);
+        if (!kvStore.isKeyType(key) || !kvStore.removeIfEqual((K) key, (V) value))
+            return false;
+        onRemove((K) key);
+        return true;
     }
 
     @Override
@@ -292,7 +445,10 @@ public class VanillaMapView<K, V> implements MapView<K, V> {
         checkKey(key);
         checkValue(oldValue);
         checkValue(newValue);
-        return kvStore.replaceIfEqual(key, oldValue, newValue);
+        if (!kvStore.replaceIfEqual(key, oldValue, newValue))
+            return false;
+        onPut(key);
+        return true;
     }
 
     @Nullable
@@ -301,7 +457,10 @@ public class VanillaMapView<K, V> implements MapView<K, V> {
                      @net.openhft.chronicle.core.annotation.NotNull V value) {
         checkKey(key);
         checkValue(value);
-        return kvStore.replace(key, value);
+        @Nullable V oldValue = kvStore.replace(key, value);
+        if (oldValue != null)
+            onPut(key);
+        return oldValue;
     }
 
     @Override
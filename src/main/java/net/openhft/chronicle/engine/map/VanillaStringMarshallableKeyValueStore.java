@@ -27,16 +27,21 @@ import net.openhft.chronicle.engine.api.pubsub.SubscriptionConsumer;
 import net.openhft.chronicle.engine.api.tree.Asset;
 import net.openhft.chronicle.engine.api.tree.AssetNotFoundException;
 import net.openhft.chronicle.engine.api.tree.RequestContext;
+import net.openhft.chronicle.wire.BinaryWire;
 import net.openhft.chronicle.wire.Marshallable;
+import net.openhft.chronicle.wire.ValueOut;
 import net.openhft.chronicle.wire.Wire;
+import net.openhft.chronicle.wire.WireType;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
-import java.util.AbstractMap.SimpleEntry;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.function.BiConsumer;
 import java.util.function.BiFunction;
 import java.util.function.Function;
 
@@ -59,6 +64,8 @@ public class VanillaStringMarshallableKeyValueStore<V extends Marshallable> impl
     private final Asset asset;
     @NotNull
     private final Class<V> valueType;
+    @Nullable
+    private final ValueCompressor compressor;
 
     public VanillaStringMarshallableKeyValueStore(@NotNull RequestContext context, @NotNull Asset asset,
                                                   @NotNull SubscriptionKeyValueStore<String, BytesStore> kvStore) throws AssetNotFoundException {
@@ -72,16 +79,33 @@ public class VanillaStringMarshallableKeyValueStore<V extends Marshallable> impl
                                            @NotNull Function<Bytes, Wire> wireType) {
         this.asset = asset;
         this.valueType = valueType;
+        this.compressor = asset.findView(ValueCompressor.class);
         valueToBytes = toBytes(valueType, wireType);
         bytesToValue = fromBytes(valueType, wireType);
         this.kvStore = kvStore;
-        @NotNull ValueReader<BytesStore, V> valueReader = bs -> bytesToValue.apply(bs, null);
+        @NotNull ValueReader<BytesStore, V> valueReader = new MarshallableValueReader(wireType == WireType.BINARY);
         asset.registerView(ValueReader.class, valueReader);
         @NotNull RawKVSSubscription<String, BytesStore> rawSubscription =
                 (RawKVSSubscription<String, BytesStore>) kvStore.subscription(true);
         this.subscriptions = subscriptions;
-        rawSubscription.registerDownstream(mpe ->
-                subscriptions.notifyEvent(mpe.translate(s -> s, b -> bytesToValue.apply(b, null))));
+        // values are only decoded if a subscriber reads them, remote subscribers copy the bytes as is.
+        rawSubscription.registerDownstream(new EventConsumer<String, BytesStore>() {
+            @Override
+            public void notifyEvent(@NotNull MapEvent<String, BytesStore> mpe) {
+                if (subscriptions.hasSubscribers())
+                    subscriptions.notifyEvent(mpe.translateLazily(s -> s, valueReader));
+            }
+
+            @Override
+            public void notifyEvents(@NotNull List<MapEvent<String, BytesStore>> mpes) {
+                if (!subscriptions.hasSubscribers())
+                    return;
+                @NotNull List<MapEvent<String, V>> events = new ArrayList<>(mpes.size());
+                for (@NotNull MapEvent<String, BytesStore> mpe : mpes)
+                    events.add(mpe.translateLazily(s -> s, valueReader));
+                subscriptions.notifyEvents(events);
+            }
+        });
     }
 
     static <T> BiFunction<T, Bytes, Bytes> toBytes(@NotNull Class type, @NotNull Function<Bytes, Wire> wireType) {
@@ -111,6 +135,9 @@ public class VanillaStringMarshallableKeyValueStore<V extends Marshallable> impl
                 if (bytes == null)
                     return null;
 
+                // only a map which compresses its values decodes them, as a plain one may start with any byte.
+                if (compressor != null)
+                    bytes = ValueCompressor.decompress(bytes, BUFFERS.get().decompressBuffer);
                 t = acquireInstance(type, t);
                 ((Marshallable) t).readMarshallable(wireType.apply(bytes.bytesForRead()));
                 return t;
@@ -118,6 +145,11 @@ public class VanillaStringMarshallableKeyValueStore<V extends Marshallable> impl
         throw new UnsupportedOperationException("todo");
     }
 
+    @NotNull
+    private BytesStore compress(@NotNull Bytes valueBytes, @NotNull Buffers b) {
+        return compressor == null ? valueBytes : compressor.compress(valueBytes, b.compressBuffer);
+    }
+
     @NotNull
     @Override
     public ObjectSubscription<String, V> subscription(boolean createIfAbsent) {
@@ -128,17 +160,42 @@ public class VanillaStringMarshallableKeyValueStore<V extends Marshallable> impl
     public boolean put(String key, V value) {
         Buffers b = BUFFERS.get();
         Bytes valueBytes = valueToBytes.apply(value, b.valueBuffer);
-        return kvStore.put(key, valueBytes);
+        return kvStore.put(key, compress(valueBytes, b));
     }
 
     @Override
     public V getAndPut(String key, V value) {
         Buffers b = BUFFERS.get();
         Bytes valueBytes = valueToBytes.apply(value, b.valueBuffer);
-        @Nullable BytesStore retBytes = kvStore.getAndPut(key, valueBytes);
+        @Nullable BytesStore retBytes = kvStore.getAndPut(key, compress(valueBytes, b));
         return retBytes == null ? null : bytesToValue.apply(retBytes, null);
     }
 
+    @Override
+    public void putAll(@NotNull Map<? extends String, ? extends V> entries, @Nullable BiConsumer<? super String, ? super V> previous) {
+        Buffers b = BUFFERS.get();
+        @NotNull Map<String, BytesStore> encoded = new LinkedHashMap<>();
+        for (@NotNull Map.Entry<? extends String, ? extends V> entry : entries.entrySet()) {
+            b.valueBuffer.clear();
+            Bytes valueBytes = valueToBytes.apply(entry.getValue(), b.valueBuffer);
+            // the buffers are reused for every value, so each is copied.
+            encoded.put(entry.getKey(), BytesStore.wrap(compress(valueBytes, b).toByteArray()));
+        }
+        kvStore.putAll(encoded, previous == null ? null
+                : (key, bs) -> previous.accept(key, bs == null ? null : bytesToValue.apply(bs, null)));
+    }
+
+    @Override
+    public void getAll(@NotNull Collection<? extends String> keys, @NotNull BiConsumer<? super String, ? super V> found) {
+        kvStore.getAll(keys, (key, bs) -> found.accept(key, bytesToValue.apply(bs, null)));
+    }
+
+    @Override
+    public int removeAll(@NotNull Collection<? extends String> keys, @Nullable BiConsumer<? super String, ? super V> removed) {
+        return kvStore.removeAll(keys, removed == null ? null
+                : (key, bs) -> removed.accept(key, bytesToValue.apply(bs, null)));
+    }
+
     @Override
     public boolean remove(String key) {
         return kvStore.remove(key);
@@ -173,32 +230,50 @@ public class VanillaStringMarshallableKeyValueStore<V extends Marshallable> impl
                 InsertedEvent.of(asset.fullName(), e.getKey(), bytesToValue.apply(e.getValue(), null), false)));
     }
 
+    @NotNull
+    @Override
+    public EntriesSnapshot<String, V> snapshot() {
+        @NotNull EntriesSnapshot<String, BytesStore> snapshot = kvStore.snapshot();
+        return new EntriesSnapshot<String, V>() {
+            @Override
+            public void entriesFor(@NotNull SubscriptionConsumer<MapEvent<String, V>> kvConsumer) throws InvalidSubscriberException {
+                snapshot.entriesFor(e -> kvConsumer.accept(
+                        InsertedEvent.of(asset.fullName(), e.getKey(), bytesToValue.apply(e.getValue(), null), false)));
+            }
+
+            @Override
+            public void close() {
+                snapshot.close();
+            }
+        };
+    }
+
+    @Override
+    public int segments() {
+        return kvStore.segments();
+    }
+
+    @Override
+    public int segmentFor(String key) {
+        return kvStore.segmentFor(key);
+    }
+
     @NotNull
     @Override
     public Iterator<Map.Entry<String, V>> entrySetIterator() {
-        // todo optimise
-        @NotNull List<Map.Entry<String, V>> entries = new ArrayList<>();
-        try {
-            for (int i = 0, seg = segments(); i < seg; i++)
-                entriesFor(i, e -> entries.add(new SimpleEntry<>(e.getKey(), e.getValue())));
-        } catch (InvalidSubscriberException e) {
-            throw new AssertionError(e);
-        }
-        return entries.iterator();
+        return entrySetIterator(null);
+    }
+
+    @NotNull
+    @Override
+    public Iterator<Map.Entry<String, V>> entrySetIterator(@Nullable V using) {
+        return new DecodingEntryIterator<>(kvStore.entrySetIterator(), bytesToValue, using);
     }
 
     @NotNull
     @Override
     public Iterator<String> keySetIterator() {
-        // todo optimise
-        @NotNull List<String> entries = new ArrayList<>();
-        try {
-            for (int i = 0, seg = segments(); i < seg; i++)
-                keysFor(i, entries::add);
-        } catch (InvalidSubscriberException e) {
-            throw new AssertionError(e);
-        }
-        return entries.iterator();
+        return kvStore.keySetIterator();
     }
 
     @Override
@@ -243,4 +318,28 @@ public class VanillaStringMarshallableKeyValueStore<V extends Marshallable> impl
     public void accept(final ReplicationEntry replicationEntry) {
         throw new UnsupportedOperationException("todo");
     }
+
+    private class MarshallableValueReader implements ValueReader<BytesStore, V> {
+        private final boolean binary;
+
+        MarshallableValueReader(boolean binary) {
+            this.binary = binary;
+        }
+
+        @Nullable
+        @Override
+        public V apply(@Nullable BytesStore bs) {
+            return bytesToValue.apply(bs, null);
+        }
+
+        @Override
+        public boolean writeEncoded(@NotNull BytesStore encoded, @NotNull ValueOut out) {
+            // the stored form is the body of the marshallable, which can only be copied to the same wire type
+            if (!binary || (compressor != null && ValueCompressor.isCompressed(encoded))
+                    || !(out.wireOut() instanceof BinaryWire))
+                return false;
+            out.typePrefix(valueType).marshallable(w -> w.bytes().write(encoded));
+            return true;
+        }
+    }
 }
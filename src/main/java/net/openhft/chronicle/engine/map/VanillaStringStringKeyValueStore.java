@@ -31,9 +31,12 @@ import org.jetbrains.annotations.Nullable;
 
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.function.BiConsumer;
 import java.util.function.Function;
 
 import static net.openhft.chronicle.engine.map.Buffers.BUFFERS;
@@ -49,6 +52,11 @@ public class VanillaStringStringKeyValueStore implements StringStringKeyValueSto
     private final SubscriptionKeyValueStore<String, BytesStore> kvStore;
     @NotNull
     private final Asset asset;
+    @Nullable
+    private final ValueCompressor compressor;
+    // values are only decompressed if this map compresses them, as a plain value may start with any byte.
+    @NotNull
+    private final BytesStoreToString bytesStoreToString;
 
     public VanillaStringStringKeyValueStore(RequestContext context, @NotNull Asset asset,
                                             @NotNull SubscriptionKeyValueStore<String, BytesStore> kvStore) throws AssetNotFoundException {
@@ -60,13 +68,31 @@ public class VanillaStringStringKeyValueStore implements StringStringKeyValueSto
                                      @NotNull SubscriptionKeyValueStore<String, BytesStore> kvStore) throws AssetNotFoundException {
         this.asset = asset;
         this.kvStore = kvStore;
-        asset.registerView(ValueReader.class, StringValueReader.BYTES_STORE_TO_STRING);
+        this.compressor = asset.findView(ValueCompressor.class);
+        this.bytesStoreToString = compressor == null
+                ? BytesStoreToString.BYTES_STORE_TO_STRING
+                : BytesStoreToString.DECOMPRESSING;
+        asset.registerView(ValueReader.class, compressor == null
+                ? StringValueReader.BYTES_STORE_TO_STRING
+                : StringValueReader.DECOMPRESSING);
         @NotNull RawKVSSubscription<String, BytesStore> rawSubscription =
                 (RawKVSSubscription<String, BytesStore>) kvStore.subscription(true);
         this.subscriptions = subscriptions;
         subscriptions.setKvStore(this);
-        rawSubscription.registerDownstream(mpe ->
-                subscriptions.notifyEvent(mpe.translate(s -> s, BytesStoreToString.BYTES_STORE_TO_STRING)));
+        rawSubscription.registerDownstream(new EventConsumer<String, BytesStore>() {
+            @Override
+            public void notifyEvent(@NotNull MapEvent<String, BytesStore> mpe) {
+                subscriptions.notifyEvent(mpe.translate(s -> s, bytesStoreToString));
+            }
+
+            @Override
+            public void notifyEvents(@NotNull List<MapEvent<String, BytesStore>> mpes) {
+                @NotNull List<MapEvent<String, String>> events = new ArrayList<>(mpes.size());
+                for (@NotNull MapEvent<String, BytesStore> mpe : mpes)
+                    events.add(mpe.translate(s -> s, bytesStoreToString));
+                subscriptions.notifyEvents(events);
+            }
+        });
     }
 
     @NotNull
@@ -93,7 +119,7 @@ public class VanillaStringStringKeyValueStore implements StringStringKeyValueSto
         Bytes<ByteBuffer> bytes = b.valueBuffer;
         bytes.clear();
         bytes.append8bit(value);
-        return kvStore.put(key, bytes);
+        return kvStore.put(key, compress(bytes, b));
     }
 
     @Nullable
@@ -103,15 +129,51 @@ public class VanillaStringStringKeyValueStore implements StringStringKeyValueSto
         Bytes<ByteBuffer> bytes = b.valueBuffer;
         bytes.clear();
         bytes.appendUtf8(value);
-        @Nullable BytesStore retBytes = kvStore.getAndPut(key, bytes);
+        @Nullable BytesStore retBytes = kvStore.getAndPut(key, compress(bytes, b));
         if (retBytes == null) return null;
         else {
-            String s = retBytes.toString();
+            String s = decompress(retBytes, b).toString();
             retBytes.release();
             return s;
         }
     }
 
+    @NotNull
+    private BytesStore compress(@NotNull Bytes bytes, @NotNull Buffers b) {
+        return compressor == null ? bytes : compressor.compress(bytes, b.compressBuffer);
+    }
+
+    @NotNull
+    private BytesStore decompress(@NotNull BytesStore stored, @NotNull Buffers b) {
+        return compressor == null ? stored : ValueCompressor.decompress(stored, b.decompressBuffer);
+    }
+
+    @Override
+    public void putAll(@NotNull Map<? extends String, ? extends String> entries, @Nullable BiConsumer<? super String, ? super String> previous) {
+        Buffers b = BUFFERS.get();
+        Bytes<ByteBuffer> bytes = b.valueBuffer;
+        @NotNull Map<String, BytesStore> encoded = new LinkedHashMap<>();
+        for (@NotNull Map.Entry<? extends String, ? extends String> entry : entries.entrySet()) {
+            bytes.clear();
+            bytes.append8bit(entry.getValue());
+            // the buffers are reused for every value, so each is copied.
+            encoded.put(entry.getKey(), BytesStore.wrap(compress(bytes, b).toByteArray()));
+        }
+        kvStore.putAll(encoded, previous == null ? null
+                : (key, bs) -> previous.accept(key, bytesStoreToString.apply(bs)));
+    }
+
+    @Override
+    public void getAll(@NotNull Collection<? extends String> keys, @NotNull BiConsumer<? super String, ? super String> found) {
+        kvStore.getAll(keys, (key, bs) -> found.accept(key, bytesStoreToString.apply(bs)));
+    }
+
+    @Override
+    public int removeAll(@NotNull Collection<? extends String> keys, @Nullable BiConsumer<? super String, ? super String> removed) {
+        return kvStore.removeAll(keys, removed == null ? null
+                : (key, bs) -> removed.accept(key, bytesStoreToString.apply(bs)));
+    }
+
     @Override
     public boolean remove(String key) {
         return kvStore.remove(key);
@@ -121,7 +183,7 @@ public class VanillaStringStringKeyValueStore implements StringStringKeyValueSto
     @Override
     public String getAndRemove(String key) {
         @Nullable BytesStore retBytes = kvStore.getAndRemove(key);
-        return retBytes == null ? null : retBytes.toString();
+        return retBytes == null ? null : decompress(retBytes, BUFFERS.get()).toString();
     }
 
     @Nullable
@@ -129,7 +191,7 @@ public class VanillaStringStringKeyValueStore implements StringStringKeyValueSto
     public String getUsing(String key, Object value) {
         Buffers b = BUFFERS.get();
         @Nullable BytesStore retBytes = kvStore.getUsing(key, b.valueBuffer);
-        return retBytes == null ? null : retBytes.toString();
+        return retBytes == null ? null : decompress(retBytes, b).toString();
     }
 
     @Override
@@ -144,20 +206,47 @@ public class VanillaStringStringKeyValueStore implements StringStringKeyValueSto
 
     @Override
     public void entriesFor(int segment, @NotNull SubscriptionConsumer<MapEvent<String, String>> kvConsumer) throws InvalidSubscriberException {
-        kvStore.entriesFor(segment, e -> kvConsumer.accept(e.translate(k -> k, BytesStoreToString.BYTES_STORE_TO_STRING)));
+        kvStore.entriesFor(segment, e -> kvConsumer.accept(e.translate(k -> k, bytesStoreToString)));
+    }
+
+    @NotNull
+    @Override
+    public EntriesSnapshot<String, String> snapshot() {
+        @NotNull EntriesSnapshot<String, BytesStore> snapshot = kvStore.snapshot();
+        return new EntriesSnapshot<String, String>() {
+            @Override
+            public void entriesFor(@NotNull SubscriptionConsumer<MapEvent<String, String>> kvConsumer) throws InvalidSubscriberException {
+                snapshot.entriesFor(e -> kvConsumer.accept(e.translate(k -> k, bytesStoreToString)));
+            }
+
+            @Override
+            public void close() {
+                snapshot.close();
+            }
+        };
+    }
+
+    @Override
+    public int segments() {
+        return kvStore.segments();
+    }
+
+    @Override
+    public int segmentFor(String key) {
+        return kvStore.segmentFor(key);
     }
 
     @NotNull
     @Override
     public Iterator<Map.Entry<String, String>> entrySetIterator() {
-        @NotNull List<Map.Entry<String, String>> entries = new ArrayList<>();
-        try {
-            for (int i = 0, seg = segments(); i < seg; i++)
-                entriesFor(i, entries::add);
-        } catch (InvalidSubscriberException e) {
-            throw new AssertionError(e);
-        }
-        return entries.iterator();
+        return new DecodingEntryIterator<>(kvStore.entrySetIterator(),
+                (bs, using) -> bytesStoreToString.apply(bs), null);
+    }
+
+    @NotNull
+    @Override
+    public Iterator<String> keySetIterator() {
+        return kvStore.keySetIterator();
     }
 
     @Override
@@ -192,22 +281,36 @@ public class VanillaStringStringKeyValueStore implements StringStringKeyValueSto
     }
 
     enum BytesStoreToString implements Function<BytesStore, String> {
-        BYTES_STORE_TO_STRING;
-
-        @Nullable
-        @Override
-        public String apply(@Nullable BytesStore bs) {
-            return bs == null ? null : bs.to8bitString();
+        BYTES_STORE_TO_STRING {
+            @Nullable
+            @Override
+            public String apply(@Nullable BytesStore bs) {
+                return bs == null ? null : bs.to8bitString();
+            }
+        },
+        DECOMPRESSING {
+            @Nullable
+            @Override
+            public String apply(@Nullable BytesStore bs) {
+                return bs == null ? null : ValueCompressor.decompress(bs, BUFFERS.get().decompressBuffer).to8bitString();
+            }
         }
     }
 
     enum StringValueReader implements ValueReader<BytesStore, String> {
-        BYTES_STORE_TO_STRING;
-
-        @Nullable
-        @Override
-        public String apply(@Nullable BytesStore bs) {
-            return bs == null ? null : bs.to8bitString();
+        BYTES_STORE_TO_STRING {
+            @Nullable
+            @Override
+            public String apply(@Nullable BytesStore bs) {
+                return bs == null ? null : bs.to8bitString();
+            }
+        },
+        DECOMPRESSING {
+            @Nullable
+            @Override
+            public String apply(@Nullable BytesStore bs) {
+                return bs == null ? null : ValueCompressor.decompress(bs, BUFFERS.get().decompressBuffer).to8bitString();
+            }
         }
     }
 }
@@ -18,11 +18,18 @@
 package net.openhft.chronicle.engine.map;
 
 import net.openhft.chronicle.engine.api.map.KeyValueStore;
+import net.openhft.chronicle.engine.api.map.MapEvent;
 import net.openhft.chronicle.engine.api.tree.Asset;
 import net.openhft.chronicle.engine.api.tree.RequestContext;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
 /*
  * Created by Peter Lawrey on 22/05/15.
  */
@@ -48,84 +55,141 @@ public class VanillaSubscriptionKeyValueStore<K, MV, V> extends AbstractKeyValue
 
     @Override
     public V replace(@NotNull K key, @NotNull V value) {
-        @Nullable V oldValue = kvStore.replace(key, value);
-        if (oldValue != null) {
-            subscriptions.notifyEvent(UpdatedEvent.of(asset.fullName(), key, oldValue, value,
-                    false, !value.equals(oldValue)));
+        try (@NotNull WriteGate.Pass pass = subscriptions.writeGate().enter()) {
+            @Nullable V oldValue = kvStore.replace(key, value);
+            if (oldValue != null) {
+                subscriptions.notifyEvent(UpdatedEvent.of(asset.fullName(), key, oldValue, value,
+                        false, !value.equals(oldValue)));
+            }
+            return oldValue;
         }
-        return oldValue;
     }
 
     @Override
     public boolean put(@NotNull K key, V value) {
-        if (subscriptions.needsPrevious()) {
-            return getAndPut(key, value) != null;
+        try (@NotNull WriteGate.Pass pass = subscriptions.writeGate().enter()) {
+            if (subscriptions.needsPrevious()) {
+                return getAndPut(key, value) != null;
+            }
+            boolean replaced = kvStore.put(key, value);
+            if (subscriptions.hasSubscribers())
+                subscriptions.notifyEvent(replaced ?
+                        UpdatedEvent.of(asset.fullName(), key, null, value, false, true) :
+                        InsertedEvent.of(asset.fullName(), key, value, false));
+            return replaced;
         }
-        boolean replaced = kvStore.put(key, value);
-        subscriptions.notifyEvent(replaced ?
-                UpdatedEvent.of(asset.fullName(), key, null, value, false, true) :
-                InsertedEvent.of(asset.fullName(), key, value, false));
-        return replaced;
-
     }
 
     @Override
     public boolean remove(K key) {
-        if (subscriptions.needsPrevious()) {
-            return getAndRemove(key) != null;
+        try (@NotNull WriteGate.Pass pass = subscriptions.writeGate().enter()) {
+            if (subscriptions.needsPrevious()) {
+                return getAndRemove(key) != null;
+            }
+            if (kvStore.remove(key)) {
+                if (subscriptions.hasSubscribers())
+                    subscriptions.notifyEvent(RemovedEvent.of(asset.fullName(), key, null, false));
+                return true;
+            }
+            return false;
         }
-        if (kvStore.remove(key)) {
-            subscriptions.notifyEvent(RemovedEvent.of(asset.fullName(), key, null, false));
-            return true;
+    }
+
+    @Override
+    public void putAll(@NotNull Map<? extends K, ? extends V> entries, @Nullable BiConsumer<? super K, ? super V> previous) {
+        try (@NotNull WriteGate.Pass pass = subscriptions.writeGate().enter()) {
+            if (!subscriptions.hasSubscribers()) {
+                kvStore.putAll(entries, previous);
+                return;
+            }
+            @NotNull String name = asset.fullName();
+            @NotNull List<MapEvent<K, V>> events = new ArrayList<>(entries.size());
+            kvStore.putAll(entries, (key, oldValue) -> {
+                V value = entries.get(key);
+                events.add(oldValue == null
+                        ? InsertedEvent.of(name, key, value, false)
+                        : UpdatedEvent.of(name, key, oldValue, value, false, !oldValue.equals(value)));
+                if (previous != null)
+                    previous.accept(key, oldValue);
+            });
+            subscriptions.notifyEvents(events);
+        }
+    }
+
+    @Override
+    public int removeAll(@NotNull Collection<? extends K> keys, @Nullable BiConsumer<? super K, ? super V> removed) {
+        try (@NotNull WriteGate.Pass pass = subscriptions.writeGate().enter()) {
+            if (!subscriptions.hasSubscribers())
+                return kvStore.removeAll(keys, removed);
+
+            @NotNull String name = asset.fullName();
+            @NotNull List<MapEvent<K, V>> events = new ArrayList<>(keys.size());
+            int count = kvStore.removeAll(keys, (key, oldValue) -> {
+                events.add(RemovedEvent.of(name, key, oldValue, false));
+                if (removed != null)
+                    removed.accept(key, oldValue);
+            });
+            subscriptions.notifyEvents(events);
+            return count;
         }
-        return false;
     }
 
     @Override
     public boolean replaceIfEqual(@NotNull K key, V oldValue, V newValue) {
-        if (kvStore.replaceIfEqual(key, oldValue, newValue)) {
-            subscriptions.notifyEvent(UpdatedEvent.of(asset.fullName(), key, oldValue,
-                    newValue, false, true));
-            return true;
+        try (@NotNull WriteGate.Pass pass = subscriptions.writeGate().enter()) {
+            if (kvStore.replaceIfEqual(key, oldValue, newValue)) {
+                subscriptions.notifyEvent(UpdatedEvent.of(asset.fullName(), key, oldValue,
+                        newValue, false, true));
+                return true;
+            }
+            return false;
         }
-        return false;
     }
 
     @Override
     public boolean removeIfEqual(@NotNull K key, V value) {
-        if (kvStore.removeIfEqual(key, value)) {
-            subscriptions.notifyEvent(RemovedEvent.of(asset.fullName(), key, value, false));
-            return true;
+        try (@NotNull WriteGate.Pass pass = subscriptions.writeGate().enter()) {
+            if (kvStore.removeIfEqual(key, value)) {
+                subscriptions.notifyEvent(RemovedEvent.of(asset.fullName(), key, value, false));
+                return true;
+            }
+            return false;
         }
-        return false;
     }
 
     @Nullable
     @Override
     public V putIfAbsent(@NotNull K key, V value) {
-        @Nullable V ret = kvStore.putIfAbsent(key, value);
-        if (ret == null)
-            subscriptions.notifyEvent(InsertedEvent.of(asset.fullName(), key, value, false));
-        return ret;
+        try (@NotNull WriteGate.Pass pass = subscriptions.writeGate().enter()) {
+            @Nullable V ret = kvStore.putIfAbsent(key, value);
+            if (ret == null)
+                subscriptions.notifyEvent(InsertedEvent.of(asset.fullName(), key, value, false));
+            return ret;
+        }
     }
 
     @Nullable
     @Override
     public V getAndPut(@NotNull K key, V value) {
-        @Nullable V oldValue = kvStore.getAndPut(key, value);
-
-        subscriptions.notifyEvent(oldValue == null
-                ? InsertedEvent.of(asset.fullName(), key, value, false)
-                : UpdatedEvent.of(asset.fullName(), key, oldValue, value, false, !oldValue.equals(value)));
-        return oldValue;
+        try (@NotNull WriteGate.Pass pass = subscriptions.writeGate().enter()) {
+            @Nullable V oldValue = kvStore.getAndPut(key, value);
+
+            if (subscriptions.hasSubscribers())
+                subscriptions.notifyEvent(oldValue == null
+                        ? InsertedEvent.of(asset.fullName(), key, value, false)
+                        : UpdatedEvent.of(asset.fullName(), key, oldValue, value, false, !oldValue.equals(value)));
+            return oldValue;
+        }
     }
 
     @Nullable
     @Override
     public V getAndRemove(@NotNull K key) {
-        @Nullable V oldValue = kvStore.getAndRemove(key);
-        if (oldValue != null)
-            subscriptions.notifyEvent(RemovedEvent.of(asset.fullName(), key, oldValue, false));
-        return oldValue;
+        try (@NotNull WriteGate.Pass pass = subscriptions.writeGate().enter()) {
+            @Nullable V oldValue = kvStore.getAndRemove(key);
+            if (oldValue != null && subscriptions.hasSubscribers())
+                subscriptions.notifyEvent(RemovedEvent.of(asset.fullName(), key, oldValue, false));
+            return oldValue;
+        }
     }
 }
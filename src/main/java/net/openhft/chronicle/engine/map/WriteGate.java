@@ -0,0 +1,132 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+
+package net.openhft.chronicle.engine.map;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Supplier;
+
+/**
+ * Lets writers of a map in concurrently while something which must see a clean cut between writes,
+ * such as the start of a subscription's bootstrap, briefly holds them all out.
+ * <p>
+ * Writers share one of a number of stripes, chosen by thread, so they rarely contend on the same lock.
+ * The exclusive side takes every stripe, so it is only for actions which take microseconds. A thread
+ * which is inside the gate, e.g. a subscriber called back from a write, runs an exclusive action
+ * without the gate rather than deadlock on itself.
+ * <p>
+ * A writer holds its pass until its events have been notified, so a subscriber called back from a write
+ * keeps the exclusive side waiting until it returns. Rather than wait on a slow subscriber indefinitely,
+ * the exclusive side gives up after {@code engine.writeGateTimeoutMs}.
+ */
+public class WriteGate {
+    public static final WriteGate NONE = new WriteGate(0);
+    private static final long TIMEOUT_MS = Long.getLong("engine.writeGateTimeoutMs", 10_000);
+
+    private static final Pass NO_PASS = () -> {
+    };
+
+    private final StampedLock[] stripes;
+    private final Pass[] passes;
+    private final int mask;
+    // how many passes this thread holds, as a nested pass must not wait behind an exclusive action.
+    private final ThreadLocal<int[]> depth = ThreadLocal.withInitial(() -> new int[1]);
+    private final Pass nestedPass = () -> depth.get()[0]--;
+
+    public WriteGate() {
+        this(Integer.highestOneBit(Math.max(1, Runtime.getRuntime().availableProcessors()) * 2 - 1));
+    }
+
+    private WriteGate(int stripes) {
+        this.stripes = new StampedLock[stripes];
+        this.passes = new Pass[stripes];
+        this.mask = stripes - 1;
+        for (int i = 0; i < stripes; i++) {
+            @NotNull StampedLock lock = new StampedLock();
+            this.stripes[i] = lock;
+            this.passes[i] = () -> {
+                depth.get()[0]--;
+                lock.asReadLock().unlock();
+            };
+        }
+    }
+
+    /**
+     * @return a pass to close once the write and its events are done.
+     */
+    @NotNull
+    public Pass enter() {
+        if (stripes.length == 0)
+            return NO_PASS;
+        @NotNull int[] held = depth.get();
+        if (held[0]++ > 0)
+            return nestedPass;
+        int stripe = (int) Thread.currentThread().getId() & mask;
+        stripes[stripe].asReadLock().lock();
+        return passes[stripe];
+    }
+
+    /**
+     * Run an action while no writer is inside the gate.
+     *
+     * @throws IllegalStateException if a writer didn't leave the gate within the timeout, the action
+     *                               not having been run.
+     */
+    public <T> T exclusive(@NotNull Supplier<T> action) {
+        @NotNull int[] held = depth.get();
+        if (stripes.length == 0 || held[0] > 0)
+            return action.get();
+        @NotNull long[] stamps = new long[stripes.length];
+        int locked = 0;
+        try {
+            long deadline = System.currentTimeMillis() + TIMEOUT_MS;
+            for (; locked < stripes.length; locked++) {
+                long stamp = stripes[locked].tryWriteLock(
+                        Math.max(0, deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+                if (stamp == 0)
+                    throw new IllegalStateException("A writer, or a subscriber it called back, " +
+                            "held the write gate for over " + TIMEOUT_MS + " ms");
+                stamps[locked] = stamp;
+            }
+            // a write made by the action itself doesn't wait for the gate.
+            held[0]++;
+            try {
+                return action.get();
+            } finally {
+                held[0]--;
+            }
+
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted waiting for the write gate", e);
+
+        } finally {
+            for (int i = locked - 1; i >= 0; i--)
+                stripes[i].unlockWrite(stamps[i]);
+        }
+    }
+
+    @FunctionalInterface
+    public interface Pass extends AutoCloseable {
+        @Override
+        void close();
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+
+package net.openhft.chronicle.engine.map.crdt;
+
+import net.openhft.chronicle.wire.ValueIn;
+import net.openhft.chronicle.wire.ValueOut;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Arrays;
+import java.util.stream.LongStream;
+
+/**
+ * Counts per host, indexed by host identifier, as used by the CRDTs. Host identifiers are small so these
+ * arrays are short, and written as a sequence of compact integers.
+ */
+final class Counts {
+    static final long[] NONE = {};
+
+    private Counts() {
+    }
+
+    static int index(byte hostId) {
+        return hostId & 0xFF;
+    }
+
+    @NotNull
+    static long[] withCount(@NotNull long[] counts, byte hostId, long count) {
+        int index = index(hostId);
+        @NotNull long[] copy = Arrays.copyOf(counts, Math.max(counts.length, index + 1));
+        copy[index] = count;
+        return copy;
+    }
+
+    static long get(@NotNull long[] counts, byte hostId) {
+        int index = index(hostId);
+        return index < counts.length ? counts[index] : 0;
+    }
+
+    static long sum(@NotNull long[] counts) {
+        long sum = 0;
+        for (long count : counts)
+            sum += count;
+        return sum;
+    }
+
+    /**
+     * @return the larger of each count, or {@code counts} if none in {@code other} is larger.
+     */
+    @NotNull
+    static long[] max(@NotNull long[] counts, @NotNull long[] other) {
+        @NotNull long[] max = counts;
+        for (int i = 0; i < other.length; i++) {
+            if (other[i] > (i < max.length ? max[i] : 0)) {
+                if (max == counts)
+                    max = Arrays.copyOf(counts, Math.max(counts.length, other.length));
+                max[i] = other[i];
+            }
+        }
+        return max;
+    }
+
+    /**
+     * @return true if the counts are the same, treating missing counts as zero.
+     */
+    static boolean equal(@NotNull long[] counts, @NotNull long[] other) {
+        for (int i = 0; i < Math.max(counts.length, other.length); i++) {
+            if ((i < counts.length ? counts[i] : 0) != (i < other.length ? other[i] : 0))
+                return false;
+        }
+        return true;
+    }
+
+    static void write(@NotNull ValueOut out, @NotNull long[] counts) {
+        out.sequence(v -> {
+            for (long count : counts)
+                v.int64(count);
+        });
+    }
+
+    @NotNull
+    static long[] read(@NotNull ValueIn in) {
+        @NotNull LongStream.Builder counts = LongStream.builder();
+        in.sequence(counts, (c, v) -> {
+            while (v.hasNextSequenceItem())
+                c.add(v.int64());
+        });
+        return counts.build().toArray();
+    }
+}
@@ -0,0 +1,40 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+
+package net.openhft.chronicle.engine.map.crdt;
+
+import net.openhft.chronicle.wire.Marshallable;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * A value of a replicated map which merges the updates made concurrently on different hosts rather than
+ * keeping the latest. Merging is commutative, associative and idempotent, so every host ends up with the
+ * same value whichever order the updates arrive in, and however often they are repeated.
+ * <p>
+ * Updates return a new value rather than changing this one, so they can be used directly as the
+ * function of {@code asyncUpdateKey}.
+ */
+public interface Crdt<C extends Crdt<C>> extends Marshallable {
+    /**
+     * Merges the state of another replica into this one.
+     *
+     * @param other replica of this value
+     * @return true if this value changed.
+     */
+    boolean mergeFrom(@NotNull C other);
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+
+package net.openhft.chronicle.engine.map.crdt;
+
+import net.openhft.chronicle.bytes.Bytes;
+import net.openhft.chronicle.bytes.BytesStore;
+import net.openhft.chronicle.core.util.ObjectUtils;
+import net.openhft.chronicle.engine.map.VanillaEngineReplication.MergeValues;
+import net.openhft.chronicle.wire.WireType;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Merges the replicated values of a map which holds {@link Crdt}s, for use with
+ * VanillaEngineReplication or a ChronicleMapCfg with <code>merge: crdt</code>. Values which are not
+ * Crdts are left to last write wins.
+ * <p>
+ * The merged value is written to a buffer of the calling thread, so it is only valid until that thread
+ * merges again and must be copied by whatever stores it.
+ */
+public class CrdtMerger implements MergeValues {
+    @NotNull
+    private final WireType wireType;
+    // the type of value whose fields alone are encoded, or null for values encoded with their type.
+    @Nullable
+    private final Class<? extends Crdt> valueType;
+    private final ThreadLocal<Bytes> merged = ThreadLocal.withInitial(Bytes::elasticByteBuffer);
+
+    /**
+     * @param wireType the values of the map are written with, each with its type.
+     */
+    public CrdtMerger(@NotNull WireType wireType) {
+        this(wireType, null);
+    }
+
+    /**
+     * @param wireType  the values of the map are written with.
+     * @param valueType of the map, if only its fields are written, as a map of Marshallable values does.
+     */
+    public CrdtMerger(@NotNull WireType wireType, @Nullable Class<? extends Crdt> valueType) {
+        this.wireType = wireType;
+        this.valueType = valueType;
+    }
+
+    @Nullable
+    @Override
+    public BytesStore merge(@NotNull BytesStore local, @NotNull BytesStore remote) {
+        @Nullable Object localValue = decode(local);
+        @Nullable Object remoteValue = decode(remote);
+        if (!(localValue instanceof Crdt) || remoteValue == null || localValue.getClass() != remoteValue.getClass())
+            return null;
+        if (!((Crdt) localValue).mergeFrom((Crdt) remoteValue))
+            return local;
+        @NotNull Bytes bytes = merged.get();
+        bytes.clear();
+        if (valueType == null)
+            wireType.apply(bytes).getValueOut().object(localValue);
+        else
+            ((Crdt) localValue).writeMarshallable(wireType.apply(bytes));
+        return bytes;
+    }
+
+    @Nullable
+    private Object decode(@NotNull BytesStore encoded) {
+        if (valueType == null)
+            return wireType.apply(encoded.bytesForRead()).getValueIn().object(Object.class);
+        @NotNull Crdt value = ObjectUtils.newInstance(valueType);
+        value.readMarshallable(wireType.apply(encoded.bytesForRead()));
+        return value;
+    }
+}
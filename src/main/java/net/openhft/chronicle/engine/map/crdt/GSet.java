@@ -0,0 +1,98 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+
+package net.openhft.chronicle.engine.map.crdt;
+
+import net.openhft.chronicle.core.pool.ClassAliasPool;
+import net.openhft.chronicle.wire.WireIn;
+import net.openhft.chronicle.wire.WireOut;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * A set which elements can be added to on every host, but never removed from. A merge is the union of
+ * both sets.
+ */
+public class GSet<E> implements Crdt<GSet<E>> {
+    static {
+        ClassAliasPool.CLASS_ALIASES.addAlias(GSet.class);
+    }
+
+    @NotNull
+    private final Set<E> elements = new LinkedHashSet<>();
+
+    /**
+     * @return a copy of this set with the element added, or this set if it already contains it.
+     */
+    @NotNull
+    public GSet<E> with(@NotNull E element) {
+        if (elements.contains(element))
+            return this;
+        @NotNull GSet<E> set = new GSet<>();
+        set.elements.addAll(elements);
+        set.elements.add(element);
+        return set;
+    }
+
+    public boolean contains(Object element) {
+        return elements.contains(element);
+    }
+
+    @NotNull
+    public Set<E> elements() {
+        return Collections.unmodifiableSet(elements);
+    }
+
+    @Override
+    public boolean mergeFrom(@NotNull GSet<E> other) {
+        return elements.addAll(other.elements);
+    }
+
+    @Override
+    public void readMarshallable(@NotNull WireIn wire) throws IllegalStateException {
+        elements.clear();
+        wire.read(() -> "elements").sequence(elements, (s, v) -> {
+            while (v.hasNextSequenceItem())
+                s.add((E) v.object(Object.class));
+        });
+    }
+
+    @Override
+    public void writeMarshallable(@NotNull WireOut wire) {
+        wire.write(() -> "elements").sequence(v -> elements.forEach(v::object));
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return this == o || o instanceof GSet && elements.equals(((GSet) o).elements);
+    }
+
+    @Override
+    public int hashCode() {
+        return elements.hashCode();
+    }
+
+    @NotNull
+    @Override
+    public String toString() {
+        return "GSet" + elements;
+    }
+}
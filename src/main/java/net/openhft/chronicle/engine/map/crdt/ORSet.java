@@ -0,0 +1,164 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+
+package net.openhft.chronicle.engine.map.crdt;
+
+import net.openhft.chronicle.core.pool.ClassAliasPool;
+import net.openhft.chronicle.wire.WireIn;
+import net.openhft.chronicle.wire.WireOut;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.*;
+
+/**
+ * A set which elements can be added to and removed from on every host, where an add wins over a
+ * concurrent remove.
+ * <p>
+ * Each add of an element is tagged with the host which made it and a sequence number of that host, and a
+ * remove only removes the tags it has seen. An element is in the set while it has a tag which hasn't been
+ * removed, so an add on one host survives a remove made on another before the add reached it. The tags
+ * of removed elements are kept so a merge can tell a removed element from one not yet seen.
+ */
+public class ORSet<E> implements Crdt<ORSet<E>> {
+    static {
+        ClassAliasPool.CLASS_ALIASES.addAlias(ORSet.class);
+    }
+
+    private static final int HOST_SHIFT = 56;
+
+    @NotNull
+    private final Map<E, Set<Long>> added = new LinkedHashMap<>();
+    @NotNull
+    private final Set<Long> removed = new HashSet<>();
+    @NotNull
+    private long[] sequences = Counts.NONE;
+
+    /**
+     * @param hostId  the identifier of this host
+     * @param element to add
+     * @return a copy of this set with the element added.
+     */
+    @NotNull
+    public ORSet<E> with(byte hostId, @NotNull E element) {
+        @NotNull ORSet<E> set = copy();
+        long sequence = Counts.get(sequences, hostId) + 1;
+        set.sequences = Counts.withCount(sequences, hostId, sequence);
+        set.added.computeIfAbsent(element, e -> new HashSet<>())
+                .add((long) Counts.index(hostId) << HOST_SHIFT | sequence);
+        return set;
+    }
+
+    /**
+     * @return a copy of this set with the element removed, or this set if it doesn't contain it.
+     */
+    @NotNull
+    public ORSet<E> without(@NotNull E element) {
+        if (!added.containsKey(element))
+            return this;
+        @NotNull ORSet<E> set = copy();
+        set.removed.addAll(set.added.remove(element));
+        return set;
+    }
+
+    public boolean contains(Object element) {
+        return added.containsKey(element);
+    }
+
+    @NotNull
+    public Set<E> elements() {
+        return Collections.unmodifiableSet(added.keySet());
+    }
+
+    @NotNull
+    private ORSet<E> copy() {
+        @NotNull ORSet<E> set = new ORSet<>();
+        added.forEach((e, tags) -> set.added.put(e, new HashSet<>(tags)));
+        set.removed.addAll(removed);
+        set.sequences = sequences;
+        return set;
+    }
+
+    @Override
+    public boolean mergeFrom(@NotNull ORSet<E> other) {
+        boolean changed = removed.addAll(other.removed);
+        for (@NotNull Map.Entry<E, Set<Long>> entry : other.added.entrySet()) {
+            for (Long tag : entry.getValue()) {
+                if (!removed.contains(tag))
+                    changed |= added.computeIfAbsent(entry.getKey(), e -> new HashSet<>()).add(tag);
+            }
+        }
+        for (@NotNull Iterator<Set<Long>> i = added.values().iterator(); i.hasNext(); ) {
+            @NotNull Set<Long> tags = i.next();
+            if (tags.removeAll(removed) && tags.isEmpty())
+                i.remove();
+        }
+        sequences = Counts.max(sequences, other.sequences);
+        return changed;
+    }
+
+    @Override
+    public void readMarshallable(@NotNull WireIn wire) throws IllegalStateException {
+        added.clear();
+        removed.clear();
+        wire.read(() -> "added").sequence(added, (m, v) -> {
+            while (v.hasNextSequenceItem()) {
+                @NotNull Set<Long> tags = new HashSet<>();
+                E element = (E) v.object(Object.class);
+                v.sequence(tags, (t, tv) -> {
+                    while (tv.hasNextSequenceItem())
+                        t.add(tv.int64());
+                });
+                m.put(element, tags);
+            }
+        });
+        wire.read(() -> "removed").sequence(removed, (r, v) -> {
+            while (v.hasNextSequenceItem())
+                r.add(v.int64());
+        });
+        sequences = Counts.read(wire.read(() -> "sequences"));
+    }
+
+    @Override
+    public void writeMarshallable(@NotNull WireOut wire) {
+        wire.write(() -> "added").sequence(v -> added.forEach((e, tags) -> {
+            v.object(e);
+            v.sequence(tv -> tags.forEach(tv::int64));
+        }));
+        wire.write(() -> "removed").sequence(v -> removed.forEach(v::int64));
+        Counts.write(wire.write(() -> "sequences"), sequences);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof ORSet)) return false;
+        @NotNull ORSet that = (ORSet) o;
+        return added.equals(that.added) && removed.equals(that.removed);
+    }
+
+    @Override
+    public int hashCode() {
+        return added.hashCode();
+    }
+
+    @NotNull
+    @Override
+    public String toString() {
+        return "ORSet" + added.keySet();
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+
+package net.openhft.chronicle.engine.map.crdt;
+
+import net.openhft.chronicle.core.pool.ClassAliasPool;
+import net.openhft.chronicle.wire.WireIn;
+import net.openhft.chronicle.wire.WireOut;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Arrays;
+
+/**
+ * A counter which can be incremented and decremented on every host without losing updates.
+ * <p>
+ * Each host only adds to its own running totals of increments and decrements, and a merge takes the
+ * larger total of each host, so the value is the sum of every increment less every decrement wherever
+ * it was made. An increment changes one total, and the whole state is a couple of integers per host.
+ */
+public class PNCounter implements Crdt<PNCounter> {
+    static {
+        ClassAliasPool.CLASS_ALIASES.addAlias(PNCounter.class);
+    }
+
+    @NotNull
+    private long[] increments = Counts.NONE;
+    @NotNull
+    private long[] decrements = Counts.NONE;
+
+    /**
+     * @param hostId the identifier of this host
+     * @param delta  to add, or subtract if negative
+     * @return a copy of this counter with the delta added.
+     */
+    @NotNull
+    public PNCounter plus(byte hostId, long delta) {
+        @NotNull PNCounter counter = new PNCounter();
+        counter.increments = increments;
+        counter.decrements = decrements;
+        if (delta > 0)
+            counter.increments = Counts.withCount(increments, hostId, Counts.get(increments, hostId) + delta);
+        else if (delta < 0)
+            counter.decrements = Counts.withCount(decrements, hostId, Counts.get(decrements, hostId) - delta);
+        return counter;
+    }
+
+    public long value() {
+        return Counts.sum(increments) - Counts.sum(decrements);
+    }
+
+    @Override
+    public boolean mergeFrom(@NotNull PNCounter other) {
+        @NotNull long[] increments = Counts.max(this.increments, other.increments);
+        @NotNull long[] decrements = Counts.max(this.decrements, other.decrements);
+        boolean changed = increments != this.increments || decrements != this.decrements;
+        this.increments = increments;
+        this.decrements = decrements;
+        return changed;
+    }
+
+    @Override
+    public void readMarshallable(@NotNull WireIn wire) throws IllegalStateException {
+        increments = Counts.read(wire.read(() -> "p"));
+        decrements = Counts.read(wire.read(() -> "n"));
+    }
+
+    @Override
+    public void writeMarshallable(@NotNull WireOut wire) {
+        Counts.write(wire.write(() -> "p"), increments);
+        Counts.write(wire.write(() -> "n"), decrements);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof PNCounter)) return false;
+        @NotNull PNCounter that = (PNCounter) o;
+        return Counts.equal(increments, that.increments) && Counts.equal(decrements, that.decrements);
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(value());
+    }
+
+    @NotNull
+    @Override
+    public String toString() {
+        return "PNCounter{" +
+                "value=" + value() +
+                ", increments=" + Arrays.toString(increments) +
+                ", decrements=" + Arrays.toString(decrements) +
+                '}';
+    }
+}
@@ -19,18 +19,22 @@ package net.openhft.chronicle.engine.map.remote;
 
 import net.openhft.chronicle.core.Jvm;
 import net.openhft.chronicle.engine.api.map.MapEvent;
+import net.openhft.chronicle.engine.api.pubsub.DemandSubscriber;
 import net.openhft.chronicle.engine.api.pubsub.InvalidSubscriberException;
 import net.openhft.chronicle.engine.api.pubsub.Subscriber;
 import net.openhft.chronicle.engine.api.pubsub.SubscriptionCollection;
 import net.openhft.chronicle.engine.api.tree.RequestContext;
+import net.openhft.chronicle.engine.map.DeltaUpdatedEvent;
 import net.openhft.chronicle.engine.query.Filter;
 import net.openhft.chronicle.engine.server.internal.MapWireHandler;
 import net.openhft.chronicle.engine.server.internal.PublisherHandler;
+import net.openhft.chronicle.engine.server.internal.SubscriptionHandler.SubscriptionEventID;
 import net.openhft.chronicle.engine.tree.TopologicalEvent;
 import net.openhft.chronicle.network.connection.AbstractAsyncSubscription;
 import net.openhft.chronicle.network.connection.AbstractStatelessClient;
 import net.openhft.chronicle.network.connection.CoreFields;
 import net.openhft.chronicle.network.connection.TcpChannelHub;
+import net.openhft.chronicle.wire.Marshallable;
 import net.openhft.chronicle.wire.ValueIn;
 import net.openhft.chronicle.wire.WireIn;
 import net.openhft.chronicle.wire.WireOut;
@@ -53,6 +57,9 @@ abstract class AbstractRemoteSubscription<E> extends AbstractStatelessClient imp
 
     private static final Logger LOG = LoggerFactory.getLogger(MapWireHandler.class);
     final Map<Object, Long> subscribersToTid = new ConcurrentHashMap<>();
+    // calls the subscribers on other threads than the reader of the connection, if set.
+    @Nullable
+    private final EventDispatcher dispatcher;
 
     /**
      * @param hub for this connection
@@ -60,7 +67,19 @@ abstract class AbstractRemoteSubscription<E> extends AbstractStatelessClient imp
      * @param csp the uri of the request
      */
     AbstractRemoteSubscription(@NotNull TcpChannelHub hub, long cid, @NotNull String csp) {
+        this(hub, cid, csp, null);
+    }
+
+    /**
+     * @param hub        for this connection
+     * @param cid        used by proxies such as the entry-set
+     * @param csp        the uri of the request
+     * @param dispatcher to call the subscribers on, or null to call them on the reader
+     */
+    AbstractRemoteSubscription(@NotNull TcpChannelHub hub, long cid, @NotNull String csp,
+                               @Nullable EventDispatcher dispatcher) {
         super(hub, cid, csp);
+        this.dispatcher = dispatcher;
     }
 
     @Override
@@ -94,46 +113,184 @@ abstract class AbstractRemoteSubscription<E> extends AbstractStatelessClient imp
             csp = csp + "&throttlePeriodMs=" + rc.throttlePeriodMs();
         if (rc.dontPersist())
             csp = csp + "&dontPersist=" + rc.dontPersist();
+        // a server which doesn't know of batchEvents ignores it, and sends one event per document.
+        csp = csp + "&batchEvents=true";
+        // the last value of each key is needed to patch an update, so it has to be sent every event from the
+        // bootstrap on.
+        final boolean deltaUpdates = MapEvent.class.isAssignableFrom(rc.elementType())
+                && filter.isEmpty() && !Boolean.FALSE.equals(bootstrap);
+        if (deltaUpdates)
+            csp = csp + "&deltaUpdates=true";
+        // if asked for, on reconnecting the server only sends the events missed, if it still has them.
+        final boolean resumable = rc.resumable() && deltaUpdates && rc.throttlePeriodMs() == 0
+                && !Boolean.TRUE.equals(endSubscriptionAfterBootstrap);
+        if (resumable)
+            csp = csp + "&resumable=true";
+        // the server only sends as many events as the subscriber has asked for.
+        @Nullable final DemandSubscriber demandSubscriber = subscriber instanceof DemandSubscriber
+                ? (DemandSubscriber) subscriber : null;
+        if (demandSubscriber != null)
+            csp = csp + "&flowControl=true";
 
         hub.subscribe(new AbstractAsyncSubscription(hub, csp, this.getClass().getSimpleName()) {
+            // the last Marshallable value of each key, which the subscriber shouldn't modify.
+            @Nullable
+            private final Map<Object, Object> lastValues = deltaUpdates ? new ConcurrentHashMap<>() : null;
+            @Nullable
+            private final ResumePosition position = resumable ? new ResumePosition() : null;
+            // the position of the next reply, or -1 if it was sent without one.
+            private long nextSequence = -1;
+
             {
                 subscribersToTid.put(subscriber, tid());
+                if (demandSubscriber != null)
+                    demandSubscriber.onRequester(n -> request0(tid(), n));
             }
 
             @Override
             public void onSubscribe(@NotNull final WireOut wireOut) {
+                final boolean resume = position != null && position.canResume();
+                // the bootstrap sent on subscribing again replaces them.
+                if (lastValues != null && !resume)
+                    lastValues.clear();
                 wireOut.writeEventName(registerSubscriber).
                         typeLiteral(CLASS_ALIASES.nameFor(rc.elementType()));
                 if (!filter.isEmpty())
                     wireOut.writeEventName(() -> "filter").object(filter);
+                if (demandSubscriber != null)
+                    wireOut.writeEventName(SubscriptionEventID.request).int64(demandSubscriber.demand());
+                if (resume)
+                    wireOut.writeEventName(resumeFrom).marshallable(m -> m
+                            .write(() -> "epoch").int64(position.epoch())
+                            .write(() -> "sequence").int64(position.sequence()));
             }
 
             @Override
             public void onConsumer(@NotNull final WireIn inWire) {
+                // the replies the server counted against the demand of the subscriber, which it never saw.
+                final int[] undelivered = {0};
                 inWire.readDocument(null, d -> {
-                    final StringBuilder eventName = Wires.acquireStringBuilder();
-                    @NotNull final ValueIn valueIn = d.readEventName(eventName);
-
-                    if (PublisherHandler.EventId.onEndOfSubscription.contentEquals(eventName)) {
-                        subscriber.onEndOfSubscription();
-                        subscribersToTid.remove(this);
-                        hub.unsubscribe(tid());
-
-                    } else if (CoreFields.reply.contentEquals(eventName)) {
-                        @NotNull final Class aClass = rc.elementType();
-
-                        @Nullable final Object object = (MapEvent.class.isAssignableFrom(aClass) ||
-                                (TopologicalEvent.class.isAssignableFrom(aClass))) ?
-                                valueIn.typedMarshallable()
-                                : valueIn.object(rc.elementType());
-
-                        AbstractRemoteSubscription.this.onEvent(object, subscriber);
-                    }
+                    // a batch of events is a document of replies, delivered in the order they were written.
+                    do {
+                        final StringBuilder eventName = Wires.acquireStringBuilder();
+                        @NotNull final ValueIn valueIn = d.readEventName(eventName);
+
+                        if (PublisherHandler.EventId.onEndOfSubscription.contentEquals(eventName)) {
+                            dispatchAfterAll(subscriber::onEndOfSubscription);
+                            subscribersToTid.remove(this);
+                            hub.unsubscribe(tid());
+                            return;
+
+                        } else if (CoreFields.reply.contentEquals(eventName)) {
+                            @NotNull final Class aClass = rc.elementType();
+
+                            @Nullable Object object = (MapEvent.class.isAssignableFrom(aClass) ||
+                                    (TopologicalEvent.class.isAssignableFrom(aClass))) ?
+                                    valueIn.typedMarshallable()
+                                    : valueIn.object(rc.elementType());
+
+                            final long sequence = nextSequence;
+                            nextSequence = -1;
+                            // sent again on resuming.
+                            if (sequence >= 0 && position != null && !position.received(sequence)) {
+                                undelivered[0]++;
+                                continue;
+                            }
+
+                            if (lastValues != null)
+                                object = patch(lastValues, object);
+                            if (object == null)
+                                undelivered[0]++;
+
+                            @Nullable final Object event = object;
+                            if (!dispatch(event instanceof MapEvent ? ((MapEvent) event).getKey() : subscriber,
+                                    () -> AbstractRemoteSubscription.this.onEvent(event, subscriber))) {
+                                // too far behind to be passed any more, rather than hold up the reader.
+                                dispatchAfterAll(subscriber::onEndOfSubscription);
+                                subscribersToTid.remove(subscriber);
+                                hub.unsubscribe(tid());
+                                return;
+                            }
+
+                        } else if (SubscriptionEventID.sequence.contentEquals(eventName)) {
+                            nextSequence = valueIn.int64();
+
+                        } else if (bootstrapPosition.contentEquals(eventName)) {
+                            valueIn.marshallable(m -> {
+                                final long epoch = m.read(() -> "epoch").int64();
+                                final long sequence = m.read(() -> "sequence").int64();
+                                if (position != null)
+                                    position.reset(epoch, sequence);
+                            });
+                            if (lastValues != null)
+                                lastValues.clear();
+                            undelivered[0]++;
+
+                        } else if (onEndOfBootstrap.contentEquals(eventName)) {
+                            valueIn.text();
+                            dispatchAfterAll(subscriber::onEndOfBootstrap);
+
+                        } else {
+                            return;
+                        }
+                    } while (d.hasMore());
                 });
+                if (demandSubscriber != null && undelivered[0] > 0)
+                    request0(tid(), undelivered[0]);
             }
         });
     }
 
+    /**
+     * @param lastValues of each key, updated by the event
+     * @param message    as read
+     * @return the event with the changed fields of a delta applied to the last value of its key, or null if
+     * there is no value to patch.
+     */
+    @Nullable
+    static Object patch(@NotNull Map<Object, Object> lastValues, @Nullable Object message) {
+        if (message instanceof DeltaUpdatedEvent) {
+            @NotNull final DeltaUpdatedEvent delta = (DeltaUpdatedEvent) message;
+            @Nullable final Object previous = lastValues.get(delta.getKey());
+            if (previous == null) {
+                Jvm.warn().on(AbstractRemoteSubscription.class, "No value of " + delta.getKey() + " to apply " + delta);
+                return null;
+            }
+            message = delta.applyTo(previous);
+        }
+        if (message instanceof MapEvent) {
+            @NotNull final MapEvent event = (MapEvent) message;
+            @Nullable final Object value = event.getValue();
+            if (value instanceof Marshallable)
+                lastValues.put(event.getKey(), value);
+            else
+                lastValues.remove(event.getKey());
+        }
+        return message;
+    }
+
+    /**
+     * @param key      the callbacks of which are kept in order
+     * @param callback to a subscriber
+     * @return false if the subscriber is too far behind, so the callback was rejected.
+     */
+    boolean dispatch(@Nullable Object key, @NotNull Runnable callback) {
+        if (dispatcher != null)
+            return dispatcher.dispatch(key, callback);
+        callback.run();
+        return true;
+    }
+
+    /**
+     * @param callback to a subscriber, after all the callbacks before it
+     */
+    void dispatchAfterAll(@NotNull Runnable callback) {
+        if (dispatcher == null)
+            callback.run();
+        else
+            dispatcher.dispatchAfterAll(callback);
+    }
+
     void onEvent(@Nullable Object message, @NotNull Subscriber subscriber) {
         try {
             if (message == null) {
@@ -173,6 +330,23 @@ abstract class AbstractRemoteSubscription<E> extends AbstractStatelessClient imp
 
     }
 
+    /**
+     * Asks the server for more events for a DemandSubscriber.
+     *
+     * @param tid of the subscription
+     * @param n   the number of events more the subscriber can take
+     */
+    void request0(long tid, long n) {
+        if (!hub.isOpen())
+            return;
+
+        hub.lock(() -> {
+            writeMetaDataForKnownTID(tid);
+            hub.outWire().writeDocument(false, wireOut ->
+                    wireOut.writeEventName(request).int64(n));
+        });
+    }
+
     @Override
     public int topicSubscriberCount() {
         return proxyReturnInt(topicSubscriberCount);
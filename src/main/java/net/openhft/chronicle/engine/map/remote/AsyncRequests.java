@@ -0,0 +1,167 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+
+package net.openhft.chronicle.engine.map.remote;
+
+import net.openhft.chronicle.network.connection.AbstractAsyncSubscription;
+import net.openhft.chronicle.network.connection.CoreFields;
+import net.openhft.chronicle.network.connection.TcpChannelHub;
+import net.openhft.chronicle.wire.ValueIn;
+import net.openhft.chronicle.wire.WireIn;
+import net.openhft.chronicle.wire.WireKey;
+import net.openhft.chronicle.wire.WireOut;
+import net.openhft.chronicle.wire.WriteValue;
+import net.openhft.chronicle.wire.Wires;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Sends requests without waiting for their replies, so a thread can have many requests in flight on one
+ * connection rather than one per round trip.
+ * <p>
+ * Each request has its own tid, which the server replies with, and the reader of the connection
+ * completes the future of that tid.  Anything chained onto the future without an executor runs on the
+ * reader, so it shouldn't block.  A request which hasn't been replied to when the connection is lost, or
+ * the hub is closed, is never sent again, as it may have been applied; its future completes with an
+ * {@link IllegalStateException} instead.
+ */
+public class AsyncRequests {
+    @NotNull
+    private final TcpChannelHub hub;
+    @NotNull
+    private final String csp;
+    @NotNull
+    private final String name;
+    private final Map<Long, CompletableFuture<?>> inFlight = new ConcurrentHashMap<>();
+
+    /**
+     * @param hub  for the connection
+     * @param csp  of the view the requests are for
+     * @param name of the requests, for debugging
+     */
+    public AsyncRequests(@NotNull TcpChannelHub hub, @NotNull String csp, @NotNull String name) {
+        this.hub = hub;
+        this.csp = csp;
+        this.name = name;
+    }
+
+    /**
+     * @param eventId    of the request
+     * @param parameters of the request, or null if it has none
+     * @param reader     of the reply
+     * @return the reply when it arrives, or the exception the server threw.
+     */
+    @NotNull
+    public <R> CompletableFuture<R> send(@NotNull WireKey eventId,
+                                         @Nullable WriteValue parameters,
+                                         @NotNull Function<ValueIn, R> reader) {
+        @NotNull final CompletableFuture<R> future = new CompletableFuture<>();
+        hub.subscribe(new AbstractAsyncSubscription(hub, csp, name) {
+            private volatile boolean sent;
+
+            {
+                inFlight.put(tid(), future);
+            }
+
+            @Override
+            public void applySubscribe() {
+                // the hub applies its subscriptions again when it reconnects.
+                if (sent) {
+                    fail(tid(), new IllegalStateException("Connection lost before the reply to " + eventId));
+                    return;
+                }
+                sent = true;
+                super.applySubscribe();
+            }
+
+            @Override
+            public void onClose() {
+                fail(tid(), new IllegalStateException("Connection closed before the reply to " + eventId));
+            }
+
+            @Override
+            public void onSubscribe(@NotNull WireOut wireOut) {
+                if (parameters == null)
+                    wireOut.writeEventName(eventId).text("");
+                else
+                    parameters.writeValue(wireOut.writeEventName(eventId));
+            }
+
+            @Override
+            public void onConsumer(@NotNull WireIn inWire) {
+                hub.unsubscribe(tid());
+                inFlight.remove(tid());
+                try {
+                    inWire.readDocument(null, d -> {
+                        final StringBuilder eventName = Wires.acquireStringBuilder();
+                        @NotNull final ValueIn valueIn = d.readEventName(eventName);
+                        if (CoreFields.reply.contentEquals(eventName))
+                            future.complete(reader.apply(valueIn));
+                        else if ("exception".contentEquals(eventName))
+                            future.completeExceptionally(valueIn.throwable(false));
+                        else
+                            future.completeExceptionally(new IllegalStateException("Unexpected reply " + eventName
+                                    + " to " + eventId));
+                    });
+                } catch (RuntimeException e) {
+                    future.completeExceptionally(e);
+                }
+            }
+        });
+        return future;
+    }
+
+    /**
+     * @return the number of requests waiting for a reply.
+     */
+    public int inFlight() {
+        return inFlight.size();
+    }
+
+    /**
+     * Completes the requests still waiting for a reply with an exception, for when the connection is closed.
+     *
+     * @param cause to complete them with
+     */
+    public void failAll(@NotNull Throwable cause) {
+        for (@NotNull Long tid : inFlight.keySet())
+            fail(tid, cause);
+    }
+
+    private void fail(long tid, @NotNull Throwable cause) {
+        @Nullable final CompletableFuture<?> future = inFlight.remove(tid);
+        if (future != null) {
+            hub.unsubscribe(tid);
+            future.completeExceptionally(cause);
+        }
+    }
+
+    @NotNull
+    @Override
+    public String toString() {
+        return "AsyncRequests{" +
+                "csp='" + csp + '\'' +
+                ", inFlight=" + inFlight.size() +
+                '}';
+    }
+}
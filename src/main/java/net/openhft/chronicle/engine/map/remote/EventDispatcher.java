@@ -0,0 +1,240 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package net.openhft.chronicle.engine.map.remote;
+
+import net.openhft.chronicle.core.Jvm;
+import net.openhft.chronicle.core.io.Closeable;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayDeque;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Calls the subscribers of remote subscriptions on a pool of threads, rather than on the thread which reads
+ * the connection, so a slow subscriber doesn't hold up the replies to other requests.
+ * <p>
+ * Each key is always called back on the same thread, so the events of a key keep their order. Each thread
+ * has a bounded queue, when it is full the events after it are spilled to a list the thread drains, so the
+ * reader never waits. Once that list is full too an event is rejected, and its subscription is ended.
+ */
+public class EventDispatcher implements Closeable {
+    private static final long WARN_INTERVAL_MS = 1000;
+    // the most events spilled for each thread once its queue is full.
+    private static final int SPILL_CAPACITY = Integer.getInteger("engine.dispatchSpill", 1 << 16);
+
+    @NotNull
+    private final String name;
+    @NotNull
+    private final Worker[] workers;
+    private final AtomicLong dispatched = new AtomicLong();
+    private final AtomicLong overflows = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private volatile long lastWarning;
+    private volatile boolean closed;
+
+    /**
+     * @param name          of the threads
+     * @param threads       to call subscribers on
+     * @param queueCapacity the most events waiting for each thread
+     */
+    public EventDispatcher(@NotNull String name, int threads, int queueCapacity) {
+        if (threads < 1 || queueCapacity < 1)
+            throw new IllegalArgumentException("threads: " + threads + ", queueCapacity: " + queueCapacity);
+        this.name = name;
+        this.workers = new Worker[threads];
+        for (int i = 0; i < threads; i++) {
+            workers[i] = new Worker(queueCapacity);
+            @NotNull Thread thread = new Thread(workers[i], name + "/dispatch-" + i);
+            thread.setDaemon(true);
+            workers[i].thread = thread;
+            thread.start();
+        }
+    }
+
+    /**
+     * @param key      the events of which are called back in order
+     * @param callback to the subscriber
+     * @return false if the thread of the key has too many events waiting, so the callback was rejected.
+     */
+    public boolean dispatch(@Nullable Object key, @NotNull Runnable callback) {
+        int h = Objects.hashCode(key);
+        return workers[Math.floorMod(h ^ (h >>> 16), workers.length)].add(callback, true);
+    }
+
+    /**
+     * @param callback to run once every event dispatched before it has been called back.
+     */
+    public void dispatchAfterAll(@NotNull Runnable callback) {
+        @NotNull AtomicInteger remaining = new AtomicInteger(workers.length);
+        for (@NotNull Worker worker : workers) {
+            worker.add(() -> {
+                if (remaining.decrementAndGet() == 0)
+                    callback.run();
+            }, false);
+        }
+    }
+
+    public long dispatched() {
+        return dispatched.get();
+    }
+
+    /**
+     * @return how many events found a queue full and were spilled.
+     */
+    public long overflows() {
+        return overflows.get();
+    }
+
+    /**
+     * @return how many events were rejected as their thread's spill was full too.
+     */
+    public long rejected() {
+        return rejected.get();
+    }
+
+    /**
+     * @return the events waiting to be called back.
+     */
+    public int queued() {
+        int queued = 0;
+        for (@NotNull Worker worker : workers)
+            queued += worker.queued();
+        return queued;
+    }
+
+    /**
+     * @return the most events which have waited for any one thread.
+     */
+    public int maxQueued() {
+        int max = 0;
+        for (@NotNull Worker worker : workers)
+            max = Math.max(max, worker.maxQueued);
+        return max;
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        for (@NotNull Worker worker : workers)
+            worker.thread.interrupt();
+    }
+
+    @Override
+    public boolean isClosed() {
+        return closed;
+    }
+
+    @NotNull
+    @Override
+    public String toString() {
+        return "EventDispatcher{" +
+                "name='" + name + '\'' +
+                ", threads=" + workers.length +
+                ", dispatched=" + dispatched +
+                ", queued=" + queued() +
+                ", maxQueued=" + maxQueued() +
+                ", overflows=" + overflows +
+                ", rejected=" + rejected +
+                '}';
+    }
+
+    private void onOverflow(@NotNull String what) {
+        long now = System.currentTimeMillis();
+        if (now - lastWarning >= WARN_INTERVAL_MS) {
+            lastWarning = now;
+            Jvm.warn().on(getClass(), "Subscribers are falling behind, " + what + " " + this);
+        }
+    }
+
+    class Worker implements Runnable {
+        @NotNull
+        final BlockingQueue<Runnable> queue;
+        // the events after a full queue, in order, which the thread moves to the queue as it drains it.
+        @NotNull
+        final ArrayDeque<Runnable> spilled = new ArrayDeque<>();
+        Thread thread;
+        volatile int maxQueued;
+
+        Worker(int queueCapacity) {
+            this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        }
+
+        /**
+         * @param mayReject whether the callback can be rejected, rather than spilled, once the spill is full.
+         */
+        boolean add(@NotNull Runnable callback, boolean mayReject) {
+            if (closed)
+                return true;
+            synchronized (spilled) {
+                if (spilled.isEmpty() && queue.offer(callback)) {
+                    dispatched.incrementAndGet();
+                    int size = queue.size();
+                    if (size > maxQueued)
+                        maxQueued = size;
+                    return true;
+                }
+                if (mayReject && spilled.size() >= SPILL_CAPACITY) {
+                    rejected.incrementAndGet();
+                    onOverflow("ending a subscription for");
+                    return false;
+                }
+                dispatched.incrementAndGet();
+                overflows.incrementAndGet();
+                spilled.add(callback);
+                int size = queue.size() + spilled.size();
+                if (size > maxQueued)
+                    maxQueued = size;
+            }
+            onOverflow("spilling events for");
+            return true;
+        }
+
+        int queued() {
+            synchronized (spilled) {
+                return queue.size() + spilled.size();
+            }
+        }
+
+        @Override
+        public void run() {
+            while (!closed) {
+                final Runnable callback;
+                try {
+                    callback = queue.take();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                // the queue is only empty once nothing is spilled, so this thread never waits while it is.
+                synchronized (spilled) {
+                    while (!spilled.isEmpty() && queue.offer(spilled.peek()))
+                        spilled.poll();
+                }
+                try {
+                    callback.run();
+                } catch (Throwable t) {
+                    Jvm.warn().on(EventDispatcher.class, "Failed to call back a subscriber", t);
+                }
+            }
+        }
+    }
+}
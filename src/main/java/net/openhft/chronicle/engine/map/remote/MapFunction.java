@@ -18,9 +18,14 @@
 package net.openhft.chronicle.engine.map.remote;
 
 import net.openhft.chronicle.core.util.SerializableBiFunction;
+import net.openhft.chronicle.core.util.SerializableFunction;
+import net.openhft.chronicle.engine.api.map.KeyRange;
 import net.openhft.chronicle.engine.api.map.MapView;
 import org.jetbrains.annotations.NotNull;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 import java.util.function.BiFunction;
 import java.util.function.Function;
 
@@ -112,5 +117,38 @@ public enum MapFunction implements SerializableBiFunction<MapView, Object, Objec
         public Object apply(@NotNull MapView map, Object o) {
             return map.equals(o);
         }
+    },
+    ADD_INDEX {
+        @Override
+        public Object apply(@NotNull MapView map, Object o) {
+            @NotNull KeyFunctionPair kf = (KeyFunctionPair) o;
+            return map.addIndex(kf.key.toString(), (SerializableFunction) kf.function);
+        }
+    },
+    KEYS_WHERE {
+        @Override
+        public Object apply(@NotNull MapView map, Object o) {
+            @NotNull KeyValuePair kv = (KeyValuePair) o;
+            return new ArrayList<>(map.keysWhere(kv.key.toString(), kv.value));
+        }
+    },
+    SUB_MAP {
+        @Override
+        public Object apply(@NotNull MapView map, Object range) {
+            @NotNull Map<Object, Object> entries = map.subMap((KeyRange) range);
+            @NotNull List<KeyValuePair> list = new ArrayList<>(entries.size());
+            entries.forEach((k, v) -> list.add(KeyValuePair.of(k, v)));
+            return list;
+        }
+    },
+    ENTRIES_WHERE {
+        @Override
+        public Object apply(@NotNull MapView map, Object o) {
+            @NotNull KeyValuePair kv = (KeyValuePair) o;
+            @NotNull Map<Object, Object> entries = map.entriesWhere(kv.key.toString(), kv.value);
+            @NotNull List<KeyValuePair> list = new ArrayList<>(entries.size());
+            entries.forEach((k, v) -> list.add(KeyValuePair.of(k, v)));
+            return list;
+        }
     }
 }
@@ -54,7 +54,7 @@ public class RemoteKVSSubscription<K, V> extends AbstractRemoteSubscription<MapE
     private RequestContext rc;
 
     public RemoteKVSSubscription(@NotNull RequestContext context, @NotNull Asset asset) {
-        super(asset.findView(TcpChannelHub.class), (long) 0, toUri(context));
+        super(asset.findView(TcpChannelHub.class), (long) 0, toUri(context), asset.findView(EventDispatcher.class));
         kClass = context.keyType();
         vClass = context.valueType();
         this.rc = context;
@@ -106,10 +106,14 @@ public class RemoteKVSSubscription<K, V> extends AbstractRemoteSubscription<MapE
                         valueIn.marshallable(m -> {
                             @Nullable final K topic = m.read(() -> "topic").object(kClass);
                             @Nullable final V message = m.read(() -> "message").object(vClass);
-                            RemoteKVSSubscription.this.onEvent(topic, message, subscriber);
+                            if (!dispatch(topic, () -> RemoteKVSSubscription.this.onEvent(topic, message, subscriber))) {
+                                // too far behind to be passed any more, rather than hold up the reader.
+                                dispatchAfterAll(RemoteKVSSubscription.this::onEndOfSubscription);
+                                hub.unsubscribe(tid());
+                            }
                         });
                     } else if (onEndOfSubscription.contentEquals(sb)) {
-                        RemoteKVSSubscription.this.onEndOfSubscription();
+                        dispatchAfterAll(RemoteKVSSubscription.this::onEndOfSubscription);
                         hub.unsubscribe(tid());
                     }
                 });
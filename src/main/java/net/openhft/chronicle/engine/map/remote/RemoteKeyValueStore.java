@@ -47,6 +47,7 @@ import org.jetbrains.annotations.Nullable;
 
 import java.io.File;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 import java.util.function.Function;
 
 import static net.openhft.chronicle.engine.server.internal.MapWireHandler.EventId;
@@ -68,6 +69,8 @@ public class RemoteKeyValueStore<K, V> extends AbstractStatelessClient<EventId>
     // todo
     @NotNull
     private final ObjectSubscription<K, V> subscriptions;
+    @NotNull
+    private final AsyncRequests asyncRequests;
 
     public RemoteKeyValueStore(@NotNull final RequestContext context,
                                @NotNull Asset asset,
@@ -80,6 +83,7 @@ public class RemoteKeyValueStore<K, V> extends AbstractStatelessClient<EventId>
 
         subscriptions = asset.acquireView(ObjectSubscription.class, context);
         subscriptions.setKvStore(this);
+        asyncRequests = new AsyncRequests(hub, csp, "RemoteKeyValueStore async");
     }
 
     public RemoteKeyValueStore(@NotNull RequestContext requestContext, @NotNull Asset asset) {
@@ -271,6 +275,70 @@ public class RemoteKeyValueStore<K, V> extends AbstractStatelessClient<EventId>
         return proxyReturnTypedObject(getAndRemove, null, vClass, key);
     }
 
+    /**
+     * @param key to look up
+     * @return the value when the reply arrives, without waiting for it.
+     */
+    @NotNull
+    public CompletableFuture<V> getAsync(@NotNull K key) {
+        checkKey(key);
+        return asyncRequests.send(get, toParameters(get, key), v -> v.object(vClass));
+    }
+
+    /**
+     * @param key   to set
+     * @param value to set
+     * @return the old value, or null if absent, when the reply arrives.
+     */
+    @NotNull
+    public CompletableFuture<V> putAsync(@NotNull K key, @NotNull V value) {
+        checkKey(key);
+        checkValue(value);
+        return asyncRequests.send(getAndPut, toParameters(getAndPut, key, value), v -> v.object(vClass));
+    }
+
+    /**
+     * @param key to remove
+     * @return the old value, or null if absent, when the reply arrives.
+     */
+    @NotNull
+    public CompletableFuture<V> removeAsync(@NotNull K key) {
+        checkKey(key);
+        return asyncRequests.send(getAndRemove, toParameters(getAndRemove, key), v -> v.object(vClass));
+    }
+
+    @NotNull
+    public CompletableFuture<V> putIfAbsentAsync(@NotNull K key, @NotNull V value) {
+        checkKey(key);
+        checkValue(value);
+        return asyncRequests.send(putIfAbsent, toParameters(putIfAbsent, key, value), v -> v.object(vClass));
+    }
+
+    @NotNull
+    public CompletableFuture<Boolean> containsKeyAsync(@NotNull K key) {
+        checkKey(key);
+        return asyncRequests.send(containsKey, toParameters(containsKey, key), ValueIn::bool);
+    }
+
+    @NotNull
+    public CompletableFuture<Long> longSizeAsync() {
+        return asyncRequests.send(size, null, ValueIn::int64);
+    }
+
+    /**
+     * @return the requests sent asynchronously which are waiting for a reply.
+     */
+    @NotNull
+    public AsyncRequests asyncRequests() {
+        return asyncRequests;
+    }
+
+    @Override
+    public void close() {
+        asyncRequests.failAll(new IllegalStateException("Closed before the reply"));
+        super.close();
+    }
+
     private void checkKey(@Nullable Object key) {
         if (key == null)
             throw new NullPointerException("key can not be null");
@@ -284,6 +352,17 @@ public class RemoteKeyValueStore<K, V> extends AbstractStatelessClient<EventId>
         return false;
     }
 
+    /**
+     * @param key       to set
+     * @param value     to set
+     * @param ttlMillis time to live on the server, or 0 for the entry to never expire.
+     */
+    public void put(K key, V value, long ttlMillis) {
+        checkKey(key);
+        checkValue(value);
+        sendEventAsync(putWithTtl, toParameters(putWithTtl, key, value, ttlMillis), true);
+    }
+
     @Nullable
     @Override
     public V getAndPut(final Object key, final Object value) {
@@ -22,6 +22,7 @@ import net.openhft.chronicle.core.util.SerializableBiFunction;
 import net.openhft.chronicle.core.util.SerializableFunction;
 import net.openhft.chronicle.core.util.SerializableUpdater;
 import net.openhft.chronicle.core.util.SerializableUpdaterWithArg;
+import net.openhft.chronicle.engine.api.map.KeyRange;
 import net.openhft.chronicle.engine.api.map.KeyValueStore;
 import net.openhft.chronicle.engine.api.map.MapView;
 import net.openhft.chronicle.engine.api.pubsub.Reference;
@@ -33,8 +34,15 @@ import net.openhft.chronicle.engine.map.VanillaMapView;
 import net.openhft.chronicle.engine.query.Filter;
 import org.jetbrains.annotations.Nullable;
 
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 import java.util.function.BiFunction;
 import java.util.function.Function;
 
@@ -45,12 +53,70 @@ import static net.openhft.chronicle.core.util.ObjectUtils.convertTo;
  */
 public class RemoteMapView<K, MV, V> extends VanillaMapView<K, V> {
 
-    public RemoteMapView(@org.jetbrains.annotations.NotNull @NotNull RequestContext context,
-                         @org.jetbrains.annotations.NotNull @NotNull Asset asset,
-                         @org.jetbrains.annotations.NotNull @NotNull KeyValueStore<K, V> kvStore) {
+    public RemoteMapView(@NotNull @NotNull RequestContext context,
+                         @NotNull @NotNull Asset asset,
+                         @NotNull @NotNull KeyValueStore<K, V> kvStore) {
         super(context, asset, kvStore);
     }
 
+    @Override
+    public void put(K key, V value, long ttl, @NotNull TimeUnit unit) {
+        // expiry runs on the server.
+        @Nullable final RemoteKeyValueStore<K, V> store = remoteStore();
+        if (store == null)
+            throw new UnsupportedOperationException(underlying().getClass().getSimpleName()
+                    + " does not support a time to live");
+        store.put(key, value, unit.toMillis(ttl));
+    }
+
+    @Nullable
+    private RemoteKeyValueStore<K, V> remoteStore() {
+        @NotNull final KeyValueStore<K, V> kvStore = underlying();
+        return kvStore instanceof RemoteKeyValueStore ? (RemoteKeyValueStore<K, V>) kvStore : null;
+    }
+
+    @NotNull
+    @Override
+    public CompletableFuture<V> getAsync(K key) {
+        @Nullable final RemoteKeyValueStore<K, V> store = remoteStore();
+        return store == null ? super.getAsync(key) : store.getAsync(key);
+    }
+
+    @NotNull
+    @Override
+    public CompletableFuture<V> putAsync(K key, V value) {
+        @Nullable final RemoteKeyValueStore<K, V> store = remoteStore();
+        return store == null ? super.putAsync(key, value) : store.putAsync(key, value);
+    }
+
+    @NotNull
+    @Override
+    public CompletableFuture<V> removeAsync(K key) {
+        @Nullable final RemoteKeyValueStore<K, V> store = remoteStore();
+        return store == null ? super.removeAsync(key) : store.removeAsync(key);
+    }
+
+    @NotNull
+    @Override
+    public CompletableFuture<V> putIfAbsentAsync(K key, V value) {
+        @Nullable final RemoteKeyValueStore<K, V> store = remoteStore();
+        return store == null ? super.putIfAbsentAsync(key, value) : store.putIfAbsentAsync(key, value);
+    }
+
+    @NotNull
+    @Override
+    public CompletableFuture<Boolean> containsKeyAsync(K key) {
+        @Nullable final RemoteKeyValueStore<K, V> store = remoteStore();
+        return store == null ? super.containsKeyAsync(key) : store.containsKeyAsync(key);
+    }
+
+    @NotNull
+    @Override
+    public CompletableFuture<Long> longSizeAsync() {
+        @Nullable final RemoteKeyValueStore<K, V> store = remoteStore();
+        return store == null ? super.longSizeAsync() : store.longSizeAsync();
+    }
+
     @Override
     public boolean containsValue(Object value) {
         return convertTo(Boolean.class, this.applyTo((SerializableBiFunction) MapFunction.CONTAINS_VALUE, value));
@@ -65,12 +131,12 @@ public class RemoteMapView<K, MV, V> extends VanillaMapView<K, V> {
 */
 
     @Override
-    public void registerKeySubscriber(@org.jetbrains.annotations.NotNull @NotNull Subscriber<K> subscriber,
-                                      @org.jetbrains.annotations.NotNull @NotNull Filter filter,
-                                      @org.jetbrains.annotations.NotNull @NotNull Set<RequestContext.Operation> contextOperations) {
+    public void registerKeySubscriber(@NotNull @NotNull Subscriber<K> subscriber,
+                                      @NotNull @NotNull Filter filter,
+                                      @NotNull @NotNull Set<RequestContext.Operation> contextOperations) {
 
-        @org.jetbrains.annotations.NotNull final KVSSubscription<K, V> subscription = (KVSSubscription<K, V>) asset.subscription(true);
-        @org.jetbrains.annotations.NotNull final RequestContext rc = RequestContext.requestContext().type(keyClass).type2(valueType);
+        @NotNull final KVSSubscription<K, V> subscription = (KVSSubscription<K, V>) asset.subscription(true);
+        @NotNull final RequestContext rc = RequestContext.requestContext().type(keyClass).type2(valueType);
         contextOperations.forEach(e -> e.apply(rc));
 
         subscription.registerKeySubscriber(rc, subscriber, filter);
@@ -88,7 +154,7 @@ public class RemoteMapView<K, MV, V> extends VanillaMapView<K, V> {
                 this.<Object, Boolean>applyTo((SerializableBiFunction) MapFunction.EQUALS, o);
     }
 
-    @org.jetbrains.annotations.NotNull
+    @NotNull
     @NotNull
     @Override
     public Reference<V> referenceFor(K key) {
@@ -133,31 +199,31 @@ public class RemoteMapView<K, MV, V> extends VanillaMapView<K, V> {
         return (V) this.applyTo((SerializableBiFunction) MapFunction.REPLACE, KeyValuePair.of(key, value));
     }
 
-    @org.jetbrains.annotations.NotNull
+    @NotNull
     @NotNull
     @Override
-    public V computeIfAbsent(@org.jetbrains.annotations.NotNull K key, @org.jetbrains.annotations.NotNull Function<? super K, ? extends V> mappingFunction) {
+    public V computeIfAbsent(@NotNull K key, @NotNull Function<? super K, ? extends V> mappingFunction) {
         checkKey(key);
         return (V) this.applyTo((SerializableBiFunction) MapFunction.COMPUTE_IF_ABSENT, KeyFunctionPair.of(key, mappingFunction));
     }
 
-    @org.jetbrains.annotations.NotNull
+    @NotNull
     @NotNull
     @Override
-    public V computeIfPresent(@org.jetbrains.annotations.NotNull K key, @org.jetbrains.annotations.NotNull BiFunction<? super K, ? super V, ? extends V> remappingFunction) {
+    public V computeIfPresent(@NotNull K key, @NotNull BiFunction<? super K, ? super V, ? extends V> remappingFunction) {
         checkKey(key);
         return (V) this.applyTo((SerializableBiFunction) MapFunction.COMPUTE_IF_PRESENT, KeyFunctionPair.of(key, remappingFunction));
     }
 
-    @org.jetbrains.annotations.NotNull
+    @NotNull
     @NotNull
     @Override
-    public V compute(@org.jetbrains.annotations.NotNull K key, @org.jetbrains.annotations.NotNull BiFunction<? super K, ? super V, ? extends V> remappingFunction) {
+    public V compute(@NotNull K key, @NotNull BiFunction<? super K, ? super V, ? extends V> remappingFunction) {
         checkKey(key);
         return (V) this.applyTo((SerializableBiFunction) MapFunction.COMPUTE, KeyFunctionPair.of(key, remappingFunction));
     }
 
-    @org.jetbrains.annotations.NotNull
+    @NotNull
     @NotNull
     @Override
     public V merge(K key, V value, BiFunction<? super V, ? super V, ? extends V> remappingFunction) {
@@ -166,6 +232,50 @@ public class RemoteMapView<K, MV, V> extends VanillaMapView<K, V> {
         return (V) this.applyTo((SerializableBiFunction) MapFunction.MERGE, KeyValueFunctionTuple.of(key, value, remappingFunction));
     }
 
+    @Override
+    public boolean addIndex(@NotNull String name,
+                            @NotNull SerializableFunction<V, ?> extractor) {
+        return convertTo(Boolean.class, this.applyTo((SerializableBiFunction) MapFunction.ADD_INDEX, KeyFunctionPair.of(name, extractor)));
+    }
+
+    @NotNull
+    @Override
+    public Set<K> keysWhere(@NotNull String index, @NotNull Object value) {
+        @Nullable List keys = (List) this.applyTo((SerializableBiFunction) MapFunction.KEYS_WHERE, KeyValuePair.of(index, value));
+        @NotNull Set<K> result = new LinkedHashSet<>();
+        if (keys != null)
+            for (Object key : keys)
+                result.add((K) convertTo(keyClass, key));
+        return result;
+    }
+
+    @NotNull
+    @Override
+    public Map<K, V> entriesWhere(@NotNull String index, @NotNull Object value) {
+        // one round trip for the keys and values rather than a get per key.
+        @Nullable List entries = (List) this.applyTo((SerializableBiFunction) MapFunction.ENTRIES_WHERE, KeyValuePair.of(index, value));
+        @NotNull Map<K, V> result = new LinkedHashMap<>();
+        if (entries != null)
+            for (Object o : entries) {
+                @NotNull KeyValuePair kv = (KeyValuePair) o;
+                result.put((K) convertTo(keyClass, kv.key), (V) convertTo(valueType, kv.value));
+            }
+        return result;
+    }
+
+    @NotNull
+    @Override
+    public SortedMap<K, V> subMap(@NotNull KeyRange<K> range) {
+        @Nullable List entries = (List) this.applyTo((SerializableBiFunction) MapFunction.SUB_MAP, range);
+        @NotNull SortedMap<K, V> result = new TreeMap<>();
+        if (entries != null)
+            for (Object o : entries) {
+                @NotNull KeyValuePair kv = (KeyValuePair) o;
+                result.put((K) convertTo(keyClass, kv.key), (V) convertTo(valueType, kv.value));
+            }
+        return result;
+    }
+
     // core functionality.
     @Nullable
     @Override
@@ -176,7 +286,7 @@ public class RemoteMapView<K, MV, V> extends VanillaMapView<K, V> {
 
     @Override
     public <A> void asyncUpdate(@NotNull SerializableUpdaterWithArg<MapView<K, V>, A> updateFunction, A arg) {
-        @org.jetbrains.annotations.NotNull RemoteKeyValueStore<K, V> store = (RemoteKeyValueStore<K, V>) underlying();
+        @NotNull RemoteKeyValueStore<K, V> store = (RemoteKeyValueStore<K, V>) underlying();
         store.asyncUpdate(updateFunction, arg);
     }
 
@@ -185,7 +295,7 @@ public class RemoteMapView<K, MV, V> extends VanillaMapView<K, V> {
     public <UA, RA, R> R syncUpdate(@NotNull SerializableUpdaterWithArg<MapView<K, V>, UA>
                                             updateFunction, UA ua, @NotNull
                                             SerializableBiFunction<MapView<K, V>, RA, R> returnFunction, RA ra) {
-        @org.jetbrains.annotations.NotNull RemoteKeyValueStore<K, V> store = (RemoteKeyValueStore<K, V>) underlying();
+        @NotNull RemoteKeyValueStore<K, V> store = (RemoteKeyValueStore<K, V>) underlying();
         return store.syncUpdate(updateFunction, ua, returnFunction, ra);
     }
 
@@ -228,19 +338,19 @@ public class RemoteMapView<K, MV, V> extends VanillaMapView<K, V> {
     }
 
     @Override
-    public void asyncUpdateKey(@org.jetbrains.annotations.NotNull K key, @NotNull SerializableFunction<V,
+    public void asyncUpdateKey(@NotNull K key, @NotNull SerializableFunction<V,
             V> updateFunction) {
         checkKey(key);
         // TODO CE-95 handle this natively.
-        @org.jetbrains.annotations.NotNull SerializableBiFunction<K, V, V> kvvBiFunction = (k, v) -> updateFunction.apply(v);
+        @NotNull SerializableBiFunction<K, V, V> kvvBiFunction = (k, v) -> updateFunction.apply(v);
         compute(key, kvvBiFunction);
     }
 
     @Override
-    public <T> void asyncUpdateKey(@org.jetbrains.annotations.NotNull K key, @NotNull SerializableBiFunction<V, T, V> updateFunction, T argument) {
+    public <T> void asyncUpdateKey(@NotNull K key, @NotNull SerializableBiFunction<V, T, V> updateFunction, T argument) {
         checkKey(key);
         // TODO CE-95 handle this natively.
-        @org.jetbrains.annotations.NotNull SerializableBiFunction<K, V, V> kvvBiFunction = (k, v) -> updateFunction.apply(v, argument);
+        @NotNull SerializableBiFunction<K, V, V> kvvBiFunction = (k, v) -> updateFunction.apply(v, argument);
         compute(key, kvvBiFunction);
     }
 
@@ -251,7 +361,7 @@ public class RemoteMapView<K, MV, V> extends VanillaMapView<K, V> {
                                        returnFunction) {
         checkKey(key);
         // TODO CE-95 handle this natively.
-        @org.jetbrains.annotations.NotNull SerializableBiFunction<K, V, V> kvvBiFunction = (k, v) -> updateFunction.apply(v);
+        @NotNull SerializableBiFunction<K, V, V> kvvBiFunction = (k, v) -> updateFunction.apply(v);
         return applyTo((map, kvf) -> returnFunction.apply(map.compute(key, kvvBiFunction)), key);
     }
 
@@ -262,7 +372,7 @@ public class RemoteMapView<K, MV, V> extends VanillaMapView<K, V> {
             R> returnFunction, @Nullable RT returnArgument) {
         checkKey(key);
         // TODO CE-95 handle this natively.
-        @org.jetbrains.annotations.NotNull SerializableBiFunction<K, V, V> kvvBiFunction = (k, v) -> updateFunction.apply(v, updateArgument);
+        @NotNull SerializableBiFunction<K, V, V> kvvBiFunction = (k, v) -> updateFunction.apply(v, updateArgument);
         return applyTo((map, kvf) -> returnFunction.apply(map.compute(key, kvvBiFunction), returnArgument), key);
     }
 }
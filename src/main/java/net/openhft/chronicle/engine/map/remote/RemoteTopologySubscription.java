@@ -30,7 +30,8 @@ import org.jetbrains.annotations.NotNull;
 public class RemoteTopologySubscription extends AbstractRemoteSubscription<TopologicalEvent> implements TopologySubscription {
 
     public RemoteTopologySubscription(@NotNull RequestContext requestContext, @NotNull Asset asset) {
-        super(asset.findView(TcpChannelHub.class), (long) 0, toUri(requestContext));
+        super(asset.findView(TcpChannelHub.class), (long) 0, toUri(requestContext),
+                asset.findView(EventDispatcher.class));
     }
 
     @NotNull
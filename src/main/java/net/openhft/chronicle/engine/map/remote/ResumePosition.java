@@ -0,0 +1,68 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package net.openhft.chronicle.engine.map.remote;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.TreeSet;
+
+/**
+ * The position in the history of a map up to which a resumable subscription has been sent every event.
+ * <p>
+ * The server can send events out of the order of their positions, so those received ahead of a gap are
+ * held until it is filled, and are dropped if they are sent again when the subscription resumes.
+ */
+final class ResumePosition {
+    @NotNull
+    private final TreeSet<Long> ahead = new TreeSet<>();
+    private long epoch;
+    private long sequence = -1;
+
+    /**
+     * A bootstrap of the map as of a position follows.
+     */
+    synchronized void reset(long epoch, long sequence) {
+        this.epoch = epoch;
+        this.sequence = sequence;
+        ahead.clear();
+    }
+
+    /**
+     * @param sequence of an event received
+     * @return false if the event was received before.
+     */
+    synchronized boolean received(long sequence) {
+        if (sequence <= this.sequence || !ahead.add(sequence))
+            return false;
+        while (!ahead.isEmpty() && ahead.first() == this.sequence + 1)
+            this.sequence = ahead.pollFirst();
+        return true;
+    }
+
+    synchronized boolean canResume() {
+        return sequence >= 0;
+    }
+
+    synchronized long epoch() {
+        return epoch;
+    }
+
+    synchronized long sequence() {
+        return sequence;
+    }
+}
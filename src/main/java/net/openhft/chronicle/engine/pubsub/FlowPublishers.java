@@ -0,0 +1,168 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+
+package net.openhft.chronicle.engine.pubsub;
+
+import net.openhft.chronicle.engine.api.map.MapEvent;
+import net.openhft.chronicle.engine.api.pubsub.DemandSubscriber;
+import net.openhft.chronicle.engine.api.pubsub.Flow;
+import net.openhft.chronicle.engine.api.pubsub.TopicSubscriber;
+import net.openhft.chronicle.engine.api.tree.AssetTree;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.AbstractMap;
+import java.util.Map;
+import java.util.function.LongConsumer;
+
+/**
+ * Flow.Publishers of the events of an asset, which hold no more than bufferSize events for each
+ * subscriber.
+ * <p>
+ * Over a remote connection the server is only asked for as many events of a map subscription as the
+ * subscriber has room for, so a slow subscriber holds back the server rather than filling the client's
+ * memory.  Other subscriptions, local ones and remote topic or reference subscriptions such as those to a
+ * key, can't be held back, so the subscriber is sent onError if it lets the buffer fill; the buffer has
+ * to be big enough for the bootstrap and any burst of events.
+ * <p>
+ * Flow doesn't allow a null item, so the null message a key subscriber is sent when the key is
+ * removed is dropped; subscribe to the map events to see removals.
+ */
+public enum FlowPublishers {
+    ;
+
+    /**
+     * @param tree       to subscribe to
+     * @param uri        of the map
+     * @param bufferSize the most events held for a subscriber
+     * @return the changes to the map, starting with a bootstrap of its entries.
+     */
+    @NotNull
+    public static <K, V> Flow.Publisher<MapEvent<K, V>> mapEvents(@NotNull AssetTree tree, @NotNull String uri,
+                                                                 int bufferSize) {
+        return (Flow.Publisher) messages(tree, uri, MapEvent.class, bufferSize);
+    }
+
+    /**
+     * @param tree       to subscribe to
+     * @param uri        of the asset, such as a key of a map or a queue
+     * @param eClass     the type of message
+     * @param bufferSize the most events held for a subscriber
+     * @return the messages of the asset
+     */
+    @NotNull
+    public static <E> Flow.Publisher<E> messages(@NotNull AssetTree tree, @NotNull String uri,
+                                                 @NotNull Class<E> eClass, int bufferSize) {
+        return subscriber -> {
+            @NotNull final EventSubscriber<E> events = new EventSubscriber<>();
+            @NotNull final FlowSubscription<E> flow = new FlowSubscription<>(subscriber, bufferSize,
+                    () -> tree.unregisterSubscriber(uri, events));
+            events.flow = flow;
+            subscriber.onSubscribe(flow);
+            // it may have cancelled already.
+            if (flow.isCancelled())
+                return;
+            try {
+                tree.registerSubscriber(uri, eClass, events);
+            } catch (RuntimeException e) {
+                flow.fail(e);
+            }
+        };
+    }
+
+    /**
+     * @param tree       to subscribe to
+     * @param uri        of the group of topics, such as a map
+     * @param tClass     the type of topic
+     * @param mClass     the type of message
+     * @param bufferSize the most events held for a subscriber
+     * @return the topics and messages published, as immutable entries.
+     */
+    @NotNull
+    public static <T, M> Flow.Publisher<Map.Entry<T, M>> topics(@NotNull AssetTree tree, @NotNull String uri,
+                                                               @NotNull Class<T> tClass, @NotNull Class<M> mClass,
+                                                               int bufferSize) {
+        return subscriber -> {
+            @NotNull final TopicEventSubscriber<T, M> events = new TopicEventSubscriber<>();
+            @NotNull final FlowSubscription<Map.Entry<T, M>> flow = new FlowSubscription<>(subscriber, bufferSize,
+                    () -> tree.unregisterTopicSubscriber(uri, events));
+            events.flow = flow;
+            subscriber.onSubscribe(flow);
+            // it may have cancelled already.
+            if (flow.isCancelled())
+                return;
+            try {
+                tree.registerTopicSubscriber(uri, tClass, mClass, events);
+            } catch (RuntimeException e) {
+                flow.fail(e);
+            }
+        };
+    }
+
+    static final class EventSubscriber<E> implements DemandSubscriber<E> {
+        volatile FlowSubscription<E> flow;
+
+        @Override
+        public void onMessage(@Nullable E e) {
+            if (e != null)
+                flow.offer(e);
+        }
+
+        @Override
+        public void onEndOfSubscription() {
+            flow.complete();
+        }
+
+        @Override
+        public long demand() {
+            return flow.demand();
+        }
+
+        @Override
+        public void onRequester(@NotNull LongConsumer requester) {
+            flow.requester(requester);
+        }
+
+        @NotNull
+        @Override
+        public String toString() {
+            return "EventSubscriber{" + flow + '}';
+        }
+    }
+
+    static final class TopicEventSubscriber<T, M> implements TopicSubscriber<T, M> {
+        volatile FlowSubscription<Map.Entry<T, M>> flow;
+
+        @Override
+        public void onMessage(T topic, @Nullable M message) {
+            if (message != null)
+                flow.offer(new AbstractMap.SimpleImmutableEntry<>(topic, message));
+        }
+
+        @Override
+        public void onEndOfSubscription() {
+            flow.complete();
+        }
+
+        @NotNull
+        @Override
+        public String toString() {
+            return "TopicEventSubscriber{" + flow + '}';
+        }
+    }
+}
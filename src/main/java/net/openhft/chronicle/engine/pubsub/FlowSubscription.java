@@ -0,0 +1,225 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+
+package net.openhft.chronicle.engine.pubsub;
+
+import net.openhft.chronicle.core.Jvm;
+import net.openhft.chronicle.engine.api.pubsub.Flow;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongConsumer;
+
+/**
+ * Holds the events of an engine subscription until a Flow.Subscriber requests them.
+ * <p>
+ * The events are offered by whichever thread the subscription calls its subscriber on, and passed to the
+ * Flow.Subscriber by the thread which drains the buffer, one at a time.  A remote subscription is only
+ * sent as many events as there is room for, as the subscriber takes them it asks for more.  A local one
+ * can't be held back, so if it fills the buffer the Flow.Subscriber is sent onError.
+ */
+final class FlowSubscription<T> implements Flow.Subscription {
+    @NotNull
+    private final Flow.Subscriber<? super T> subscriber;
+    @NotNull
+    private final ArrayBlockingQueue<T> buffer;
+    private final int capacity;
+    // how many events to take before asking a remote subscription for them again.
+    private final int requestBatch;
+    private final AtomicLong requested = new AtomicLong();
+    private final AtomicInteger wip = new AtomicInteger();
+    private final AtomicBoolean cancelled = new AtomicBoolean();
+    @NotNull
+    private final Runnable onCancel;
+    @Nullable
+    private volatile LongConsumer requester;
+    private volatile boolean done;
+    @Nullable
+    private volatile Throwable error;
+    // events taken since more were asked for, guarded by this.
+    private int taken;
+
+    /**
+     * @param subscriber to pass the events to
+     * @param capacity   the most events held
+     * @param onCancel   to unregister the engine subscriber
+     */
+    FlowSubscription(@NotNull Flow.Subscriber<? super T> subscriber, int capacity, @NotNull Runnable onCancel) {
+        if (capacity <= 0)
+            throw new IllegalArgumentException("capacity: " + capacity);
+        this.subscriber = subscriber;
+        this.capacity = capacity;
+        this.buffer = new ArrayBlockingQueue<>(capacity);
+        this.requestBatch = Math.max(1, capacity / 2);
+        this.onCancel = onCancel;
+    }
+
+    /**
+     * @param event to hold until it is requested, ignored once the subscription has been cancelled or has
+     *              failed, as the engine subscriber is unregistered then.
+     */
+    void offer(@NotNull T event) {
+        if (cancelled.get() || done)
+            return;
+        if (!buffer.offer(event)) {
+            fail(new IllegalStateException("The subscriber has not requested the " + (capacity + 1)
+                    + " events sent to it"));
+            return;
+        }
+        drain();
+    }
+
+    /**
+     * No more events will be offered, the subscriber is sent onComplete after those held.
+     */
+    void complete() {
+        done = true;
+        drain();
+    }
+
+    void fail(@NotNull Throwable throwable) {
+        error = throwable;
+        done = true;
+        drain();
+    }
+
+    /**
+     * @return the number of events there is room for, which a remote subscription is sent no more than.
+     */
+    synchronized long demand() {
+        taken = 0;
+        return buffer.remainingCapacity();
+    }
+
+    boolean isCancelled() {
+        return cancelled.get();
+    }
+
+    void requester(@NotNull LongConsumer requester) {
+        this.requester = requester;
+    }
+
+    @Override
+    public void request(long n) {
+        if (n <= 0) {
+            fail(new IllegalArgumentException("non-positive request: " + n));
+            return;
+        }
+        long r, u;
+        do {
+            r = requested.get();
+            u = r + n;
+            if (u < 0)
+                u = Long.MAX_VALUE;
+        } while (!requested.compareAndSet(r, u));
+        drain();
+    }
+
+    @Override
+    public void cancel() {
+        if (cancelled.compareAndSet(false, true)) {
+            onCancel.run();
+            drain();
+        }
+    }
+
+    private void drain() {
+        if (wip.getAndIncrement() != 0)
+            return;
+
+        int missed = 1;
+        do {
+            final long r = requested.get();
+            long sent = 0;
+            while (true) {
+                if (cancelled.get()) {
+                    buffer.clear();
+                    return;
+                }
+                final Throwable throwable = error;
+                if (throwable != null) {
+                    buffer.clear();
+                    cancelled.set(true);
+                    onCancel.run();
+                    subscriber.onError(throwable);
+                    return;
+                }
+                final boolean finished = done;
+                if (sent == r) {
+                    if (finished && buffer.isEmpty())
+                        terminate();
+                    break;
+                }
+                @Nullable final T event = take();
+                if (event == null) {
+                    if (finished)
+                        terminate();
+                    break;
+                }
+                try {
+                    subscriber.onNext(event);
+                } catch (Throwable t) {
+                    Jvm.warn().on(getClass(), "onNext threw", t);
+                    cancel();
+                    return;
+                }
+                sent++;
+            }
+            if (sent != 0 && r != Long.MAX_VALUE)
+                requested.addAndGet(-sent);
+            missed = wip.addAndGet(-missed);
+        } while (missed != 0);
+    }
+
+    @Nullable
+    private T take() {
+        @Nullable final T event;
+        int toRequest = 0;
+        synchronized (this) {
+            event = buffer.poll();
+            if (event != null && ++taken >= requestBatch) {
+                toRequest = taken;
+                taken = 0;
+            }
+        }
+        @Nullable final LongConsumer requester = this.requester;
+        if (toRequest > 0 && requester != null)
+            requester.accept(toRequest);
+        return event;
+    }
+
+    private void terminate() {
+        if (cancelled.compareAndSet(false, true))
+            subscriber.onComplete();
+    }
+
+    @NotNull
+    @Override
+    public String toString() {
+        return "FlowSubscription{" +
+                "buffered=" + buffer.size() +
+                ", requested=" + requested.get() +
+                ", done=" + done +
+                ", cancelled=" + cancelled.get() +
+                '}';
+    }
+}
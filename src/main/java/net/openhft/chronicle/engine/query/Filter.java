@@ -203,6 +203,11 @@ public class Filter<E> implements Marshallable, Iterable<Operation> {
             subscriber.onMessage(message);
         }
 
+        @Override
+        public void onEndOfBootstrap() {
+            subscriber.onEndOfBootstrap();
+        }
+
         @Override
         public void onEndOfSubscription() {
             subscriber.onEndOfSubscription();
@@ -1,11 +1,15 @@
 package net.openhft.chronicle.engine.server;
 
+import net.openhft.chronicle.core.io.Closeable;
+import net.openhft.chronicle.engine.cfg.VanillaWireOutPublisherFactory;
+import net.openhft.chronicle.engine.server.internal.BoundedWireOutPublisher;
 import net.openhft.chronicle.engine.server.internal.EngineWireHandler;
 import net.openhft.chronicle.engine.server.internal.EngineWireNetworkContext;
 import net.openhft.chronicle.network.*;
 import net.openhft.chronicle.network.api.TcpHandler;
 import net.openhft.chronicle.network.api.session.SessionDetailsProvider;
 import net.openhft.chronicle.network.connection.VanillaWireOutPublisher;
+import net.openhft.chronicle.network.connection.WireOutPublisher;
 import net.openhft.chronicle.wire.WireType;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
@@ -18,26 +22,32 @@ public final class BootstrapHandlerFactory {
     private final Function<NetworkContext, ServerThreadingStrategy> threadingStrategyMapper;
     private final boolean notifyHostPort;
     private final NetworkStatsListener networkStatsListener;
+    // whether the connections are from clients, rather than other hosts of a cluster, which replicate
+    // through their publisher and so must not have its events dropped.
+    private final boolean clientConnections;
 
-    private BootstrapHandlerFactory(final Function<NetworkContext, ServerThreadingStrategy> threadingStrategyMapper, final boolean notifyHostPort, final NetworkStatsListener networkStatsListener) {
+    private BootstrapHandlerFactory(final Function<NetworkContext, ServerThreadingStrategy> threadingStrategyMapper, final boolean notifyHostPort, final NetworkStatsListener networkStatsListener, final boolean clientConnections) {
         this.threadingStrategyMapper = threadingStrategyMapper;
         this.notifyHostPort = notifyHostPort;
         this.networkStatsListener = networkStatsListener;
+        this.clientConnections = clientConnections;
     }
 
     public static BootstrapHandlerFactory forEngineClusterContext(final NetworkStatsListener networkStatsListener) {
-        return new BootstrapHandlerFactory(nc -> ServerThreadingStrategy.CONCURRENT, true, networkStatsListener);
+        return new BootstrapHandlerFactory(nc -> ServerThreadingStrategy.CONCURRENT, true, networkStatsListener, false);
     }
 
     static BootstrapHandlerFactory forServerEndpoint() {
-        return new BootstrapHandlerFactory(NetworkContext::serverThreadingStrategy, false, null);
+        return new BootstrapHandlerFactory(NetworkContext::serverThreadingStrategy, false, null, true);
     }
 
     @NotNull
     public TcpEventHandler bootstrapHandlerFactory(final NetworkContext networkContext) {
         @NotNull final EngineWireNetworkContext nc = (EngineWireNetworkContext) networkContext;
         if (nc.isAcceptor())
-            nc.wireOutPublisher(new VanillaWireOutPublisher(WireType.TEXT));
+            nc.wireOutPublisher(clientConnections
+                    ? newWireOutPublisher(nc)
+                    : new VanillaWireOutPublisher(WireType.TEXT));
         networkContext.serverThreadingStrategy(threadingStrategyMapper.apply(nc));
         @NotNull final TcpEventHandler handler = new TcpEventHandler(networkContext);
 
@@ -77,4 +87,23 @@ public final class BootstrapHandlerFactory {
         return handler;
 
     }
+
+    /**
+     * @return the publisher of a client connection, made by the VanillaWireOutPublisherFactory installed
+     * in the tree if there is one. Connections of a cluster always use a VanillaWireOutPublisher.
+     */
+    @NotNull
+    private static WireOutPublisher newWireOutPublisher(@NotNull EngineWireNetworkContext nc) {
+        @Nullable VanillaWireOutPublisherFactory factory = nc.rootAsset().findView(VanillaWireOutPublisherFactory.class);
+        if (factory == null)
+            return new VanillaWireOutPublisher(WireType.TEXT);
+
+        @NotNull WireOutPublisher publisher = factory.apply(WireType.TEXT);
+        if (publisher instanceof BoundedWireOutPublisher) {
+            @NotNull BoundedWireOutPublisher bounded = (BoundedWireOutPublisher) publisher;
+            bounded.onDisconnect(() -> Closeable.closeQuietly(nc.socketChannel()));
+            bounded.publishStats(nc.rootAsset());
+        }
+        return publisher;
+    }
 }
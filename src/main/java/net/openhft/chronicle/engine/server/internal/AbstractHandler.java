@@ -43,6 +43,12 @@ abstract class AbstractHandler {
     RequestContext requestContext;
     long readPosAfterValueIn = -1;
     private boolean hasSkipped;
+    // the request writeData is handling, held in fields so writing its reply creates no garbage.
+    @Nullable
+    private WireIn dataIn;
+    @Nullable
+    private WriteMarshallable dataWriter;
+    private final WriteMarshallable writeDataDocument = this::writeDataDocument;
 
     static void nullCheck(@Nullable Object o) {
         if (o == null)
@@ -81,33 +87,43 @@ abstract class AbstractHandler {
      * write and exceptions and rolls back if no data was written
      */
     void writeData(@NotNull WireIn wireIn, @NotNull WriteMarshallable c) {
+        dataIn = wireIn;
+        dataWriter = c;
+        try {
+            outWire.writeDocument(false, writeDataDocument);
+        } finally {
+            dataIn = null;
+            dataWriter = null;
+        }
 
-        @NotNull Bytes inBytes = wireIn.bytes();
-        outWire.writeDocument(false, out -> {
-            final long readPosition = inBytes.readPosition();
-            final long position = outWire.bytes().writePosition();
-            try {
-                c.writeMarshallable(outWire);
-            } catch (Throwable t) {
-                final String readingYaml = wireIn.readingPeekYaml();
-                inBytes.readPosition(readPosition);
-                if (LOG.isInfoEnabled())
-                    LOG.info("While readingBytes=" + inBytes.toDebugString() + "\nreadingYaml=" +
-                                    readingYaml,
-                            "\nprocessing wire " + c, t);
-                outWire.bytes().writePosition(position);
-
-                outWire.writeEventName(() -> "readingYaml").text(readingYaml);
-                outWire.writeEventName(() -> "exception").throwable(t);
-            }
+        logYaml();
+    }
 
-            // write 'reply : {} ' if no data was sent
-            if (position == outWire.bytes().writePosition()) {
-                outWire.writeEventName(reply).marshallable(EMPTY);
-            }
-        });
+    private void writeDataDocument(WireOut out) {
+        @NotNull WireIn wireIn = dataIn;
+        @NotNull WriteMarshallable c = dataWriter;
+        @NotNull Bytes inBytes = wireIn.bytes();
+        final long readPosition = inBytes.readPosition();
+        final long position = outWire.bytes().writePosition();
+        try {
+            c.writeMarshallable(outWire);
+        } catch (Throwable t) {
+            final String readingYaml = wireIn.readingPeekYaml();
+            inBytes.readPosition(readPosition);
+            if (LOG.isInfoEnabled())
+                LOG.info("While readingBytes=" + inBytes.toDebugString() + "\nreadingYaml=" +
+                                readingYaml,
+                        "\nprocessing wire " + c, t);
+            outWire.bytes().writePosition(position);
+
+            outWire.writeEventName(() -> "readingYaml").text(readingYaml);
+            outWire.writeEventName(() -> "exception").throwable(t);
+        }
 
-        logYaml();
+        // write 'reply : {} ' if no data was sent
+        if (position == outWire.bytes().writePosition()) {
+            outWire.writeEventName(reply).marshallable(EMPTY);
+        }
     }
 
     /**
@@ -0,0 +1,385 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+
+package net.openhft.chronicle.engine.server.internal;
+
+import net.openhft.chronicle.core.threads.EventHandler;
+import net.openhft.chronicle.core.threads.EventLoop;
+import net.openhft.chronicle.core.threads.HandlerPriority;
+import net.openhft.chronicle.core.threads.InvalidEventHandlerException;
+import net.openhft.chronicle.engine.api.map.MapView;
+import net.openhft.chronicle.engine.api.tree.Asset;
+import net.openhft.chronicle.network.connection.VanillaWireOutPublisher;
+import net.openhft.chronicle.network.connection.WireOutPublisher;
+import net.openhft.chronicle.wire.WireOut;
+import net.openhft.chronicle.wire.WireType;
+import net.openhft.chronicle.wire.WriteMarshallable;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static net.openhft.chronicle.engine.api.tree.RequestContext.requestContext;
+
+/**
+ * A WireOutPublisher which holds the events its connection can't take yet, up to a limit, and applies a
+ * {@link Policy} to a client which reads slower than events arrive, rather than buffering without bound.
+ * <p>
+ * Events go straight to the outbound buffer while it has room. Once it is full they are held in order,
+ * and written to the socket as it drains, before any event put after them.
+ * <p>
+ * Only the events of a subscription, put with a key from {@link #eventKey}, are ever dropped or
+ * conflated. Replies, end of bootstrap and end of subscription messages, and replication, are always
+ * sent, so a connection which lags with only those held is disconnected instead.
+ */
+public class BoundedWireOutPublisher extends VanillaWireOutPublisher {
+    public static final String STATS_URI = "/proc/connections/publishers";
+    private static final Logger LOG = LoggerFactory.getLogger(BoundedWireOutPublisher.class);
+    // the most held events to write each time the socket asks for more.
+    private static final int DRAIN_BYTES = 64 << 10;
+    // the longest a BLOCK policy holds up a thread before giving up on the client.
+    private static final long BLOCK_TIMEOUT_MS = Long.getLong("engine.publisherBlockTimeoutMs", 10_000);
+    // set on the threads which write to sockets, which must never wait for a socket to drain.
+    private static final ThreadLocal<Boolean> DRAINING = ThreadLocal.withInitial(() -> false);
+    private static final AtomicLong IDS = new AtomicLong();
+
+    @NotNull
+    private final Policy policy;
+    private final int maxPending;
+    private final ArrayDeque<Pending> pending = new ArrayDeque<>();
+    private final Map<EventKey, Pending> pendingByKey = new HashMap<>();
+    @Nullable
+    private Runnable onDisconnect;
+    @Nullable
+    private volatile Thread drainThread;
+    private long dropped, conflated, blocked, maxDepth;
+    private boolean disconnected;
+
+    public BoundedWireOutPublisher(@NotNull WireType wireType, @NotNull Policy policy, int maxPending) {
+        super(wireType);
+        if (maxPending <= 0)
+            throw new IllegalArgumentException("maxPending: " + maxPending);
+        this.policy = policy;
+        this.maxPending = maxPending;
+        addWireConsumer(this::drain);
+    }
+
+    /**
+     * @param onDisconnect closes the connection of a client which lags by more than the maximum.
+     */
+    public synchronized void onDisconnect(@Nullable Runnable onDisconnect) {
+        this.onDisconnect = onDisconnect;
+    }
+
+    /**
+     * @param publisher the event is to be put to
+     * @param tid       of the subscription the event is for
+     * @param key       of the event, e.g. the key of a map event, or the topic
+     * @return the key to put the event with, which lets a bounded publisher drop it or conflate it with
+     * another event of the same subscription and key.
+     */
+    @Nullable
+    public static Object eventKey(@NotNull WireOutPublisher publisher, long tid, @Nullable Object key) {
+        return key == null || !(publisher instanceof BoundedWireOutPublisher) ? key : new EventKey(tid, key);
+    }
+
+    @Override
+    public void put(@Nullable Object key, @NotNull WriteMarshallable event) {
+        synchronized (this) {
+            if (disconnected)
+                return;
+            if (pending.isEmpty() && super.canTakeMoreData()) {
+                super.put(key, event);
+                return;
+            }
+            @Nullable EventKey eventKey = key instanceof EventKey ? (EventKey) key : null;
+            if (policy == Policy.CONFLATE && eventKey != null) {
+                @Nullable Pending p = pendingByKey.get(eventKey);
+                if (p != null) {
+                    p.event = event;
+                    conflated++;
+                    return;
+                }
+            }
+            if (pending.size() >= maxPending && !makeRoom(eventKey != null))
+                return;
+
+            @NotNull Pending p = new Pending(eventKey, event);
+            pending.addLast(p);
+            if (policy == Policy.CONFLATE && eventKey != null)
+                pendingByKey.put(eventKey, p);
+            maxDepth = Math.max(maxDepth, pending.size());
+        }
+    }
+
+    /**
+     * @param droppable whether the event to hold is the event of a subscription.
+     * @return whether the event can be held.
+     */
+    private boolean makeRoom(boolean droppable) {
+        switch (policy) {
+            case BLOCK:
+                // a thread which writes to sockets can't wait for one to drain, nor can any thread before
+                // the socket of this connection has been written to, as it may be the one to do it.
+                if (DRAINING.get() || drainThread == null)
+                    return true;
+                blocked++;
+                long end = System.currentTimeMillis() + BLOCK_TIMEOUT_MS;
+                while (pending.size() >= maxPending && !isClosed()) {
+                    long remaining = end - System.currentTimeMillis();
+                    if (remaining <= 0) {
+                        disconnect();
+                        return false;
+                    }
+                    try {
+                        wait(Math.min(remaining, 100));
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return false;
+                    }
+                }
+                return !isClosed();
+
+            case DROP_OLDEST:
+            case CONFLATE:
+                if (removeOldestEvent()) {
+                    dropped++;
+                    return true;
+                }
+                if (droppable) {
+                    dropped++;
+                    return false;
+                }
+                disconnect();
+                return false;
+
+            case DISCONNECT:
+                disconnect();
+                return false;
+
+            default:
+                throw new AssertionError(policy);
+        }
+    }
+
+    private void disconnect() {
+        LOG.warn("Disconnecting a client which is " + pending.size() + " events behind");
+        disconnected = true;
+        dropped += pending.size();
+        close();
+        if (onDisconnect != null)
+            onDisconnect.run();
+    }
+
+    @NotNull
+    private Pending removeFirst() {
+        @NotNull Pending p = pending.removeFirst();
+        if (p.key != null && pendingByKey.get(p.key) == p)
+            pendingByKey.remove(p.key);
+        return p;
+    }
+
+    /**
+     * @return whether there was an event of a subscription held to remove.
+     */
+    private boolean removeOldestEvent() {
+        for (@NotNull Iterator<Pending> it = pending.iterator(); it.hasNext(); ) {
+            @NotNull Pending p = it.next();
+            if (p.key != null) {
+                it.remove();
+                if (pendingByKey.get(p.key) == p)
+                    pendingByKey.remove(p.key);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void drain(@NotNull WireOut out) {
+        drainThread = Thread.currentThread();
+        DRAINING.set(true);
+        synchronized (this) {
+            // the events already buffered go first.
+            if (pending.isEmpty() || !super.isEmpty())
+                return;
+            long start = out.bytes().writePosition();
+            while (!pending.isEmpty() && out.bytes().writePosition() - start < DRAIN_BYTES)
+                removeFirst().event.writeMarshallable(out);
+            notifyAll();
+        }
+    }
+
+    @Override
+    public boolean canTakeMoreData() {
+        synchronized (this) {
+            return pending.isEmpty() && super.canTakeMoreData();
+        }
+    }
+
+    @Override
+    public void close() {
+        synchronized (this) {
+            pending.clear();
+            pendingByKey.clear();
+            notifyAll();
+        }
+        super.close();
+    }
+
+    @NotNull
+    public Policy policy() {
+        return policy;
+    }
+
+    public int maxPending() {
+        return maxPending;
+    }
+
+    public synchronized int pendingEvents() {
+        return pending.size();
+    }
+
+    public synchronized long droppedEvents() {
+        return dropped;
+    }
+
+    public synchronized long conflatedEvents() {
+        return conflated;
+    }
+
+    @NotNull
+    public synchronized PublisherStats stats() {
+        return new PublisherStats(policy, maxPending, pending.size(), maxDepth, dropped, conflated, blocked, disconnected);
+    }
+
+    /**
+     * Puts the stats of this publisher in {@link #STATS_URI} once a second until it is closed.
+     */
+    public void publishStats(@NotNull Asset root) {
+        @NotNull String name = "connection-" + IDS.incrementAndGet();
+        @NotNull MapView<String, PublisherStats> statsMap = root.acquireView(requestContext(STATS_URI)
+                .view("map").type(String.class).type2(PublisherStats.class));
+        @Nullable EventLoop eventLoop = root.findOrCreateView(EventLoop.class);
+        assert eventLoop != null;
+        eventLoop.addHandler(new EventHandler() {
+            private long nextUpdate;
+
+            @Override
+            public boolean action() throws InvalidEventHandlerException {
+                if (isClosed()) {
+                    statsMap.remove(name);
+                    throw new InvalidEventHandlerException();
+                }
+                long now = System.currentTimeMillis();
+                if (now < nextUpdate)
+                    return false;
+                nextUpdate = now + 1_000;
+                statsMap.put(name, stats());
+                return false;
+            }
+
+            @NotNull
+            @Override
+            public HandlerPriority priority() {
+                return HandlerPriority.MONITOR;
+            }
+        });
+    }
+
+    @NotNull
+    @Override
+    public String toString() {
+        return "BoundedWireOutPublisher{" +
+                "policy=" + policy +
+                ", maxPending=" + maxPending +
+                ", pending=" + pendingEvents() +
+                '}';
+    }
+
+    /**
+     * What to do once a client is {@code maxPending} events behind.
+     */
+    public enum Policy {
+        /**
+         * Hold the thread putting the event until the client has read enough, or disconnect it after
+         * engine.publisherBlockTimeoutMs. A thread which writes to sockets is never held.
+         */
+        BLOCK,
+        /**
+         * Drop the oldest event of a subscription held.
+         */
+        DROP_OLDEST,
+        /**
+         * Replace an event held with a later one of the same subscription and key, dropping the oldest if
+         * the keys held reach the maximum.
+         */
+        CONFLATE,
+        /**
+         * Close the connection.
+         */
+        DISCONNECT
+    }
+
+    static class Pending {
+        @Nullable
+        final EventKey key;
+        @NotNull
+        WriteMarshallable event;
+
+        Pending(@Nullable EventKey key, @NotNull WriteMarshallable event) {
+            this.key = key;
+            this.event = event;
+        }
+    }
+
+    /**
+     * The key of an event within its subscription, as the same key can be in several subscriptions of a
+     * connection, e.g. the same key in two maps.
+     */
+    static final class EventKey {
+        final long tid;
+        @NotNull
+        final Object key;
+
+        EventKey(long tid, @NotNull Object key) {
+            this.tid = tid;
+            this.key = key;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o)
+                return true;
+            if (!(o instanceof EventKey))
+                return false;
+            @NotNull EventKey that = (EventKey) o;
+            return tid == that.tid && key.equals(that.key);
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(tid) * 31 + key.hashCode();
+        }
+    }
+}
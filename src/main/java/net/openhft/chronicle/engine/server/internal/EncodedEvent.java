@@ -0,0 +1,122 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+
+package net.openhft.chronicle.engine.server.internal;
+
+import net.openhft.chronicle.bytes.Bytes;
+import net.openhft.chronicle.engine.map.EncodingCache;
+import net.openhft.chronicle.wire.WireOut;
+import net.openhft.chronicle.wire.WireType;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * An event passed to many remote subscribers, which is serialised for the first connection of each
+ * {@link WireType}, and copied as bytes to the others, instead of being serialised again for every subscriber.
+ * Only the body is shared, each connection still writes its own header with the tid of its subscription.
+ * <p>
+ * The encoding is kept by wire type rather than by the class of the wire, as several wire types,
+ * e.g. BINARY and FIELDLESS_BINARY, are written by the same class of wire in different forms.
+ * <p>
+ * The encoding is kept on the event, if it is an {@link EncodingCache}, so only the subscribers passed
+ * that same event share it. Any other event is encoded for each subscriber.
+ */
+public final class EncodedEvent {
+    private static final Object[] NO_ENCODINGS = {};
+
+    @Nullable
+    private final Object first;
+    @Nullable
+    private final Object second;
+    @NotNull
+    private final Encoder encoder;
+    private final boolean shared;
+    // pairs of the wire type and the bytes it was encoded as.
+    @NotNull
+    private volatile Object[] encodings = NO_ENCODINGS;
+
+    private EncodedEvent(@Nullable Object first, @Nullable Object second, @NotNull Encoder encoder, boolean shared) {
+        this.first = first;
+        this.second = second;
+        this.encoder = encoder;
+        this.shared = shared;
+    }
+
+    /**
+     * @param first   part of the event
+     * @param second  part of the event, or null
+     * @param encoder to write the event the first time for a type of wire.
+     * @return the event shared with the other subscribers of this event.
+     */
+    @NotNull
+    public static EncodedEvent of(@Nullable Object first, @Nullable Object second, @NotNull Encoder encoder) {
+        if (second == null && first instanceof EncodingCache)
+            return ((EncodingCache) first).encoding(encoder, EncodedEvent::shared);
+        return new EncodedEvent(first, second, encoder, false);
+    }
+
+    @NotNull
+    private static EncodedEvent shared(@NotNull Object event, @NotNull Object encoder) {
+        return new EncodedEvent(event, null, (Encoder) encoder, true);
+    }
+
+    /**
+     * @param wireType of the connection written to, or null if it is not known, in which case
+     *                 the event is encoded again rather than shared.
+     * @param wire     to write the event to.
+     */
+    public void writeTo(@Nullable WireType wireType, @NotNull WireOut wire) {
+        if (!shared || wireType == null) {
+            encoder.encode(wire, first, second);
+            return;
+        }
+        @NotNull Object[] encodings = this.encodings;
+        for (int i = 0; i < encodings.length; i += 2) {
+            if (encodings[i] == wireType) {
+                wire.bytes().write((byte[]) encodings[i + 1]);
+                return;
+            }
+        }
+
+        @NotNull Bytes<?> bytes = wire.bytes();
+        long start = bytes.writePosition();
+        encoder.encode(wire, first, second);
+        @NotNull byte[] encoded = new byte[Math.toIntExact(bytes.writePosition() - start)];
+        for (int i = 0; i < encoded.length; i++)
+            encoded[i] = bytes.readByte(start + i);
+        addEncoding(wireType, encoded);
+    }
+
+    private synchronized void addEncoding(@NotNull WireType wireType, @NotNull byte[] encoded) {
+        @NotNull Object[] encodings = this.encodings;
+        for (int i = 0; i < encodings.length; i += 2) {
+            if (encodings[i] == wireType)
+                return;
+        }
+        @NotNull Object[] added = new Object[encodings.length + 2];
+        System.arraycopy(encodings, 0, added, 0, encodings.length);
+        added[encodings.length] = wireType;
+        added[encodings.length + 1] = encoded;
+        this.encodings = added;
+    }
+
+    @FunctionalInterface
+    public interface Encoder {
+        void encode(@NotNull WireOut wire, @Nullable Object first, @Nullable Object second);
+    }
+}
@@ -19,7 +19,9 @@ package net.openhft.chronicle.engine.server.internal;
 
 import net.openhft.chronicle.bytes.Bytes;
 import net.openhft.chronicle.core.Jvm;
+import net.openhft.chronicle.core.Maths;
 import net.openhft.chronicle.core.threads.EventLoop;
+import net.openhft.chronicle.core.util.StringUtils;
 import net.openhft.chronicle.engine.api.collection.ValuesCollection;
 import net.openhft.chronicle.engine.api.column.*;
 import net.openhft.chronicle.engine.api.map.MapView;
@@ -108,6 +110,8 @@ public class EngineWireHandler extends WireTcpHandler<EngineWireNetworkContext>
     @NotNull
     private final SystemHandler systemHandler;
     private final RequestContextInterner requestContextInterner = new RequestContextInterner(128);
+    // what each csp was resolved to, so a client which switches between views doesn't resolve them again.
+    private final CspState[] cspStates = new CspState[128];
     private final StringBuilder currentLogMessage = new StringBuilder();
     private final StringBuilder prevLogMessage = new StringBuilder();
     @NotNull
@@ -231,11 +235,19 @@ public class EngineWireHandler extends WireTcpHandler<EngineWireNetworkContext>
                 readTid(wire);
 
                 try {
-                    if (hasCspChanged(cspText)) {
+                    // a system csp has no view, and an iterator is found by its cid rather than its csp.
+                    if (hasCspChanged(cspText) || viewType == null || viewType == ColumnViewIterator.class) {
 
                         if (LOG.isDebugEnabled())
                             Jvm.debug().on(getClass(), "received meta-data:\n" + wire.bytes().toHexString());
 
+                        final int slot = Maths.hash32(cspText) & (cspStates.length - 1);
+                        @Nullable final CspState state = cspStates[slot];
+                        if (state != null && state.isFor(cspText)) {
+                            state.restore(this);
+                            return;
+                        }
+
                         requestContext = requestContextInterner.intern(cspText);
                         @NotNull final String fullName = requestContext.fullName();
                         if (!"/".equals(fullName))
@@ -273,8 +285,12 @@ public class EngineWireHandler extends WireTcpHandler<EngineWireNetworkContext>
                         } else {
                             throw new UnsupportedOperationException("unsupported view type");
                         }
+                        if (viewType != ColumnViewIterator.class)
+                            cspStates[slot] = new CspState(cspText.toString(), this);
                     }
                 } catch (Throwable e) {
+                    // resolve it again next time.
+                    lastCsp.setLength(0);
                     Jvm.warn().on(getClass(), "", e);
                     outWire.bytes().writePosition(startWritePosition);
                     outWire.writeDocument(true, w -> w.writeEventName(CoreFields.tid).int64(tid));
@@ -298,7 +314,7 @@ public class EngineWireHandler extends WireTcpHandler<EngineWireNetworkContext>
     }
 
     private boolean hasCspChanged(@NotNull final StringBuilder cspText) {
-        boolean result = !cspText.equals(lastCsp);
+        boolean result = !StringUtils.isEqual(cspText, lastCsp);
 
         // if it has changed remember what it changed to, for next time this method is called.
         if (result) {
@@ -356,12 +372,12 @@ public class EngineWireHandler extends WireTcpHandler<EngineWireNetworkContext>
                 if (LOG.isDebugEnabled())
                     Jvm.debug().on(getClass(), "received data:\n" + in.bytes().toHexString());
 
-                @NotNull Consumer<WireType> wireTypeConsumer = wt -> {
-                    wireType(wt);
-                    checkWires(in.bytes(), out.bytes(), wireType());
-                };
-
                 if (isSystemMessage) {
+                    @NotNull Consumer<WireType> wireTypeConsumer = wt -> {
+                        wireType(wt);
+                        checkWires(in.bytes(), out.bytes(), wireType());
+                    };
+
                     systemHandler.process(in, out, tid, sessionDetails, getMonitoringMap(), wireTypeConsumer, wireType());
                     if (!systemHandler.wasHeartBeat()) {
                         if (!YamlLogging.showHeartBeats())
@@ -432,14 +448,14 @@ public class EngineWireHandler extends WireTcpHandler<EngineWireNetworkContext>
                     if (ObjectSubscription.class.isAssignableFrom(viewType)) {
                         subscriptionHandler.process(in,
                                 requestContext, publisher(), contextAsset, tid,
-                                outWire, (SubscriptionCollection) view);
+                                outWire, (SubscriptionCollection) view, wireType());
                         return;
                     }
 
                     if (TopologySubscription.class.isAssignableFrom(viewType)) {
                         topologySubscriptionHandler.process(in,
                                 requestContext, publisher(), contextAsset, tid,
-                                outWire, (TopologySubscription) view);
+                                outWire, (TopologySubscription) view, wireType());
                         return;
                     }
 
@@ -500,7 +516,9 @@ public class EngineWireHandler extends WireTcpHandler<EngineWireNetworkContext>
     @Nullable
     private Map<String, UserStat> getMonitoringMap() {
         @Nullable Map<String, UserStat> userMonitoringMap = null;
-        @Nullable Asset userAsset = rootAsset.root().getAsset("proc/users");
+        // looked up by child, as getAsset would create substrings of the path for every message.
+        @Nullable Asset procAsset = rootAsset.root().getChild("proc");
+        @Nullable Asset userAsset = procAsset == null ? null : procAsset.getChild("users");
         if (userAsset != null && userAsset.getView(MapView.class) != null) {
             userMonitoringMap = userAsset.getView(MapView.class);
         }
@@ -673,6 +691,48 @@ public class EngineWireHandler extends WireTcpHandler<EngineWireNetworkContext>
             cspBuff.append("&valueType=").append(valueType.getName());
     }
 
+    /**
+     * The request context, asset, view and wire adapter a csp was resolved to.
+     */
+    static final class CspState {
+        @NotNull
+        private final String csp;
+        private final RequestContext requestContext;
+        private final Asset contextAsset;
+        @Nullable
+        private final Class viewType;
+        private final Object view;
+        private final WireAdapter<?, ?> wireAdapter;
+
+        CspState(@NotNull String csp, @NotNull EngineWireHandler handler) {
+            this.csp = csp;
+            this.requestContext = handler.requestContext;
+            this.contextAsset = handler.contextAsset;
+            this.viewType = handler.viewType;
+            this.view = handler.view;
+            this.wireAdapter = handler.wireAdapter;
+        }
+
+        /**
+         * @param cspText to look for
+         * @return true if this is the state of that csp, and its asset hasn't been removed from the tree.
+         */
+        boolean isFor(@NotNull CharSequence cspText) {
+            if (!StringUtils.isEqual(csp, cspText))
+                return false;
+            @Nullable final Asset parent = contextAsset.parent();
+            return parent == null || parent.getChild(contextAsset.name()) == contextAsset;
+        }
+
+        void restore(@NotNull EngineWireHandler handler) {
+            handler.requestContext = requestContext;
+            handler.contextAsset = contextAsset;
+            handler.viewType = viewType;
+            handler.view = view;
+            handler.wireAdapter = wireAdapter;
+        }
+    }
+
     public CharSequence getCspForCid(long cid) {
         return cidToCsp.get(cid);
     }
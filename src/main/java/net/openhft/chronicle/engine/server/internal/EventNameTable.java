@@ -0,0 +1,105 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+
+package net.openhft.chronicle.engine.server.internal;
+
+import net.openhft.chronicle.core.util.StringUtils;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.lang.reflect.Array;
+
+/**
+ * Finds the constant of an enum of event ids by the name read off the wire, with one hash of the name and
+ * one comparison, rather than comparing the name with each constant in turn.
+ * <p>
+ * The table is sized, and the hash seeded, when it is built so that no two constants share a slot.  The
+ * name is hashed from the StringBuilder it was read into, so a lookup creates no garbage.
+ */
+public final class EventNameTable<E extends Enum<E>> {
+    private static final int MAX_SEEDS = 1 << 10;
+
+    @NotNull
+    private final E[] table;
+    private final int mask;
+    private final int seed;
+
+    private EventNameTable(@NotNull E[] table, int seed) {
+        this.table = table;
+        this.mask = table.length - 1;
+        this.seed = seed;
+    }
+
+    /**
+     * @param eClass the enum of event ids
+     * @return a table of all its constants by name.
+     */
+    @NotNull
+    public static <E extends Enum<E>> EventNameTable<E> of(@NotNull Class<E> eClass) {
+        @NotNull final E[] constants = eClass.getEnumConstants();
+        for (int size = Integer.highestOneBit(Math.max(1, constants.length) * 2 - 1) << 1; size > 0; size <<= 1) {
+            for (int seed = 0; seed < MAX_SEEDS; seed++) {
+                @Nullable final E[] table = place(eClass, constants, size, seed);
+                if (table != null)
+                    return new EventNameTable<>(table, seed);
+            }
+        }
+        throw new IllegalStateException("No perfect hash of the names of " + eClass);
+    }
+
+    @Nullable
+    private static <E extends Enum<E>> E[] place(@NotNull Class<E> eClass, @NotNull E[] constants, int size,
+                                                 int seed) {
+        @NotNull final E[] table = (E[]) Array.newInstance(eClass, size);
+        for (@NotNull E e : constants) {
+            final int slot = hash(e.name(), seed) & (size - 1);
+            if (table[slot] != null)
+                return null;
+            table[slot] = e;
+        }
+        return table;
+    }
+
+    private static int hash(@NotNull CharSequence name, int seed) {
+        int h = seed * 0x9E3779B9;
+        for (int i = 0; i < name.length(); i++)
+            h = h * 31 + name.charAt(i);
+        h ^= h >>> 16;
+        h *= 0x85EBCA6B;
+        return h ^ (h >>> 13);
+    }
+
+    /**
+     * @param name of the event
+     * @return the constant of that name, or null if there isn't one.
+     */
+    @Nullable
+    public E lookup(@NotNull CharSequence name) {
+        @Nullable final E e = table[hash(name, seed) & mask];
+        return e != null && StringUtils.isEqual(e.name(), name) ? e : null;
+    }
+
+    @NotNull
+    @Override
+    public String toString() {
+        return "EventNameTable{" +
+                "size=" + table.length +
+                ", seed=" + seed +
+                '}';
+    }
+}
@@ -17,17 +17,24 @@
 
 package net.openhft.chronicle.engine.server.internal;
 
+import net.openhft.chronicle.bytes.Bytes;
+import net.openhft.chronicle.engine.map.Utf8KeyInterner;
 import net.openhft.chronicle.wire.ValueIn;
 import net.openhft.chronicle.wire.ValueOut;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.nio.ByteBuffer;
 import java.util.Map.Entry;
 import java.util.function.BiConsumer;
 import java.util.function.Function;
 
 class GenericWireAdapter<K, V> implements WireAdapter<K, V> {
 
+    // Strings read on this thread, so a key or value seen before is not created again.
+    private static final ThreadLocal<Utf8KeyInterner> STRINGS = ThreadLocal.withInitial(() -> new Utf8KeyInterner(4096));
+    private static final ThreadLocal<Bytes<ByteBuffer>> UTF8 = ThreadLocal.withInitial(() -> Bytes.elasticHeapByteBuffer(64));
+
     private final BiConsumer<ValueOut, K> keyToWire = ValueOut::object;
     @Nullable
     private final Function<ValueIn, K> wireToKey;
@@ -52,8 +59,12 @@ class GenericWireAdapter<K, V> implements WireAdapter<K, V> {
         this.kClass = kClass;
         this.vClass = vClass;
 
-        wireToKey = (valueIn) -> valueIn.object(kClass);
-        wireToValue = in -> in.object(vClass);
+        wireToKey = kClass == String.class
+                ? in -> (K) readString(in)
+                : in -> in.object(kClass);
+        wireToValue = vClass == String.class
+                ? in -> (V) readString(in)
+                : in -> in.object(vClass);
         wireToEntry = valueIn -> valueIn.applyToMarshallable(x -> {
 
             @NotNull final K key = (K) ((kClass == CharSequence.class) ?
@@ -86,6 +97,13 @@ class GenericWireAdapter<K, V> implements WireAdapter<K, V> {
         });
     }
 
+    @Nullable
+    static String readString(@NotNull ValueIn in) {
+        @NotNull Bytes<ByteBuffer> utf8 = UTF8.get();
+        utf8.clear();
+        return in.textTo(utf8) == null ? null : STRINGS.get().intern(utf8);
+    }
+
     @Override
     @NotNull
     public BiConsumer<ValueOut, K> keyToWire() {
@@ -36,6 +36,7 @@ import org.jetbrains.annotations.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.concurrent.TimeUnit;
 import java.util.function.BiConsumer;
 import java.util.function.Function;
 
@@ -50,6 +51,7 @@ public class MapWireHandler<K, V> extends AbstractHandler {
 
     private static final StringBuilderPool SBP = new StringBuilderPool();
     private static final Logger LOG = LoggerFactory.getLogger(MapWireHandler.class);
+    private static final EventNameTable<EventId> EVENT_IDS = EventNameTable.of(EventId.class);
     private final StringBuilder eventName = new StringBuilder();
     private final CspManager cspManager;
 
@@ -65,246 +67,248 @@ public class MapWireHandler<K, V> extends AbstractHandler {
     private MapView<K, V> map;
     private boolean charSequenceValue;
     private long tid;
-    private final BiConsumer<WireIn, Long> dataConsumer = new BiConsumer<WireIn, Long>() {
-
-        @SuppressWarnings("ConstantConditions")
-        @Override
-        public void accept(WireIn wireIn, Long inputTid) {
-
-            try {
-                eventName.setLength(0);
-                @NotNull final ValueIn valueIn = inWire.readEventName(eventName);
-                assert startEnforceInValueReadCheck(inWire);
-                if (put.contentEquals(eventName)) {
-                    valueIn.marshallable(wire -> {
-                        @NotNull final Params[] params = put.params();
-
-                        final K key = wireToK.apply(wire.read(params[0]));
-                        final V value = wireToV.apply(wire.read(params[1]));
-                        nullCheck(key);
-                        nullCheck(value);
-                        if (LOG.isDebugEnabled())
-                            Jvm.debug().on(getClass(), "putting key=" + key);
-
-                        map.put(key, value);
-                    });
-                    return;
-                }
-
-                if (remove.contentEquals(eventName)) {
-                    final K key = wireToK.apply(valueIn);
-                    nullCheck(key);
-                    map.remove(key);
-                    return;
-                }
-
-                if (update2.contentEquals(eventName)) {
-                    valueIn.marshallable(wire -> {
-                        @NotNull final Params[] params = update2.params();
-                        @NotNull final SerializableUpdaterWithArg updater = (SerializableUpdaterWithArg) wire.read(params[0]).object(Object.class);
-                        @Nullable final Object arg = wire.read(params[1]).object(Object.class);
-                        map.asyncUpdate(updater, arg);
-                    });
-                    return;
-                }
-
-                outWire.writeDocument(true, wire -> outWire.writeEventName(CoreFields.tid).int64(tid));
-
-                writeData(inWire, out -> {
-
-                    if (clear.contentEquals(eventName)) {
-                        skipValue(valueIn);
-                        map.clear();
-                        return;
-                    }
+    @Nullable
+    private ValueIn valueIn = null;
+    @Nullable
+    private EventId eventId;
+    // the handlers are fields, rather than lambdas created for each request, so a request creates no garbage.
+    private final WriteMarshallable writeTid = out -> out.writeEventName(CoreFields.tid).int64(tid);
+    private final ReadMarshallable readPut = wire -> {
+        @NotNull final Params[] params = put.params();
+
+        final K key = wireToK.apply(wire.read(params[0]));
+        final V value = wireToV.apply(wire.read(params[1]));
+        nullCheck(key);
+        nullCheck(value);
+        if (LOG.isDebugEnabled())
+            Jvm.debug().on(getClass(), "putting key=" + key);
+
+        map.put(key, value);
+    };
+    private final WriteMarshallable writeReply = this::writeReply;
 
-                    if (putAll.contentEquals(eventName)) {
-                        valueIn.sequence(map, (m, v) -> {
-                            while (v.hasNextSequenceItem()) {
-                                valueIn.marshallable(wire -> m.put(
-                                        wireToK.apply(wire.read(put.params()[0])),
-                                        wireToV.apply(wire.read(put.params()[1]))));
-                            }
-                        });
+    @SuppressWarnings("ConstantConditions")
+    private void onRequest() {
+        try {
+            eventName.setLength(0);
+            valueIn = inWire.readEventName(eventName);
+            assert startEnforceInValueReadCheck(inWire);
+            eventId = EVENT_IDS.lookup(eventName);
+            if (eventId != null) {
+                switch (eventId) {
+                    case put:
+                        valueIn.marshallable(readPut);
                         return;
-                    }
 
-                    if (EventId.putIfAbsent.contentEquals(eventName)) {
+                    case putWithTtl:
                         valueIn.marshallable(wire -> {
-                            @NotNull final Params[] params = putIfAbsent.params();
+                            @NotNull final Params[] params = putWithTtl.params();
                             final K key = wireToK.apply(wire.read(params[0]));
-                            final V newValue = wireToV.apply(wire.read(params[1]));
-                            final V result = map.putIfAbsent(key, newValue);
-
+                            final V value = wireToV.apply(wire.read(params[1]));
+                            final long ttlMillis = wire.read(params[2]).int64();
                             nullCheck(key);
-                            nullCheck(newValue);
-
-                            vToWire.accept(outWire.writeEventName(reply), result);
+                            nullCheck(value);
+                            map.put(key, value, ttlMillis, TimeUnit.MILLISECONDS);
                         });
                         return;
-                    }
 
-                    if (size.contentEquals(eventName)) {
-                        skipValue(valueIn);
-                        outWire.writeEventName(reply).int64(map.longSize());
-                        return;
-                    }
-
-                    if (keySet.contentEquals(eventName) ||
-                            values.contentEquals(eventName) ||
-                            entrySet.contentEquals(eventName)) {
-                        skipValue(valueIn);
-                        cspManager.createProxy(eventName.toString());
-                        return;
-                    }
-
-                    if (containsKey.contentEquals(eventName)) {
+                    case remove: {
                         final K key = wireToK.apply(valueIn);
                         nullCheck(key);
-                        outWire.writeEventName(reply)
-                                .bool(map.containsKey(key));
+                        map.remove(key);
                         return;
                     }
 
-                    if (containsValue.contentEquals(eventName)) {
-                        final V value = wireToV.apply(valueIn);
-                        nullCheck(value);
-                        final boolean aBoolean = map.containsValue(value);
-                        outWire.writeEventName(reply).bool(
-                                aBoolean);
+                    case update2:
+                        valueIn.marshallable(wire -> {
+                            @NotNull final Params[] params = update2.params();
+                            @NotNull final SerializableUpdaterWithArg updater = (SerializableUpdaterWithArg) wire.read(params[0]).object(Object.class);
+                            @Nullable final Object arg = wire.read(params[1]).object(Object.class);
+                            map.asyncUpdate(updater, arg);
+                        });
                         return;
-                    }
 
-                    if (get.contentEquals(eventName)) {
-                        final K key = wireToK.apply(valueIn);
-                        nullCheck(key);
-
-                        if (charSequenceValue) {
-                            StringBuilder sb = SBP.acquireStringBuilder();
-                            vToWire.accept(outWire.writeEventName(reply), (V) ((ChronicleMap) map).getUsing(key, sb));
-                        } else {
-                            vToWire.accept(outWire.writeEventName(reply), map.get(key));
-                        }
-
-                        return;
-                    }
+                    default:
+                        break;
+                }
+            }
 
-                    if (getAndPut.contentEquals(eventName)) {
-                        valueIn.marshallable(wire -> {
+            outWire.writeDocument(true, writeTid);
 
-                            @NotNull final Params[] params = getAndPut.params();
-                            final K key = wireToK.apply(wire.read(params[0]));
-                            final V value = wireToV.apply(wire.read(params[1]));
+            writeData(inWire, writeReply);
 
-                            nullCheck(key);
-                            nullCheck(value);
+        } catch (Exception e) {
+            Jvm.warn().on(getClass(), e);
+        } finally {
+            assert endEnforceInValueReadCheck(inWire);
+        }
+    }
 
-                            vToWire.accept(outWire.writeEventName(reply),
-                                    map.getAndPut(key, value));
-                        });
-                        return;
+    @SuppressWarnings("ConstantConditions")
+    private void writeReply(WireOut out) {
+        if (eventId == null)
+            throw new IllegalStateException("unsupported event=" + eventName);
+
+        switch (eventId) {
+            case clear:
+                skipValue(valueIn);
+                map.clear();
+                return;
+
+            case putAll:
+                valueIn.sequence(map, (m, v) -> {
+                    while (v.hasNextSequenceItem()) {
+                        valueIn.marshallable(wire -> m.put(
+                                wireToK.apply(wire.read(put.params()[0])),
+                                wireToV.apply(wire.read(put.params()[1]))));
                     }
+                });
+                return;
+
+            case size:
+                skipValue(valueIn);
+                outWire.writeEventName(reply).int64(map.longSize());
+                return;
+
+            case keySet:
+            case values:
+            case entrySet:
+                skipValue(valueIn);
+                cspManager.createProxy(eventName.toString());
+                return;
+
+            case containsKey: {
+                final K key = wireToK.apply(valueIn);
+                nullCheck(key);
+                outWire.writeEventName(reply)
+                        .bool(map.containsKey(key));
+                return;
+            }
 
-                    if (getAndRemove.contentEquals(eventName)) {
-                        final K key = wireToK.apply(valueIn);
-                        nullCheck(key);
-                        vToWire.accept(outWire.writeEventName(reply), map.getAndRemove(key));
-                        return;
-                    }
+            case containsValue: {
+                final V value = wireToV.apply(valueIn);
+                nullCheck(value);
+                final boolean aBoolean = map.containsValue(value);
+                outWire.writeEventName(reply).bool(
+                        aBoolean);
+                return;
+            }
 
-                    if (replace.contentEquals(eventName)) {
-                        valueIn.marshallable(wire -> {
-                            @NotNull final Params[] params = replace.params();
-                            final K key = wireToK.apply(wire.read(params[0]));
-                            final V value = wireToV.apply(wire.read(params[1]));
-                            nullCheck(key);
-                            nullCheck(value);
-                            vToWire.accept(outWire.writeEventName(reply),
-                                    map.replace(key, value));
-                        });
-                        return;
-                    }
+            case get: {
+                final K key = wireToK.apply(valueIn);
+                nullCheck(key);
 
-                    if (replaceForOld.contentEquals(eventName)) {
-                        valueIn.marshallable(wire -> {
-                            @NotNull final Params[] params = replaceForOld.params();
-                            final K key = wireToK.apply(wire.read(params[0]));
-                            V oldValue = wireToV.apply(wire.read(params[1]));
-                            if (charSequenceValue)
-                                oldValue = (V) oldValue.toString();
-                            final V newValue = wireToV.apply(wire.read(params[2]));
-                            nullCheck(key);
-                            nullCheck(oldValue);
-                            nullCheck(newValue);
-                            outWire.writeEventName(reply).bool(map.replace(key, oldValue, newValue));
-                        });
-                        return;
-                    }
+                if (charSequenceValue) {
+                    StringBuilder sb = SBP.acquireStringBuilder();
+                    vToWire.accept(outWire.writeEventName(reply), (V) ((ChronicleMap) map).getUsing(key, sb));
+                } else {
+                    vToWire.accept(outWire.writeEventName(reply), map.get(key));
+                }
+                return;
+            }
 
-                    if (putIfAbsent.contentEquals(eventName)) {
-                        valueIn.marshallable(wire -> {
-                            @NotNull final Params[] params = putIfAbsent.params();
-                            final K key = wireToK.apply(wire.read(params[0]));
-                            final V value = wireToV.apply(wire.read(params[1]));
-                            nullCheck(key);
-                            nullCheck(value);
-                            vToWire.accept(outWire.writeEventName(reply),
-                                    map.putIfAbsent(key, value));
-                        });
+            case getAndPut:
+                valueIn.marshallable(wire -> {
 
-                        return;
-                    }
+                    @NotNull final Params[] params = getAndPut.params();
+                    final K key = wireToK.apply(wire.read(params[0]));
+                    final V value = wireToV.apply(wire.read(params[1]));
 
-                    if (removeWithValue.contentEquals(eventName)) {
-                        valueIn.marshallable(wire -> {
-                            @NotNull final Params[] params = removeWithValue.params();
-                            final K key = wireToK.apply(wire.read(params[0]));
-                            final V value = wireToV.apply(wire.read(params[1]));
-                            nullCheck(key);
-                            nullCheck(value);
-                            outWire.writeEventName(reply).bool(map.remove(key, value));
-                        });
-                    }
+                    nullCheck(key);
+                    nullCheck(value);
 
-                    if (hashCode.contentEquals(eventName)) {
-                        skipValue(valueIn);
-                        outWire.writeEventName(reply).int32(map.hashCode());
-                        return;
-                    }
+                    vToWire.accept(outWire.writeEventName(reply),
+                            map.getAndPut(key, value));
+                });
+                return;
 
-                    if (applyTo2.contentEquals(eventName)) {
-                        valueIn.marshallable(wire -> {
-                            @NotNull final Params[] params = applyTo2.params();
-                            @Nullable final SerializableBiFunction function = (SerializableBiFunction) wire.read(params[0]).object(Object.class);
-                            @Nullable final Object arg = wire.read(params[1]).object(Object.class);
-                            //call typed object
-                            outWire.writeEventName(reply).object(map.applyTo(function, arg));
-                        });
-                        return;
-                    }
+            case getAndRemove: {
+                final K key = wireToK.apply(valueIn);
+                nullCheck(key);
+                vToWire.accept(outWire.writeEventName(reply), map.getAndRemove(key));
+                return;
+            }
 
-                    if (update4.contentEquals(eventName)) {
-                        valueIn.marshallable(wire -> {
-                            @NotNull final Params[] params = update4.params();
-                            @NotNull final SerializableUpdaterWithArg updater = (SerializableUpdaterWithArg) wire.read(params[0]).object(Object.class);
-                            @Nullable final Object updateArg = wire.read(params[1]).object(Object.class);
-                            @NotNull final SerializableBiFunction returnFunction = (SerializableBiFunction) wire.read(params[2]).object(Object.class);
-                            @Nullable final Object returnArg = wire.read(params[3]).object(Object.class);
-                            outWire.writeEventName(reply).object(map.syncUpdate(updater, updateArg, returnFunction, returnArg));
-                        });
-                        return;
-                    }
+            case replace:
+                valueIn.marshallable(wire -> {
+                    @NotNull final Params[] params = replace.params();
+                    final K key = wireToK.apply(wire.read(params[0]));
+                    final V value = wireToV.apply(wire.read(params[1]));
+                    nullCheck(key);
+                    nullCheck(value);
+                    vToWire.accept(outWire.writeEventName(reply),
+                            map.replace(key, value));
+                });
+                return;
+
+            case replaceForOld:
+                valueIn.marshallable(wire -> {
+                    @NotNull final Params[] params = replaceForOld.params();
+                    final K key = wireToK.apply(wire.read(params[0]));
+                    V oldValue = wireToV.apply(wire.read(params[1]));
+                    if (charSequenceValue)
+                        oldValue = (V) oldValue.toString();
+                    final V newValue = wireToV.apply(wire.read(params[2]));
+                    nullCheck(key);
+                    nullCheck(oldValue);
+                    nullCheck(newValue);
+                    outWire.writeEventName(reply).bool(map.replace(key, oldValue, newValue));
+                });
+                return;
 
-                    throw new IllegalStateException("unsupported event=" + eventName);
+            case putIfAbsent:
+                valueIn.marshallable(wire -> {
+                    @NotNull final Params[] params = putIfAbsent.params();
+                    final K key = wireToK.apply(wire.read(params[0]));
+                    final V value = wireToV.apply(wire.read(params[1]));
+                    nullCheck(key);
+                    nullCheck(value);
+                    vToWire.accept(outWire.writeEventName(reply),
+                            map.putIfAbsent(key, value));
                 });
+                return;
 
-            } catch (Exception e) {
-                Jvm.warn().on(getClass(), e);
-            } finally {
-                assert endEnforceInValueReadCheck(inWire);
-            }
+            case removeWithValue:
+                valueIn.marshallable(wire -> {
+                    @NotNull final Params[] params = removeWithValue.params();
+                    final K key = wireToK.apply(wire.read(params[0]));
+                    final V value = wireToV.apply(wire.read(params[1]));
+                    nullCheck(key);
+                    nullCheck(value);
+                    outWire.writeEventName(reply).bool(map.remove(key, value));
+                });
+                return;
+
+            case hashCode:
+                skipValue(valueIn);
+                outWire.writeEventName(reply).int32(map.hashCode());
+                return;
+
+            case applyTo2:
+                valueIn.marshallable(wire -> {
+                    @NotNull final Params[] params = applyTo2.params();
+                    @Nullable final SerializableBiFunction function = (SerializableBiFunction) wire.read(params[0]).object(Object.class);
+                    @Nullable final Object arg = wire.read(params[1]).object(Object.class);
+                    //call typed object
+                    outWire.writeEventName(reply).object(map.applyTo(function, arg));
+                });
+                return;
+
+            case update4:
+                valueIn.marshallable(wire -> {
+                    @NotNull final Params[] params = update4.params();
+                    @NotNull final SerializableUpdaterWithArg updater = (SerializableUpdaterWithArg) wire.read(params[0]).object(Object.class);
+                    @Nullable final Object updateArg = wire.read(params[1]).object(Object.class);
+                    @NotNull final SerializableBiFunction returnFunction = (SerializableBiFunction) wire.read(params[2]).object(Object.class);
+                    @Nullable final Object returnArg = wire.read(params[3]).object(Object.class);
+                    outWire.writeEventName(reply).object(map.syncUpdate(updater, updateArg, returnFunction, returnArg));
+                });
+                return;
+
+            default:
+                throw new IllegalStateException("unsupported event=" + eventName);
         }
-    };
+    }
 
     public MapWireHandler(CspManager cspManager) {
         this.cspManager = cspManager;
@@ -341,7 +345,7 @@ public class MapWireHandler<K, V> extends AbstractHandler {
                     "remove " +
                     "map";
             this.tid = tid;
-            dataConsumer.accept(in, tid);
+            onRequest();
         } catch (Exception e) {
             Jvm.warn().on(getClass(), "", e);
         }
@@ -360,6 +364,7 @@ public class MapWireHandler<K, V> extends AbstractHandler {
         updateArg,
         function,
         arg,
+        ttlMillis,
     }
 
     public enum EventId implements ParameterizeWireKey {
@@ -393,7 +398,8 @@ public class MapWireHandler<K, V> extends AbstractHandler {
         applyTo2(function, arg),
         update2(updateFunction, updateArg),
         update4(updateFunction, updateArg, function, arg),
-        bootstrap;
+        bootstrap,
+        putWithTtl(key, value, ttlMillis);
 
         private final WireKey[] params;
 
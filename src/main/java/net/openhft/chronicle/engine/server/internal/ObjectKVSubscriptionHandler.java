@@ -27,6 +27,7 @@ import net.openhft.chronicle.engine.map.ObjectSubscription;
 import net.openhft.chronicle.network.connection.WireOutPublisher;
 import net.openhft.chronicle.wire.*;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -41,6 +42,11 @@ import static net.openhft.chronicle.network.connection.CoreFields.tid;
  */
 public final class ObjectKVSubscriptionHandler extends SubscriptionHandler<SubscriptionCollection> {
     private static final Logger LOG = LoggerFactory.getLogger(ObjectKVSubscriptionHandler.class);
+    private static final EncodedEvent.Encoder TOPIC_REPLY = (wire, topic, message) -> wire.writeEventName(reply)
+            .marshallable(m -> {
+                m.write(() -> "topic").object(topic);
+                m.write(() -> "message").object(message);
+            });
     @NotNull
     private final BiConsumer<WireIn, Long> dataConsumer = (inWire, inputTid) -> {
 
@@ -62,13 +68,10 @@ public final class ObjectKVSubscriptionHandler extends SubscriptionHandler<Subsc
                     @Override
                     public void onMessage(final Object topic, final Object message) {
                         synchronized (publisher) {
-                            publisher.put(topic, publish -> {
+                            @NotNull EncodedEvent encoded = EncodedEvent.of(topic, message, TOPIC_REPLY);
+                            publisher.put(BoundedWireOutPublisher.eventKey(publisher, inputTid, topic), publish -> {
                                 publish.writeDocument(true, wire -> wire.writeEventName(tid).int64(inputTid));
-                                publish.writeNotCompleteDocument(false, wire -> wire.writeEventName(reply)
-                                        .marshallable(m -> {
-                                            m.write(() -> "topic").object(topic);
-                                            m.write(() -> "message").object(message);
-                                        }));
+                                publish.writeNotCompleteDocument(false, w -> encoded.writeTo(wireType, w));
                             });
                         }
                     }
@@ -167,12 +170,14 @@ public final class ObjectKVSubscriptionHandler extends SubscriptionHandler<Subsc
                  @NotNull final WireOutPublisher publisher,
                  @NotNull final Asset rootAsset, final long tid,
                  @NotNull final Wire outWire,
-                 @NotNull final SubscriptionCollection subscription) {
+                 @NotNull final SubscriptionCollection subscription,
+                 @Nullable final WireType wireType) {
         setOutWire(outWire);
         this.outWire = outWire;
         this.subscription = subscription;
         this.requestContext = requestContext;
         this.publisher = publisher(publisher);
+        this.wireType = wireType;
         this.asset = rootAsset;
         dataConsumer.accept(inWire, tid);
 
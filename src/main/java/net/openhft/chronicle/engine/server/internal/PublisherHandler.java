@@ -57,7 +57,7 @@ public class PublisherHandler<E> extends AbstractHandler {
                     final Object key = view;
                     @NotNull final Subscriber listener = message -> {
                         synchronized (publisher) {
-                            publisher.put(key, publish -> {
+                            publisher.put(BoundedWireOutPublisher.eventKey(publisher, inputTid, key), publish -> {
 
                                 publish.writeDocument(true, wire -> wire.writeEventName(tid).int64
                                         (inputTid));
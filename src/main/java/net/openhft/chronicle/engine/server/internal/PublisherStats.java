@@ -0,0 +1,92 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+
+package net.openhft.chronicle.engine.server.internal;
+
+import net.openhft.chronicle.engine.server.internal.BoundedWireOutPublisher.Policy;
+import net.openhft.chronicle.wire.AbstractMarshallable;
+
+/**
+ * The outbound queue of one client connection, as published under {@link BoundedWireOutPublisher#STATS_URI}.
+ */
+public class PublisherStats extends AbstractMarshallable {
+    private Policy policy;
+    private int maxPending;
+    private int pending;
+    private long maxDepth;
+    private long dropped;
+    private long conflated;
+    private long blocked;
+    private boolean disconnected;
+
+    public PublisherStats() {
+    }
+
+    PublisherStats(Policy policy, int maxPending, int pending, long maxDepth, long dropped, long conflated,
+                   long blocked, boolean disconnected) {
+        this.policy = policy;
+        this.maxPending = maxPending;
+        this.pending = pending;
+        this.maxDepth = maxDepth;
+        this.dropped = dropped;
+        this.conflated = conflated;
+        this.blocked = blocked;
+        this.disconnected = disconnected;
+    }
+
+    public Policy policy() {
+        return policy;
+    }
+
+    public int maxPending() {
+        return maxPending;
+    }
+
+    /**
+     * @return the events held for the client now.
+     */
+    public int pending() {
+        return pending;
+    }
+
+    /**
+     * @return the most events held for the client at once.
+     */
+    public long maxDepth() {
+        return maxDepth;
+    }
+
+    public long dropped() {
+        return dropped;
+    }
+
+    public long conflated() {
+        return conflated;
+    }
+
+    /**
+     * @return how many times a put waited for the client to catch up.
+     */
+    public long blocked() {
+        return blocked;
+    }
+
+    public boolean disconnected() {
+        return disconnected;
+    }
+}
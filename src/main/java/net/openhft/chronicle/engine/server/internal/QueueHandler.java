@@ -66,7 +66,7 @@ public class QueueHandler<T, M> extends TopicPublisherHandler<T, M> {
                         public void onMessage(final Object topic, final Object message) {
 
                             synchronized (publisher) {
-                                publisher.put(topic, publish -> {
+                                publisher.put(BoundedWireOutPublisher.eventKey(publisher, inputTid, topic), publish -> {
                                     publish.writeDocument(true, wire -> wire.writeEventName(tid).int64
                                             (inputTid));
                                     publish.writeNotCompleteDocument(false, wire -> wire.writeEventName(reply)
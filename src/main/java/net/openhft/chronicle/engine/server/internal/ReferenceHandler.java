@@ -88,7 +88,7 @@ public class ReferenceHandler<E, T> extends AbstractHandler {
                         @Override
                         public void onMessage(final Object message) {
                             synchronized (publisher) {
-                                publisher.put(key, publish -> {
+                                publisher.put(BoundedWireOutPublisher.eventKey(publisher, inputTid, key), publish -> {
                                     publish.writeDocument(true, wire -> wire.writeEventName(tid).int64
                                             (inputTid));
                                     publish.writeNotCompleteDocument(false, wire -> wire.writeEventName(reply)
@@ -20,19 +20,27 @@ package net.openhft.chronicle.engine.server.internal;
 import net.openhft.chronicle.core.Jvm;
 import net.openhft.chronicle.engine.api.map.MapEvent;
 import net.openhft.chronicle.engine.api.pubsub.InvalidSubscriberException;
+import net.openhft.chronicle.engine.api.pubsub.PacedSubscriber;
 import net.openhft.chronicle.engine.api.pubsub.Subscriber;
 import net.openhft.chronicle.engine.api.pubsub.SubscriptionCollection;
 import net.openhft.chronicle.engine.api.tree.Asset;
 import net.openhft.chronicle.engine.api.tree.AssetNotFoundException;
 import net.openhft.chronicle.engine.api.tree.RequestContext;
+import net.openhft.chronicle.engine.map.DeltaUpdatedEvent;
+import net.openhft.chronicle.engine.map.SequencedEvent;
+import net.openhft.chronicle.engine.map.UpdatedEvent;
 import net.openhft.chronicle.engine.query.Filter;
 import net.openhft.chronicle.network.connection.CoreFields;
+import net.openhft.chronicle.network.connection.WireOutConsumer;
 import net.openhft.chronicle.network.connection.WireOutPublisher;
 import net.openhft.chronicle.wire.*;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
@@ -45,6 +53,25 @@ import static net.openhft.chronicle.network.connection.WireOutPublisher.newThrot
  */
 public class SubscriptionHandler<T extends SubscriptionCollection> extends AbstractHandler {
     private static final Logger LOG = LoggerFactory.getLogger(SubscriptionHandler.class);
+    private static final EncodedEvent.Encoder REPLY = (wire, e, $) -> wire.write(reply).object(e);
+    // an update of a Marshallable value is sent as the fields which changed, if that is smaller.
+    private static final EncodedEvent.Encoder DELTA_REPLY = (wire, e, $) -> {
+        @Nullable DeltaUpdatedEvent delta = DeltaUpdatedEvent.of((MapEvent) e);
+        wire.write(reply).object(delta == null ? e : delta);
+    };
+    // a resumable subscriber is sent the position of each event ahead of it.
+    private static final EncodedEvent.Encoder SEQUENCED_REPLY = (wire, e, $) ->
+            writeSequenced(wire, (SequencedEvent) e, REPLY);
+    private static final EncodedEvent.Encoder SEQUENCED_DELTA_REPLY = (wire, e, $) ->
+            writeSequenced(wire, (SequencedEvent) e, DELTA_REPLY);
+    private static final EncodedEvent.Encoder END_OF_BOOTSTRAP = (wire, e, $) -> wire.write(onEndOfBootstrap).text("");
+    private static final EncodedEvent END_OF_BOOTSTRAP_EVENT = EncodedEvent.of(null, null, END_OF_BOOTSTRAP);
+    // the most events written in one document.
+    private static final int MAX_BATCH = 1024;
+    // the most entries of a remote bootstrap sent per pass of the event loop, unless the client asks.
+    private static final int BOOTSTRAP_CHUNK_SIZE = Integer.getInteger("engine.bootstrapChunkSize", 1024);
+    // the most events held for a flow controlled subscriber which hasn't requested them, before it is dropped.
+    private static final int FLOW_CONTROL_PENDING = Integer.getInteger("engine.flowControlPending", 1 << 20);
 
     final StringBuilder eventName = new StringBuilder();
     final Map<Long, Object> tidToListener = new ConcurrentHashMap<>();
@@ -52,6 +79,9 @@ public class SubscriptionHandler<T extends SubscriptionCollection> extends Abstr
     Wire outWire;
     T subscription;
     WireOutPublisher publisher;
+    // the wire type of the connection, which the shared encoding of an event is kept by.
+    @Nullable
+    WireType wireType;
     Asset asset;
 
     /**
@@ -91,12 +121,26 @@ public class SubscriptionHandler<T extends SubscriptionCollection> extends Abstr
         if (registerSubscriber.contentEquals(eventName)) {
             final Class subscriptionType = valueIn.typeLiteral();
 
+            @NotNull Filter filter = Filter.empty();
+            @NotNull final long[] resume = {0, -1};
+            long demand = 0;
+            @NotNull final WireIn wireIn = valueIn.wireIn();
             final StringBuilder sb = Wires.acquireStringBuilder();
-            @NotNull final ValueIn valueIn1 = valueIn.wireIn().readEventName(sb);
-
-            @NotNull final Filter filter = "filter".contentEquals(sb) ?
-                    valueIn1.object(Filter.class) :
-                    Filter.empty();
+            while (wireIn.hasMore()) {
+                @NotNull final ValueIn valueIn1 = wireIn.readEventName(sb);
+                if ("filter".contentEquals(sb)) {
+                    filter = valueIn1.object(Filter.class);
+                } else if (request.contentEquals(sb)) {
+                    demand = valueIn1.int64();
+                } else if (resumeFrom.contentEquals(sb)) {
+                    valueIn1.marshallable(m -> {
+                        resume[0] = m.read(() -> "epoch").int64();
+                        resume[1] = m.read(() -> "sequence").int64();
+                    });
+                } else {
+                    valueIn1.skipValue();
+                }
+            }
 
             if (tidToListener.containsKey(tid)) {
                 LOG.info("Duplicate registration for tid " + tid);
@@ -108,13 +152,37 @@ public class SubscriptionHandler<T extends SubscriptionCollection> extends Abstr
                             publisher :
                             newThrottledWireOutPublisher(requestContext.throttlePeriodMs(), publisher);
 
-            @NotNull Subscriber<Object> listener = new LocalSubscriber(tid, pub);
+            // a bounded publisher has to see each event to apply its policy.
+            boolean batch = requestContext.batchEvents() && pub == publisher
+                    && !(publisher instanceof BoundedWireOutPublisher);
+            // the client can only patch its copy of a value if it is sent every update of the key.
+            boolean delta = requestContext.deltaUpdates() && filter.isEmpty() && pub == publisher
+                    && isLossless(publisher);
+            // the events a flow controlled subscriber hasn't requested are held here rather than by the publisher.
+            boolean flowControl = requestContext.flowControl() && pub == publisher;
+            @NotNull Subscriber<Object> listener = flowControl
+                    ? new FlowControlledSubscriber(tid, pub, delta, demand)
+                    : batch
+                    ? new BatchingSubscriber(tid, pub, delta)
+                    : new LocalSubscriber(tid, pub, delta);
             tidToListener.put(tid, listener);
             @NotNull RequestContext rc = requestContext.clone().elementType(subscriptionType);
+            // a subscriber can only resume if it was sent every event.
+            if (rc.resumable())
+                rc.resumable(pub == publisher && isLossless(publisher)).resumeFrom(resume[0], resume[1]);
+            if (rc.bootstrapChunkSize() == 0)
+                rc.bootstrapChunkSize(BOOTSTRAP_CHUNK_SIZE);
             @NotNull final SubscriptionCollection subscription = asset.acquireSubscription(rc);
             subscription.registerSubscriber(rc, listener, filter);
             return true;
         }
+        if (request.contentEquals(eventName)) {
+            final long n = valueIn.int64();
+            @Nullable final Object listener = tidToListener.get(tid);
+            if (listener instanceof FlowControlledSubscriber)
+                ((FlowControlledSubscriber) listener).request(n);
+            return true;
+        }
         if (unregisterSubscriber.contentEquals(eventName)) {
             skipValue(valueIn);
             @NotNull Subscriber<Object> listener = (Subscriber) tidToListener.remove(tid);
@@ -130,6 +198,26 @@ public class SubscriptionHandler<T extends SubscriptionCollection> extends Abstr
         return false;
     }
 
+    private static void writeSequenced(@NotNull WireOut wire, @NotNull SequencedEvent event,
+                                       @NotNull EncodedEvent.Encoder encoder) {
+        @Nullable final MapEvent e = event.event();
+        if (e == null) {
+            wire.write(bootstrapPosition).marshallable(m -> m
+                    .write(() -> "epoch").int64(event.epoch())
+                    .write(() -> "sequence").int64(event.sequence()));
+            return;
+        }
+        wire.write(sequence).int64(event.sequence());
+        encoder.encode(wire, e, null);
+    }
+
+    private static boolean isLossless(@NotNull WireOutPublisher publisher) {
+        if (!(publisher instanceof BoundedWireOutPublisher))
+            return true;
+        @NotNull BoundedWireOutPublisher.Policy policy = ((BoundedWireOutPublisher) publisher).policy();
+        return policy == BoundedWireOutPublisher.Policy.BLOCK || policy == BoundedWireOutPublisher.Policy.DISCONNECT;
+    }
+
     @Override
     protected void unregisterAll() {
         tidToListener.forEach((k, listener) -> asset.unregisterSubscriber(requestContext,
@@ -141,6 +229,11 @@ public class SubscriptionHandler<T extends SubscriptionCollection> extends Abstr
 
         registerSubscriber,
         unregisterSubscriber,
+        onEndOfBootstrap,
+        resumeFrom,
+        sequence,
+        bootstrapPosition,
+        request,
         keySubscriberCount,
         entrySubscriberCount,
         topicSubscriberCount;
@@ -159,13 +252,24 @@ public class SubscriptionHandler<T extends SubscriptionCollection> extends Abstr
     }
 
     class LocalSubscriber implements Subscriber<Object> {
-        private final Long tid;
-        private final WireOutPublisher publisher;
+        final Long tid;
+        final WireOutPublisher publisher;
+        final boolean deltaUpdates;
         volatile boolean subscriptionEnded;
 
-        LocalSubscriber(Long tid, WireOutPublisher publisher) {
+        LocalSubscriber(Long tid, WireOutPublisher publisher, boolean deltaUpdates) {
             this.tid = tid;
             this.publisher = publisher;
+            this.deltaUpdates = deltaUpdates;
+        }
+
+        @NotNull
+        EncodedEvent encode(Object e) {
+            @NotNull final EncodedEvent.Encoder encoder = e instanceof SequencedEvent
+                    ? (deltaUpdates ? SEQUENCED_DELTA_REPLY : SEQUENCED_REPLY)
+                    : (deltaUpdates && e instanceof UpdatedEvent ? DELTA_REPLY : REPLY);
+            // every subscriber to this event shares the bytes it is encoded as.
+            return EncodedEvent.of(e, null, encoder);
         }
 
         @Override
@@ -173,14 +277,27 @@ public class SubscriptionHandler<T extends SubscriptionCollection> extends Abstr
             if (subscriptionEnded)
                 return;
 
+            @NotNull final EncodedEvent encoded = encode(e);
             @NotNull final WriteMarshallable event = p -> {
                 p.writeDocument(true, wire -> wire.writeEventName(CoreFields.tid).int64(tid));
-                p.writeNotCompleteDocument(false, wire -> wire.write(reply).object(e));
+                p.writeNotCompleteDocument(false, w -> encoded.writeTo(wireType, w));
             };
 
             final Object key = (e instanceof MapEvent) ? ((MapEvent) e).getKey() : e;
             synchronized (publisher) {
-                publisher.put(key, event);
+                publisher.put(BoundedWireOutPublisher.eventKey(publisher, tid, key), event);
+            }
+        }
+
+        @Override
+        public void onEndOfBootstrap() {
+            if (subscriptionEnded)
+                return;
+            synchronized (publisher) {
+                publisher.put(null, publish -> {
+                    publish.writeDocument(true, wire -> wire.writeEventName(CoreFields.tid).int64(tid));
+                    publish.writeDocument(false, wire -> wire.writeEventName(onEndOfBootstrap).text(""));
+                });
             }
         }
 
@@ -208,4 +325,152 @@ public class SubscriptionHandler<T extends SubscriptionCollection> extends Abstr
                     "tid=" + tid + '}';
         }
     }
+
+    /**
+     * Writes all the events of the subscription which are pending each time the socket is written to as
+     * one document of replies, for a client which asked for batchEvents.
+     */
+    class BatchingSubscriber extends LocalSubscriber {
+        final List<EncodedEvent> pending = new ArrayList<>();
+        private final WireOutConsumer flusher = this::flush;
+
+        BatchingSubscriber(Long tid, @NotNull WireOutPublisher publisher, boolean deltaUpdates) {
+            super(tid, publisher, deltaUpdates);
+            publisher.addWireConsumer(flusher);
+        }
+
+        @Override
+        public void onMessage(Object e) throws InvalidSubscriberException {
+            if (subscriptionEnded)
+                return;
+            if (publisher.isClosed())
+                throw new InvalidSubscriberException();
+
+            @NotNull final EncodedEvent encoded = encode(e);
+            synchronized (this) {
+                pending.add(encoded);
+            }
+        }
+
+        @Override
+        public void onEndOfBootstrap() {
+            if (subscriptionEnded)
+                return;
+            synchronized (this) {
+                pending.add(END_OF_BOOTSTRAP_EVENT);
+            }
+        }
+
+        @Override
+        public void onEndOfSubscription() {
+            // sent by the flusher after the events still pending.
+            subscriptionEnded = true;
+        }
+
+        /**
+         * @return how many of the pending events to write now, called holding the lock of this.
+         */
+        int toSend() {
+            return Math.min(pending.size(), MAX_BATCH);
+        }
+
+        private void flush(@NotNull WireOut out) {
+            @NotNull final List<EncodedEvent> events;
+            final boolean end;
+            synchronized (this) {
+                if (pending.isEmpty() && !subscriptionEnded)
+                    return;
+                @NotNull List<EncodedEvent> batch = pending.subList(0, toSend());
+                events = new ArrayList<>(batch);
+                batch.clear();
+                end = subscriptionEnded && pending.isEmpty();
+            }
+
+            if (!events.isEmpty()) {
+                out.writeDocument(true, wire -> wire.writeEventName(CoreFields.tid).int64(tid));
+                out.writeNotCompleteDocument(false, wire -> {
+                    for (@NotNull EncodedEvent event : events)
+                        event.writeTo(wireType, wire);
+                });
+            }
+            if (end) {
+                publisher.removeBytesConsumer(flusher);
+                out.writeDocument(true, wire -> wire.writeEventName(CoreFields.tid).int64(tid));
+                out.writeDocument(false, wire ->
+                        wire.writeEventName(ObjectKVSubscriptionHandler.EventId.onEndOfSubscription).text(""));
+            }
+        }
+
+        @NotNull
+        @Override
+        public String toString() {
+            return "BatchingSubscriber{" +
+                    "tid=" + tid + '}';
+        }
+    }
+
+    /**
+     * Writes no more events than the client has requested, for a client which asked for flowControl.  The
+     * end of the bootstrap isn't counted as it isn't passed to the subscriber.
+     * <p>
+     * The bootstrap is read no faster than the client requests it.  Events of writes to the map can't be
+     * held back at the source, so they are held here until requested, up to engine.flowControlPending.
+     */
+    class FlowControlledSubscriber extends BatchingSubscriber implements PacedSubscriber<Object> {
+        // guarded by this.
+        private long demand;
+
+        FlowControlledSubscriber(Long tid, @NotNull WireOutPublisher publisher, boolean deltaUpdates, long demand) {
+            super(tid, publisher, deltaUpdates);
+            this.demand = demand;
+        }
+
+        synchronized void request(long n) {
+            demand += n;
+            if (demand < 0)
+                demand = Long.MAX_VALUE;
+        }
+
+        @Override
+        public synchronized long available() {
+            // once ended, the next event is rejected, which stops the bootstrap.
+            return subscriptionEnded ? Long.MAX_VALUE : Math.max(0, demand - pending.size());
+        }
+
+        @Override
+        public void onMessage(Object e) throws InvalidSubscriberException {
+            synchronized (this) {
+                if (pending.size() >= FLOW_CONTROL_PENDING && !subscriptionEnded) {
+                    // the client isn't keeping up, so it is sent the end of the subscription without them.
+                    LOG.warn("Dropping " + this + " which has not requested " + pending.size() + " events");
+                    pending.clear();
+                    subscriptionEnded = true;
+                }
+            }
+            if (subscriptionEnded)
+                throw new InvalidSubscriberException();
+            super.onMessage(e);
+        }
+
+        @Override
+        int toSend() {
+            final int max = Math.min(pending.size(), MAX_BATCH);
+            int count = 0;
+            for (; count < max; count++) {
+                if (pending.get(count) == END_OF_BOOTSTRAP_EVENT)
+                    continue;
+                if (demand == 0)
+                    break;
+                demand--;
+            }
+            return count;
+        }
+
+        @NotNull
+        @Override
+        public String toString() {
+            return "FlowControlledSubscriber{" +
+                    "tid=" + tid + '}';
+        }
+    }
 }
@@ -71,12 +71,14 @@ public class TopologySubscriptionHandler extends SubscriptionHandler<TopologySub
                  @NotNull final WireOutPublisher publisher,
                  @NotNull final Asset asset, final long tid,
                  @NotNull final Wire outWire,
-                 @NotNull final TopologySubscription subscription) {
+                 @NotNull final TopologySubscription subscription,
+                 @Nullable final WireType wireType) {
         setOutWire(outWire);
         this.outWire = outWire;
         this.subscription = subscription;
         this.requestContext = requestContext;
         this.publisher = publisher;
+        this.wireType = wireType;
         this.asset = asset;
         assert dataConsumer != null;
         dataConsumer.accept(inWire, tid);
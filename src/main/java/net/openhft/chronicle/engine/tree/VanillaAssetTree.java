@@ -26,6 +26,9 @@ import net.openhft.chronicle.engine.api.tree.Asset;
 import net.openhft.chronicle.engine.api.tree.AssetTree;
 import net.openhft.chronicle.engine.api.tree.AssetTreeStats;
 import net.openhft.chronicle.engine.fs.ConfigurationFS;
+import net.openhft.chronicle.engine.map.DeltaUpdatedEvent;
+import net.openhft.chronicle.engine.map.EvictedEvent;
+import net.openhft.chronicle.engine.map.FieldDelta;
 import net.openhft.chronicle.engine.map.InsertedEvent;
 import net.openhft.chronicle.engine.map.RemovedEvent;
 import net.openhft.chronicle.engine.map.UpdatedEvent;
@@ -54,9 +57,12 @@ public class VanillaAssetTree implements AssetTree {
                 RemovedAssetEvent.class,
                 InsertedEvent.class,
                 UpdatedEvent.class,
+                DeltaUpdatedEvent.class,
+                FieldDelta.class,
                 MapFunction.class,
                 MapUpdate.class,
                 RemovedEvent.class,
+                EvictedEvent.class,
                 KeyFunctionPair.class,
                 KeyValueFunctionTuple.class,
                 KeyValuesTuple.class,
@@ -251,6 +257,20 @@ public class VanillaAssetTree implements AssetTree {
         return forRemoteAccess(serverAddress, wireType);
     }
 
+    /**
+     * Call the subscribers of remote subscriptions on a pool of threads, rather than on the thread which
+     * reads the connection. This is set before subscribing.
+     *
+     * @param threads       to call subscribers on, the events of a key are always passed on the same one
+     * @param queueCapacity the most events queued for each thread before more are spilled
+     * @return this tree
+     */
+    @NotNull
+    public VanillaAssetTree dispatchEvents(int threads, int queueCapacity) {
+        root.addView(EventDispatcher.class, new EventDispatcher(toString(), threads, queueCapacity));
+        return this;
+    }
+
     @SuppressWarnings("UnusedReturnValue")
     public VanillaAssetTree region(String region) {
         this.region = region;
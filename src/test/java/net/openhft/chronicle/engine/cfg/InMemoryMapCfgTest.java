@@ -0,0 +1,96 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package net.openhft.chronicle.engine.cfg;
+
+import net.openhft.chronicle.engine.ShutdownHooks;
+import net.openhft.chronicle.engine.ThreadMonitoringTest;
+import net.openhft.chronicle.engine.tree.VanillaAssetTree;
+import net.openhft.chronicle.wire.TextWire;
+import org.jetbrains.annotations.NotNull;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.io.IOException;
+
+import static org.junit.Assert.*;
+
+public class InMemoryMapCfgTest extends ThreadMonitoringTest {
+    private static final String TYPES = "keyType: !type String, valueType: !type String, ";
+
+    @Rule
+    public ShutdownHooks hooks = new ShutdownHooks();
+
+    private void assertRejected(@NotNull String options, @NotNull String first, @NotNull String second) throws IOException {
+        @NotNull InMemoryMapCfg cfg = new InMemoryMapCfg();
+        cfg.readMarshallable(TextWire.from(TYPES + options));
+        @NotNull VanillaAssetTree tree = hooks.addCloseable(new VanillaAssetTree().forTesting());
+        try {
+            cfg.install("/rejected", tree);
+            fail("installed with " + options);
+
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains(first));
+            assertTrue(e.getMessage(), e.getMessage().contains(second));
+        }
+        assertNull(tree.getAsset("/rejected"));
+    }
+
+    @Test
+    public void boundedAndSorted() throws IOException {
+        assertRejected("maxEntries: 100, sorted: true", "maxEntries", "sorted");
+    }
+
+    @Test
+    public void boundedAndSharded() throws IOException {
+        assertRejected("maxBytes: 1000, shards: 4", "maxBytes", "shards");
+    }
+
+    @Test
+    public void boundedAndPersisted() throws IOException {
+        assertRejected("maxEntries: 100, persistPath: target/rejected", "maxEntries", "persistPath");
+    }
+
+    @Test
+    public void sortedAndSharded() throws IOException {
+        assertRejected("sorted: true, shards: 4", "sorted", "shards");
+    }
+
+    @Test
+    public void sortedAndPersisted() throws IOException {
+        assertRejected("sorted: true, persistPath: target/rejected", "sorted", "persistPath");
+    }
+
+    @Test
+    public void shardedAndPersisted() throws IOException {
+        assertRejected("shards: 4, persistPath: target/rejected", "shards", "persistPath");
+    }
+
+    @Test
+    public void evictionWithoutABound() throws IOException {
+        assertRejected("eviction: LRU", "eviction", "maxEntries");
+    }
+
+    @Test
+    public void boundedByEntriesAndBytes() throws IOException {
+        @NotNull InMemoryMapCfg cfg = new InMemoryMapCfg();
+        cfg.readMarshallable(TextWire.from(TYPES + "maxEntries: 100, maxBytes: 1000, eviction: LRU"));
+        @NotNull VanillaAssetTree tree = hooks.addCloseable(new VanillaAssetTree().forTesting());
+        cfg.install("/bounded", tree);
+        assertNotNull(tree.getAsset("/bounded"));
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+
+package net.openhft.chronicle.engine.map;
+
+import net.openhft.chronicle.engine.ShutdownHooks;
+import net.openhft.chronicle.engine.ThreadMonitoringTest;
+import net.openhft.chronicle.engine.api.map.MapView;
+import net.openhft.chronicle.engine.map.remote.RemoteKeyValueStore;
+import net.openhft.chronicle.engine.server.ServerEndpoint;
+import net.openhft.chronicle.engine.tree.VanillaAssetTree;
+import net.openhft.chronicle.network.TCPRegistry;
+import net.openhft.chronicle.network.connection.TcpChannelHub;
+import net.openhft.chronicle.wire.WireType;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.junit.Assert.*;
+
+public class AsyncMapTest extends ThreadMonitoringTest {
+    private static final String CONNECTION = "AsyncMapTest.host.port";
+
+    @Rule
+    public ShutdownHooks hooks = new ShutdownHooks();
+    @Nullable
+    private VanillaAssetTree clientTree;
+    @Nullable
+    private ServerEndpoint serverEndpoint;
+
+    @Override
+    public void preAfter() {
+        if (clientTree != null)
+            clientTree.close();
+        if (serverEndpoint != null)
+            serverEndpoint.close();
+        TcpChannelHub.closeAllHubs();
+        TCPRegistry.reset();
+    }
+
+    @Test
+    public void aLocalMapCompletesAtOnce() throws Exception {
+        @NotNull VanillaAssetTree tree = hooks.addCloseable(new VanillaAssetTree().forTesting());
+        @NotNull MapView<String, String> map = tree.acquireMap("async", String.class, String.class);
+
+        @NotNull CompletableFuture<String> put = map.putAsync("a", "1");
+        assertTrue(put.isDone());
+        assertNull(put.get());
+        assertEquals("1", map.getAsync("a").get());
+        assertEquals(1L, (long) map.longSizeAsync().get());
+    }
+
+    @Test
+    public void manyRequestsAreInFlightAtOnce() throws Exception {
+        TCPRegistry.createServerSocketChannelFor(CONNECTION);
+        @NotNull VanillaAssetTree serverTree = hooks.addCloseable(new VanillaAssetTree().forTesting());
+        serverEndpoint = new ServerEndpoint(CONNECTION, serverTree, "cluster");
+        clientTree = new VanillaAssetTree().forRemoteAccess(CONNECTION, WireType.BINARY);
+        @NotNull MapView<String, String> map = clientTree.acquireMap("async", String.class, String.class);
+
+        final int count = 1000;
+        @NotNull List<CompletableFuture<String>> puts = new ArrayList<>();
+        for (int i = 0; i < count; i++)
+            puts.add(map.putAsync("key" + i, "value" + i));
+        for (@NotNull CompletableFuture<String> put : puts)
+            assertNull(put.get(10, SECONDS));
+
+        @NotNull List<CompletableFuture<String>> gets = new ArrayList<>();
+        for (int i = 0; i < count; i++)
+            gets.add(map.getAsync("key" + i));
+        for (int i = 0; i < count; i++)
+            assertEquals("value" + i, gets.get(i).get(10, SECONDS));
+
+        assertEquals(count, (long) map.longSizeAsync().get(10, SECONDS));
+        assertTrue(map.containsKeyAsync("key1").get(10, SECONDS));
+        assertEquals("value1", map.removeAsync("key1").get(10, SECONDS));
+        assertFalse(map.containsKeyAsync("key1").get(10, SECONDS));
+        assertEquals(count - 1, serverTree.acquireMap("async", String.class, String.class).size());
+    }
+
+    @Test
+    public void closingFailsTheRequestsInFlight() throws Exception {
+        TCPRegistry.createServerSocketChannelFor(CONNECTION);
+        @NotNull VanillaAssetTree serverTree = hooks.addCloseable(new VanillaAssetTree().forTesting());
+        serverEndpoint = new ServerEndpoint(CONNECTION, serverTree, "cluster");
+        clientTree = new VanillaAssetTree().forRemoteAccess(CONNECTION, WireType.BINARY);
+        @NotNull MapView<String, String> map = clientTree.acquireMap("async", String.class, String.class);
+        map.put("a", "1");
+
+        serverEndpoint.close();
+        serverEndpoint = null;
+        @NotNull CompletableFuture<String> get = map.getAsync("a");
+        ((RemoteKeyValueStore<String, String>) map.underlying()).close();
+
+        try {
+            get.get(10, SECONDS);
+            fail("expected the request to fail");
+        } catch (ExecutionException expected) {
+            assertTrue(expected.getCause() instanceof IllegalStateException);
+        }
+    }
+}
@@ -0,0 +1,150 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package net.openhft.chronicle.engine.map;
+
+import net.openhft.chronicle.engine.Factor;
+import net.openhft.chronicle.engine.ShutdownHooks;
+import net.openhft.chronicle.engine.ThreadMonitoringTest;
+import net.openhft.chronicle.engine.api.map.KeyValueStore.EntriesSnapshot;
+import net.openhft.chronicle.engine.api.map.MapEvent;
+import net.openhft.chronicle.engine.api.map.MapView;
+import net.openhft.chronicle.engine.api.pubsub.InvalidSubscriberException;
+import net.openhft.chronicle.engine.api.tree.Asset;
+import net.openhft.chronicle.engine.tree.VanillaAssetTree;
+import org.jetbrains.annotations.NotNull;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class BoundedKeyValueStoreTest extends ThreadMonitoringTest {
+
+    @Rule
+    public ShutdownHooks hooks = new ShutdownHooks();
+
+    @Test
+    public void lruEvictsTheLeastRecentlyUsed() {
+        @NotNull VanillaAssetTree tree = hooks.addCloseable(new VanillaAssetTree().forTesting());
+        @NotNull BoundedKeyValueStore<String, String> store =
+                new BoundedKeyValueStore<>(tree.acquireAsset("lru"), 3, 0, EvictionPolicy.LRU);
+        store.put("a", "1");
+        store.put("b", "2");
+        store.put("c", "3");
+        assertEquals("1", store.get("a"));
+        store.put("d", "4");
+
+        assertEquals(3, store.longSize());
+        assertNull(store.get("b"));
+        assertEquals("1", store.get("a"));
+        assertEquals(1, store.evictions());
+        assertEquals(2, store.hits());
+        assertEquals(1, store.misses());
+        assertEquals(2.0 / 3, store.hitRatio(), 1e-9);
+    }
+
+    @Test
+    public void lfuKeepsTheFrequentlyUsed() {
+        @NotNull VanillaAssetTree tree = hooks.addCloseable(new VanillaAssetTree().forTesting());
+        @NotNull BoundedKeyValueStore<Integer, String> store =
+                new BoundedKeyValueStore<>(tree.acquireAsset("lfu"), 50, 0, EvictionPolicy.LFU);
+        for (int i = 0; i < 10; i++) {
+            store.put(i, "hot");
+            for (int j = 0; j < 20; j++)
+                store.get(i);
+        }
+        for (int i = 10; i < 1000; i++)
+            store.put(i, "cold");
+
+        assertEquals(50, store.longSize());
+        int hot = 0;
+        for (int i = 0; i < 10; i++)
+            if (store.containsKey(i))
+                hot++;
+        assertTrue("hot=" + hot, hot >= 8);
+        assertEquals(950, store.evictions());
+    }
+
+    @Test
+    public void maxBytesLimitsTheSize() {
+        @NotNull VanillaAssetTree tree = hooks.addCloseable(new VanillaAssetTree().forTesting());
+        @NotNull BoundedKeyValueStore<String, String> store =
+                new BoundedKeyValueStore<>(tree.acquireAsset("bytes"), 0, 100, EvictionPolicy.LRU);
+        for (int i = 0; i < 100; i++)
+            store.put("key" + i, "0123456789");
+        assertTrue(store.bytesUsed() <= 100);
+        assertTrue(store.longSize() >= 100 / 15 - store.segments());
+    }
+
+    @Test
+    public void maxBytesCountsOtherValuesByTheirWireForm() {
+        @NotNull VanillaAssetTree tree = hooks.addCloseable(new VanillaAssetTree().forTesting());
+        @NotNull BoundedKeyValueStore<Long, Factor> store =
+                new BoundedKeyValueStore<>(tree.acquireAsset("marshallable"), 0, 1000, EvictionPolicy.LRU);
+        for (long i = 0; i < 1000; i++)
+            store.put(i, new Factor());
+        assertTrue(store.bytesUsed() > 0);
+        assertTrue(store.bytesUsed() <= 1000);
+        assertTrue(store.longSize() < 1000);
+    }
+
+    @Test
+    public void snapshotIsACopyOfOnePointInTime() throws InvalidSubscriberException {
+        @NotNull VanillaAssetTree tree = hooks.addCloseable(new VanillaAssetTree().forTesting());
+        @NotNull BoundedKeyValueStore<String, String> store =
+                new BoundedKeyValueStore<>(tree.acquireAsset("snapshot"), 3, 0, EvictionPolicy.LRU);
+        store.put("a", "1");
+        store.put("b", "2");
+        store.put("c", "3");
+
+        @NotNull List<String> seen = new ArrayList<>();
+        try (@NotNull EntriesSnapshot<String, String> snapshot = store.snapshot()) {
+            // evicts one of the entries already copied.
+            store.put("d", "4");
+            snapshot.entriesFor(e -> seen.add(e.getKey() + "=" + e.getValue()));
+        }
+        seen.sort(null);
+        assertEquals("[a=1, b=2, c=3]", seen.toString());
+        assertEquals(3, store.longSize());
+    }
+
+    @Test
+    public void evictionsArePublishedAsEvictedEvents() {
+        @NotNull VanillaAssetTree tree = hooks.addCloseable(new VanillaAssetTree().forTesting());
+        @NotNull Asset asset = tree.acquireAsset("evicted");
+        asset.addView(AuthenticatedKeyValueStore.class, new BoundedKeyValueStore<>(asset, 2, 0, EvictionPolicy.LRU));
+        @NotNull MapView<String, String> map = tree.acquireMap("evicted", String.class, String.class);
+
+        @NotNull List<MapEvent<String, String>> events = new ArrayList<>();
+        map.registerSubscriber(events::add);
+        map.put("a", "1");
+        map.put("b", "2");
+        map.remove("a");
+        map.put("c", "3");
+        map.put("d", "4");
+
+        @NotNull List<String> kinds = new ArrayList<>();
+        for (@NotNull MapEvent<String, String> event : events)
+            kinds.add(event.getClass().getSimpleName() + ":" + event.getKey());
+        assertEquals("[InsertedEvent:a, InsertedEvent:b, RemovedEvent:a, InsertedEvent:c, EvictedEvent:b, InsertedEvent:d]",
+                kinds.toString());
+        assertEquals("2", events.get(4).oldValue());
+    }
+}
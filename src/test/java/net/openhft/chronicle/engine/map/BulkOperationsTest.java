@@ -0,0 +1,91 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package net.openhft.chronicle.engine.map;
+
+import net.openhft.chronicle.engine.ShutdownHooks;
+import net.openhft.chronicle.engine.ThreadMonitoringTest;
+import net.openhft.chronicle.engine.api.map.KeyValueStore;
+import net.openhft.chronicle.engine.api.map.MapEvent;
+import net.openhft.chronicle.engine.api.map.MapView;
+import net.openhft.chronicle.engine.api.pubsub.BatchSubscriber;
+import net.openhft.chronicle.engine.tree.VanillaAssetTree;
+import org.jetbrains.annotations.NotNull;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class BulkOperationsTest extends ThreadMonitoringTest {
+
+    @Rule
+    public ShutdownHooks hooks = new ShutdownHooks();
+
+    @Test
+    public void putAllAndRemoveAllNotifyOneBatchEach() {
+        @NotNull VanillaAssetTree tree = hooks.addCloseable(new VanillaAssetTree().forTesting());
+        @NotNull MapView<String, String> map = tree.acquireMap("bulk", String.class, String.class);
+        map.put("a", "0");
+
+        @NotNull List<List<MapEvent<String, String>>> batches = new ArrayList<>();
+        map.registerSubscriber(new BatchSubscriber<MapEvent<String, String>>() {
+            @Override
+            public void onMessage(MapEvent<String, String> event) {
+                batches.add(Collections.singletonList(event));
+            }
+
+            @Override
+            public void onMessages(@NotNull List<MapEvent<String, String>> events) {
+                batches.add(new ArrayList<>(events));
+            }
+        });
+        // the bootstrap of the existing entry
+        assertEquals(1, batches.size());
+
+        @NotNull Map<String, String> entries = new LinkedHashMap<>();
+        entries.put("a", "1");
+        entries.put("b", "2");
+        entries.put("c", "3");
+        map.putAll(entries);
+
+        assertEquals(2, batches.size());
+        List<MapEvent<String, String>> putBatch = batches.get(1);
+        assertEquals(3, putBatch.size());
+        assertTrue(putBatch.get(0) instanceof UpdatedEvent);
+        assertEquals("0", putBatch.get(0).oldValue());
+        assertTrue(putBatch.get(1) instanceof InsertedEvent);
+        assertEquals("3", putBatch.get(2).getValue());
+        assertEquals(entries, new HashMap<>(map));
+
+        @NotNull KeyValueStore<String, String> kvStore = (KeyValueStore<String, String>) map.underlying();
+        @NotNull Map<String, String> found = new HashMap<>();
+        kvStore.getAll(Arrays.asList("a", "c", "d"), found::put);
+        assertEquals(2, found.size());
+        assertEquals("3", found.get("c"));
+
+        assertEquals(2, kvStore.removeAll(Arrays.asList("b", "c", "d"), null));
+        assertEquals(3, batches.size());
+        List<MapEvent<String, String>> removeBatch = batches.get(2);
+        assertEquals(2, removeBatch.size());
+        assertTrue(removeBatch.get(0) instanceof RemovedEvent);
+        assertEquals("2", removeBatch.get(0).oldValue());
+        assertEquals(Collections.singletonMap("a", "1"), new HashMap<>(map));
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package net.openhft.chronicle.engine.map;
+
+import org.jetbrains.annotations.NotNull;
+import org.junit.Test;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class DecodingEntryIteratorTest {
+
+    @Test
+    public void decodesOnlyWhenValueIsRead() {
+        @NotNull Map<String, String> raw = new LinkedHashMap<>();
+        raw.put("a", "1");
+        raw.put("b", "2");
+        raw.put("c", "3");
+
+        @NotNull AtomicInteger decodes = new AtomicInteger();
+        @NotNull Iterator<Map.Entry<String, Integer>> it = new DecodingEntryIterator<>(raw.entrySet().iterator(),
+                (String s, Integer using) -> {
+                    decodes.incrementAndGet();
+                    return Integer.valueOf(s);
+                }, null);
+
+        @NotNull List<String> keys = new ArrayList<>();
+        Map.Entry<String, Integer> last = null;
+        while (it.hasNext()) {
+            last = it.next();
+            keys.add(last.getKey());
+        }
+        assertEquals(Arrays.asList("a", "b", "c"), keys);
+        assertEquals(0, decodes.get());
+
+        assertEquals(Integer.valueOf(3), last.getValue());
+        assertEquals(Integer.valueOf(3), last.getValue());
+        assertEquals(1, decodes.get());
+        assertEquals(new AbstractMap.SimpleEntry<>("c", 3), last);
+    }
+
+    @Test
+    public void decodesIntoUsingInstance() {
+        @NotNull Map<String, String> raw = new LinkedHashMap<>();
+        raw.put("a", "hello");
+        raw.put("b", "world");
+
+        @NotNull StringBuilder using = new StringBuilder();
+        @NotNull Iterator<Map.Entry<String, StringBuilder>> it = new DecodingEntryIterator<>(raw.entrySet().iterator(),
+                (String s, StringBuilder sb) -> {
+                    sb.setLength(0);
+                    return sb.append(s);
+                }, using);
+
+        assertSame(using, it.next().getValue());
+        assertEquals("hello", using.toString());
+        assertSame(using, it.next().getValue());
+        assertEquals("world", using.toString());
+        assertFalse(it.hasNext());
+    }
+}
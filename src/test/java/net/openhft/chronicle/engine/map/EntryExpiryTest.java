@@ -0,0 +1,118 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package net.openhft.chronicle.engine.map;
+
+import net.openhft.chronicle.engine.ShutdownHooks;
+import net.openhft.chronicle.engine.ThreadMonitoringTest;
+import net.openhft.chronicle.engine.api.map.MapEvent;
+import net.openhft.chronicle.engine.api.map.MapView;
+import net.openhft.chronicle.engine.server.ServerEndpoint;
+import net.openhft.chronicle.engine.tree.VanillaAssetTree;
+import net.openhft.chronicle.network.TCPRegistry;
+import net.openhft.chronicle.network.connection.TcpChannelHub;
+import net.openhft.chronicle.wire.WireType;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.junit.Assert.*;
+
+public class EntryExpiryTest extends ThreadMonitoringTest {
+
+    private static final String CONNECTION = "EntryExpiryTest.host.port";
+
+    @Rule
+    public ShutdownHooks hooks = new ShutdownHooks();
+    @Nullable
+    private VanillaAssetTree clientTree;
+    @Nullable
+    private ServerEndpoint serverEndpoint;
+
+    @Override
+    public void preAfter() {
+        if (clientTree != null)
+            clientTree.close();
+        if (serverEndpoint != null)
+            serverEndpoint.close();
+        TcpChannelHub.closeAllHubs();
+        TCPRegistry.reset();
+    }
+
+    @Test(timeout = 20000)
+    public void entriesExpireWithRemovedEvents() throws InterruptedException {
+        @NotNull VanillaAssetTree tree = hooks.addCloseable(new VanillaAssetTree().forTesting());
+        @NotNull MapView<String, String> map = tree.acquireMap("ttl?defaultTtlMs=300", String.class, String.class);
+
+        @NotNull BlockingQueue<MapEvent<String, String>> events = new LinkedBlockingQueue<>();
+        map.registerSubscriber(events::add);
+
+        map.put("a", "1");
+        map.put("b", "2", 0, SECONDS);
+        map.put("c", "3", 50, MILLISECONDS);
+        map.put("d", "4", 50, MILLISECONDS);
+        // put again without a time to live, so it doesn't expire.
+        map.put("d", "5", 0, SECONDS);
+
+        @NotNull List<String> removed = new ArrayList<>();
+        while (removed.size() < 2) {
+            MapEvent<String, String> event = events.poll(5, SECONDS);
+            assertNotNull(event);
+            if (event instanceof RemovedEvent)
+                removed.add(event.getKey());
+        }
+        assertEquals("c", removed.get(0));
+        assertEquals("a", removed.get(1));
+        assertEquals(2, map.size());
+        assertEquals("2", map.get("b"));
+        assertEquals("5", map.get("d"));
+
+        EntryExpiry expiry = tree.getAsset("ttl").getView(EntryExpiry.class);
+        assertEquals(0, expiry.pending());
+
+        Thread.sleep(100);
+        assertEquals(Collections.emptyList(), new ArrayList<>(events));
+    }
+
+    @Test(timeout = 20000)
+    public void aRemotePutWithATimeToLiveExpiresOnTheServer() throws Exception {
+        TCPRegistry.createServerSocketChannelFor(CONNECTION);
+        @NotNull VanillaAssetTree serverTree = hooks.addCloseable(new VanillaAssetTree().forTesting());
+        serverEndpoint = new ServerEndpoint(CONNECTION, serverTree, "cluster");
+        clientTree = new VanillaAssetTree().forRemoteAccess(CONNECTION, WireType.BINARY);
+        @NotNull MapView<String, String> map = clientTree.acquireMap("ttl", String.class, String.class);
+
+        map.put("a", "1", 500, MILLISECONDS);
+        map.put("b", "2");
+        assertEquals("1", map.get("a"));
+
+        @NotNull MapView<String, String> serverMap = serverTree.acquireMap("ttl", String.class, String.class);
+        while (serverMap.containsKey("a"))
+            Thread.sleep(10);
+        assertNull(map.get("a"));
+        assertEquals("2", map.get("b"));
+    }
+}
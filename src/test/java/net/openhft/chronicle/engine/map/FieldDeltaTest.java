@@ -0,0 +1,116 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package net.openhft.chronicle.engine.map;
+
+import net.openhft.chronicle.bytes.Bytes;
+import net.openhft.chronicle.engine.tree.VanillaAssetTree;
+import net.openhft.chronicle.wire.AbstractMarshallable;
+import net.openhft.chronicle.wire.Wire;
+import net.openhft.chronicle.wire.WireType;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class FieldDeltaTest {
+    static {
+        // adds the aliases of the events.
+        new VanillaAssetTree();
+    }
+
+    @NotNull
+    static Quote quote(double bid) {
+        @NotNull Quote quote = new Quote();
+        quote.symbol = "EURUSD";
+        quote.venue = "EBS";
+        quote.bid = bid;
+        quote.ask = 1.1002;
+        quote.bidSize = 1_000_000;
+        quote.askSize = 2_000_000;
+        quote.time = 1_000_000_000L;
+        return quote;
+    }
+
+    @Test
+    public void onlyTheChangedFieldIsSent() {
+        @NotNull Quote before = quote(1.1000);
+        @NotNull Quote after = quote(1.1001);
+
+        @Nullable FieldDelta delta = FieldDelta.diff(before, after);
+        assertNotNull(delta);
+        assertEquals(Quote.class, delta.type());
+        assertEquals(after, delta.apply(before));
+        // the previous value is copied, not changed.
+        assertEquals(quote(1.1000), before);
+
+        @Nullable FieldDelta none = FieldDelta.diff(before, quote(1.1000));
+        assertNotNull(none);
+        assertTrue(none.isEmpty());
+        assertEquals(before, none.apply(before));
+    }
+
+    @Test
+    public void valuesWhichCannotBePatched() {
+        assertNull(FieldDelta.diff(null, quote(1.1)));
+        assertNull(FieldDelta.diff("1.1", "1.2"));
+        assertNull(FieldDelta.diff(quote(1.1), "1.2"));
+
+        // most of the fields changed.
+        @NotNull Quote other = new Quote();
+        other.symbol = "GBPUSD";
+        other.venue = "RTNS";
+        other.bid = 1.3;
+        other.ask = 1.31;
+        other.bidSize = 1;
+        other.askSize = 2;
+        other.time = 3;
+        assertNull(FieldDelta.diff(quote(1.1), other));
+    }
+
+    @Test
+    public void deltaEventsAreReadOnEitherWire() {
+        @NotNull Quote before = quote(1.1000);
+        @NotNull Quote after = quote(1.1001);
+        @NotNull UpdatedEvent<String, Quote> event = UpdatedEvent.of("/quotes", "EURUSD", before, after, false, true);
+
+        for (@NotNull WireType wireType : new WireType[]{WireType.TEXT, WireType.BINARY}) {
+            @Nullable DeltaUpdatedEvent<String, Quote> delta = DeltaUpdatedEvent.of(event);
+            assertNotNull(delta);
+
+            @NotNull Wire wire = wireType.apply(Bytes.elasticByteBuffer());
+            wire.getValueOut().object(delta);
+            @NotNull DeltaUpdatedEvent<String, Quote> read = wire.getValueIn().typedMarshallable();
+            assertEquals(delta, read);
+
+            @NotNull UpdatedEvent<String, Quote> patched = read.applyTo(before);
+            assertEquals("EURUSD", patched.getKey());
+            assertEquals(before, patched.oldValue());
+            assertEquals(after, patched.getValue());
+            wire.bytes().release();
+        }
+    }
+
+    public static class Quote extends AbstractMarshallable {
+        String symbol;
+        String venue;
+        double bid, ask;
+        long bidSize, askSize;
+        long time;
+    }
+}
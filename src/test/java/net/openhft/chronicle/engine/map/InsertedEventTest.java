@@ -22,6 +22,7 @@ import net.openhft.chronicle.bytes.BytesStore;
 import net.openhft.chronicle.core.pool.ClassAliasPool;
 import net.openhft.chronicle.core.threads.ThreadDump;
 import net.openhft.chronicle.engine.Factor;
+import net.openhft.chronicle.engine.api.map.MapEvent;
 import net.openhft.chronicle.wire.BinaryWire;
 import net.openhft.chronicle.wire.TextWire;
 import net.openhft.chronicle.wire.YamlLogging;
@@ -32,8 +33,12 @@ import org.junit.Before;
 import org.junit.Ignore;
 import org.junit.Test;
 
+import java.util.concurrent.atomic.AtomicInteger;
+
 import static java.nio.charset.StandardCharsets.ISO_8859_1;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
 
 /*
  * Created by Peter Lawrey on 12/06/15.
@@ -144,4 +149,38 @@ public class InsertedEventTest {
                 .typedMarshallable();
         assertEquals(insertedEvent, ie);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testTranslateLazily() {
+        @NotNull AtomicInteger decodes = new AtomicInteger();
+        @NotNull InsertedEvent<String, BytesStore> insertedEvent = InsertedEvent.of("asset", "key", BytesStore.wrap("Hello World".getBytes(ISO_8859_1)), false);
+        @NotNull MapEvent<String, String> lazy = insertedEvent.translateLazily(k -> k, bs -> {
+            decodes.incrementAndGet();
+            return bs.to8bitString();
+        });
+        assertTrue(lazy instanceof InsertedEvent);
+        assertEquals("key", lazy.getKey());
+        assertEquals(0, decodes.get());
+
+        assertEquals("Hello World", lazy.getValue());
+        assertEquals("Hello World", lazy.getValue());
+        assertEquals(1, decodes.get());
+    }
+
+    @Test
+    public void lazyEventsEqualTheirReadForm() {
+        @NotNull InsertedEvent<String, BytesStore> insertedEvent = InsertedEvent.of("asset", "key", BytesStore.wrap("Hello World".getBytes(ISO_8859_1)), false);
+        @NotNull MapEvent<String, String> lazy = insertedEvent.translateLazily(k -> k, BytesStore::to8bitString);
+        @NotNull MapEvent<String, String> eager = InsertedEvent.of("asset", "key", "Hello World", false);
+        assertEquals(eager, lazy);
+        assertEquals(lazy, eager);
+        assertEquals(eager.hashCode(), lazy.hashCode());
+        assertEquals(eager.toString(), lazy.toString());
+        assertNotEquals(InsertedEvent.of("asset", "key", "Bye", false), lazy);
+
+        @NotNull MapEvent<String, String> updated = UpdatedEvent.of("asset", "key", BytesStore.wrap("old".getBytes(ISO_8859_1)),
+                BytesStore.wrap("new".getBytes(ISO_8859_1)), false, true).translateLazily(k -> k, BytesStore::to8bitString);
+        assertEquals(UpdatedEvent.of("asset", "key", "old", "new", false, true), updated);
+        assertEquals(UpdatedEvent.of("asset", "key", "old", "new", false, true).toString(), updated.toString());
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+
+package net.openhft.chronicle.engine.map;
+
+import net.openhft.chronicle.engine.ShutdownHooks;
+import net.openhft.chronicle.engine.ThreadMonitoringTest;
+import net.openhft.chronicle.engine.api.map.KeyRange;
+import net.openhft.chronicle.engine.api.map.MapEvent;
+import net.openhft.chronicle.engine.api.map.MapView;
+import net.openhft.chronicle.engine.api.pubsub.Subscriber;
+import net.openhft.chronicle.engine.api.pubsub.SubscriptionCollection;
+import net.openhft.chronicle.engine.tree.VanillaAssetTree;
+import org.jetbrains.annotations.NotNull;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class KeyIndexedSubscribersTest extends ThreadMonitoringTest {
+    @Rule
+    public ShutdownHooks hooks = new ShutdownHooks();
+
+    @Test
+    public void rangesWhichCanBeIndexed() {
+        assertEquals("a", KeyRange.only("a").singleKey());
+        assertNull(KeyRange.only("a").prefix());
+        assertEquals("a.", KeyRange.prefix("a.").prefix());
+        assertEquals("", KeyRange.<String>all().prefix());
+        assertNull(KeyRange.of("a", "c").prefix());
+        assertNull(KeyRange.of("a", "c").singleKey());
+        assertFalse(KeyIndexedSubscribers.indexes(KeyRange.of("a", "c")));
+    }
+
+    @Test
+    public void theTrieIsEmptyAfterTheLastUnsubscribe() {
+        @NotNull KeyIndexedSubscribers<String, String> subscribers = new KeyIndexedSubscribers<>();
+        @NotNull List<String> events = new ArrayList<>();
+        @NotNull Subscriber<MapEvent<String, String>> eurusd = e -> events.add("eurusd " + e.getKey());
+        @NotNull Subscriber<MapEvent<String, String>> spot = e -> events.add("spot " + e.getKey());
+        @NotNull Subscriber<MapEvent<String, String>> gbp = e -> events.add("gbp " + e.getKey());
+        subscribers.add(KeyRange.prefix("EURUSD."), eurusd);
+        subscribers.add(KeyRange.prefix("EURUSD.spot"), spot);
+        subscribers.add(KeyRange.prefix("GBP"), gbp);
+
+        // the nodes of a prefix still subscribed to are kept.
+        assertTrue(subscribers.remove(eurusd));
+        subscribers.notifyEvent(InsertedEvent.of("/m", "EURUSD.spot", "1", false));
+        assertEquals(Collections.singletonList("spot EURUSD.spot"), events);
+
+        assertTrue(subscribers.remove(spot));
+        assertTrue(subscribers.remove(gbp));
+        assertFalse(subscribers.remove(gbp));
+        assertTrue(subscribers.isEmpty());
+        assertTrue(subscribers.trieIsEmpty());
+    }
+
+    @Test
+    public void eventsOnlyReachTheSubscribersOfTheirKey() {
+        @NotNull VanillaAssetTree tree = hooks.addCloseable(new VanillaAssetTree().forTesting());
+        @NotNull MapView<String, String> map = tree.acquireMap("routed", String.class, String.class);
+        map.put("EURUSD.spot", "1");
+
+        @NotNull List<String> spot = Collections.synchronizedList(new ArrayList<>());
+        @NotNull List<String> eurusd = Collections.synchronizedList(new ArrayList<>());
+        @NotNull List<String> all = Collections.synchronizedList(new ArrayList<>());
+        @NotNull Subscriber<MapEvent<String, String>> spotSubscriber = e -> spot.add(e.getKey() + "=" + e.getValue());
+        map.registerRangeSubscriber(KeyRange.only("EURUSD.spot"), spotSubscriber);
+        map.registerRangeSubscriber(KeyRange.prefix("EURUSD."), e -> eurusd.add(e.getKey()));
+        map.registerRangeSubscriber(KeyRange.prefix(""), e -> all.add(e.getKey()));
+
+        @NotNull SubscriptionCollection subscription = tree.acquireAsset("routed").subscription(false);
+        assertEquals(3, subscription.entrySubscriberCount());
+
+        map.put("EURUSD.spot", "2");
+        map.put("EURUSD.fwd", "3");
+        map.put("GBPUSD.spot", "4");
+        map.remove("EURUSD.spot");
+
+        assertEquals(Arrays.asList("EURUSD.spot=1", "EURUSD.spot=2", "EURUSD.spot=null"), spot);
+        assertEquals(Arrays.asList("EURUSD.spot", "EURUSD.spot", "EURUSD.fwd", "EURUSD.spot"), eurusd);
+        assertEquals(Arrays.asList("EURUSD.spot", "EURUSD.spot", "EURUSD.fwd", "GBPUSD.spot", "EURUSD.spot"), all);
+
+        subscription.unregisterSubscriber(spotSubscriber);
+        assertEquals(2, subscription.entrySubscriberCount());
+        map.put("EURUSD.spot", "5");
+        assertEquals(3, spot.size());
+        assertEquals(5, eurusd.size());
+    }
+}
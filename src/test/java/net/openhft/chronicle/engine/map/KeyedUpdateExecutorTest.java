@@ -0,0 +1,139 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+
+package net.openhft.chronicle.engine.map;
+
+import net.openhft.chronicle.engine.Factor;
+import net.openhft.chronicle.engine.ShutdownHooks;
+import net.openhft.chronicle.engine.ThreadMonitoringTest;
+import net.openhft.chronicle.engine.api.map.MapEvent;
+import net.openhft.chronicle.engine.api.map.MapView;
+import net.openhft.chronicle.engine.tree.VanillaAssetTree;
+import org.jetbrains.annotations.NotNull;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+public class KeyedUpdateExecutorTest extends ThreadMonitoringTest {
+
+    @Rule
+    public ShutdownHooks hooks = new ShutdownHooks();
+
+    @Test
+    public void updatesToAKeyAreAppliedInOrder() {
+        @NotNull VanillaAssetTree tree = hooks.addCloseable(new VanillaAssetTree().forTesting());
+        @NotNull MapView<String, String> map = tree.acquireMap("ordered?updateThreads=4", String.class, String.class);
+        assertNotNull(tree.acquireAsset("ordered").getView(KeyedUpdateExecutor.class));
+
+        for (int i = 0; i < 1000; i++)
+            map.asyncUpdateKey("k" + i % 10, (v, n) -> v == null ? "" + n : v + "," + n, i);
+
+        for (int k = 0; k < 10; k++) {
+            @NotNull StringBuilder expected = new StringBuilder();
+            for (int i = k; i < 1000; i += 10)
+                expected.append(expected.length() == 0 ? "" : ",").append(i);
+            assertEquals(expected.toString(), map.syncUpdateKey("k" + k, v -> v, v -> v));
+        }
+    }
+
+    @Test
+    public void queuedUpdatesToAKeyAreWrittenOnce() throws InterruptedException {
+        @NotNull VanillaAssetTree tree = hooks.addCloseable(new VanillaAssetTree().forTesting());
+        @NotNull MapView<String, Integer> map = tree.acquireMap("coalesced?updateThreads=2", String.class, Integer.class);
+        @NotNull AtomicInteger events = new AtomicInteger();
+        tree.registerSubscriber("coalesced", MapEvent.class, e -> events.incrementAndGet());
+
+        @NotNull CountDownLatch started = new CountDownLatch(1);
+        @NotNull CountDownLatch release = new CountDownLatch(1);
+        map.asyncUpdateKey("hot", v -> {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                throw new AssertionError(e);
+            }
+            return 1;
+        });
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        for (int i = 0; i < 100; i++)
+            map.asyncUpdateKey("hot", v -> v + 1);
+        release.countDown();
+
+        assertEquals(101, (int) map.syncUpdateKey("hot", v -> v, v -> v));
+        // the first update, the batch of 100, then the read above, which is written back as any update is.
+        assertEquals(3, events.get());
+    }
+
+    @Test
+    public void anUpdateInPlaceIsWrittenAndPublished() {
+        @NotNull VanillaAssetTree tree = hooks.addCloseable(new VanillaAssetTree().forTesting());
+        @NotNull MapView<String, Factor> map = tree.acquireMap("inPlace?updateThreads=2", String.class, Factor.class);
+        @NotNull Factor factor = new Factor();
+        factor.setAccountNumber("old");
+        map.put("f", factor);
+        @NotNull List<MapEvent> events = Collections.synchronizedList(new ArrayList<>());
+        tree.registerSubscriber("inPlace", MapEvent.class, events::add);
+
+        @NotNull String seen = map.syncUpdateKey("f", f -> {
+            f.setAccountNumber("new");
+            return f;
+        }, Factor::getAccountNumber);
+        assertEquals("new", seen);
+        assertEquals("new", map.get("f").getAccountNumber());
+        // the value put was copied before it was changed, not changed under the store.
+        assertEquals("old", factor.getAccountNumber());
+        assertEquals(2, events.size());
+        assertEquals("old", ((Factor) events.get(1).oldValue()).getAccountNumber());
+    }
+
+    @Test
+    public void concurrentWritesAreNotLost() {
+        @NotNull VanillaAssetTree tree = hooks.addCloseable(new VanillaAssetTree().forTesting());
+        @NotNull MapView<String, Integer> map = tree.acquireMap("shared?updateThreads=2", String.class, Integer.class);
+        map.put("count", 0);
+        for (int i = 0; i < 10_000; i++) {
+            map.asyncUpdateKey("count", v -> v + 1);
+            map.compute("count", (k, v) -> v + 1);
+        }
+        assertEquals(20_000, (int) map.syncUpdateKey("count", v -> v, v -> v));
+    }
+
+    @Test(timeout = 10_000)
+    public void syncUpdatesBetweenWorkersDoNotDeadlock() {
+        @NotNull VanillaAssetTree tree = hooks.addCloseable(new VanillaAssetTree().forTesting());
+        @NotNull MapView<String, Integer> map = tree.acquireMap("crossed?updateThreads=2", String.class, Integer.class);
+        for (int i = 0; i < 100; i++) {
+            @NotNull String key = "k" + i;
+            @NotNull String other = "k" + (i + 1);
+            map.asyncUpdateKey(key, v -> map.syncUpdateKey(other, o -> o == null ? 1 : o + 1, o -> o));
+        }
+        for (int i = 0; i < 100; i++)
+            map.syncUpdateKey("k" + i, v -> v, v -> v);
+        assertEquals(1, (int) map.syncUpdateKey("k100", v -> v, v -> v));
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+
+package net.openhft.chronicle.engine.map;
+
+import net.openhft.chronicle.core.OS;
+import net.openhft.chronicle.engine.ThreadMonitoringTest;
+import org.jetbrains.annotations.NotNull;
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+
+import static org.junit.Assert.*;
+
+public class MapJournalTest extends ThreadMonitoringTest {
+    private final File dir = new File(OS.TARGET, "MapJournalTest-" + System.nanoTime());
+
+    @After
+    public void deleteDir() throws IOException {
+        MapJournal.deleteDir(dir);
+    }
+
+    @NotNull
+    private VanillaKeyValueStore<String, String> open() {
+        return new VanillaKeyValueStore<>(null, new MapJournal<>("test", dir, String.class, String.class, 0));
+    }
+
+    @Test
+    public void recoversFromTheJournal() {
+        @NotNull VanillaKeyValueStore<String, String> kvs = open();
+        kvs.put("a", "1");
+        kvs.put("b", "2");
+        kvs.put("a", "3");
+        kvs.remove("b");
+        kvs.close();
+
+        kvs = open();
+        assertEquals(1, kvs.longSize());
+        assertEquals("3", kvs.getUsing("a", null));
+        assertNull(kvs.getUsing("b", null));
+        kvs.close();
+    }
+
+    @Test
+    public void recoversFromTheSnapshotAndJournalTail() throws IOException {
+        @NotNull VanillaKeyValueStore<String, String> kvs = open();
+        for (int i = 0; i < 100; i++)
+            kvs.put("key-" + i, "value-" + i);
+        kvs.journal().snapshot();
+        kvs.put("key-1", "updated");
+        kvs.remove("key-2");
+        kvs.put("key-100", "value-100");
+        kvs.close();
+
+        // the journal before the snapshot has been dropped.
+        @NotNull String[] names = dir.list();
+        assertNotNull(names);
+        assertEquals(2, names.length);
+
+        kvs = open();
+        assertEquals(100, kvs.longSize());
+        assertEquals("updated", kvs.getUsing("key-1", null));
+        assertNull(kvs.getUsing("key-2", null));
+        assertEquals("value-99", kvs.getUsing("key-99", null));
+        assertEquals("value-100", kvs.getUsing("key-100", null));
+        kvs.close();
+    }
+
+    @Test
+    public void keepsWritesMadeWhileSnapshotting() throws Exception {
+        @NotNull VanillaKeyValueStore<String, String> kvs = open();
+        @NotNull Thread writer = new Thread(() -> {
+            for (int i = 0; i < 20_000; i++)
+                kvs.put("key-" + i, "value-" + i);
+        }, "writer");
+        writer.start();
+        while (writer.isAlive())
+            kvs.journal().snapshot();
+        writer.join();
+        kvs.close();
+
+        @NotNull VanillaKeyValueStore<String, String> recovered = open();
+        assertEquals(20_000, recovered.longSize());
+        for (int i = 0; i < 20_000; i++)
+            assertEquals("value-" + i, recovered.getUsing("key-" + i, null));
+        recovered.close();
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package net.openhft.chronicle.engine.map;
+
+import net.openhft.chronicle.core.Jvm;
+import net.openhft.chronicle.core.onoes.ExceptionKey;
+import net.openhft.chronicle.engine.ShutdownHooks;
+import net.openhft.chronicle.engine.ThreadMonitoringTest;
+import net.openhft.chronicle.engine.api.map.MapEvent;
+import net.openhft.chronicle.engine.api.tree.AssetTree;
+import net.openhft.chronicle.engine.server.ServerEndpoint;
+import net.openhft.chronicle.engine.tree.VanillaAssetTree;
+import net.openhft.chronicle.network.TCPRegistry;
+import net.openhft.chronicle.network.connection.TcpChannelHub;
+import net.openhft.chronicle.wire.WireType;
+import org.jetbrains.annotations.NotNull;
+import org.junit.*;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+public class MixedWireTypeSubscriptionTest extends ThreadMonitoringTest {
+    private static final String NAME = "/MixedWireTypeSubscriptionTest";
+    private static final String CONNECTION = "MixedWireTypeSubscriptionTest.host.port";
+
+    @Rule
+    public ShutdownHooks hooks = new ShutdownHooks();
+
+    private VanillaAssetTree serverAssetTree;
+    private AssetTree binaryClient;
+    private AssetTree fieldlessClient;
+    private Map<ExceptionKey, Integer> exceptions;
+
+    @Before
+    public void before() throws IOException {
+        exceptions = Jvm.recordExceptions();
+        serverAssetTree = hooks.addCloseable(new VanillaAssetTree().forTesting());
+        TCPRegistry.createServerSocketChannelFor(CONNECTION);
+        hooks.addCloseable(new ServerEndpoint(CONNECTION, serverAssetTree, "cluster"));
+
+        binaryClient = hooks.addCloseable(new VanillaAssetTree("binary").forRemoteAccess(CONNECTION, WireType.BINARY));
+        fieldlessClient = hooks.addCloseable(new VanillaAssetTree("fieldless").forRemoteAccess(CONNECTION, WireType.FIELDLESS_BINARY));
+    }
+
+    @Override
+    @After
+    public void preAfter() {
+        binaryClient.close();
+        fieldlessClient.close();
+        serverAssetTree.close();
+
+        TcpChannelHub.closeAllHubs();
+        TCPRegistry.reset();
+        if (Jvm.hasException(exceptions)) {
+            Jvm.dumpException(exceptions);
+            Jvm.resetExceptionHandlers();
+            Assert.fail();
+        }
+    }
+
+    @Test
+    public void oneEventIsReadByABinaryAndAFieldlessBinarySubscriber() throws InterruptedException {
+        @NotNull BlockingQueue<MapEvent> binaryEvents = new ArrayBlockingQueue<>(10);
+        @NotNull BlockingQueue<MapEvent> fieldlessEvents = new ArrayBlockingQueue<>(10);
+        binaryClient.registerSubscriber(NAME + "?bootstrap=false", MapEvent.class, binaryEvents::add);
+        fieldlessClient.registerSubscriber(NAME + "?bootstrap=false", MapEvent.class, fieldlessEvents::add);
+        Jvm.pause(500);
+
+        serverAssetTree.acquireMap(NAME, String.class, String.class).put("key", "value");
+
+        // the server encodes the event once for each wire type, not once for the class of wire both use.
+        for (@NotNull BlockingQueue<MapEvent> events : new BlockingQueue[]{binaryEvents, fieldlessEvents}) {
+            MapEvent event = events.poll(10, SECONDS);
+            Assert.assertNotNull(event);
+            Assert.assertEquals("key", event.getKey());
+            Assert.assertEquals("value", event.getValue());
+        }
+    }
+}
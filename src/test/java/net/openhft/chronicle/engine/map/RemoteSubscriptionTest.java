@@ -24,6 +24,8 @@ import net.openhft.chronicle.engine.api.map.MapEvent;
 import net.openhft.chronicle.engine.api.map.MapView;
 import net.openhft.chronicle.engine.api.pubsub.Subscriber;
 import net.openhft.chronicle.engine.api.tree.AssetTree;
+import net.openhft.chronicle.engine.pubsub.FlowPublishers;
+import net.openhft.chronicle.engine.pubsub.FlowPublishersTest;
 import net.openhft.chronicle.engine.server.ServerEndpoint;
 import net.openhft.chronicle.engine.tree.VanillaAssetTree;
 import net.openhft.chronicle.network.TCPRegistry;
@@ -38,9 +40,14 @@ import org.junit.runners.Parameterized;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
 
 import static java.util.concurrent.TimeUnit.SECONDS;
 import static net.openhft.chronicle.engine.Utils.methodName;
@@ -116,6 +123,126 @@ public class RemoteSubscriptionTest extends ThreadMonitoringTest {
         TCPRegistry.reset();
     }
 
+    /**
+     * a burst of puts on the server is sent in batches, and each event reaches the client in order.
+     */
+    @Test
+    public void burstOfPutsArrivesInOrder() throws Exception {
+        @NotNull final MapView<String, String> serverMap = serverAssetTree.acquireMap("burst", String.class, String
+                .class);
+
+        final int count = 10_000;
+        @NotNull final BlockingQueue<MapEvent> events = new ArrayBlockingQueue<>(count);
+        clientAssetTree.registerSubscriber("burst", MapEvent.class, events::add);
+        Jvm.pause(100);
+
+        for (int i = 0; i < count; i++)
+            serverMap.put("key" + i % 10, "value" + i);
+
+        for (int i = 0; i < count; i++) {
+            final MapEvent event = events.poll(10, SECONDS);
+            Assert.assertNotNull("event " + i, event);
+            Assert.assertEquals("value" + i, event.getValue());
+        }
+    }
+
+    /**
+     * a subscriber which is stuck doesn't hold up the replies to other requests, when events are dispatched
+     * on other threads, and the events of each key still arrive in order.
+     */
+    @Test
+    public void slowSubscriberDoesNotHoldUpReplies() throws Exception {
+        @NotNull final MapView<String, String> serverMap = serverAssetTree.acquireMap("slow", String.class, String
+                .class);
+        @NotNull final VanillaAssetTree client = hooks.addCloseable(new VanillaAssetTree()
+                .dispatchEvents(4, 1024)
+                .forRemoteAccess(connection, wireType));
+        @NotNull final MapView<String, String> clientMap = client.acquireMap("slow", String.class, String.class);
+
+        @NotNull final CountDownLatch stuck = new CountDownLatch(1);
+        @NotNull final BlockingQueue<MapEvent> events = new ArrayBlockingQueue<>(1000);
+        client.registerSubscriber("slow", MapEvent.class, e -> {
+            try {
+                stuck.await();
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+            }
+            events.add(e);
+        });
+        Jvm.pause(100);
+
+        for (int i = 0; i < 100; i++)
+            serverMap.put("key" + i % 10, "value" + i);
+        Assert.assertEquals("value99", clientMap.get("key9"));
+        stuck.countDown();
+
+        @NotNull final Map<Object, Integer> last = new HashMap<>();
+        for (int i = 0; i < 100; i++) {
+            final MapEvent event = events.poll(10, SECONDS);
+            Assert.assertNotNull("event " + i, event);
+            final int n = Integer.parseInt(((String) event.getValue()).substring("value".length()));
+            final Integer previous = last.put(event.getKey(), n);
+            Assert.assertTrue(previous == null || previous < n);
+        }
+    }
+
+    /**
+     * the server holds the events a Flow subscriber hasn't requested, rather than overflowing the buffer on
+     * the client.
+     */
+    @Test
+    public void flowSubscriberHoldsBackTheServer() throws Exception {
+        @NotNull final MapView<String, String> serverMap = serverAssetTree.acquireMap("demand", String.class, String
+                .class);
+        for (int i = 0; i < 100; i++)
+            serverMap.put("key" + i, "value" + i);
+
+        @NotNull final FlowPublishersTest.RecordingSubscriber<MapEvent<String, String>> subscriber =
+                new FlowPublishersTest.RecordingSubscriber<>(0);
+        FlowPublishers.<String, String>mapEvents(clientAssetTree, "demand", 8).subscribe(subscriber);
+        Jvm.pause(200);
+        Assert.assertTrue(subscriber.items.isEmpty());
+
+        for (int i = 100; i < 200; i++)
+            serverMap.put("key" + i, "value" + i);
+        // the bootstrap is in the order of the map.
+        @NotNull final Set<Object> values = new HashSet<>();
+        for (int i = 0; i < 200; i++) {
+            subscriber.subscription.request(1);
+            final MapEvent event = subscriber.items.poll(10, SECONDS);
+            Assert.assertNotNull("event " + i + " " + subscriber.error.peek(), event);
+            values.add(event.getValue());
+        }
+        Assert.assertEquals(200, values.size());
+        Assert.assertTrue(subscriber.error.isEmpty());
+        subscriber.subscription.cancel();
+    }
+
+    /**
+     * updates of a Marshallable value are sent as the fields which changed, and the client patches the last
+     * value it was sent.
+     */
+    @Test
+    public void updatesOfMarshallableValuesArePatched() throws Exception {
+        @NotNull final MapView<String, FieldDeltaTest.Quote> serverMap = serverAssetTree.acquireMap("quotes",
+                String.class, FieldDeltaTest.Quote.class);
+        serverMap.put("EURUSD", FieldDeltaTest.quote(1.1000));
+
+        @NotNull final BlockingQueue<MapEvent> events = new ArrayBlockingQueue<>(128);
+        clientAssetTree.registerSubscriber("quotes", MapEvent.class, events::add);
+        Assert.assertEquals(FieldDeltaTest.quote(1.1000), events.poll(10, SECONDS).getValue());
+
+        for (int i = 1; i <= 100; i++)
+            serverMap.put("EURUSD", FieldDeltaTest.quote(1.1000 + i / 1e4));
+
+        for (int i = 1; i <= 100; i++) {
+            final MapEvent event = events.poll(10, SECONDS);
+            Assert.assertTrue("event " + i, event instanceof UpdatedEvent);
+            Assert.assertEquals(FieldDeltaTest.quote(1.1000 + (i - 1) / 1e4), event.oldValue());
+            Assert.assertEquals(FieldDeltaTest.quote(1.1000 + i / 1e4), event.getValue());
+        }
+    }
+
     /**
      * doing a put on the server, listening for the event on the client
      *
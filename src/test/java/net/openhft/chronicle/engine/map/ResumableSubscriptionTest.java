@@ -0,0 +1,114 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package net.openhft.chronicle.engine.map;
+
+import net.openhft.chronicle.engine.ShutdownHooks;
+import net.openhft.chronicle.engine.ThreadMonitoringTest;
+import net.openhft.chronicle.engine.api.map.MapEvent;
+import net.openhft.chronicle.engine.api.map.MapView;
+import net.openhft.chronicle.engine.api.pubsub.Subscriber;
+import net.openhft.chronicle.engine.api.pubsub.SubscriptionCollection;
+import net.openhft.chronicle.engine.api.tree.RequestContext;
+import net.openhft.chronicle.engine.query.Filter;
+import net.openhft.chronicle.engine.tree.VanillaAssetTree;
+import org.jetbrains.annotations.NotNull;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class ResumableSubscriptionTest extends ThreadMonitoringTest {
+    @Rule
+    public ShutdownHooks hooks = new ShutdownHooks();
+
+    @NotNull
+    private static RequestContext resumable() {
+        return RequestContext.requestContext("resume").elementType(MapEvent.class).resumable(true);
+    }
+
+    @Test
+    public void resumingIsSentOnlyTheMissedEvents() {
+        @NotNull VanillaAssetTree tree = hooks.addCloseable(new VanillaAssetTree().forTesting());
+        @NotNull MapView<String, String> map = tree.acquireMap("resume", String.class, String.class);
+        map.put("a", "1");
+        map.put("b", "2");
+        @NotNull SubscriptionCollection subscription = tree.acquireAsset("resume").subscription(false);
+
+        @NotNull List<Object> first = Collections.synchronizedList(new ArrayList<>());
+        @NotNull Subscriber<Object> subscriber = first::add;
+        subscription.registerSubscriber(resumable(), subscriber, Filter.empty());
+        map.put("a", "3");
+        subscription.unregisterSubscriber(subscriber);
+
+        // the position of the bootstrap, the entries, then the event with its position.
+        assertEquals(4, first.size());
+        @NotNull SequencedEvent position = (SequencedEvent) first.get(0);
+        assertNull(position.event());
+        assertTrue(first.get(1) instanceof InsertedEvent);
+        assertTrue(first.get(2) instanceof InsertedEvent);
+        @NotNull SequencedEvent last = (SequencedEvent) first.get(3);
+        assertEquals(position.sequence() + 1, last.sequence());
+        assertEquals("3", last.event().getValue());
+
+        // missed while not subscribed.
+        map.put("b", "4");
+        map.remove("a");
+
+        @NotNull List<Object> resumed = Collections.synchronizedList(new ArrayList<>());
+        subscription.registerSubscriber(resumable().resumeFrom(last.epoch(), last.sequence()),
+                (Subscriber<Object>) resumed::add, Filter.empty());
+        assertEquals(2, resumed.size());
+        assertEquals(last.sequence() + 1, ((SequencedEvent) resumed.get(0)).sequence());
+        assertEquals("4", ((SequencedEvent) resumed.get(0)).event().getValue());
+        assertTrue(((SequencedEvent) resumed.get(1)).event() instanceof RemovedEvent);
+
+        map.put("c", "5");
+        assertEquals(3, resumed.size());
+        assertEquals(last.sequence() + 3, ((SequencedEvent) resumed.get(2)).sequence());
+    }
+
+    @Test
+    public void anUnknownPositionIsBootstrapped() {
+        @NotNull VanillaAssetTree tree = hooks.addCloseable(new VanillaAssetTree().forTesting());
+        @NotNull MapView<String, String> map = tree.acquireMap("resume", String.class, String.class);
+        map.put("a", "1");
+        @NotNull SubscriptionCollection subscription = tree.acquireAsset("resume").subscription(false);
+
+        @NotNull List<Object> first = Collections.synchronizedList(new ArrayList<>());
+        @NotNull Subscriber<Object> subscriber = first::add;
+        subscription.registerSubscriber(resumable(), subscriber, Filter.empty());
+        subscription.unregisterSubscriber(subscriber);
+        @NotNull SequencedEvent position = (SequencedEvent) first.get(0);
+        map.put("b", "2");
+
+        // e.g. the server was restarted.
+        @NotNull List<Object> resumed = Collections.synchronizedList(new ArrayList<>());
+        subscription.registerSubscriber(resumable().resumeFrom(position.epoch() + 1, position.sequence()),
+                (Subscriber<Object>) resumed::add, Filter.empty());
+        assertEquals(3, resumed.size());
+        @NotNull SequencedEvent bootstrap = (SequencedEvent) resumed.get(0);
+        assertNull(bootstrap.event());
+        assertEquals(position.sequence() + 1, bootstrap.sequence());
+        assertTrue(resumed.get(1) instanceof InsertedEvent);
+        assertTrue(resumed.get(2) instanceof InsertedEvent);
+    }
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+
+package net.openhft.chronicle.engine.map;
+
+import net.openhft.chronicle.engine.ShutdownHooks;
+import net.openhft.chronicle.engine.ThreadMonitoringTest;
+import net.openhft.chronicle.engine.api.map.MapView;
+import net.openhft.chronicle.engine.api.tree.AssetTree;
+import net.openhft.chronicle.engine.server.ServerEndpoint;
+import net.openhft.chronicle.engine.tree.VanillaAssetTree;
+import net.openhft.chronicle.network.TCPRegistry;
+import net.openhft.chronicle.network.connection.TcpChannelHub;
+import net.openhft.chronicle.wire.AbstractMarshallable;
+import net.openhft.chronicle.wire.WireType;
+import org.jetbrains.annotations.NotNull;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class SecondaryIndexesTest extends ThreadMonitoringTest {
+    private static final String CONNECTION = "host.port.SecondaryIndexesTest";
+
+    @Rule
+    public ShutdownHooks hooks = new ShutdownHooks();
+
+    @NotNull
+    private static Set<String> setOf(String... keys) {
+        return new HashSet<>(Arrays.asList(keys));
+    }
+
+    @Test
+    public void indexesAreMaintainedFromEvents() {
+        @NotNull VanillaAssetTree tree = hooks.addCloseable(new VanillaAssetTree().forTesting());
+        @NotNull MapView<String, Order> map = tree.acquireMap("orders", String.class, Order.class);
+        map.put("1", new Order("OPEN", 10));
+        map.put("2", new Order("FILLED", 20));
+
+        // built from the entries already in the map.
+        assertTrue(map.addIndex("status"));
+        assertFalse(map.addIndex("status"));
+        assertTrue(map.addIndex("large", o -> o.quantity >= 100));
+        assertEquals(setOf("1"), map.keysWhere("status", "OPEN"));
+
+        map.put("3", new Order("OPEN", 200));
+        map.put("1", new Order("FILLED", 10));
+        map.remove("2");
+        assertEquals(setOf("3"), map.keysWhere("status", "OPEN"));
+        assertEquals(setOf("1"), map.keysWhere("status", "FILLED"));
+        assertEquals(setOf("3"), map.keysWhere("large", true));
+        assertEquals(Collections.singletonMap("3", new Order("OPEN", 200)), map.entriesWhere("status", "OPEN"));
+        assertTrue(map.keysWhere("status", "CANCELLED").isEmpty());
+
+        // another view of the same asset shares the indexes.
+        @NotNull MapView<String, Order> map2 = tree.acquireMap("orders", String.class, Order.class);
+        assertEquals(setOf("3"), map2.keysWhere("status", "OPEN"));
+
+        map.clear();
+        assertTrue(map.keysWhere("status", "FILLED").isEmpty());
+    }
+
+    @Test
+    public void eventsWithoutTheOldValueMoveTheKey() {
+        @NotNull SecondaryIndexes.Index<String, Order> index = new SecondaryIndexes.Index<>(o -> o.status);
+        index.onMessage(InsertedEvent.of("orders", "1", new Order("OPEN", 10), false));
+        index.onMessage(InsertedEvent.of("orders", "2", new Order("OPEN", 20), false));
+
+        // as replicated, which don't carry the old value.
+        index.onMessage(UpdatedEvent.of("orders", "1", null, new Order("FILLED", 10), true, true));
+        index.onMessage(RemovedEvent.of("orders", "2", null, true));
+        assertTrue(index.keysWhere("OPEN").isEmpty());
+        assertEquals(setOf("1"), index.keysWhere("FILLED"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void unknownIndex() {
+        @NotNull VanillaAssetTree tree = hooks.addCloseable(new VanillaAssetTree().forTesting());
+        tree.acquireMap("orders", String.class, Order.class).keysWhere("status", "OPEN");
+    }
+
+    @Test(timeout = 20000)
+    public void remoteLookups() throws IOException {
+        @NotNull VanillaAssetTree serverTree = hooks.addCloseable(new VanillaAssetTree().forTesting());
+        TCPRegistry.createServerSocketChannelFor(CONNECTION);
+        hooks.addCloseable(new ServerEndpoint(CONNECTION, serverTree, "cluster"));
+        @NotNull AssetTree clientTree = hooks.addCloseable(new VanillaAssetTree().forRemoteAccess(CONNECTION, WireType.TEXT));
+        try {
+            @NotNull MapView<String, Order> serverMap = serverTree.acquireMap("orders", String.class, Order.class);
+            serverMap.put("1", new Order("OPEN", 10));
+            serverMap.put("2", new Order("FILLED", 20));
+
+            @NotNull MapView<String, Order> clientMap = clientTree.acquireMap("orders", String.class, Order.class);
+            assertTrue(clientMap.addIndex("status"));
+            serverMap.put("3", new Order("OPEN", 30));
+
+            assertEquals(setOf("1", "3"), clientMap.keysWhere("status", "OPEN"));
+            @NotNull Map<String, Order> filled = clientMap.entriesWhere("status", "FILLED");
+            assertEquals(Collections.singletonMap("2", new Order("FILLED", 20)), filled);
+            // the index is on the server, so it serves local lookups too.
+            assertEquals(setOf("1", "3"), serverMap.keysWhere("status", "OPEN"));
+        } finally {
+            clientTree.close();
+            TcpChannelHub.closeAllHubs();
+            TCPRegistry.reset();
+        }
+    }
+
+    static class Order extends AbstractMarshallable {
+        String status;
+        int quantity;
+
+        Order(String status, int quantity) {
+            this.status = status;
+            this.quantity = quantity;
+        }
+    }
+}
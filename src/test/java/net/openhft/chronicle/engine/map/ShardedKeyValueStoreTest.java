@@ -0,0 +1,199 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+
+package net.openhft.chronicle.engine.map;
+
+import net.openhft.chronicle.core.Jvm;
+import net.openhft.chronicle.engine.ShutdownHooks;
+import net.openhft.chronicle.engine.ThreadMonitoringTest;
+import net.openhft.chronicle.engine.api.map.MapEvent;
+import net.openhft.chronicle.engine.api.map.MapView;
+import net.openhft.chronicle.engine.api.pubsub.InvalidSubscriberException;
+import net.openhft.chronicle.engine.api.pubsub.Subscriber;
+import net.openhft.chronicle.engine.api.tree.Asset;
+import net.openhft.chronicle.engine.api.tree.RequestContext;
+import net.openhft.chronicle.engine.map.ShardedKeyValueStore.Overflow;
+import net.openhft.chronicle.engine.tree.VanillaAssetTree;
+import org.jetbrains.annotations.NotNull;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ShardedKeyValueStoreTest extends ThreadMonitoringTest {
+    private static final int SHARDS = 4;
+    private static final int CAPACITY = 10;
+
+    @Rule
+    public ShutdownHooks hooks = new ShutdownHooks();
+
+    @NotNull
+    private ShardedKeyValueStore<String, String> sharded(@NotNull VanillaAssetTree tree, String name) {
+        @NotNull Asset asset = tree.acquireAsset(name);
+        @NotNull RequestContext rc = RequestContext.requestContext(name).keyType(String.class).valueType(String.class);
+        @NotNull ShardedKeyValueStore<String, String> store = new ShardedKeyValueStore<>(rc, asset, SHARDS);
+        asset.addView(ObjectKeyValueStore.class, store);
+        return store;
+    }
+
+    @NotNull
+    private ShardedKeyValueStore<String, String> oneShard(@NotNull VanillaAssetTree tree, String name, @NotNull Overflow overflow) {
+        @NotNull Asset asset = tree.acquireAsset(name);
+        @NotNull RequestContext rc = RequestContext.requestContext(name).keyType(String.class).valueType(String.class);
+        @NotNull ShardedKeyValueStore<String, String> store = new ShardedKeyValueStore<>(rc, asset, 1, CAPACITY, overflow);
+        asset.addView(ObjectKeyValueStore.class, store);
+        return store;
+    }
+
+    @NotNull
+    private static Subscriber<MapEvent> waitingFor(@NotNull CountDownLatch release, @NotNull AtomicInteger events) {
+        return e -> {
+            try {
+                release.await(10, SECONDS);
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+            }
+            events.incrementAndGet();
+        };
+    }
+
+    @Test
+    public void eventsOfAKeyArePublishedInOrder() throws InvalidSubscriberException {
+        @NotNull VanillaAssetTree tree = hooks.addCloseable(new VanillaAssetTree().forTesting());
+        @NotNull ShardedKeyValueStore<String, String> store = sharded(tree, "sharded");
+        @NotNull MapView<String, String> map = tree.acquireMap("sharded", String.class, String.class);
+
+        @NotNull Map<String, List<String>> values = new ConcurrentHashMap<>();
+        tree.registerSubscriber("sharded", MapEvent.class, e ->
+                values.computeIfAbsent((String) e.getKey(), k -> Collections.synchronizedList(new ArrayList<>()))
+                        .add((String) e.getValue()));
+
+        for (int i = 0; i < 10; i++)
+            for (int k = 0; k < 100; k++)
+                map.put("k" + k, "v" + i);
+        store.flushEvents();
+
+        assertEquals(100, values.size());
+        @NotNull List<String> expected = new ArrayList<>();
+        for (int i = 0; i < 10; i++)
+            expected.add("v" + i);
+        for (@NotNull List<String> list : values.values())
+            assertEquals(expected, list);
+
+        long entries = 0, writes = 0;
+        @NotNull Set<String> keys = new HashSet<>();
+        for (int s = 0; s < store.shards(); s++) {
+            assertTrue(store.entries(s) > 0);
+            entries += store.entries(s);
+            writes += store.writes(s);
+            assertEquals(0, store.pendingEvents(s));
+            store.keysFor(s, keys::add);
+        }
+        assertEquals(100, entries);
+        assertEquals(1000, writes);
+        assertEquals(100, keys.size());
+        assertEquals(100, map.size());
+    }
+
+    @Test
+    public void bootstrapSeesEachEntryOnce() {
+        @NotNull VanillaAssetTree tree = hooks.addCloseable(new VanillaAssetTree().forTesting());
+        sharded(tree, "bootstrap");
+        @NotNull MapView<String, String> map = tree.acquireMap("bootstrap", String.class, String.class);
+        @NotNull List<String> first = Collections.synchronizedList(new ArrayList<>());
+        tree.registerSubscriber("bootstrap", MapEvent.class, e -> first.add((String) e.getKey()));
+
+        for (int k = 0; k < 200; k++)
+            map.put("k" + k, "v" + k);
+
+        @NotNull List<String> second = Collections.synchronizedList(new ArrayList<>());
+        tree.registerSubscriber("bootstrap", MapEvent.class, e -> second.add((String) e.getKey()));
+        assertEquals(200, second.size());
+        assertEquals(200, new HashSet<>(second).size());
+    }
+
+    @Test
+    public void aSlowSubscriberHoldsUpWritersRatherThanTheQueueGrowing() throws InterruptedException {
+        @NotNull VanillaAssetTree tree = hooks.addCloseable(new VanillaAssetTree().forTesting());
+        @NotNull ShardedKeyValueStore<String, String> store = oneShard(tree, "blocked", Overflow.BLOCK);
+        @NotNull MapView<String, String> map = tree.acquireMap("blocked", String.class, String.class);
+        @NotNull CountDownLatch release = new CountDownLatch(1);
+        @NotNull AtomicInteger events = new AtomicInteger();
+        tree.registerSubscriber("blocked", MapEvent.class, waitingFor(release, events));
+
+        @NotNull Thread writer = new Thread(() -> {
+            for (int i = 0; i < 100; i++)
+                map.put("k" + i, "v" + i);
+        }, "writer");
+        writer.start();
+        writer.join(200);
+        assertTrue(writer.isAlive());
+        assertEquals(CAPACITY, store.pendingEvents(0));
+        assertTrue(store.stats(0).blocked() > 0);
+
+        release.countDown();
+        writer.join(10_000);
+        store.flushEvents();
+        assertEquals(100, events.get());
+        assertEquals(0, store.droppedEvents(0));
+        assertEquals(CAPACITY, store.stats(0).maxDepth());
+    }
+
+    @Test
+    public void dropOldestKeepsTheQueueBounded() {
+        @NotNull VanillaAssetTree tree = hooks.addCloseable(new VanillaAssetTree().forTesting());
+        @NotNull ShardedKeyValueStore<String, String> store = oneShard(tree, "dropped", Overflow.DROP_OLDEST);
+        @NotNull MapView<String, String> map = tree.acquireMap("dropped", String.class, String.class);
+        @NotNull CountDownLatch release = new CountDownLatch(1);
+        @NotNull AtomicInteger events = new AtomicInteger();
+        tree.registerSubscriber("dropped", MapEvent.class, waitingFor(release, events));
+
+        for (int i = 0; i < 100; i++)
+            map.put("k" + i, "v" + i);
+        assertTrue(store.pendingEvents(0) <= CAPACITY);
+        assertTrue(store.droppedEvents(0) > 0);
+
+        release.countDown();
+        store.flushEvents();
+        assertEquals(100, events.get() + store.droppedEvents(0));
+    }
+
+    @Test
+    public void closePublishesTheEventsStillQueued() {
+        @NotNull VanillaAssetTree tree = hooks.addCloseable(new VanillaAssetTree().forTesting());
+        @NotNull ShardedKeyValueStore<String, String> store = sharded(tree, "closed");
+        @NotNull MapView<String, String> map = tree.acquireMap("closed", String.class, String.class);
+        @NotNull AtomicInteger events = new AtomicInteger();
+        tree.registerSubscriber("closed", MapEvent.class, e -> {
+            Jvm.pause(1);
+            events.incrementAndGet();
+        });
+
+        for (int i = 0; i < 100; i++)
+            map.put("k" + i, "v" + i);
+        store.close();
+        assertEquals(100, events.get());
+    }
+}
@@ -0,0 +1,265 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+
+package net.openhft.chronicle.engine.map;
+
+import net.openhft.chronicle.core.Jvm;
+import net.openhft.chronicle.engine.ShutdownHooks;
+import net.openhft.chronicle.engine.ThreadMonitoringTest;
+import net.openhft.chronicle.engine.api.map.KeyValueStore.EntriesSnapshot;
+import net.openhft.chronicle.engine.api.map.MapEvent;
+import net.openhft.chronicle.engine.api.map.MapView;
+import net.openhft.chronicle.engine.api.pubsub.InvalidSubscriberException;
+import net.openhft.chronicle.engine.api.pubsub.PacedSubscriber;
+import net.openhft.chronicle.engine.api.pubsub.Subscriber;
+import net.openhft.chronicle.engine.api.tree.Asset;
+import net.openhft.chronicle.engine.tree.VanillaAssetTree;
+import org.jetbrains.annotations.NotNull;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.junit.Assert.*;
+
+public class SnapshotIterationTest extends ThreadMonitoringTest {
+
+    @Rule
+    public ShutdownHooks hooks = new ShutdownHooks();
+
+    @Test
+    public void snapshotIgnoresWritesDuringTheScan() throws InvalidSubscriberException {
+        @NotNull VanillaAssetTree tree = hooks.addCloseable(new VanillaAssetTree().forTesting());
+        @NotNull Asset asset = tree.acquireAsset("snapshot");
+        @NotNull VanillaKeyValueStore<String, String> store = new VanillaKeyValueStore<>(asset);
+        @NotNull Map<String, String> expected = new TreeMap<>();
+        for (int i = 0; i < 100; i++) {
+            store.put("k" + i, "v" + i);
+            expected.put("k" + i, "v" + i);
+        }
+
+        @NotNull Map<String, String> seen = new TreeMap<>();
+        try (@NotNull EntriesSnapshot<String, String> snapshot = store.snapshot()) {
+            snapshot.entriesFor(e -> {
+                if (seen.isEmpty()) {
+                    // every key is either before or after this one in the scan.
+                    for (int i = 0; i < 100; i += 3)
+                        store.put("k" + i, "changed");
+                    for (int i = 1; i < 100; i += 3)
+                        store.remove("k" + i);
+                    store.put("new", "added");
+                    store.remove("k2");
+                    store.put("k2", "re-added");
+                }
+                assertNull(seen.put(e.getKey(), e.getValue()));
+            });
+        }
+        assertEquals(expected, seen);
+        assertEquals("re-added", store.get("k2"));
+        assertNull(store.get("k1"));
+        assertEquals(68, store.longSize());
+    }
+
+    @Test
+    public void bootstrapThenEventsExactlyOnce() {
+        @NotNull VanillaAssetTree tree = hooks.addCloseable(new VanillaAssetTree().forTesting());
+        @NotNull MapView<String, String> map = tree.acquireMap("bootstrap", String.class, String.class);
+        for (int i = 0; i < 10; i++)
+            map.put("k" + i, "v" + i);
+
+        @NotNull List<String> events = new ArrayList<>();
+        tree.registerSubscriber("bootstrap", MapEvent.class, e -> {
+            if (events.isEmpty()) {
+                map.put("k5", "changed");
+                map.remove("k7");
+                map.put("k10", "v10");
+            }
+            events.add(e.getKey() + "=" + e.getValue());
+        });
+
+        @NotNull List<String> bootstrap = new ArrayList<>(events.subList(0, 10));
+        bootstrap.sort(null);
+        assertEquals("[k0=v0, k1=v1, k2=v2, k3=v3, k4=v4, k5=v5, k6=v6, k7=v7, k8=v8, k9=v9]", bootstrap.toString());
+        assertEquals("[k5=changed, k7=null, k10=v10]", events.subList(10, events.size()).toString());
+
+        events.clear();
+        map.put("k1", "later");
+        assertEquals("[k1=later]", events.toString());
+    }
+
+    @Test
+    public void snapshotWaitsForAWriteStillNotifyingItsSubscribers() throws InterruptedException {
+        @NotNull VanillaAssetTree tree = hooks.addCloseable(new VanillaAssetTree().forTesting());
+        @NotNull MapView<String, String> map = tree.acquireMap("gated", String.class, String.class);
+        @NotNull CountDownLatch notifying = new CountDownLatch(1);
+        @NotNull CountDownLatch release = new CountDownLatch(1);
+        tree.registerSubscriber("gated", MapEvent.class, e -> {
+            if (!"slow".equals(e.getKey()))
+                return;
+            notifying.countDown();
+            try {
+                release.await(5, SECONDS);
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+            }
+        });
+
+        @NotNull Thread writer = new Thread(() -> map.put("slow", "written"), "writer");
+        writer.start();
+        assertTrue(notifying.await(5, SECONDS));
+
+        @NotNull Map<String, String> seen = new ConcurrentHashMap<>();
+        @NotNull Thread reader = new Thread(() -> map.entrySet().forEach(e -> seen.put(e.getKey(), e.getValue())), "reader");
+        reader.start();
+        reader.join(200);
+        // the snapshot isn't opened while the write is half done.
+        assertTrue(reader.isAlive());
+
+        release.countDown();
+        reader.join(5000);
+        writer.join(5000);
+        assertFalse(reader.isAlive());
+        assertEquals("{slow=written}", seen.toString());
+    }
+
+    @Test
+    public void chunkedBootstrapRunsOnTheEventLoop() throws InterruptedException {
+        @NotNull VanillaAssetTree tree = hooks.addCloseable(new VanillaAssetTree().forTesting());
+        @NotNull MapView<String, String> map = tree.acquireMap("chunked", String.class, String.class);
+        for (int i = 0; i < 1000; i++)
+            map.put("k" + i, "v" + i);
+
+        @NotNull Map<String, String> seen = new ConcurrentHashMap<>();
+        @NotNull AtomicInteger events = new AtomicInteger();
+        @NotNull CountDownLatch bootstrapped = new CountDownLatch(1);
+        tree.registerSubscriber("chunked?bootstrapChunkSize=10", MapEvent.class, new Subscriber<MapEvent>() {
+            @Override
+            public void onMessage(@NotNull MapEvent e) {
+                events.incrementAndGet();
+                if (e.getValue() == null)
+                    seen.remove(e.getKey());
+                else
+                    seen.put((String) e.getKey(), (String) e.getValue());
+            }
+
+            @Override
+            public void onEndOfBootstrap() {
+                bootstrapped.countDown();
+            }
+        });
+        // writes while the bootstrap is sent are passed after it.
+        for (int i = 0; i < 1000; i += 2)
+            map.put("k" + i, "changed");
+        map.remove("k1");
+
+        assertTrue(bootstrapped.await(10, SECONDS));
+        for (int i = 0; i < 100 && events.get() < 1501; i++)
+            Jvm.pause(10);
+        assertEquals(1501, events.get());
+        assertEquals(new TreeMap<>(map), new TreeMap<>(seen));
+    }
+
+    @Test
+    public void chunkedBootstrapWaitsForAPacedSubscriber() throws InterruptedException {
+        @NotNull VanillaAssetTree tree = hooks.addCloseable(new VanillaAssetTree().forTesting());
+        @NotNull MapView<String, String> map = tree.acquireMap("paced", String.class, String.class);
+        for (int i = 0; i < 100; i++)
+            map.put("k" + i, "v" + i);
+
+        @NotNull AtomicLong available = new AtomicLong(25);
+        @NotNull AtomicInteger events = new AtomicInteger();
+        @NotNull CountDownLatch bootstrapped = new CountDownLatch(1);
+        tree.registerSubscriber("paced?bootstrapChunkSize=10", MapEvent.class, new PacedSubscriber<MapEvent>() {
+            @Override
+            public long available() {
+                return available.get();
+            }
+
+            @Override
+            public void onMessage(@NotNull MapEvent e) {
+                events.incrementAndGet();
+                available.decrementAndGet();
+            }
+
+            @Override
+            public void onEndOfBootstrap() {
+                bootstrapped.countDown();
+            }
+        });
+
+        Jvm.pause(200);
+        assertEquals(25, events.get());
+        assertEquals(1, bootstrapped.getCount());
+
+        available.addAndGet(75);
+        assertTrue(bootstrapped.await(10, SECONDS));
+        assertEquals(100, events.get());
+    }
+
+    @Test
+    public void chunkedBootstrapStopsOnceUnsubscribed() {
+        @NotNull VanillaAssetTree tree = hooks.addCloseable(new VanillaAssetTree().forTesting());
+        @NotNull MapView<String, String> map = tree.acquireMap("unsubscribed", String.class, String.class);
+        for (int i = 0; i < 100; i++)
+            map.put("k" + i, "v" + i);
+
+        @NotNull AtomicLong available = new AtomicLong(10);
+        @NotNull AtomicInteger events = new AtomicInteger();
+        @NotNull AtomicInteger ends = new AtomicInteger();
+        @NotNull PacedSubscriber<MapEvent> subscriber = new PacedSubscriber<MapEvent>() {
+            @Override
+            public long available() {
+                return available.get();
+            }
+
+            @Override
+            public void onMessage(@NotNull MapEvent e) {
+                events.incrementAndGet();
+                available.decrementAndGet();
+            }
+
+            @Override
+            public void onEndOfBootstrap() {
+                ends.addAndGet(100);
+            }
+
+            @Override
+            public void onEndOfSubscription() {
+                ends.incrementAndGet();
+            }
+        };
+        tree.registerSubscriber("unsubscribed?bootstrapChunkSize=10", MapEvent.class, subscriber);
+        Jvm.pause(100);
+        assertEquals(10, events.get());
+
+        tree.unregisterSubscriber("unsubscribed", subscriber);
+        available.set(1000);
+        map.put("k0", "changed");
+        Jvm.pause(100);
+        assertEquals(10, events.get());
+        assertEquals(1, ends.get());
+    }
+}
@@ -0,0 +1,185 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+
+package net.openhft.chronicle.engine.map;
+
+import net.openhft.chronicle.core.Jvm;
+import net.openhft.chronicle.engine.ShutdownHooks;
+import net.openhft.chronicle.engine.ThreadMonitoringTest;
+import net.openhft.chronicle.engine.api.column.ColumnViewInternal.MarshableOrderBy;
+import net.openhft.chronicle.engine.api.column.ColumnViewInternal.SortedFilter;
+import net.openhft.chronicle.engine.api.column.MapColumnView;
+import net.openhft.chronicle.engine.api.map.KeyRange;
+import net.openhft.chronicle.engine.api.map.MapEvent;
+import net.openhft.chronicle.engine.api.map.MapView;
+import net.openhft.chronicle.engine.api.pubsub.Subscriber;
+import net.openhft.chronicle.engine.api.tree.Asset;
+import net.openhft.chronicle.engine.api.tree.RequestContext;
+import net.openhft.chronicle.engine.query.Filter;
+import net.openhft.chronicle.engine.tree.VanillaAssetTree;
+import org.jetbrains.annotations.NotNull;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+import static org.junit.Assert.*;
+
+public class SortedKeyValueStoreTest extends ThreadMonitoringTest {
+
+    @Rule
+    public ShutdownHooks hooks = new ShutdownHooks();
+
+    @NotNull
+    private MapView<String, String> sortedMap(@NotNull String name) {
+        @NotNull VanillaAssetTree tree = hooks.addCloseable(new VanillaAssetTree().forTesting());
+        @NotNull Asset asset = tree.acquireAsset(name);
+        asset.addView(AuthenticatedKeyValueStore.class, new SortedKeyValueStore<>(asset, String.class));
+        @NotNull MapView<String, String> map = tree.acquireMap(name, String.class, String.class);
+        for (String key : new String[]{"GBPUSD.spot", "EURUSD.spot", "EURUSD.1m", "EURUSE", "EURUSD", "AUDUSD.spot"})
+            map.put(key, key.toLowerCase());
+        return map;
+    }
+
+    @Test
+    public void rangesAndPrefixes() {
+        @NotNull MapView<String, String> map = sortedMap("sorted");
+
+        assertEquals(Arrays.asList("EURUSD.1m", "EURUSD.spot"),
+                new ArrayList<>(map.subMap(KeyRange.prefix("EURUSD.")).keySet()));
+        assertEquals(Arrays.asList("AUDUSD.spot", "EURUSD", "EURUSD.1m", "EURUSD.spot"),
+                new ArrayList<>(map.subMap(KeyRange.of(null, "EURUSE")).keySet()));
+        assertEquals(Collections.singletonList("GBPUSD.spot"),
+                new ArrayList<>(map.subMap(new KeyRange<>("EURUSE", false, null, false)).keySet()));
+        assertEquals("eurusd.spot", map.subMap(KeyRange.prefix("EURUSD.s")).get("EURUSD.spot"));
+
+        @NotNull List<String> keys = new ArrayList<>(map.keySet());
+        @NotNull List<String> sorted = new ArrayList<>(keys);
+        Collections.sort(sorted);
+        assertEquals(sorted, keys);
+    }
+
+    @Test
+    public void columnViewOrdersKeysAsAnUnsortedMapDoes() {
+        @NotNull MapView<String, String> map = sortedMap("columns");
+        map.put("eurusd.lower", "lower");
+        @NotNull SortedFilter filter = new SortedFilter();
+        filter.marshableOrderBy.add(new MarshableOrderBy("key", false));
+
+        @NotNull List<Object> keys = new ArrayList<>();
+        map.asset().acquireView(MapColumnView.class).iterator(filter).forEachRemaining(row -> keys.add(row.get("key")));
+        // ignoring case, as the column view does for any map, not in the store's order.
+        assertEquals(Arrays.asList("AUDUSD.spot", "EURUSD", "EURUSD.1m", "eurusd.lower", "EURUSD.spot",
+                "EURUSE", "GBPUSD.spot"), keys);
+    }
+
+    @Test
+    public void rangeSubscriptions() {
+        @NotNull MapView<String, String> map = sortedMap("range");
+        @NotNull List<String> events = new ArrayList<>();
+        map.registerRangeSubscriber(KeyRange.prefix("EURUSD."), e -> events.add(e.getKey() + "=" + e.getValue()));
+        assertEquals(Arrays.asList("EURUSD.1m=eurusd.1m", "EURUSD.spot=eurusd.spot"), events);
+
+        events.clear();
+        map.put("EURUSD.spot", "1.1");
+        map.put("GBPUSD.spot", "1.3");
+        map.put("EURUSD.3m", "1.2");
+        map.remove("EURUSD");
+        map.remove("EURUSD.1m");
+        assertEquals(Arrays.asList("EURUSD.spot=1.1", "EURUSD.3m=1.2", "EURUSD.1m=null"), events);
+    }
+
+    @Test
+    public void rangeBootstrapIsASnapshotWhileKeysAreWritten() throws InterruptedException {
+        @NotNull MapView<String, String> map = sortedMap("rangeWrites");
+        @NotNull Map<String, String> before = new TreeMap<>();
+        for (int i = 0; i < 1000; i++) {
+            @NotNull String key = String.format("K.%04d", i);
+            map.put(key, "v" + i);
+            before.put(key, "v" + i);
+        }
+
+        @NotNull Map<String, String> bootstrap = new ConcurrentHashMap<>();
+        @NotNull Map<String, String> seen = new ConcurrentHashMap<>();
+        @NotNull AtomicInteger events = new AtomicInteger();
+        @NotNull CountDownLatch bootstrapped = new CountDownLatch(1);
+        @NotNull Subscriber<MapEvent<String, String>> subscriber = new Subscriber<MapEvent<String, String>>() {
+            @Override
+            public void onMessage(@NotNull MapEvent<String, String> e) {
+                events.incrementAndGet();
+                if (bootstrapped.getCount() > 0)
+                    assertNull(bootstrap.put(e.getKey(), e.getValue()));
+                if (e.getValue() == null)
+                    seen.remove(e.getKey());
+                else
+                    seen.put(e.getKey(), e.getValue());
+            }
+
+            @Override
+            public void onEndOfBootstrap() {
+                bootstrapped.countDown();
+            }
+        };
+        @NotNull Filter<MapEvent<String, String>> filter = new Filter<>();
+        filter.addFilter(KeyRange.prefix("K."));
+        @NotNull RequestContext rc = RequestContext.requestContext("rangeWrites").elementType(MapEvent.class)
+                .bootstrap(true).bootstrapChunkSize(10);
+        ((KVSSubscription<String, String>) map.asset().subscription(true)).registerSubscriber(rc, subscriber, filter);
+
+        // written while the bootstrap is sent in chunks, both ahead of and behind where it has got to.
+        for (int i = 999; i >= 0; i -= 2)
+            map.put(String.format("K.%04d", i), "changed");
+        map.remove("K.0000");
+        map.put("K.1000", "added");
+        map.put("L.0000", "out of range");
+
+        assertTrue(bootstrapped.await(10, SECONDS));
+        for (int i = 0; i < 100 && events.get() < 1502; i++)
+            Jvm.pause(10);
+        assertEquals(before, new TreeMap<>(bootstrap));
+        assertEquals(1502, events.get());
+        assertEquals(map.subMap(KeyRange.prefix("K.")), new TreeMap<>(seen));
+    }
+
+    @Test
+    public void prefixSuccessor() {
+        assertEquals("abd", KeyRange.successor("abc"));
+        assertEquals("ac", KeyRange.successor("ab\uffff"));
+        assertNull(KeyRange.successor("\uffff"));
+        assertTrue(KeyRange.prefix("ab").contains("ab\uffff\uffff"));
+        assertFalse(KeyRange.prefix("ab").contains("ac"));
+    }
+
+    @Test
+    public void valuesAreHeldOffHeap() {
+        @NotNull VanillaAssetTree tree = hooks.addCloseable(new VanillaAssetTree().forTesting());
+        @NotNull SortedKeyValueStore<Integer, String> store = new SortedKeyValueStore<>(tree.acquireAsset("offheap"), String.class);
+        store.put(1, "one");
+        long used = store.offHeapBytes();
+        assertTrue(used > 0);
+        assertEquals("one", store.getAndPut(1, "uno"));
+        assertEquals(used, store.offHeapBytes());
+        assertEquals("uno", store.getAndRemove(1));
+        assertEquals(0, store.offHeapBytes());
+    }
+}
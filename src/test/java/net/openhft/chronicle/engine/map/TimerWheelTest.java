@@ -0,0 +1,72 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package net.openhft.chronicle.engine.map;
+
+import org.jetbrains.annotations.NotNull;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class TimerWheelTest {
+
+    @Test
+    public void itemsFallDueNoEarlierThanTheirDeadlineAndWithinATick() {
+        long start = 1_000_003;
+        @NotNull TimerWheel<Long> wheel = new TimerWheel<>(10, start);
+        @NotNull Random random = new Random(1);
+        int count = 10_000;
+        for (int i = 0; i < count; i++) {
+            // from a few ms to several days away, to exercise every level and the overflow.
+            long deadline = start + (long) Math.pow(10, 1 + random.nextDouble() * 8);
+            wheel.schedule(deadline, deadline);
+        }
+        assertEquals(count, wheel.size());
+
+        @NotNull List<Long> due = new ArrayList<>();
+        long now = start;
+        while (wheel.size() > 0) {
+            now += 1 + random.nextInt(now - start < 1_000_000 ? 20 : 200_000);
+            long time = now;
+            wheel.advance(now, deadline -> {
+                assertTrue(deadline + " > " + time, deadline <= time);
+                due.add(deadline);
+            });
+        }
+        assertEquals(count, due.size());
+    }
+
+    @Test
+    public void onlyDueItemsAreVisited() {
+        @NotNull TimerWheel<String> wheel = new TimerWheel<>(10, 0);
+        wheel.schedule("soon", 25);
+        wheel.schedule("later", 10_000);
+
+        @NotNull List<String> due = new ArrayList<>();
+        assertEquals(0, wheel.advance(20, due::add));
+        assertEquals(1, wheel.advance(30, due::add));
+        assertEquals(1, wheel.size());
+        assertEquals(0, wheel.advance(9_990, due::add));
+        assertEquals(1, wheel.advance(10_000, due::add));
+        assertEquals("[soon, later]", due.toString());
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package net.openhft.chronicle.engine.map;
+
+import net.openhft.chronicle.bytes.Bytes;
+import net.openhft.chronicle.bytes.BytesStore;
+import net.openhft.chronicle.engine.api.map.MapView;
+import net.openhft.chronicle.engine.tree.VanillaAsset;
+import net.openhft.chronicle.engine.tree.VanillaAssetTree;
+import org.jetbrains.annotations.NotNull;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class ValueCompressorTest {
+
+    @NotNull
+    private static BytesStore repetitive(int length) {
+        @NotNull StringBuilder sb = new StringBuilder();
+        while (sb.length() < length)
+            sb.append("key=value-").append(sb.length() % 10).append(';');
+        sb.setLength(length);
+        return BytesStore.wrap(sb.toString().getBytes());
+    }
+
+    @Test
+    public void roundTripsEachCodec() {
+        for (@NotNull ValueCompressions compression : new ValueCompressions[]{ValueCompressions.DEFLATE, ValueCompressions.LZ}) {
+            @NotNull ValueCompressor compressor = new ValueCompressor(compression, 64);
+            @NotNull BytesStore value = repetitive(4096);
+            Bytes compressBuffer = Bytes.elasticByteBuffer();
+            Bytes decompressBuffer = Bytes.elasticByteBuffer();
+            try {
+                BytesStore stored = compressor.compress(value, compressBuffer);
+                assertTrue(compression.name(), ValueCompressor.isCompressed(stored));
+                assertTrue(compression.name(), stored.readRemaining() < value.readRemaining() / 4);
+                BytesStore read = ValueCompressor.decompress(stored, decompressBuffer);
+                assertEquals(compression.name(), value.to8bitString(), read.to8bitString());
+            } finally {
+                compressBuffer.release();
+                decompressBuffer.release();
+            }
+        }
+    }
+
+    @Test
+    public void onlyTheNamesOfTheCodecsAreAccepted() {
+        assertEquals(ValueCompressions.DEFLATE, ValueCompressions.forName("deflate"));
+        assertEquals(ValueCompressions.LZ, ValueCompressions.forName(" LZ "));
+        assertNull(ValueCompressions.forName("none"));
+        assertNull(ValueCompressions.forName(null));
+        for (@NotNull String name : new String[]{"gzip", "zip", "lz4", "lzw", "snappy"}) {
+            try {
+                ValueCompressions.forName(name);
+                fail(name);
+            } catch (IllegalArgumentException expected) {
+                assertTrue(expected.getMessage().contains(name));
+            }
+        }
+    }
+
+    @Test
+    public void smallOrIncompressibleValuesAreStoredAsIs() {
+        @NotNull ValueCompressor compressor = new ValueCompressor(ValueCompressions.LZ, 128);
+        Bytes buffer = Bytes.elasticByteBuffer();
+        try {
+            @NotNull BytesStore small = repetitive(100);
+            assertSame(small, compressor.compress(small, buffer));
+
+            @NotNull byte[] random = new byte[1000];
+            new Random(1).nextBytes(random);
+            random[0] = 1;
+            @NotNull BytesStore incompressible = BytesStore.wrap(random);
+            assertSame(incompressible, compressor.compress(incompressible, buffer));
+            assertFalse(ValueCompressor.isCompressed(incompressible));
+        } finally {
+            buffer.release();
+        }
+    }
+
+    @Test
+    public void valuesStartingWithZeroAreEscaped() {
+        @NotNull ValueCompressor compressor = new ValueCompressor(ValueCompressions.DEFLATE, 1024);
+        Bytes compressBuffer = Bytes.elasticByteBuffer();
+        Bytes decompressBuffer = Bytes.elasticByteBuffer();
+        try {
+            @NotNull BytesStore value = BytesStore.wrap(new byte[]{0, 1, 2, 3});
+            BytesStore stored = compressor.compress(value, compressBuffer);
+            assertTrue(ValueCompressor.isCompressed(stored));
+            BytesStore read = ValueCompressor.decompress(stored, decompressBuffer);
+            assertArrayEquals(new byte[]{0, 1, 2, 3}, read.toByteArray());
+        } finally {
+            compressBuffer.release();
+            decompressBuffer.release();
+        }
+    }
+
+    @Test
+    public void mapsWithoutCompressionReadValuesStartingWithZeroAsIs() {
+        @NotNull VanillaAssetTree tree = new VanillaAssetTree().forTesting();
+        try {
+            ((VanillaAsset) tree.root()).enableTranslatingValuesToBytesStore();
+            @NotNull MapView<String, String> map = tree.acquireMap("plain", String.class, String.class);
+            @NotNull String value = "\0\1 starts with a zero byte";
+            map.put("key", value);
+            assertEquals(value, map.get("key"));
+            assertEquals(value, map.remove("key"));
+        } finally {
+            tree.close();
+        }
+    }
+}
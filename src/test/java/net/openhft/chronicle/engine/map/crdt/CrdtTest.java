@@ -0,0 +1,116 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+
+package net.openhft.chronicle.engine.map.crdt;
+
+import net.openhft.chronicle.bytes.Bytes;
+import net.openhft.chronicle.bytes.BytesStore;
+import net.openhft.chronicle.wire.WireType;
+import org.jetbrains.annotations.NotNull;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import static org.junit.Assert.*;
+
+public class CrdtTest {
+    private static final byte HOST1 = 1, HOST2 = 2;
+
+    @NotNull
+    private static BytesStore encode(Object value) {
+        @NotNull Bytes bytes = Bytes.elasticByteBuffer();
+        WireType.BINARY.apply(bytes).getValueOut().object(value);
+        return bytes;
+    }
+
+    private static Object decode(@NotNull BytesStore bytes) {
+        return WireType.BINARY.apply(bytes.bytesForRead()).getValueIn().object(Object.class);
+    }
+
+    @Test
+    public void concurrentIncrementsAreNotLost() {
+        @NotNull PNCounter base = new PNCounter().plus(HOST1, 10);
+        @NotNull PNCounter host1 = base.plus(HOST1, 5).plus(HOST1, -2);
+        @NotNull PNCounter host2 = base.plus(HOST2, 7);
+
+        @NotNull PNCounter merged1 = base.plus(HOST1, 5).plus(HOST1, -2);
+        assertTrue(merged1.mergeFrom(host2));
+        @NotNull PNCounter merged2 = base.plus(HOST2, 7);
+        assertTrue(merged2.mergeFrom(host1));
+
+        assertEquals(20, merged1.value());
+        assertEquals(merged1, merged2);
+        assertFalse(merged1.mergeFrom(host2));
+        assertEquals(20, merged1.value());
+    }
+
+    @Test
+    public void addWinsOverAConcurrentRemove() {
+        @NotNull ORSet<String> base = new ORSet<String>().with(HOST1, "a").with(HOST1, "b");
+        @NotNull ORSet<String> host1 = base.without("a").without("b");
+        @NotNull ORSet<String> host2 = base.with(HOST2, "a");
+
+        assertTrue(host1.mergeFrom(host2));
+        assertTrue(host2.mergeFrom(base.without("a").without("b")));
+        assertEquals(new HashSet<>(Arrays.asList("a")), host1.elements());
+        assertEquals(host1, host2);
+
+        @NotNull GSet<String> g1 = new GSet<String>().with("x");
+        assertTrue(g1.mergeFrom(new GSet<String>().with("y")));
+        assertEquals(new HashSet<>(Arrays.asList("x", "y")), g1.elements());
+    }
+
+    @Test
+    public void mergerMergesEncodedValues() {
+        @NotNull CrdtMerger merger = new CrdtMerger(WireType.BINARY);
+        @NotNull BytesStore local = encode(new PNCounter().plus(HOST1, 3));
+        @NotNull BytesStore remote = encode(new PNCounter().plus(HOST2, 4));
+        assertTrue(remote.readRemaining() < 64);
+
+        BytesStore merged = merger.merge(local, remote);
+        assertNotNull(merged);
+        assertEquals(7, ((PNCounter) decode(merged)).value());
+        assertSame(merged, merger.merge(merged, local));
+        assertNull(merger.merge(encode("text"), remote));
+
+        @NotNull ORSet<String> set = new ORSet<String>().with(HOST1, "a").with(HOST2, "b").without("a");
+        assertEquals(set, decode(encode(set)));
+    }
+
+    @Test
+    public void mergeKeepsConcurrentLocalIncrements() throws InterruptedException {
+        @NotNull CrdtMerger merger = new CrdtMerger(WireType.BINARY);
+        @NotNull ConcurrentMap<String, BytesStore> map = new ConcurrentHashMap<>();
+        map.put("counter", encode(new PNCounter()));
+        @NotNull Thread local = new Thread(() -> {
+            for (int i = 0; i < 10_000; i++)
+                map.compute("counter", (k, v) -> encode(((PNCounter) decode(v)).plus(HOST1, 1)));
+        }, "local-increments");
+        local.start();
+        for (int i = 1; i <= 1_000; i++) {
+            @NotNull BytesStore remote = encode(new PNCounter().plus(HOST2, i));
+            assertTrue(merger.mergeInto(remote, () -> map.get("counter"),
+                    (expected, merged) -> map.replace("counter", expected, merged.copy())));
+        }
+        local.join();
+        assertEquals(11_000, ((PNCounter) decode(map.get("counter"))).value());
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package net.openhft.chronicle.engine.map.remote;
+
+import org.jetbrains.annotations.NotNull;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class EventDispatcherTest {
+
+    @Test
+    public void aFullQueueSpillsRatherThanWaits() throws InterruptedException {
+        @NotNull EventDispatcher dispatcher = new EventDispatcher("spill", 1, 2);
+        try {
+            @NotNull CountDownLatch release = new CountDownLatch(1);
+            @NotNull List<Integer> called = Collections.synchronizedList(new ArrayList<>());
+            dispatcher.dispatch("key", () -> {
+                try {
+                    release.await(5, SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+
+            @NotNull List<Integer> expected = new ArrayList<>();
+            long start = System.nanoTime();
+            for (int i = 0; i < 100; i++) {
+                int n = i;
+                assertTrue(dispatcher.dispatch("key", () -> called.add(n)));
+                expected.add(i);
+            }
+            // the subscriber is stuck, but the reader wasn't held up.
+            assertTrue(System.nanoTime() - start < SECONDS.toNanos(1));
+            assertTrue(dispatcher.overflows() > 0);
+
+            @NotNull CountDownLatch done = new CountDownLatch(1);
+            dispatcher.dispatchAfterAll(done::countDown);
+            release.countDown();
+            assertTrue(done.await(5, SECONDS));
+            assertEquals(expected, called);
+            assertEquals(0, dispatcher.queued());
+
+        } finally {
+            dispatcher.close();
+        }
+    }
+}
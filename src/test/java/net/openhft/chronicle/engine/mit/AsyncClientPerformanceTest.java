@@ -0,0 +1,88 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+
+package net.openhft.chronicle.engine.mit;
+
+import net.openhft.chronicle.engine.api.map.MapView;
+import net.openhft.chronicle.engine.server.ServerEndpoint;
+import net.openhft.chronicle.engine.tree.VanillaAssetTree;
+import net.openhft.chronicle.network.TCPRegistry;
+import net.openhft.chronicle.network.connection.TcpChannelHub;
+import net.openhft.chronicle.wire.WireType;
+import org.jetbrains.annotations.NotNull;
+import org.junit.Ignore;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Compares the gets per second one thread can make over loopback waiting for each reply, with keeping a
+ * number of requests in flight at once.
+ */
+@Ignore("Long running test")
+public class AsyncClientPerformanceTest {
+    private static final int REQUESTS = Integer.getInteger("requests", 200_000);
+    private static final int KEYS = 1000;
+
+    @Test
+    public void syncVersusPipelined() throws IOException {
+        @NotNull String connection = "AsyncClientPerformanceTest.host.port";
+        TCPRegistry.createServerSocketChannelFor(connection);
+        @NotNull VanillaAssetTree serverTree = new VanillaAssetTree().forTesting();
+        @NotNull ServerEndpoint serverEndpoint = new ServerEndpoint(connection, serverTree, "cluster");
+        @NotNull VanillaAssetTree clientTree = new VanillaAssetTree().forRemoteAccess(connection, WireType.BINARY);
+        try {
+            @NotNull MapView<String, String> map = clientTree.acquireMap("bench", String.class, String.class);
+            @NotNull String[] keys = new String[KEYS];
+            for (int i = 0; i < KEYS; i++) {
+                keys[i] = "key" + i;
+                map.put(keys[i], "value" + i);
+            }
+
+            for (int run = 0; run < 5; run++) {
+                long start = System.nanoTime();
+                for (int i = 0; i < REQUESTS; i++)
+                    map.get(keys[i % KEYS]);
+                long time = System.nanoTime() - start;
+                System.out.printf("sync: %,d gets/s%n", REQUESTS * 1_000_000_000L / time);
+
+                for (int window : new int[]{8, 64, 512}) {
+                    @NotNull CompletableFuture[] inFlight = new CompletableFuture[window];
+                    start = System.nanoTime();
+                    for (int i = 0; i < REQUESTS; i++) {
+                        int slot = i % window;
+                        if (inFlight[slot] != null)
+                            inFlight[slot].join();
+                        inFlight[slot] = map.getAsync(keys[i % KEYS]);
+                    }
+                    CompletableFuture.allOf(inFlight).join();
+                    time = System.nanoTime() - start;
+                    System.out.printf("pipelined, %d in flight: %,d gets/s%n", window,
+                            REQUESTS * 1_000_000_000L / time);
+                }
+            }
+        } finally {
+            clientTree.close();
+            serverEndpoint.close();
+            serverTree.close();
+            TcpChannelHub.closeAllHubs();
+            TCPRegistry.reset();
+        }
+    }
+}
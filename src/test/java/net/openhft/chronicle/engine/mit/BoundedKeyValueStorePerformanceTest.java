@@ -0,0 +1,100 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package net.openhft.chronicle.engine.mit;
+
+import net.openhft.chronicle.engine.api.map.KeyValueStore;
+import net.openhft.chronicle.engine.api.tree.Asset;
+import net.openhft.chronicle.engine.map.BoundedKeyValueStore;
+import net.openhft.chronicle.engine.map.EvictionPolicy;
+import net.openhft.chronicle.engine.map.VanillaKeyValueStore;
+import net.openhft.chronicle.engine.tree.VanillaAssetTree;
+import org.jetbrains.annotations.NotNull;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Ignore;
+import org.junit.Test;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.IntStream;
+
+/**
+ * Compares the throughput of the unbounded and bounded in memory stores, with a skewed mix of 90% reads
+ * over four times as many keys as the bounded stores can hold.
+ */
+@Ignore("Long running test")
+public class BoundedKeyValueStorePerformanceTest {
+    private static final int MAX_ENTRIES = 250_000;
+    private static final int KEYS = 4 * MAX_ENTRIES;
+    private static final int OPS_PER_THREAD = Integer.getInteger("ops", 5_000_000);
+    private static final int THREADS = Integer.getInteger("threads", 4);
+    private static final int RUNS = Boolean.getBoolean("quick") ? 2 : 5;
+
+    private VanillaAssetTree tree;
+
+    @Before
+    public void setUp() {
+        tree = new VanillaAssetTree().forTesting();
+    }
+
+    @After
+    public void tearDown() {
+        tree.close();
+    }
+
+    // roughly Zipfian, a few keys are read far more often than the rest.
+    private static int nextKey(@NotNull ThreadLocalRandom random) {
+        double d = random.nextDouble();
+        return (int) (KEYS * d * d * d);
+    }
+
+    private static void run(String name, @NotNull KeyValueStore<Integer, String> store) {
+        for (int run = 0; run < RUNS; run++) {
+            long start = System.nanoTime();
+            IntStream.range(0, THREADS).parallel().forEach(t -> {
+                @NotNull ThreadLocalRandom random = ThreadLocalRandom.current();
+                for (int i = 0; i < OPS_PER_THREAD; i++) {
+                    int key = nextKey(random);
+                    if (random.nextInt(10) == 0 || store.get(key) == null)
+                        store.put(key, "value-" + key);
+                }
+            });
+            long time = System.nanoTime() - start;
+            System.out.printf("%s: %,d ops/s, size %,d%n", name,
+                    (long) (THREADS * OPS_PER_THREAD * 1e9 / time), store.longSize());
+        }
+        if (store instanceof BoundedKeyValueStore)
+            System.out.println(store);
+    }
+
+    @Test
+    public void unbounded() {
+        run("unbounded", new VanillaKeyValueStore<>(tree.acquireAsset("unbounded")));
+    }
+
+    @Test
+    public void boundedLru() {
+        @NotNull Asset asset = tree.acquireAsset("lru");
+        run("LRU", new BoundedKeyValueStore<>(asset, MAX_ENTRIES, 0, EvictionPolicy.LRU));
+    }
+
+    @Test
+    public void boundedLfu() {
+        @NotNull Asset asset = tree.acquireAsset("lfu");
+        run("LFU", new BoundedKeyValueStore<>(asset, MAX_ENTRIES, 0, EvictionPolicy.LFU));
+    }
+}
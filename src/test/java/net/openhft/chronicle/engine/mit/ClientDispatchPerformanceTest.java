@@ -0,0 +1,82 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package net.openhft.chronicle.engine.mit;
+
+import net.openhft.chronicle.engine.map.remote.EventDispatcher;
+import org.jetbrains.annotations.NotNull;
+import org.junit.Ignore;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+/**
+ * Measures how long the reader of a connection spends on each event when the subscriber takes 20 us per
+ * event, calling the subscriber itself compared with handing the event to a pool of threads by key.
+ * <p>
+ * The reader is what also reads the replies to synchronous requests, so its time per event is the delay
+ * a slow subscriber adds to every other request on the connection.
+ */
+@Ignore("Long running test")
+public class ClientDispatchPerformanceTest {
+    private static final int EVENTS = Integer.getInteger("events", 50_000);
+    private static final int KEYS = 1000;
+    private static final long CALLBACK_NS = 20_000;
+
+    private static void slowSubscriber() {
+        long end = System.nanoTime() + CALLBACK_NS;
+        while (System.nanoTime() < end) {
+            // busy subscriber.
+        }
+    }
+
+    private static void report(@NotNull String name, @NotNull long[] readerNanos) {
+        Arrays.sort(readerNanos);
+        System.out.printf("%s reader time per event: 50%%: %,d ns, 99%%: %,d ns, 99.9%%: %,d ns%n", name,
+                readerNanos[readerNanos.length / 2],
+                readerNanos[readerNanos.length * 99 / 100],
+                readerNanos[readerNanos.length * 999 / 1000]);
+    }
+
+    @Test
+    public void readerLatencyUnderSlowCallbacks() throws InterruptedException {
+        for (int run = 0; run < 3; run++) {
+            @NotNull long[] direct = new long[EVENTS / 10];
+            for (int i = 0; i < direct.length; i++) {
+                long start = System.nanoTime();
+                slowSubscriber();
+                direct[i] = System.nanoTime() - start;
+            }
+            report("on reader", direct);
+
+            for (int threads : new int[]{2, 4, 8}) {
+                @NotNull EventDispatcher dispatcher = new EventDispatcher("bench", threads, 1 << 16);
+                @NotNull long[] dispatched = new long[EVENTS];
+                for (int i = 0; i < EVENTS; i++) {
+                    long start = System.nanoTime();
+                    dispatcher.dispatch("key" + i % KEYS, ClientDispatchPerformanceTest::slowSubscriber);
+                    dispatched[i] = System.nanoTime() - start;
+                }
+                while (dispatcher.queued() > 0)
+                    Thread.sleep(10);
+                report(threads + " threads", dispatched);
+                System.out.println(dispatcher);
+                dispatcher.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package net.openhft.chronicle.engine.mit;
+
+import net.openhft.chronicle.bytes.Bytes;
+import net.openhft.chronicle.engine.map.DeltaUpdatedEvent;
+import net.openhft.chronicle.engine.map.UpdatedEvent;
+import net.openhft.chronicle.engine.tree.VanillaAssetTree;
+import net.openhft.chronicle.wire.Marshallable;
+import net.openhft.chronicle.wire.Wire;
+import net.openhft.chronicle.wire.WireIn;
+import net.openhft.chronicle.wire.WireOut;
+import net.openhft.chronicle.wire.WireType;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.junit.Ignore;
+import org.junit.Test;
+
+import static net.openhft.chronicle.network.connection.CoreFields.reply;
+
+/**
+ * Compares sending each update of a wide Marshallable value whole with sending the fields which changed,
+ * in bytes written and in the time to write the update on the server and read it on the client.
+ */
+@Ignore("Long running test")
+public class DeltaUpdatePerformanceTest {
+    private static final int UPDATES = Integer.getInteger("updates", 200_000);
+    private static final int FIELDS = 50;
+
+    static {
+        // adds the aliases of the events.
+        new VanillaAssetTree();
+    }
+
+    @NotNull
+    private static UpdatedEvent<String, Wide> update(@NotNull Wide previous, int i) {
+        @NotNull Wide value = previous.copy();
+        value.values[i % FIELDS] = i;
+        return UpdatedEvent.of("/delta/map", "key", previous, value, false, true);
+    }
+
+    @Test
+    public void wideValueSmallChange() {
+        for (@NotNull WireType wireType : new WireType[]{WireType.BINARY, WireType.TEXT}) {
+            @NotNull Wire wire = wireType.apply(Bytes.elasticByteBuffer());
+            for (int run = 0; run < 3; run++) {
+                @NotNull Wide previous = new Wide();
+                long fullBytes = 0, fullNanos = 0, deltaBytes = 0, deltaNanos = 0;
+                for (int i = 0; i < UPDATES; i++) {
+                    @NotNull UpdatedEvent<String, Wide> event = update(previous, i);
+
+                    long start = System.nanoTime();
+                    wire.bytes().clear();
+                    wire.write(reply).object(event);
+                    fullBytes += wire.bytes().readRemaining();
+                    wire.read(reply).typedMarshallable();
+                    fullNanos += System.nanoTime() - start;
+
+                    start = System.nanoTime();
+                    wire.bytes().clear();
+                    @Nullable DeltaUpdatedEvent<String, Wide> delta = DeltaUpdatedEvent.of(event);
+                    wire.write(reply).object(delta);
+                    deltaBytes += wire.bytes().readRemaining();
+                    @NotNull DeltaUpdatedEvent<String, Wide> read = wire.read(reply).typedMarshallable();
+                    read.applyTo(previous);
+                    deltaNanos += System.nanoTime() - start;
+
+                    previous = event.getValue();
+                }
+                System.out.printf("%s wire, %d fields, whole: %,d bytes %,d ns/update, delta: %,d bytes %,d ns/update%n",
+                        wireType, FIELDS, fullBytes / UPDATES, fullNanos / UPDATES,
+                        deltaBytes / UPDATES, deltaNanos / UPDATES);
+            }
+            wire.bytes().release();
+        }
+    }
+
+    public static class Wide implements Marshallable {
+        final double[] values = new double[FIELDS];
+
+        @NotNull
+        Wide copy() {
+            @NotNull Wide copy = new Wide();
+            System.arraycopy(values, 0, copy.values, 0, FIELDS);
+            return copy;
+        }
+
+        @Override
+        public void readMarshallable(@NotNull WireIn wire) throws IllegalStateException {
+            for (int i = 0; i < FIELDS; i++) {
+                final int field = i;
+                values[i] = wire.read(() -> "field" + field).float64();
+            }
+        }
+
+        @Override
+        public void writeMarshallable(@NotNull WireOut wire) {
+            for (int i = 0; i < FIELDS; i++) {
+                final int field = i;
+                wire.write(() -> "field" + field).float64(values[i]);
+            }
+        }
+    }
+}
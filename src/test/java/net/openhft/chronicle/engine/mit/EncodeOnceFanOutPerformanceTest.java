@@ -0,0 +1,85 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+
+package net.openhft.chronicle.engine.mit;
+
+import net.openhft.chronicle.bytes.Bytes;
+import net.openhft.chronicle.engine.api.map.MapEvent;
+import net.openhft.chronicle.engine.map.UpdatedEvent;
+import net.openhft.chronicle.engine.server.internal.EncodedEvent;
+import net.openhft.chronicle.wire.Wire;
+import net.openhft.chronicle.wire.WireType;
+import org.jetbrains.annotations.NotNull;
+import org.junit.Ignore;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static net.openhft.chronicle.network.connection.CoreFields.reply;
+
+/**
+ * Compares serialising an event for each subscriber with serialising it once and copying the bytes, as
+ * a subscription handler does for every connection subscribed to a map.
+ */
+@Ignore("Long running test")
+public class EncodeOnceFanOutPerformanceTest {
+    private static final int EVENTS = Integer.getInteger("events", 20_000);
+    private static final EncodedEvent.Encoder REPLY = (wire, e, $) -> wire.write(reply).object(e);
+
+    @NotNull
+    private static MapEvent<String, String> event(int i) {
+        @NotNull char[] chars = new char[200];
+        Arrays.fill(chars, (char) ('a' + i % 26));
+        return UpdatedEvent.of("/fan-out/map", "key-" + i, null, new String(chars), false, true);
+    }
+
+    @Test
+    public void fanOut() {
+        for (int subscribers : new int[]{1, 100, 1000}) {
+            @NotNull Wire[] wires = new Wire[subscribers];
+            for (int i = 0; i < subscribers; i++)
+                wires[i] = WireType.BINARY.apply(Bytes.elasticByteBuffer());
+            int events = Math.max(100, EVENTS / subscribers);
+
+            for (int run = 0; run < 3; run++) {
+                long start = System.nanoTime();
+                for (int i = 0; i < events; i++) {
+                    @NotNull MapEvent<String, String> event = event(i);
+                    for (@NotNull Wire wire : wires) {
+                        wire.bytes().clear();
+                        wire.writeNotCompleteDocument(false, w -> w.write(reply).object(event));
+                    }
+                }
+                long each = (System.nanoTime() - start) / events;
+
+                start = System.nanoTime();
+                for (int i = 0; i < events; i++) {
+                    @NotNull EncodedEvent encoded = EncodedEvent.of(event(i), null, REPLY);
+                    for (@NotNull Wire wire : wires) {
+                        wire.bytes().clear();
+                        wire.writeNotCompleteDocument(false, w -> encoded.writeTo(WireType.BINARY, w));
+                    }
+                }
+                long once = (System.nanoTime() - start) / events;
+
+                System.out.printf("subscribers: %,d, encode each: %,d ns/event, encode once: %,d ns/event%n",
+                        subscribers, each, once);
+            }
+        }
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+
+package net.openhft.chronicle.engine.mit;
+
+import net.openhft.chronicle.engine.api.map.MapView;
+import net.openhft.chronicle.engine.server.ServerEndpoint;
+import net.openhft.chronicle.engine.tree.VanillaAssetTree;
+import net.openhft.chronicle.network.TCPRegistry;
+import net.openhft.chronicle.network.connection.TcpChannelHub;
+import net.openhft.chronicle.wire.WireType;
+import org.jetbrains.annotations.NotNull;
+import org.junit.Ignore;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+
+/**
+ * Measures the round trip of a get and a put of a String map over loopback, and the bytes allocated by
+ * all the threads of the client and server for each request, with the client switching between two maps
+ * so the server has to switch between their views.
+ */
+@Ignore("Long running test")
+public class EngineWireHandlerPerformanceTest {
+    private static final int REQUESTS = Integer.getInteger("requests", 200_000);
+    private static final int KEYS = 1000;
+
+    private static long allocatedBytes() {
+        @NotNull com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long total = 0;
+        for (long allocated : threads.getThreadAllocatedBytes(threads.getAllThreadIds()))
+            total += Math.max(0, allocated);
+        return total;
+    }
+
+    private static void report(@NotNull String name, @NotNull long[] nanos, long allocated) {
+        Arrays.sort(nanos);
+        System.out.printf("%s round trip: 50%%: %,d ns, 99%%: %,d ns, 99.9%%: %,d ns, allocated %,d bytes/request%n",
+                name,
+                nanos[nanos.length / 2],
+                nanos[nanos.length * 99 / 100],
+                nanos[nanos.length * 999 / 1000],
+                allocated / nanos.length);
+    }
+
+    @Test
+    public void getAndPut() throws IOException {
+        @NotNull String connection = "EngineWireHandlerPerformanceTest.host.port";
+        TCPRegistry.createServerSocketChannelFor(connection);
+        @NotNull VanillaAssetTree serverTree = new VanillaAssetTree().forTesting();
+        @NotNull ServerEndpoint serverEndpoint = new ServerEndpoint(connection, serverTree, "cluster");
+        @NotNull VanillaAssetTree clientTree = new VanillaAssetTree().forRemoteAccess(connection, WireType.BINARY);
+        try {
+            @NotNull MapView<String, String> map1 = clientTree.acquireMap("bench1", String.class, String.class);
+            @NotNull MapView<String, String> map2 = clientTree.acquireMap("bench2", String.class, String.class);
+            @NotNull String[] keys = new String[KEYS];
+            for (int i = 0; i < KEYS; i++) {
+                keys[i] = "key" + i;
+                map1.put(keys[i], "value");
+                map2.put(keys[i], "value");
+            }
+
+            for (int run = 0; run < 5; run++) {
+                @NotNull long[] gets = new long[REQUESTS];
+                long allocated = allocatedBytes();
+                for (int i = 0; i < REQUESTS; i++) {
+                    @NotNull MapView<String, String> map = (i & 1) == 0 ? map1 : map2;
+                    long start = System.nanoTime();
+                    map.get(keys[i % KEYS]);
+                    gets[i] = System.nanoTime() - start;
+                }
+                report("get", gets, allocatedBytes() - allocated);
+
+                @NotNull long[] puts = new long[REQUESTS];
+                allocated = allocatedBytes();
+                for (int i = 0; i < REQUESTS; i++) {
+                    @NotNull MapView<String, String> map = (i & 1) == 0 ? map1 : map2;
+                    long start = System.nanoTime();
+                    map.put(keys[i % KEYS], "value");
+                    // a put is asynchronous, so wait for it with a get.
+                    if ((i & 1023) == 1023)
+                        map.get(keys[0]);
+                    puts[i] = System.nanoTime() - start;
+                }
+                report("put", puts, allocatedBytes() - allocated);
+            }
+        } finally {
+            clientTree.close();
+            serverEndpoint.close();
+            serverTree.close();
+            TcpChannelHub.closeAllHubs();
+            TCPRegistry.reset();
+        }
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+
+package net.openhft.chronicle.engine.mit;
+
+import net.openhft.chronicle.engine.api.map.KeyRange;
+import net.openhft.chronicle.engine.api.map.MapEvent;
+import net.openhft.chronicle.engine.api.map.MapView;
+import net.openhft.chronicle.engine.api.pubsub.Subscriber;
+import net.openhft.chronicle.engine.api.tree.RequestContext.Operation;
+import net.openhft.chronicle.engine.query.Filter;
+import net.openhft.chronicle.engine.tree.VanillaAssetTree;
+import org.jetbrains.annotations.NotNull;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Ignore;
+import org.junit.Test;
+
+import java.util.EnumSet;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Compares the cost of a put with subscribers to single keys held in the key index and with the same
+ * subscribers filtering every event themselves, as the number of subscriptions grows to
+ * {@link #SUBSCRIPTIONS}. Each key has one subscriber, so the indexed puts should take about the same
+ * time for every count, the filtered puts should grow with it.
+ */
+@Ignore("Long running test")
+public class KeyIndexedSubscriptionPerformanceTest {
+    private static final int SUBSCRIPTIONS = Integer.getInteger("subscriptions", 100_000);
+    private static final int PUTS = Integer.getInteger("puts", 100_000);
+
+    private VanillaAssetTree tree;
+
+    @Before
+    public void setUp() {
+        tree = new VanillaAssetTree().forTesting();
+    }
+
+    @After
+    public void tearDown() {
+        tree.close();
+    }
+
+    @NotNull
+    private static Filter<MapEvent<String, String>> keyFilter(@NotNull String key) {
+        @NotNull Filter<MapEvent<String, String>> filter = new Filter<>();
+        filter.addFilter(e -> e.getKey().equals(key));
+        return filter;
+    }
+
+    @Test
+    public void putsScaleWithInterestedSubscribers() {
+        for (int subscriptions = 1_000; subscriptions <= SUBSCRIPTIONS; subscriptions *= 10) {
+            @NotNull LongAdder received = new LongAdder();
+
+            @NotNull MapView<String, String> indexed = tree.acquireMap("indexed-" + subscriptions, String.class, String.class);
+            @NotNull MapView<String, String> filtered = tree.acquireMap("filtered-" + subscriptions, String.class, String.class);
+            for (int i = 0; i < subscriptions; i++) {
+                @NotNull Subscriber<MapEvent<String, String>> subscriber = e -> received.increment();
+                indexed.registerRangeSubscriber(KeyRange.only("key-" + i), subscriber);
+                filtered.registerSubscriber(subscriber, keyFilter("key-" + i), EnumSet.noneOf(Operation.class));
+            }
+            // the filtered subscribers check every event, so fewer puts are timed.
+            int filteredPuts = Math.max(100, PUTS / subscriptions * 100);
+
+            for (int run = 0; run < 3; run++) {
+                received.reset();
+                long start = System.nanoTime();
+                for (int i = 0; i < PUTS; i++)
+                    indexed.put("key-" + i % subscriptions, "value-" + run);
+                long indexedTime = (System.nanoTime() - start) / PUTS;
+
+                start = System.nanoTime();
+                for (int i = 0; i < filteredPuts; i++)
+                    filtered.put("key-" + i % subscriptions, "value-" + run);
+                long filteredTime = (System.nanoTime() - start) / filteredPuts;
+
+                System.out.printf("subscriptions: %,d, indexed: %,d ns/put, filtered: %,d ns/put, events: %,d%n",
+                        subscriptions, indexedTime, filteredTime, received.sum());
+            }
+        }
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+
+package net.openhft.chronicle.engine.mit;
+
+import net.openhft.chronicle.engine.api.map.MapView;
+import net.openhft.chronicle.engine.tree.VanillaAssetTree;
+import org.jetbrains.annotations.NotNull;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Ignore;
+import org.junit.Test;
+
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Compares looking up the entries with one status by a secondary index and by a full scan, as the map
+ * grows while the number of matches stays at {@link #MATCHES}. The index lookups should take about the
+ * same time for every size, the scans should grow with the map.
+ */
+@Ignore("Long running test")
+public class SecondaryIndexPerformanceTest {
+    private static final int MATCHES = 100;
+    private static final int LOOKUPS = Integer.getInteger("lookups", 1_000);
+
+    private VanillaAssetTree tree;
+
+    @Before
+    public void setUp() {
+        tree = new VanillaAssetTree().forTesting();
+    }
+
+    @After
+    public void tearDown() {
+        tree.close();
+    }
+
+    @NotNull
+    private static String status(@NotNull String value) {
+        return value.substring(0, value.indexOf(':'));
+    }
+
+    @Test
+    public void lookupsScaleWithTheResult() {
+        for (int size = 10_000; size <= 1_000_000; size *= 10) {
+            @NotNull MapView<Integer, String> map = tree.acquireMap("orders-" + size, Integer.class, String.class);
+            int statuses = size / MATCHES;
+            for (int i = 0; i < size; i++)
+                map.put(i, "S" + i % statuses + ":" + i);
+            map.addIndex("status", SecondaryIndexPerformanceTest::status);
+
+            long start = System.nanoTime();
+            long found = 0;
+            for (int i = 0; i < LOOKUPS; i++)
+                found += map.entriesWhere("status", "S" + i % statuses).size();
+            long indexed = (System.nanoTime() - start) / LOOKUPS;
+
+            int scans = Math.max(1, LOOKUPS * 10_000 / size);
+            start = System.nanoTime();
+            for (int i = 0; i < scans; i++) {
+                @NotNull String status = "S" + i % statuses;
+                @NotNull Map<Integer, String> result = map.entrySet().stream()
+                        .filter(e -> status(e.getValue()).equals(status))
+                        .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
+                found += result.size();
+            }
+            long scanned = (System.nanoTime() - start) / scans;
+
+            System.out.printf("size: %,d, matches: %d, index lookup: %,d us, full scan: %,d us (found %,d)%n",
+                    size, MATCHES, indexed / 1000, scanned / 1000, found);
+        }
+    }
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+
+package net.openhft.chronicle.engine.pubsub;
+
+import net.openhft.chronicle.core.Jvm;
+import net.openhft.chronicle.engine.ShutdownHooks;
+import net.openhft.chronicle.engine.ThreadMonitoringTest;
+import net.openhft.chronicle.engine.api.map.MapEvent;
+import net.openhft.chronicle.engine.api.map.MapView;
+import net.openhft.chronicle.engine.api.pubsub.Flow;
+import net.openhft.chronicle.engine.api.pubsub.SubscriptionCollection;
+import net.openhft.chronicle.engine.api.tree.AssetTree;
+import net.openhft.chronicle.engine.tree.VanillaAssetTree;
+import org.jetbrains.annotations.NotNull;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+public class FlowPublishersTest extends ThreadMonitoringTest {
+
+    @Rule
+    public ShutdownHooks hooks = new ShutdownHooks();
+    @NotNull
+    private final AssetTree tree = hooks.addCloseable(new VanillaAssetTree().forTesting());
+
+    @Test
+    public void eventsAreOnlySentAsRequested() throws InterruptedException {
+        @NotNull MapView<String, String> map = tree.acquireMap("flow", String.class, String.class);
+        map.put("a", "1");
+        map.put("b", "2");
+
+        @NotNull RecordingSubscriber<MapEvent<String, String>> subscriber = new RecordingSubscriber<>(1);
+        FlowPublishers.<String, String>mapEvents(tree, "flow", 16).subscribe(subscriber);
+        map.put("c", "3");
+
+        Assert.assertEquals("a", subscriber.items.poll(10, SECONDS).getKey());
+        Jvm.pause(50);
+        Assert.assertTrue(subscriber.items.isEmpty());
+
+        subscriber.subscription.request(2);
+        Assert.assertEquals("b", subscriber.items.poll(10, SECONDS).getKey());
+        Assert.assertEquals("c", subscriber.items.poll(10, SECONDS).getKey());
+
+        subscriber.subscription.cancel();
+        map.put("d", "4");
+        Assert.assertEquals(0, subscription("flow").entrySubscriberCount());
+        Assert.assertTrue(subscriber.items.isEmpty());
+    }
+
+    @Test
+    public void topicsArePairedWithTheirMessages() throws InterruptedException {
+        @NotNull MapView<String, String> map = tree.acquireMap("topics", String.class, String.class);
+
+        @NotNull RecordingSubscriber<Map.Entry<String, String>> subscriber = new RecordingSubscriber<>(Long.MAX_VALUE);
+        FlowPublishers.topics(tree, "topics", String.class, String.class, 16).subscribe(subscriber);
+        map.put("a", "1");
+
+        @NotNull Map.Entry<String, String> entry = subscriber.items.poll(10, SECONDS);
+        Assert.assertEquals("a", entry.getKey());
+        Assert.assertEquals("1", entry.getValue());
+    }
+
+    @Test
+    public void aLocalSubscriberWhichFallsBehindIsSentAnError() throws InterruptedException {
+        @NotNull MapView<String, String> map = tree.acquireMap("overflow", String.class, String.class);
+
+        @NotNull RecordingSubscriber<String> subscriber = new RecordingSubscriber<>(0);
+        FlowPublishers.messages(tree, "overflow", String.class, 4).subscribe(subscriber);
+        for (int i = 0; i < 5; i++)
+            map.put("key" + i, "value" + i);
+
+        Assert.assertTrue(subscriber.error.poll(10, SECONDS) instanceof IllegalStateException);
+        Assert.assertEquals(0, subscription("overflow").keySubscriberCount());
+        Assert.assertTrue(subscriber.items.isEmpty());
+    }
+
+    @NotNull
+    private SubscriptionCollection subscription(@NotNull String name) {
+        return tree.getAsset(name).subscription(false);
+    }
+
+    /**
+     * Records the items, requesting a number of them on subscribing.
+     */
+    public static class RecordingSubscriber<T> implements Flow.Subscriber<T> {
+        public final BlockingQueue<T> items = new LinkedBlockingQueue<>();
+        public final BlockingQueue<Throwable> error = new LinkedBlockingQueue<>();
+        private final long initialRequest;
+        public volatile Flow.Subscription subscription;
+        public volatile boolean complete;
+
+        public RecordingSubscriber(long initialRequest) {
+            this.initialRequest = initialRequest;
+        }
+
+        @Override
+        public void onSubscribe(@NotNull Flow.Subscription subscription) {
+            this.subscription = subscription;
+            if (initialRequest > 0)
+                subscription.request(initialRequest);
+        }
+
+        @Override
+        public void onNext(@NotNull T item) {
+            items.add(item);
+        }
+
+        @Override
+        public void onError(@NotNull Throwable throwable) {
+            error.add(throwable);
+        }
+
+        @Override
+        public void onComplete() {
+            complete = true;
+        }
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+
+package net.openhft.chronicle.engine.server.internal;
+
+import net.openhft.chronicle.engine.server.internal.BoundedWireOutPublisher.Policy;
+import net.openhft.chronicle.wire.WireType;
+import net.openhft.chronicle.wire.WriteMarshallable;
+import org.jetbrains.annotations.NotNull;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class BoundedWireOutPublisherTest {
+    private static final int EVENTS = 2_000;
+    private static final int MAX_PENDING = 10;
+    // large enough for the outbound buffer to fill, as no client reads it.
+    private static final String VALUE = new String(new char[32 << 10]).replace('\0', 'x');
+
+    @NotNull
+    private static WriteMarshallable event(int i) {
+        return w -> w.writeDocument(false, d -> d.write(() -> "event").int32(i).write(() -> "value").text(VALUE));
+    }
+
+    @Test
+    public void dropOldestKeepsTheLatestEvents() {
+        @NotNull BoundedWireOutPublisher publisher = new BoundedWireOutPublisher(WireType.BINARY, Policy.DROP_OLDEST, MAX_PENDING);
+        try {
+            for (int i = 0; i < EVENTS; i++)
+                publisher.put(BoundedWireOutPublisher.eventKey(publisher, 1, i), event(i));
+            assertEquals(MAX_PENDING, publisher.pendingEvents());
+            assertTrue(publisher.droppedEvents() > 0);
+            assertFalse(publisher.canTakeMoreData());
+            assertEquals(publisher.droppedEvents(), publisher.stats().dropped());
+        } finally {
+            publisher.close();
+        }
+    }
+
+    @Test
+    public void conflateKeepsOneEventPerKey() {
+        @NotNull BoundedWireOutPublisher publisher = new BoundedWireOutPublisher(WireType.BINARY, Policy.CONFLATE, MAX_PENDING);
+        try {
+            for (int i = 0; i < EVENTS; i++)
+                publisher.put(BoundedWireOutPublisher.eventKey(publisher, 1, "key" + i % 5), event(i));
+            assertEquals(5, publisher.pendingEvents());
+            assertEquals(0, publisher.droppedEvents());
+            assertTrue(publisher.conflatedEvents() > 0);
+        } finally {
+            publisher.close();
+        }
+    }
+
+    @Test
+    public void conflateKeepsTheSameKeyOfEachSubscription() {
+        @NotNull BoundedWireOutPublisher publisher = new BoundedWireOutPublisher(WireType.BINARY, Policy.CONFLATE, MAX_PENDING);
+        try {
+            for (int i = 0; i < EVENTS; i++)
+                publisher.put(BoundedWireOutPublisher.eventKey(publisher, i % 2, "key"), event(i));
+            assertEquals(2, publisher.pendingEvents());
+            assertEquals(0, publisher.droppedEvents());
+        } finally {
+            publisher.close();
+        }
+    }
+
+    @Test
+    public void dropOldestNeverDropsMessagesWithoutAKey() {
+        @NotNull BoundedWireOutPublisher publisher = new BoundedWireOutPublisher(WireType.BINARY, Policy.DROP_OLDEST, MAX_PENDING);
+        @NotNull boolean[] disconnected = {false};
+        publisher.onDisconnect(() -> disconnected[0] = true);
+        for (int i = 0; i < EVENTS && !publisher.isClosed(); i++)
+            publisher.put(null, event(i));
+        assertTrue(publisher.isClosed());
+        assertTrue(disconnected[0]);
+    }
+
+    @Test(timeout = 10_000)
+    public void blockDoesNotWaitForAConnectionNotYetWrittenTo() {
+        @NotNull BoundedWireOutPublisher publisher = new BoundedWireOutPublisher(WireType.BINARY, Policy.BLOCK, MAX_PENDING);
+        try {
+            for (int i = 0; i < EVENTS; i++)
+                publisher.put(BoundedWireOutPublisher.eventKey(publisher, 1, i), event(i));
+            assertFalse(publisher.isClosed());
+            assertEquals(0, publisher.droppedEvents());
+        } finally {
+            publisher.close();
+        }
+    }
+
+    @Test
+    public void disconnectClosesALaggingConnection() {
+        @NotNull BoundedWireOutPublisher publisher = new BoundedWireOutPublisher(WireType.BINARY, Policy.DISCONNECT, MAX_PENDING);
+        @NotNull boolean[] disconnected = {false};
+        publisher.onDisconnect(() -> disconnected[0] = true);
+        for (int i = 0; i < EVENTS && !publisher.isClosed(); i++)
+            publisher.put(null, event(i));
+        assertTrue(publisher.isClosed());
+        assertTrue(disconnected[0]);
+        assertTrue(publisher.stats().disconnected());
+    }
+}
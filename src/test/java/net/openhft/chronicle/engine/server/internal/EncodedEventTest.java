@@ -0,0 +1,86 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+
+package net.openhft.chronicle.engine.server.internal;
+
+import net.openhft.chronicle.bytes.Bytes;
+import net.openhft.chronicle.engine.map.UpdatedEvent;
+import net.openhft.chronicle.wire.Wire;
+import net.openhft.chronicle.wire.WireType;
+import org.jetbrains.annotations.NotNull;
+import org.junit.Test;
+
+import static net.openhft.chronicle.network.connection.CoreFields.reply;
+import static org.junit.Assert.*;
+
+public class EncodedEventTest {
+    private static final EncodedEvent.Encoder REPLY = (wire, e, $) -> wire.write(reply).object(e);
+
+    @NotNull
+    private static String encode(@NotNull EncodedEvent event) {
+        return encode(WireType.TEXT, event).toString();
+    }
+
+    @NotNull
+    private static Bytes encode(@NotNull WireType wireType, @NotNull EncodedEvent event) {
+        @NotNull Wire wire = wireType.apply(Bytes.elasticByteBuffer());
+        event.writeTo(wireType, wire);
+        return wire.bytes();
+    }
+
+    @Test
+    public void theSubscribersOfAnEventShareItsEncoding() {
+        @NotNull UpdatedEvent<String, String> event = UpdatedEvent.of("/map", "key", "1", "2", false, true);
+        @NotNull EncodedEvent encoded = EncodedEvent.of(event, null, REPLY);
+        assertSame(encoded, EncodedEvent.of(event, null, REPLY));
+        assertEquals(encode(encoded), encode(EncodedEvent.of(event, null, REPLY)));
+    }
+
+    @Test
+    public void anEventReadAgainIsEncodedAgain() {
+        @NotNull UpdatedEvent<String, String> event = UpdatedEvent.of("/map", "key", "1", "2", false, true);
+        @NotNull String first = encode(EncodedEvent.of(event, null, REPLY));
+
+        @NotNull Wire wire = WireType.TEXT.apply(Bytes.elasticByteBuffer());
+        UpdatedEvent.of("/map", "key", "2", "3", false, true).writeMarshallable(wire);
+        event.readMarshallable(wire);
+
+        @NotNull String second = encode(EncodedEvent.of(event, null, REPLY));
+        assertNotEquals(first, second);
+        assertTrue(second.contains("3"));
+    }
+
+    @Test
+    public void eachWireTypeIsSentItsOwnEncoding() {
+        @NotNull UpdatedEvent<String, String> event = UpdatedEvent.of("/map", "key", "1", "2", false, true);
+        // BINARY and FIELDLESS_BINARY are both written by a BinaryWire.
+        @NotNull Bytes binary = encode(WireType.BINARY, EncodedEvent.of(event, null, REPLY));
+        @NotNull Bytes fieldless = encode(WireType.FIELDLESS_BINARY, EncodedEvent.of(event, null, REPLY));
+
+        @NotNull Wire expected = WireType.FIELDLESS_BINARY.apply(Bytes.elasticByteBuffer());
+        REPLY.encode(expected, event, null);
+        assertEquals(expected.bytes().toHexString(), fieldless.toHexString());
+        assertNotEquals(binary.toHexString(), fieldless.toHexString());
+    }
+
+    @Test
+    public void otherEventsAreNotShared() {
+        @NotNull String message = "message";
+        assertNotSame(EncodedEvent.of("topic", message, REPLY), EncodedEvent.of("topic", message, REPLY));
+    }
+}
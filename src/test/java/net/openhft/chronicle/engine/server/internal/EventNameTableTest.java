@@ -0,0 +1,48 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+
+package net.openhft.chronicle.engine.server.internal;
+
+import org.jetbrains.annotations.NotNull;
+import org.junit.Test;
+
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class EventNameTableTest {
+
+    @Test
+    public void everyEventIsFoundByName() {
+        @NotNull EventNameTable<MapWireHandler.EventId> table = EventNameTable.of(MapWireHandler.EventId.class);
+        @NotNull StringBuilder name = new StringBuilder();
+        for (@NotNull MapWireHandler.EventId eventId : MapWireHandler.EventId.values()) {
+            name.setLength(0);
+            name.append(eventId.name());
+            assertSame(eventId, table.lookup(name));
+        }
+    }
+
+    @Test
+    public void otherNamesAreNotFound() {
+        @NotNull EventNameTable<MapWireHandler.EventId> table = EventNameTable.of(MapWireHandler.EventId.class);
+        assertNull(table.lookup(""));
+        assertNull(table.lookup("gett"));
+        assertNull(table.lookup("Put"));
+        assertNull(table.lookup("registerSubscriber"));
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+
+package net.openhft.chronicle.engine.server.internal;
+
+import net.openhft.chronicle.bytes.Bytes;
+import net.openhft.chronicle.engine.ShutdownHooks;
+import net.openhft.chronicle.engine.ThreadMonitoringTest;
+import net.openhft.chronicle.engine.api.map.MapView;
+import net.openhft.chronicle.engine.api.tree.RequestContext;
+import net.openhft.chronicle.engine.tree.VanillaAssetTree;
+import net.openhft.chronicle.wire.Wire;
+import net.openhft.chronicle.wire.WireType;
+import net.openhft.chronicle.wire.Wires;
+import org.jetbrains.annotations.NotNull;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+
+import static net.openhft.chronicle.engine.server.internal.MapWireHandler.EventId.containsKey;
+import static net.openhft.chronicle.engine.server.internal.MapWireHandler.EventId.get;
+import static net.openhft.chronicle.engine.server.internal.MapWireHandler.EventId.put;
+import static org.junit.Assert.*;
+
+/**
+ * Reads, checks and writes of keys already in a String map should not create garbage on the server.
+ */
+public class MapWireHandlerAllocationTest extends ThreadMonitoringTest {
+    private static final int RUNS = 100_000;
+    private static final long TID = 1_000_000_000L;
+
+    @Rule
+    public ShutdownHooks hooks = new ShutdownHooks();
+
+    private MapView<String, String> map;
+    private MapWireHandler<String, String> handler;
+    private GenericWireAdapter<String, String> wireAdapter;
+    private RequestContext requestContext;
+    private Wire in;
+    private Wire out;
+
+    private static long allocatedBytes() {
+        return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean())
+                .getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    @Before
+    public void setUp() {
+        @NotNull VanillaAssetTree tree = hooks.addCloseable(new VanillaAssetTree().forTesting());
+        map = tree.acquireMap("allocation", String.class, String.class);
+        map.put("key-1", "value-1");
+        handler = new MapWireHandler<>(null);
+        wireAdapter = new GenericWireAdapter<>(String.class, String.class);
+        requestContext = RequestContext.requestContext("/allocation");
+        in = WireType.BINARY.apply(Bytes.elasticByteBuffer());
+        out = WireType.BINARY.apply(Bytes.elasticByteBuffer());
+        assert in.startUse();
+        assert out.startUse();
+    }
+
+    @After
+    public void tearDown() {
+        in.bytes().release();
+        out.bytes().release();
+    }
+
+    private void process() {
+        in.bytes().readPosition(0);
+        out.bytes().clear();
+        handler.process(in, out, map, TID, wireAdapter, requestContext);
+    }
+
+    private long allocatedPerRun() {
+        for (int i = 0; i < RUNS; i++)
+            process();
+        long start = allocatedBytes();
+        for (int i = 0; i < RUNS; i++)
+            process();
+        return allocatedBytes() - start;
+    }
+
+    @Test
+    public void get() {
+        in.writeEventName(get).text("key-1");
+        process();
+        assertTrue(Wires.fromSizePrefixedBlobs(out), Wires.fromSizePrefixedBlobs(out).contains("value-1"));
+
+        long allocated = allocatedPerRun();
+        assertTrue("allocated " + allocated + " bytes for " + RUNS + " gets", allocated < RUNS);
+    }
+
+    @Test
+    public void containsKey() {
+        in.writeEventName(containsKey).text("key-1");
+        process();
+        assertTrue(Wires.fromSizePrefixedBlobs(out), Wires.fromSizePrefixedBlobs(out).contains("true"));
+
+        long allocated = allocatedPerRun();
+        assertTrue("allocated " + allocated + " bytes for " + RUNS + " containsKeys", allocated < RUNS);
+    }
+
+    @Test
+    public void put() {
+        in.writeEventName(put).marshallable(w -> w
+                .write(MapWireHandler.Params.key).text("key-1")
+                .write(MapWireHandler.Params.value).text("value-2"));
+        process();
+        assertEquals("value-2", map.get("key-1"));
+
+        long allocated = allocatedPerRun();
+        assertTrue("allocated " + allocated + " bytes for " + RUNS + " puts", allocated < RUNS);
+    }
+}